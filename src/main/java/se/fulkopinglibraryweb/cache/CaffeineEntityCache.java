@@ -0,0 +1,148 @@
+package se.fulkopinglibraryweb.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * {@link EntityCache} backed by a Caffeine loading cache.
+ * Entries are bounded by total weight, expire a fixed time after they were written,
+ * and entries that are read after the refresh interval are reloaded in the background
+ * so hot IDs never fall out of the cache while they are still being requested.
+ *
+ * @param <K> The type of the entity's ID
+ * @param <V> The entity type
+ */
+public class CaffeineEntityCache<K, V> implements EntityCache<K, V> {
+    private final LoadingCache<K, V> cache;
+
+    private CaffeineEntityCache(Builder<K, V> builder) {
+        Caffeine<Object, Object> caffeine = Caffeine.newBuilder()
+                .expireAfterWrite(builder.expireAfterWrite)
+                .recordStats();
+        if (builder.refreshAfterWrite != null) {
+            caffeine.refreshAfterWrite(builder.refreshAfterWrite);
+        }
+        if (builder.ticker != null) {
+            caffeine.ticker(builder.ticker);
+        }
+        if (builder.executor != null) {
+            caffeine.executor(builder.executor);
+        }
+        ToIntFunction<V> weigher = builder.weigher;
+        this.cache = caffeine
+                .maximumWeight(builder.maximumWeight)
+                .<K, V>weigher((key, value) -> Math.max(1, weigher.applyAsInt(value)))
+                .build(builder.loader::apply);
+    }
+
+    public static <K, V> Builder<K, V> builder(Function<K, V> loader) {
+        return new Builder<>(loader);
+    }
+
+    @Override
+    public V get(K key) {
+        return cache.get(key);
+    }
+
+    @Override
+    public V getIfPresent(K key) {
+        return cache.getIfPresent(key);
+    }
+
+    @Override
+    public void put(K key, V value) {
+        if (value == null) {
+            cache.invalidate(key);
+        } else {
+            cache.put(key, value);
+        }
+    }
+
+    @Override
+    public void invalidate(K key) {
+        cache.invalidate(key);
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public EntityCacheStats stats() {
+        // Evictions run in the background; finish pending ones so the size and counts are current
+        cache.cleanUp();
+        CacheStats stats = cache.stats();
+        return new EntityCacheStats(stats.hitCount(), stats.missCount(), stats.loadCount(),
+                stats.evictionCount(), stats.evictionWeight(), cache.estimatedSize());
+    }
+
+    public static class Builder<K, V> {
+        private final Function<K, V> loader;
+        private long maximumWeight = 10_000;
+        private Duration expireAfterWrite = Duration.ofMinutes(30);
+        private Duration refreshAfterWrite;
+        private ToIntFunction<V> weigher = value -> 1;
+        private Ticker ticker;
+        private Executor executor;
+
+        private Builder(Function<K, V> loader) {
+            if (loader == null) {
+                throw new IllegalArgumentException("Cache loader cannot be null");
+            }
+            this.loader = loader;
+        }
+
+        public Builder<K, V> maximumWeight(long maximumWeight) {
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        public Builder<K, V> expireAfterWrite(Duration expireAfterWrite) {
+            this.expireAfterWrite = expireAfterWrite;
+            return this;
+        }
+
+        public Builder<K, V> refreshAfterWrite(Duration refreshAfterWrite) {
+            this.refreshAfterWrite = refreshAfterWrite;
+            return this;
+        }
+
+        public Builder<K, V> weigher(ToIntFunction<V> weigher) {
+            this.weigher = weigher;
+            return this;
+        }
+
+        /**
+         * @param ticker The time source for expiry and refresh, in place of the system clock
+         */
+        Builder<K, V> ticker(Ticker ticker) {
+            this.ticker = ticker;
+            return this;
+        }
+
+        /**
+         * @param executor Where evictions and refreshes run, in place of the common fork-join pool
+         */
+        Builder<K, V> executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public CaffeineEntityCache<K, V> build() {
+            return new CaffeineEntityCache<>(this);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package se.fulkopinglibraryweb.cache;
+
+/**
+ * Cache of loaded entities keyed by document ID.
+ * Implementations are expected to be bounded and thread-safe so that a repository
+ * can keep one instance for its whole lifetime without pinning the collection on heap.
+ *
+ * @param <K> The type of the entity's ID
+ * @param <V> The entity type
+ */
+public interface EntityCache<K, V> {
+
+    /**
+     * Get an entity, loading it through the cache's loader on a miss.
+     *
+     * @param key The ID of the entity
+     * @return The entity, or null if it does not exist
+     */
+    V get(K key);
+
+    /**
+     * Get an entity only if it is already cached.
+     *
+     * @param key The ID of the entity
+     * @return The cached entity, or null on a miss
+     */
+    V getIfPresent(K key);
+
+    /**
+     * Store an entity in the cache, replacing any previous value.
+     *
+     * @param key The ID of the entity
+     * @param value The entity to cache
+     */
+    void put(K key, V value);
+
+    /**
+     * Remove a single entity from the cache.
+     *
+     * @param key The ID of the entity
+     */
+    void invalidate(K key);
+
+    /**
+     * Remove all entities from the cache.
+     */
+    void invalidateAll();
+
+    /**
+     * @return The approximate number of cached entities
+     */
+    long estimatedSize();
+
+    /**
+     * @return A snapshot of the hit, miss and eviction counters
+     */
+    EntityCacheStats stats();
+}
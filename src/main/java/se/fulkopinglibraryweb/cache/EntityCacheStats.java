@@ -0,0 +1,13 @@
+package se.fulkopinglibraryweb.cache;
+
+/**
+ * Point-in-time statistics for an {@link EntityCache}.
+ */
+public record EntityCacheStats(long hitCount, long missCount, long loadCount,
+                               long evictionCount, long evictionWeight, long estimatedSize) {
+
+    public double hitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+}
@@ -0,0 +1,293 @@
+package se.fulkopinglibraryweb.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Cache of search results for one item collection, keyed by the normalized query, the item type,
+ * the remaining criteria and the page.
+ * Caffeine's Window TinyLFU policy admits a new result only if its key has been requested more
+ * often than the result it would evict, so a stream of one-off queries cannot push out the
+ * popular ones.
+ * Each result records the fields it depends on, the IDs of the items in it and the terms an item
+ * must contain to match it. A write drops every result it could change, and rewrites in place the
+ * results containing the item when only fields they do not depend on changed. A search that
+ * overlaps a write does not store its result, so a cached result never predates a write.
+ * Results are also registered by the IDs they contain and by one of their terms, so a write only
+ * examines the results that contain the item, that match on a term of the item before or after
+ * the write, or that any item may match.
+ *
+ * @param <T> The item type
+ */
+public class SearchResultCache<T> {
+
+    /**
+     * Identifies one search.
+     *
+     * @param operation The kind of search, e.g. {@code ranked}
+     * @param itemType The item type searched
+     * @param query The normalized query
+     * @param field The field searched, or null for all fields
+     * @param criteria The other criteria, such as filters and sort order
+     * @param page The page requested, such as its number and size or its cursor
+     */
+    public record Key(String operation, String itemType, String query, String field, List<Object> criteria,
+                      List<Object> page) {
+    }
+
+    /**
+     * What a cached result depends on.
+     *
+     * @param fields The fields whose values decide whether and where an item appears in the result
+     * @param terms Terms that every matching item is indexed under, or null if any item may match
+     */
+    public record Dependencies(Set<String> fields, List<String> terms) {
+    }
+
+    private final Cache<Key, Entry<?>> cache;
+    private final Function<T, String> idOf;
+    private final BiFunction<T, String, Object> fieldReader;
+    private final Function<T, Set<String>> termsOf;
+    // Reverse maps from a write to the results it may change
+    private final Map<String, Set<Key>> keysById = new ConcurrentHashMap<>();
+    private final Map<String, Set<Key>> keysByTerm = new ConcurrentHashMap<>();
+    private final Set<Key> unconstrainedKeys = ConcurrentHashMap.newKeySet();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+    // Incremented by every write, so a search can tell that one happened while it ran
+    private long generation;
+
+    /**
+     * @param maximumSize The maximum number of cached results
+     * @param expireAfterWrite How long a result is kept at most, as a bound on staleness from writes
+     *        that do not go through {@link #onWrite}
+     * @param idOf Reads an item's ID
+     * @param fieldReader Reads a field of an item by name
+     * @param termsOf Gives the terms an item is indexed under, which query terms are matched against
+     */
+    public SearchResultCache(long maximumSize, Duration expireAfterWrite, Function<T, String> idOf,
+                             BiFunction<T, String, Object> fieldReader, Function<T, Set<String>> termsOf) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .<Key, Entry<?>>removalListener((key, entry, cause) -> {
+                    if (key != null && entry != null) {
+                        unregister(key, entry);
+                    }
+                })
+                .build();
+        this.idOf = idOf;
+        this.fieldReader = fieldReader;
+        this.termsOf = termsOf;
+    }
+
+    /**
+     * Get a search result, running the search on a miss.
+     *
+     * @param key The search
+     * @param dependencies What the result depends on
+     * @param search Runs the search
+     * @param items Gives the items of a result
+     * @param withItems Copies a result with its items replaced, keeping their order
+     * @param <V> The result type
+     * @return The cached or new result; callers must not modify it
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V get(Key key, Dependencies dependencies, Supplier<V> search, Function<V, List<T>> items,
+                     BiFunction<V, List<T>, V> withItems) {
+        Entry<?> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return (V) cached.value;
+        }
+        long started;
+        synchronized (this) {
+            started = generation;
+        }
+        V value = search.get();
+        Set<String> ids = new HashSet<>();
+        for (T item : items.apply(value)) {
+            ids.add(idOf.apply(item));
+        }
+        synchronized (this) {
+            if (generation == started) {
+                Entry<V> entry = new Entry<>(value, dependencies, ids, items, withItems);
+                cache.put(key, entry);
+                register(key, entry);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Apply a write to the cached results. Call it once the write is visible to searches.
+     * The items must not be modified afterwards, since cached results may hold them.
+     *
+     * @param id The ID of the written item
+     * @param before The item before the write, or null if it is new
+     * @param after The item after the write, or null if it was deleted
+     */
+    public void onWrite(String id, T before, T after) {
+        synchronized (this) {
+            generation++;
+        }
+        Set<String> termsBefore = before == null ? Set.of() : termsOf.apply(before);
+        Set<String> termsAfter = after == null ? Set.of() : termsOf.apply(after);
+        Set<Key> candidates = new HashSet<>(unconstrainedKeys);
+        candidates.addAll(keysById.getOrDefault(id, Set.of()));
+        for (String term : termsBefore) {
+            candidates.addAll(keysByTerm.getOrDefault(term, Set.of()));
+        }
+        for (String term : termsAfter) {
+            candidates.addAll(keysByTerm.getOrDefault(term, Set.of()));
+        }
+        Map<String, Boolean> changed = new HashMap<>();
+        for (Key key : candidates) {
+            Entry<?> entry = cache.asMap().get(key);
+            if (entry == null) {
+                continue;
+            }
+            boolean contains = entry.ids.contains(id);
+            boolean dependsOnChange = before == null || after == null;
+            for (String field : entry.dependencies.fields()) {
+                if (dependsOnChange) {
+                    break;
+                }
+                dependsOnChange = changed.computeIfAbsent(field,
+                        name -> !Objects.equals(fieldReader.apply(before, name), fieldReader.apply(after, name)));
+            }
+            if (dependsOnChange) {
+                if (contains || mayMatch(entry, before, termsBefore) || mayMatch(entry, after, termsAfter)) {
+                    cache.invalidate(key);
+                    invalidations.increment();
+                }
+            } else if (contains) {
+                cache.asMap().replace(key, entry, entry.replacing(id, after));
+                updates.increment();
+            }
+        }
+    }
+
+    private boolean mayMatch(Entry<?> entry, T item, Set<String> itemTerms) {
+        if (item == null) {
+            return false;
+        }
+        List<String> terms = entry.dependencies.terms();
+        return terms == null || itemTerms.containsAll(terms);
+    }
+
+    private void register(Key key, Entry<?> entry) {
+        for (String id : entry.ids) {
+            addKey(keysById, id, key);
+        }
+        List<String> terms = entry.dependencies.terms();
+        if (terms == null || terms.isEmpty()) {
+            unconstrainedKeys.add(key);
+        } else {
+            // Every matching item has all the terms, so one of them is enough to find the result
+            addKey(keysByTerm, terms.get(0), key);
+        }
+    }
+
+    /**
+     * Remove the registrations of a removed or replaced result that the result now cached under
+     * the same key, if any, does not share.
+     */
+    private synchronized void unregister(Key key, Entry<?> removed) {
+        Entry<?> current = cache.asMap().get(key);
+        for (String id : removed.ids) {
+            if (current == null || !current.ids.contains(id)) {
+                removeKey(keysById, id, key);
+            }
+        }
+        if (current == null) {
+            List<String> terms = removed.dependencies.terms();
+            if (terms == null || terms.isEmpty()) {
+                unconstrainedKeys.remove(key);
+            } else {
+                removeKey(keysByTerm, terms.get(0), key);
+            }
+        }
+    }
+
+    private static void addKey(Map<String, Set<Key>> keys, String name, Key key) {
+        keys.compute(name, (n, registered) -> {
+            Set<Key> updated = registered == null ? ConcurrentHashMap.newKeySet() : registered;
+            updated.add(key);
+            return updated;
+        });
+    }
+
+    private static void removeKey(Map<String, Set<Key>> keys, String name, Key key) {
+        keys.computeIfPresent(name, (n, registered) -> {
+            registered.remove(key);
+            return registered.isEmpty() ? null : registered;
+        });
+    }
+
+    /**
+     * Drop every cached result, e.g. after the underlying index was rebuilt.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        invalidations.add(cache.estimatedSize());
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return The approximate number of cached results
+     */
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * @return A snapshot of the hit, miss, eviction, invalidation and update counters
+     */
+    public SearchResultCacheStats stats() {
+        CacheStats stats = cache.stats();
+        return new SearchResultCacheStats(stats.hitCount(), stats.missCount(), stats.evictionCount(),
+                invalidations.sum(), updates.sum(), cache.estimatedSize());
+    }
+
+    private final class Entry<V> {
+        private final V value;
+        private final Dependencies dependencies;
+        private final Set<String> ids;
+        private final Function<V, List<T>> items;
+        private final BiFunction<V, List<T>, V> withItems;
+
+        private Entry(V value, Dependencies dependencies, Set<String> ids, Function<V, List<T>> items,
+                      BiFunction<V, List<T>, V> withItems) {
+            this.value = value;
+            this.dependencies = dependencies;
+            this.ids = ids;
+            this.items = items;
+            this.withItems = withItems;
+        }
+
+        private Entry<V> replacing(String id, T item) {
+            List<T> current = items.apply(value);
+            List<T> replaced = new ArrayList<>(current.size());
+            for (T existing : current) {
+                replaced.add(id.equals(idOf.apply(existing)) ? item : existing);
+            }
+            return new Entry<>(withItems.apply(value, replaced), dependencies, ids, items, withItems);
+        }
+    }
+}
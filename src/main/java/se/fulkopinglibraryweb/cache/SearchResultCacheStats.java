@@ -0,0 +1,20 @@
+package se.fulkopinglibraryweb.cache;
+
+/**
+ * Point-in-time statistics for a {@link SearchResultCache}.
+ *
+ * @param hitCount Searches answered from the cache
+ * @param missCount Searches that had to run
+ * @param evictionCount Results dropped to make room or because they expired
+ * @param invalidationCount Results dropped because a write could change them
+ * @param updateCount Results rewritten in place because a write changed only fields they do not depend on
+ * @param estimatedSize The approximate number of cached results
+ */
+public record SearchResultCacheStats(long hitCount, long missCount, long evictionCount, long invalidationCount,
+                                     long updateCount, long estimatedSize) {
+
+    public double hitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+}
@@ -0,0 +1,17 @@
+package se.fulkopinglibraryweb.cache;
+
+/**
+ * Point-in-time statistics for a cache kept coherent by a Firestore snapshot listener.
+ *
+ * @param active Whether the listener is registered
+ * @param synced Whether the initial snapshot has been applied
+ * @param snapshotsReceived The number of snapshots delivered to the listener
+ * @param changesApplied The number of document changes applied to the cache
+ * @param removalsApplied The number of those changes that were removals
+ * @param lastLagMillis Time from a document's commit to its change being applied, for the latest snapshot
+ *        with an added or modified document; removals carry no commit time and are not included
+ * @param maxLagMillis The largest lag observed since the listener was registered
+ */
+public record SnapshotSyncStats(boolean active, boolean synced, long snapshotsReceived, long changesApplied,
+                                long removalsApplied, long lastLagMillis, long maxLagMillis) {
+}
@@ -0,0 +1,6 @@
+/**
+ * Caching classes for the application.
+ * This package contains the bounded entity caches used by the repository layer and the search
+ * result cache used by the search services.
+ */
+package se.fulkopinglibraryweb.cache;
@@ -52,6 +52,8 @@ public class FirestoreIndexConfig {
         // Book collection indexes
         Map<String, String> bookIndexes = new HashMap<>();
         bookIndexes.put("author, title", "For searching books by author and sorting by title");
+        bookIndexes.put("author, year", "For filtering books by author and a range of years");
+        bookIndexes.put("available, year", "For finding available books from a range of years");
         bookIndexes.put("genre, publishYear", "For filtering books by genre and sorting by publication year");
         bookIndexes.put("isbn", "For exact ISBN lookups");
         bookIndexes.put("title", "For title search and sorting");
@@ -2,9 +2,14 @@ package se.fulkopinglibraryweb.config;
 
 import com.google.cloud.firestore.CollectionReference;
 import com.google.cloud.firestore.Firestore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.*;
 import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 import se.fulkopinglibraryweb.utils.ValidationUtils;
+import se.fulkopinglibraryweb.repository.AbstractFirestoreRepository;
 import se.fulkopinglibraryweb.repository.BookRepository;
 import se.fulkopinglibraryweb.repository.MagazineRepository;
 import se.fulkopinglibraryweb.repository.MediaRepository;
@@ -24,11 +29,15 @@ import se.fulkopinglibraryweb.service.interfaces.MediaService;
 import se.fulkopinglibraryweb.service.impl.UserServiceImpl;
 import se.fulkopinglibraryweb.service.impl.MagazineServiceImpl;
 import se.fulkopinglibraryweb.service.impl.MediaServiceImpl;
-import se.fulkopinglibraryweb.service.impl.FirestoreSearchService;
+import se.fulkopinglibraryweb.service.FirestoreSearchService;
+import se.fulkopinglibraryweb.service.TypeaheadService;
 import se.fulkopinglibraryweb.model.Book;
 import se.fulkopinglibraryweb.model.Magazine;
 import se.fulkopinglibraryweb.model.Media;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -43,6 +52,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 @Profile({"dev", "prod", "test"})
 @PropertySource("classpath:application-${spring.profiles.active}.properties")
 public class UnifiedAppConfig {
+    private static final Logger logger = LoggerFactory.getLogger(UnifiedAppConfig.class);
 
     // Thread pool configuration
     @Bean(destroyMethod = "shutdown")
@@ -59,6 +69,20 @@ public class UnifiedAppConfig {
         );
     }
 
+    // Unified search fans out to its sources here; a full pool rejects the source instead of running it
+    // on the request thread, so a saturated pool cannot hold a search past its deadline
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService fanOutExecutor(@Value("${search.unified.threads:16}") int threads) {
+        return new ThreadPoolExecutor(
+            threads,
+            threads,
+            60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(threads * 4),
+            new NamedThreadFactory("fan-out-"),
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
     private static class NamedThreadFactory implements ThreadFactory {
         private final AtomicInteger threadNumber = new AtomicInteger(1);
         private final String namePrefix;
@@ -105,10 +129,31 @@ public class UnifiedAppConfig {
         return firestore.collection("books");
     }
 
+    // Keeps each instance's repository caches coherent with writes made by other instances. A repository
+    // without the listener cannot trust its cached entities, so update() reads every updated document back
+    // from Firestore: one extra read per write. Enable firestore.cache.snapshot-sync to apply updates to the
+    // cached entity instead.
+    @Bean
+    public SmartInitializingSingleton snapshotCacheSync(List<AbstractFirestoreRepository<?, ?>> repositories,
+            @Value("${firestore.cache.snapshot-sync:false}") boolean snapshotSync) {
+        return () -> {
+            if (snapshotSync) {
+                repositories.forEach(AbstractFirestoreRepository::enableSnapshotSync);
+            }
+            List<String> readBack = repositories.stream()
+                .filter(repository -> !repository.getSnapshotSyncStats().active())
+                .map(repository -> repository.getCollection().getId())
+                .toList();
+            if (!readBack.isEmpty()) {
+                logger.info("Snapshot sync is off for {}; update() reads each updated document back", readBack);
+            }
+        };
+    }
+
     // Service layer beans
     @Bean
-    public AsyncBookService bookService(BookRepository bookRepository, BookMapper bookMapper, ExecutorService asyncTaskExecutor) {
-        return new AsyncBookServiceImpl(bookRepository, bookMapper, asyncTaskExecutor);
+    public AsyncBookService bookService(BookRepository bookRepository, BookMapper bookMapper) {
+        return new AsyncBookServiceImpl(bookRepository, bookMapper);
     }
 
     @Bean 
@@ -139,22 +184,57 @@ public class UnifiedAppConfig {
         return new MediaServiceImpl(mediaRepository, loanService);
     }
 
-    // Search service beans with proper configuration profiles
-    @Bean
+    // Search service beans with proper configuration profiles; each index follows every write to its collection,
+    // so these repositories keep snapshot sync on whatever firestore.cache.snapshot-sync says, and, when
+    // search.snapshot.dir is set, is saved there on shutdown and restored from it on startup.
+    // A restored index catches up from change tracking, which search.snapshot.dir turns on for these
+    // collections and which needs two things set up in Firestore beforehand:
+    // - a TTL policy on the expireAt field of each <collection>_tombstones collection group, e.g.
+    //   gcloud firestore fields ttls update expireAt --collection-group=books_tombstones --enable-ttl
+    // - the single-field ascending index on writtenAt of each searched collection, which must not be exempted
+    @Bean(destroyMethod = "saveSnapshot")
     @Profile({"dev", "prod"})
-    public FirestoreSearchService<Book> bookSearchService(CollectionReference bookCollection) {
-        return new FirestoreSearchService<>(bookCollection, Book.class);
+    public FirestoreSearchService<Book> bookSearchService(CollectionReference bookCollection, BookRepository bookRepository,
+            @Value("${search.snapshot.dir:}") String snapshotDir) {
+        FirestoreSearchService<Book> searchService = new FirestoreSearchService<>(bookCollection, Book.class,
+            snapshotFile(snapshotDir, bookCollection));
+        searchService.followWrites(bookRepository);
+        return searchService;
     }
 
-    @Bean
+    @Bean(destroyMethod = "saveSnapshot")
+    @Profile({"dev", "prod"})
+    public FirestoreSearchService<Magazine> magazineSearchService(CollectionReference magazineCollection,
+            MagazineRepository magazineRepository, @Value("${search.snapshot.dir:}") String snapshotDir) {
+        FirestoreSearchService<Magazine> searchService = new FirestoreSearchService<>(magazineCollection, Magazine.class,
+            snapshotFile(snapshotDir, magazineCollection));
+        searchService.followWrites(magazineRepository);
+        return searchService;
+    }
+
+    @Bean(destroyMethod = "saveSnapshot")
     @Profile({"dev", "prod"})
-    public FirestoreSearchService<Magazine> magazineSearchService(CollectionReference magazineCollection) {
-        return new FirestoreSearchService<>(magazineCollection, Magazine.class);
+    public FirestoreSearchService<Media> mediaSearchService(CollectionReference mediaCollection, MediaRepository mediaRepository,
+            @Value("${search.snapshot.dir:}") String snapshotDir) {
+        FirestoreSearchService<Media> searchService = new FirestoreSearchService<>(mediaCollection, Media.class,
+            snapshotFile(snapshotDir, mediaCollection));
+        searchService.followWrites(mediaRepository);
+        return searchService;
+    }
+
+    private static Path snapshotFile(String snapshotDir, CollectionReference collection) {
+        return snapshotDir.isBlank() ? null : Paths.get(snapshotDir, collection.getId() + ".idx");
     }
 
     @Bean
     @Profile({"dev", "prod"})
-    public FirestoreSearchService<Media> mediaSearchService(CollectionReference mediaCollection) {
-        return new FirestoreSearchService<>(mediaCollection, Media.class);
+    public TypeaheadService typeaheadService(CollectionReference bookCollection, BookRepository bookRepository,
+            CollectionReference magazineCollection, MagazineRepository magazineRepository,
+            CollectionReference mediaCollection, MediaRepository mediaRepository) {
+        TypeaheadService typeaheadService = new TypeaheadService();
+        bookRepository.addChangeListener(typeaheadService.catalogUpdater(bookCollection, Book.class));
+        magazineRepository.addChangeListener(typeaheadService.catalogUpdater(magazineCollection, Magazine.class));
+        mediaRepository.addChangeListener(typeaheadService.catalogUpdater(mediaCollection, Media.class));
+        return typeaheadService;
     }
 }
@@ -3,7 +3,7 @@ package se.fulkopinglibraryweb.controllers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import se.fulkopinglibraryweb.exception.ControllerException;
-import se.fulkopinglibraryweb.model.Magazine;
+import se.fulkopinglibraryweb.model.MagazineSummary;
 import se.fulkopinglibraryweb.service.interfaces.AsyncMagazineService;
 import jakarta.inject.Inject;
 
@@ -34,12 +34,12 @@ public class MagazineController extends HttpServlet {
             String searchType = request.getParameter("searchType");
             String searchQuery = request.getParameter("searchQuery");
 
-            CompletableFuture<List<Magazine>> magazinesFuture;
+            CompletableFuture<List<MagazineSummary>> magazinesFuture;
             if (searchQuery != null && !searchQuery.trim().isEmpty()) {
                 logger.debug("Searching magazines with query: {}", searchQuery);
-                magazinesFuture = magazineService.searchMagazines(searchQuery);
+                magazinesFuture = magazineService.searchMagazineSummaries(searchQuery);
             } else {
-                magazinesFuture = magazineService.getAllMagazines();
+                magazinesFuture = magazineService.getMagazineSummaries();
             }
 
             magazinesFuture.thenAccept(magazines -> {
@@ -3,7 +3,7 @@ package se.fulkopinglibraryweb.controllers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import se.fulkopinglibraryweb.exception.ControllerException;
-import se.fulkopinglibraryweb.model.Media;
+import se.fulkopinglibraryweb.model.MediaSummary;
 import se.fulkopinglibraryweb.service.interfaces.MediaService;
 import se.fulkopinglibraryweb.utils.FirestoreUtil;
 
@@ -35,14 +35,14 @@ public class MediaController extends HttpServlet {
             String searchType = request.getParameter("searchType");
             String searchQuery = request.getParameter("searchQuery");
 
-            List<Media> mediaList;
+            List<MediaSummary> mediaList;
             if (searchQuery != null && !searchQuery.trim().isEmpty()) {
                 logger.debug("Searching media with type: {} query: {}", searchType, searchQuery);
-                mediaList = mediaService.searchMedia(searchType, searchQuery);
+                mediaList = mediaService.searchMediaSummaries(searchType, searchQuery);
                 logger.info("Found {} media items matching search (took {} ms)", 
                     mediaList.size(), System.currentTimeMillis() - startTime);
             } else {
-                mediaList = mediaService.getAllMedia();
+                mediaList = mediaService.getAllMediaSummaries();
                 logger.info("Retrieved all {} media items (took {} ms)", 
                     mediaList.size(), System.currentTimeMillis() - startTime);
             }
@@ -1,16 +1,24 @@
 package se.fulkopinglibraryweb.model;
 
+import se.fulkopinglibraryweb.service.search.FacetField;
+import se.fulkopinglibraryweb.service.search.SearchableField;
 import se.fulkopinglibraryweb.model.ItemType;
 import se.fulkopinglibraryweb.model.LibraryItem;
 
 public class Book extends LibraryItem {
     private String id;
+    @SearchableField(name = "title", fullText = true, boost = 3.0)
     private String title;
+    @SearchableField(name = "isbn", digitsOnly = true)
     private String isbn;
+    @SearchableField(name = "author", fullText = true, boost = 2.0, phonetic = true)
     private String author;
+    @FacetField(name = "year")
     private int year;
+    @FacetField(name = "available")
     private boolean available;
     private boolean reserved;
+    @FacetField(name = "type")
     private String type = "Book";
 
     public String getTitle() {
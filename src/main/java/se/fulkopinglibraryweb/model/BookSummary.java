@@ -0,0 +1,17 @@
+package se.fulkopinglibraryweb.model;
+
+import lombok.Value;
+
+/**
+ * The columns of a book shown in list and search views, read with a field projection
+ * instead of decoding the full document. Use {@link Book} for detail views.
+ */
+@Value
+public class BookSummary {
+    String id;
+    String title;
+    String author;
+    String isbn;
+    int year;
+    boolean available;
+}
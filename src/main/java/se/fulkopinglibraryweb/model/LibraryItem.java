@@ -1,5 +1,7 @@
 package se.fulkopinglibraryweb.model;
 
+import se.fulkopinglibraryweb.service.search.FacetField;
+import se.fulkopinglibraryweb.service.search.SearchableField;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
@@ -8,8 +10,11 @@ import lombok.experimental.SuperBuilder;
 @Setter
 @SuperBuilder
 public abstract class LibraryItem {
+    @SearchableField(name = "title", fullText = true, boost = 3.0)
     protected String title;
+    @FacetField(name = "available")
     private boolean available;
+    @FacetField(name = "type")
     private ItemType type;
 
     public LibraryItem() {
@@ -1,5 +1,7 @@
 package se.fulkopinglibraryweb.model;
 
+import se.fulkopinglibraryweb.service.search.FacetField;
+import se.fulkopinglibraryweb.service.search.SearchableField;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Size;
@@ -25,12 +27,17 @@ public class Magazine extends LibraryItem {
     @NotEmpty(message = "Publisher cannot be empty")
     @Size(min = 2, max = 100, message = "Publisher must be between 2 and 100 characters")
     @Pattern(regexp = "^[\\p{L} \\-'&.,]{2,100}$", message = "Publisher must contain only letters, spaces, and basic punctuation")
+    @SearchableField(name = "publisher", fullText = true, boost = 2.0, phonetic = true)
     private String publisher;
+    @SearchableField(name = "issn", digitsOnly = true)
     private String issn;
+    @SearchableField(name = "category")
+    @FacetField(name = "category")
     private String category;
     private int issueNumber;
     private String issue;
     private Frequency frequency;
+    @FacetField(name = "year")
     private int publicationYear;
 
     public Magazine(String id, String title, boolean available, String issn, String publisher, String issue, Frequency frequency, int publicationYear, String category, int issueNumber) {
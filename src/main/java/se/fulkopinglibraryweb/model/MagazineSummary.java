@@ -0,0 +1,18 @@
+package se.fulkopinglibraryweb.model;
+
+import lombok.Value;
+
+/**
+ * The columns of a magazine shown in list and search views, read with a field projection
+ * instead of decoding the full document. Use {@link Magazine} for detail views.
+ */
+@Value
+public class MagazineSummary {
+    String id;
+    String title;
+    String publisher;
+    String issn;
+    int issueNumber;
+    int publicationYear;
+    boolean available;
+}
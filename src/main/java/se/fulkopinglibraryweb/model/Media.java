@@ -1,5 +1,7 @@
 package se.fulkopinglibraryweb.model;
 
+import se.fulkopinglibraryweb.service.search.FacetField;
+import se.fulkopinglibraryweb.service.search.SearchableField;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.NoArgsConstructor;
@@ -11,13 +13,21 @@ import lombok.AllArgsConstructor;
 @AllArgsConstructor
 public class Media extends LibraryItem {
     private String id;
+    @SearchableField(name = "title", fullText = true, boost = 3.0)
     private String title;
+    @FacetField(name = "mediaType")
     private MediaType mediaType;
     private String catalog;
+    @SearchableField(name = "director", fullText = true, boost = 2.0, phonetic = true)
     private String director;
+    @SearchableField(name = "actors", fullText = true)
     private String actors;
+    @FacetField(name = "available")
     private boolean available;
+    @FacetField(name = "year")
     private int releaseYear;
+    @SearchableField(name = "genre")
+    @FacetField(name = "genre")
     private String genre;
     private String description;
     private String imageUrl;
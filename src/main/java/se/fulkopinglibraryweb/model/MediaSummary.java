@@ -0,0 +1,18 @@
+package se.fulkopinglibraryweb.model;
+
+import lombok.Value;
+
+/**
+ * The columns of a media item shown in list and search views, read with a field projection
+ * instead of decoding the full document. Use {@link Media} for detail views.
+ */
+@Value
+public class MediaSummary {
+    String id;
+    String title;
+    String type;
+    String director;
+    String catalog;
+    int releaseYear;
+    boolean available;
+}
@@ -8,6 +8,7 @@ public class Page<T> {
     private int pageSize;
     private long totalElements;
     private int totalPages;
+    private String nextCursor;
 
     public Page(List<T> content, int pageNumber, int pageSize, long totalElements) {
         this.content = content;
@@ -17,6 +18,17 @@ public class Page<T> {
         this.totalPages = (int) Math.ceil((double) totalElements / pageSize);
     }
 
+    /**
+     * Create a keyset-paginated page. Such pages are addressed by cursor rather than number,
+     * so the page number is 0.
+     *
+     * @param nextCursor The opaque cursor of the following page, or null if this is the last page
+     */
+    public Page(List<T> content, int pageSize, long totalElements, String nextCursor) {
+        this(content, 0, pageSize, totalElements);
+        this.nextCursor = nextCursor;
+    }
+
     // Getters
     public List<T> getContent() {
         return content;
@@ -37,4 +49,12 @@ public class Page<T> {
     public int getTotalPages() {
         return totalPages;
     }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
 }
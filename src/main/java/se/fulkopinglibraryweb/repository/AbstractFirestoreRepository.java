@@ -4,26 +4,86 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.google.cloud.firestore.*;
 import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import se.fulkopinglibraryweb.cache.CaffeineEntityCache;
+import se.fulkopinglibraryweb.cache.EntityCache;
+import se.fulkopinglibraryweb.cache.EntityCacheStats;
+import se.fulkopinglibraryweb.cache.SnapshotSyncStats;
+import se.fulkopinglibraryweb.model.Page;
+import se.fulkopinglibraryweb.utils.AggregateCounter;
 import se.fulkopinglibraryweb.utils.FirestoreConfig;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
+import se.fulkopinglibraryweb.utils.FirestorePageIterator;
+import se.fulkopinglibraryweb.utils.PageCursor;
+import se.fulkopinglibraryweb.utils.SingleFlight;
+import se.fulkopinglibraryweb.utils.SingleFlightStats;
 import se.fulkopinglibraryweb.service.search.SearchCriteria;
 import se.fulkopinglibraryweb.service.search.EnhancedSearchCriteria;
+import se.fulkopinglibraryweb.service.search.PhoneticNameIndex;
 
-import java.lang.reflect.Field;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static se.fulkopinglibraryweb.utils.ApiFutureUtils.toCompletableFuture;
+
 public abstract class AbstractFirestoreRepository<T, ID> implements FirestoreRepository<T, ID> {
     protected final Logger logger = LoggerFactory.getLogger(getClass());
     protected final Firestore firestore;
     protected final String collectionName;
     private final Class<T> entityClass;
+    private final EntityCodec<T> codec;
     
     // Cache configuration
-    private final ConcurrentHashMap<ID, T> cache = new ConcurrentHashMap<>();
     private static final long CACHE_TTL_MINUTES = 30;
-    private final ConcurrentHashMap<ID, Long> cacheTimestamps = new ConcurrentHashMap<>();
+    private static final long CACHE_REFRESH_MINUTES = 5;
+    private static final long CACHE_MAX_WEIGHT = 10_000;
+    private static final int MULTI_GET_CHUNK_SIZE = 100;
+    // Documents read to estimate filter selectivity, and how long the estimates are reused
+    private static final int STATISTICS_SAMPLE_SIZE = 500;
+    private static final Duration STATISTICS_MAX_AGE = Duration.ofMinutes(15);
+    private static final String STATISTICS_KEY = "sample";
+    // Most values Firestore accepts in one whereIn filter
+    private static final int IN_FILTER_LIMIT = 30;
+    private final EntityCache<ID, T> cache;
+    private final AggregateCounter counter = new AggregateCounter();
+    // Concurrent identical queries share one Firestore read; findById is already coalesced by the loading cache
+    private final SingleFlight<String, List<T>> queryFlights = new SingleFlight<>();
+    private final SingleFlight<ID, Optional<T>> lookupFlights = new SingleFlight<>();
+    private final List<EntityChangeListener<T, ID>> changeListeners = new CopyOnWriteArrayList<>();
+    private volatile QueryPlanner<T> planner;
+    // Statistics of a sample of the collection; once stale they are still served while a background read
+    // refreshes them, and concurrent first loads share one read
+    private final AsyncLoadingCache<String, FieldStatistics> statistics = Caffeine.newBuilder()
+            .refreshAfterWrite(STATISTICS_MAX_AGE)
+            .buildAsync((key, executor) -> sampleFieldStatistics());
+    // Phonetic indexes of the fields named by getPhoneticFields, loaded on first use
+    private final Map<String, PhoneticNameIndex> phoneticIndexes = new ConcurrentHashMap<>();
+    // Phonetic index loads in progress by field; a load's entry is only touched through compute methods,
+    // whose per-field lock orders writes recorded during the load with the load finishing
+    private final Map<String, PhoneticLoad> phoneticLoads = new ConcurrentHashMap<>();
+
+    // Whether writes leave the stamps and tombstones of ChangeTracking; only readers restored from a snapshot need them
+    private volatile boolean changeTracking;
+
+    // Snapshot listener state, only used while snapshot sync is enabled
+    private ListenerRegistration snapshotListener;
+    private volatile boolean snapshotSynced;
+    private final AtomicLong snapshotsReceived = new AtomicLong();
+    private final AtomicLong snapshotChangesApplied = new AtomicLong();
+    private final AtomicLong snapshotRemovalsApplied = new AtomicLong();
+    private volatile long snapshotLagMillis;
+    private final AtomicLong snapshotMaxLagMillis = new AtomicLong();
 
     @SuppressWarnings("unchecked")
     protected AbstractFirestoreRepository(String collectionName) {
@@ -31,6 +91,205 @@ public abstract class AbstractFirestoreRepository<T, ID> implements FirestoreRep
         this.collectionName = collectionName;
         this.entityClass = (Class<T>) ((java.lang.reflect.ParameterizedType) getClass()
             .getGenericSuperclass()).getActualTypeArguments()[0];
+        this.codec = EntityCodec.forClass(entityClass);
+        this.cache = createCache();
+    }
+
+    /**
+     * Create the entity cache used by this repository.
+     * Subclasses can override this to plug in a different cache or tune its bounds.
+     *
+     * @return The entity cache
+     */
+    protected EntityCache<ID, T> createCache() {
+        return CaffeineEntityCache.<ID, T>builder(this::loadById)
+                .maximumWeight(CACHE_MAX_WEIGHT)
+                .expireAfterWrite(Duration.ofMinutes(CACHE_TTL_MINUTES))
+                .refreshAfterWrite(Duration.ofMinutes(CACHE_REFRESH_MINUTES))
+                .weigher(this::weigh)
+                .build();
+    }
+
+    /**
+     * Estimate the relative heap cost of a cached entity.
+     * The cache is bounded by the sum of these weights, so larger entities evict sooner.
+     *
+     * @param entity The cached entity
+     * @return The weight of the entity, at least 1
+     */
+    protected int weigh(T entity) {
+        return 1;
+    }
+
+    /**
+     * @return Hit, miss and eviction statistics for this repository's entity cache
+     */
+    public EntityCacheStats getCacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * @return How many findByField and search calls ran versus joined an identical call in flight
+     */
+    public SingleFlightStats getQueryDedupStats() {
+        return queryFlights.stats();
+    }
+
+    /**
+     * @return How many asynchronous lookups by ID ran versus joined an identical lookup in flight
+     */
+    public SingleFlightStats getLookupDedupStats() {
+        return lookupFlights.stats();
+    }
+
+    /**
+     * @param limit The maximum number of queries to return
+     * @return The query keys that absorbed the most duplicate calls, with their counts
+     */
+    public Map<String, Long> getTopDeduplicatedQueries(int limit) {
+        return queryFlights.topShared(limit);
+    }
+
+    /**
+     * Stamp every write with its commit time and leave a tombstone for every delete, see
+     * {@link ChangeTracking}, so a reader restored from a snapshot can find what changed since
+     * without listing the collection. Off by default, as it adds a field to every document and a
+     * write to every delete; enable it before the writes the reader needs to see.
+     */
+    @Override
+    public void enableChangeTracking() {
+        if (!changeTracking) {
+            changeTracking = true;
+            logger.info("Change tracking enabled for collection {}", collectionName);
+        }
+    }
+
+    /**
+     * @param data The data to write
+     * @return The data stamped with its commit time when change tracking is enabled, otherwise the data itself
+     */
+    protected Map<String, Object> tracked(Map<String, Object> data) {
+        return changeTracking ? ChangeTracking.stamped(data) : data;
+    }
+
+    /**
+     * Add the delete of a document to a batch, with its tombstone when change tracking is enabled.
+     * The delete's write result comes first in the committed results.
+     *
+     * @param batch The batch to add to
+     * @param document The document to delete
+     * @return The batch
+     */
+    protected WriteBatch trackedDelete(WriteBatch batch, DocumentReference document) {
+        return changeTracking ? ChangeTracking.delete(batch, document) : batch.delete(document);
+    }
+
+    /**
+     * Subscribe to the whole collection and apply added, modified and removed documents to the
+     * local cache as they happen, so writes made by other instances are visible here without
+     * waiting for the cache entries to expire. Does nothing if the listener is already registered.
+     */
+    @Override
+    public synchronized void enableSnapshotSync() {
+        if (snapshotListener != null) {
+            return;
+        }
+        snapshotSynced = false;
+        snapshotListener = firestore.collection(collectionName).addSnapshotListener(this::applySnapshot);
+        logger.info("Snapshot sync enabled for collection {}", collectionName);
+    }
+
+    /**
+     * Remove the snapshot listener; cached entries fall back to expiry and refresh.
+     */
+    @PreDestroy
+    public synchronized void disableSnapshotSync() {
+        if (snapshotListener == null) {
+            return;
+        }
+        snapshotListener.remove();
+        snapshotListener = null;
+        snapshotSynced = false;
+        logger.info("Snapshot sync disabled for collection {}", collectionName);
+    }
+
+    /**
+     * @return Listener activity and the lag between a commit in Firestore and its arrival in this cache
+     */
+    public SnapshotSyncStats getSnapshotSyncStats() {
+        return new SnapshotSyncStats(snapshotListener != null, snapshotSynced, snapshotsReceived.get(),
+                snapshotChangesApplied.get(), snapshotRemovalsApplied.get(), snapshotLagMillis,
+                snapshotMaxLagMillis.get());
+    }
+
+    private void applySnapshot(QuerySnapshot snapshot, FirestoreException error) {
+        if (error != null) {
+            // The client stops delivering events after an error; drop back to TTL-based freshness
+            logger.error("Snapshot listener for collection {} failed", collectionName, error);
+            synchronized (this) {
+                snapshotListener = null;
+                snapshotSynced = false;
+            }
+            return;
+        }
+        if (snapshot == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long newestCommit = 0;
+        boolean removed = false;
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            QueryDocumentSnapshot document = change.getDocument();
+            @SuppressWarnings("unchecked")
+            ID id = (ID) document.getId();
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                // A removal carries no commit time, so it is counted but left out of the lag
+                cache.invalidate(id);
+                notifyDeleted(id, snapshot.getReadTime());
+                snapshotRemovalsApplied.incrementAndGet();
+                removed = true;
+            } else {
+                try {
+                    T entity = convertToEntity(document);
+                    cache.put(id, entity);
+                    notifySaved(id, entity, document.getUpdateTime());
+                } catch (InterruptedException | ExecutionException | RuntimeException e) {
+                    logger.warn("Dropping unreadable document {} from cache: {}", id, e.getMessage());
+                    cache.invalidate(id);
+                }
+                newestCommit = Math.max(newestCommit, document.getUpdateTime().toDate().getTime());
+            }
+            snapshotChangesApplied.incrementAndGet();
+        }
+        snapshotsReceived.incrementAndGet();
+        if (!snapshotSynced) {
+            // The first snapshot replays the whole collection, so its update times say nothing about lag
+            snapshotSynced = true;
+            return;
+        }
+        if (removed || newestCommit > 0) {
+            counter.invalidateAll();
+        }
+        if (newestCommit > 0) {
+            long lag = Math.max(0, now - newestCommit);
+            snapshotLagMillis = lag;
+            snapshotMaxLagMillis.accumulateAndGet(lag, Math::max);
+        }
+    }
+
+    private T loadById(ID id) {
+        try {
+            DocumentSnapshot document = firestore.collection(collectionName)
+                    .document(id.toString())
+                    .get()
+                    .get();
+            return document.exists() ? convertToEntity(document) : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread interrupted while loading entity by id", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to load entity by id", e);
+        }
     }
 
     protected <R> R tryExecute(FirestoreOperation<R> operation) throws InterruptedException, ExecutionException {
@@ -46,19 +305,26 @@ public abstract class AbstractFirestoreRepository<T, ID> implements FirestoreRep
 
     @Override
     public T save(T entity) {
+        return save(entity, false);
+    }
+
+    @Override
+    public T save(T entity, boolean reload) {
         try {
             return tryExecute(() -> {
                 Map<String, Object> data = convertToMap(entity);
                 DocumentReference docRef = firestore.collection(collectionName).document();
-                docRef.set(data).get();
-                DocumentSnapshot snapshot = docRef.get().get();
-                T savedEntity = convertToEntity(snapshot);
+                WriteResult writeResult = docRef.set(tracked(data)).get();
+                T savedEntity = reload || hasServerValues(data)
+                        ? convertToEntity(docRef.get().get())
+                        : convertWrittenData(docRef.getId(), data, writeResult.getUpdateTime());
                 
                 // Update cache with new entity
                 @SuppressWarnings("unchecked")
-                ID id = (ID) snapshot.getId();
+                ID id = (ID) docRef.getId();
                 cache.put(id, savedEntity);
-                cacheTimestamps.put(id, System.currentTimeMillis());
+                counter.invalidateAll();
+                notifySaved(id, savedEntity, writeResult.getUpdateTime());
                 
                 return savedEntity;
             });
@@ -70,75 +336,175 @@ public abstract class AbstractFirestoreRepository<T, ID> implements FirestoreRep
 
     @Override
     public Optional<T> findById(ID id) {
-        // Check cache first
-        if (cache.containsKey(id)) {
-            long lastAccessed = cacheTimestamps.getOrDefault(id, 0L);
-            if (System.currentTimeMillis() - lastAccessed < TimeUnit.MINUTES.toMillis(CACHE_TTL_MINUTES)) {
-                return Optional.of(cache.get(id));
+        // Served from the cache, which loads through to Firestore on a miss
+        try {
+            return Optional.ofNullable(cache.get(id));
+        } catch (RuntimeException e) {
+            logger.error("Error finding entity by id", e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Map<ID, T> findAllById(Collection<ID> ids) {
+        Map<ID, T> found = new LinkedHashMap<>();
+        List<DocumentReference> misses = new ArrayList<>();
+        Map<String, ID> idsByDocumentId = new HashMap<>();
+        for (ID id : ids) {
+            T cached = cache.getIfPresent(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else if (idsByDocumentId.putIfAbsent(id.toString(), id) == null) {
+                misses.add(firestore.collection(collectionName).document(id.toString()));
             }
         }
+        if (misses.isEmpty()) {
+            return found;
+        }
 
         try {
             return tryExecute(() -> {
-                DocumentSnapshot document = firestore.collection(collectionName)
-                        .document(id.toString())
-                        .get()
-                        .get();
-                
-                if (document.exists()) {
-                    T entity = convertToEntity(document);
-                    // Update cache
-                    cache.put(id, entity);
-                    cacheTimestamps.put(id, System.currentTimeMillis());
-                    return Optional.of(entity);
+                // Issue every chunk before waiting on any of them so they run concurrently
+                List<ApiFuture<List<DocumentSnapshot>>> chunks = new ArrayList<>();
+                for (int i = 0; i < misses.size(); i += MULTI_GET_CHUNK_SIZE) {
+                    List<DocumentReference> chunk = misses.subList(i, Math.min(i + MULTI_GET_CHUNK_SIZE, misses.size()));
+                    chunks.add(firestore.getAll(chunk.toArray(new DocumentReference[0])));
                 }
-                return Optional.empty();
+                for (ApiFuture<List<DocumentSnapshot>> chunk : chunks) {
+                    for (DocumentSnapshot document : chunk.get()) {
+                        if (!document.exists()) {
+                            continue;
+                        }
+                        T entity = convertToEntity(document);
+                        ID id = idsByDocumentId.get(document.getId());
+                        found.put(id, entity);
+                        cache.put(id, entity);
+                    }
+                }
+                return found;
             });
         } catch (InterruptedException | ExecutionException e) {
-            logger.error("Error finding entity by id", e);
-            throw new RuntimeException("Failed to find entity by id", e);
+            logger.error("Error finding entities by ids", e);
+            throw new RuntimeException("Failed to find entities by ids", e);
         }
     }
 
     @Override
     public List<T> findAll() {
+        // Read page by page so the whole collection is never requested in one response
+        try (Stream<T> entities = FirestorePageIterator.stream(firestore.collection(collectionName),
+                FirestorePageIterator.DEFAULT_PAGE_SIZE, this::decodeAndCacheDocument)) {
+            return entities.collect(Collectors.toList());
+        } catch (RuntimeException e) {
+            logger.error("Error finding all entities", e);
+            throw new RuntimeException("Failed to find all entities", e);
+        }
+    }
+
+    @Override
+    public Stream<T> streamAll() {
+        return streamAll(FirestorePageIterator.DEFAULT_PAGE_SIZE);
+    }
+
+    @Override
+    public Stream<T> streamAll(int pageSize) {
+        // Scans bypass the entity cache so a full pass does not evict the hot entries
+        return FirestorePageIterator.stream(firestore.collection(collectionName), pageSize, document -> {
+            try {
+                return convertToEntity(document);
+            } catch (InterruptedException | ExecutionException e) {
+                logger.error("Error converting document to entity", e);
+                throw new RuntimeException("Failed to convert document to entity", e);
+            }
+        });
+    }
+
+    @Override
+    public Page<T> findPage(String orderField, String cursor, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+        List<String> orderFields = orderField == null || orderField.isEmpty() ? List.of() : List.of(orderField);
+        Query query = firestore.collection(collectionName);
+        for (String field : orderFields) {
+            query = query.orderBy(field);
+        }
+        query = query.orderBy(FieldPath.documentId());
+        PageCursor after = cursor == null || cursor.isEmpty() ? null : PageCursor.decode(cursor);
+        if (after != null) {
+            query = query.startAfter(after.startAfterValues());
+        }
         try {
-            QuerySnapshot querySnapshot = firestore.collection(collectionName).get().get();
-            List<T> entities = new ArrayList<>();
+            // One extra document tells whether there is a next page without a second request
+            List<QueryDocumentSnapshot> documents = query.limit(pageSize + 1).get().get().getDocuments();
+            int size = Math.min(documents.size(), pageSize);
+            List<T> entities = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                entities.add(convertToEntity(documents.get(i)));
+            }
+            // The total is counted for the first page and carried in the cursor to the pages after it
+            long total = after != null && after.getTotal() >= 0 ? after.getTotal() : count();
+            String nextCursor = documents.size() > pageSize
+                    ? PageCursor.of(documents.get(pageSize - 1), orderFields, total).encode()
+                    : null;
+            return new Page<>(entities, pageSize, total, nextCursor);
+        } catch (ExecutionException e) {
+            logger.error("Error finding page of entities", e);
+            throw new RuntimeException("Failed to find page of entities", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread interrupted while finding page of entities", e);
+        }
+    }
+
+    @Override
+    public <P> List<P> findAllProjected(Projection<P> projection) {
+        Query query = firestore.collection(collectionName).select(projection.getFields());
+        try (Stream<P> summaries = FirestorePageIterator.stream(query, FirestorePageIterator.DEFAULT_PAGE_SIZE,
+                projection::decode)) {
+            return summaries.toList();
+        }
+    }
+
+    @Override
+    public <P> List<P> findByFieldProjected(String field, Object value, Projection<P> projection) {
+        return findProjected(firestore.collection(collectionName).whereEqualTo(field, value), projection);
+    }
+
+    @Override
+    public <P> List<P> searchProjected(SearchCriteria criteria, Projection<P> projection) {
+        return findProjected(buildSearchQuery(criteria), projection);
+    }
+
+    /**
+     * Run a query fetching only the projected fields and decode each document into a summary.
+     */
+    protected <P> List<P> findProjected(Query query, Projection<P> projection) {
+        try {
+            QuerySnapshot querySnapshot = query.select(projection.getFields()).get().get();
+            List<P> summaries = new ArrayList<>(querySnapshot.size());
             for (DocumentSnapshot document : querySnapshot.getDocuments()) {
-                try {
-                    T entity = convertToEntity(document);
-                    entities.add(entity);
-                    
-                    // Update cache with found entity
-                    @SuppressWarnings("unchecked")
-                    ID id = (ID) document.getId();
-                    cache.put(id, entity);
-                    cacheTimestamps.put(id, System.currentTimeMillis());
-                    logger.debug("Updated cache for entity with id: {} from findAll query", id);
-                } catch (InterruptedException | ExecutionException e) {
-                    logger.error("Error converting document to entity", e);
-                    throw new RuntimeException("Failed to convert document to entity", e);
-                }
+                summaries.add(projection.decode(document));
             }
-            return entities;
-        } catch (InterruptedException | ExecutionException e) {
-            logger.error("Error finding all entities", e);
-            throw new RuntimeException("Failed to find all entities", e);
+            return summaries;
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to run projected query on " + collectionName, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread interrupted while running projected query on " + collectionName, e);
         }
     }
 
     @Override
     public Boolean deleteById(ID id) {
         try {
-            ApiFuture<WriteResult> result = firestore.collection(collectionName)
-                    .document(id.toString())
-                    .delete();
-            result.get();
+            DocumentReference docRef = firestore.collection(collectionName).document(id.toString());
+            List<WriteResult> results = trackedDelete(firestore.batch(), docRef).commit().get();
             
             // Remove from cache
-            cache.remove(id);
-            cacheTimestamps.remove(id);
+            cache.invalidate(id);
+            counter.invalidateAll();
+            notifyDeleted(id, results.get(0).getUpdateTime());
             
             return true;
         } catch (InterruptedException | ExecutionException e) {
@@ -149,6 +515,10 @@ public abstract class AbstractFirestoreRepository<T, ID> implements FirestoreRep
 
     @Override
     public List<T> findByField(String field, Object value) {
+        return queryFlights.execute(fieldKey(field, value), () -> queryByField(field, value));
+    }
+
+    private List<T> queryByField(String field, Object value) {
         try {
             return tryExecute(() -> {
                 QuerySnapshot querySnapshot = firestore.collection(collectionName)
@@ -165,7 +535,6 @@ public abstract class AbstractFirestoreRepository<T, ID> implements FirestoreRep
                         @SuppressWarnings("unchecked")
                         ID id = (ID) document.getId();
                         cache.put(id, entity);
-                        cacheTimestamps.put(id, System.currentTimeMillis());
                         logger.debug("Updated cache for entity with id: {} from findByField query", id);
                     } catch (InterruptedException | ExecutionException e) {
                         logger.error("Error converting document to entity", e);
@@ -196,7 +565,6 @@ public abstract class AbstractFirestoreRepository<T, ID> implements FirestoreRep
                     T entity = convertToEntity(document);
                     // Update cache
                     cache.put(id, entity);
-                    cacheTimestamps.put(id, System.currentTimeMillis());
                     logger.debug("Updated cache for entity with id: {} from findByIdSync query", id);
                     return Optional.of(entity);
                 }
@@ -210,16 +578,31 @@ public abstract class AbstractFirestoreRepository<T, ID> implements FirestoreRep
 
     @Override
     public T update(ID id, Map<String, Object> updates) {
+        return update(id, updates, false);
+    }
+
+    @Override
+    public T update(ID id, Map<String, Object> updates, boolean reload) {
         try {
             return tryExecute(() -> {
                 DocumentReference docRef = firestore.collection(collectionName).document(id.toString());
-                docRef.update(updates).get();
-                DocumentSnapshot updated = docRef.get().get();
-                T updatedEntity = convertToEntity(updated);
+                WriteResult writeResult = docRef.update(tracked(updates)).get();
+                
+                // Apply the updates to the cached copy only while it is known to be current
+                T cached = currentCached(id);
+                T updatedEntity;
+                if (reload || cached == null || hasServerValues(updates)) {
+                    updatedEntity = convertToEntity(docRef.get().get());
+                } else {
+                    Map<String, Object> merged = new HashMap<>(convertToMap(cached));
+                    merged.putAll(updates);
+                    updatedEntity = convertWrittenData(docRef.getId(), merged, writeResult.getUpdateTime());
+                }
                 
                 // Force update cache with modified entity
                 cache.put(id, updatedEntity);
-                cacheTimestamps.put(id, System.currentTimeMillis());
+                counter.invalidateAll();
+                notifySaved(id, updatedEntity, writeResult.getUpdateTime());
                 logger.debug("Updated cache for entity with id: {}", id);
                 
                 return updatedEntity;
@@ -230,33 +613,268 @@ public abstract class AbstractFirestoreRepository<T, ID> implements FirestoreRep
         }
     }
 
+    /**
+     * Get the cached entity an update can be applied to without reading the document back.
+     * Entries can be up to the cache expiry old unless the snapshot listener keeps them current,
+     * so without it there is none and the updated document is re-read.
+     */
+    private T currentCached(ID id) {
+        return snapshotSynced ? cache.getIfPresent(id) : null;
+    }
+
     public Optional<T> getById(ID id) {
         return findByIdSync(id);
     }
 
     @Override
     public List<T> search(SearchCriteria criteria) {
+        if (criteria instanceof EnhancedSearchCriteria) {
+            return queryFlights.execute(searchKey(criteria), () -> {
+                QueryPlan<T> plan = plan(criteria);
+                logger.debug("Searching {} with plan {}", collectionName, plan);
+                return plan.apply(runSearchQuery(plan.getQuery()));
+            });
+        }
+        return queryFlights.execute(searchKey(criteria), () -> runSearchQuery(buildSearchQuery(criteria)));
+    }
+
+    /**
+     * Compile search criteria into the Firestore query that reads the narrowest indexed slice and
+     * the filters left to evaluate in memory, using statistics from a sample of the collection.
+     *
+     * @param criteria The search criteria
+     * @return The plan
+     */
+    public QueryPlan<T> plan(SearchCriteria criteria) {
+        return planner().plan(firestore.collection(collectionName), criteria, getFieldStatistics());
+    }
+
+    private CompletableFuture<QueryPlan<T>> planAsync(SearchCriteria criteria) {
+        return fieldStatisticsAsync().thenApply(current ->
+                planner().plan(firestore.collection(collectionName), criteria, current));
+    }
+
+    private QueryPlanner<T> planner() {
+        QueryPlanner<T> queryPlanner = planner;
+        if (queryPlanner == null) {
+            queryPlanner = new QueryPlanner<>(codec, getDefaultSearchField(), getCompositeIndexes());
+            planner = queryPlanner;
+        }
+        return queryPlanner;
+    }
+
+    /**
+     * Get value statistics of the collection's fields, from a sample of it.
+     * Auto-generated document IDs are random, so the first documents in ID order are a fair sample.
+     * Stale statistics are returned while a background read refreshes them, so only the first
+     * call waits for the sample.
+     *
+     * @return The statistics, or empty statistics if the sample cannot be read
+     */
+    public FieldStatistics getFieldStatistics() {
+        return fieldStatisticsAsync().join();
+    }
+
+    private CompletableFuture<FieldStatistics> fieldStatisticsAsync() {
+        return statistics.get(STATISTICS_KEY).exceptionally(e -> {
+            logger.warn("Failed to sample {} for query planning", collectionName, e);
+            return FieldStatistics.empty();
+        });
+    }
+
+    private CompletableFuture<FieldStatistics> sampleFieldStatistics() {
+        return toCompletableFuture(firestore.collection(collectionName).limit(STATISTICS_SAMPLE_SIZE).get())
+                .thenApply(snapshot -> {
+                    List<Map<String, Object>> sample = new ArrayList<>(STATISTICS_SAMPLE_SIZE);
+                    for (DocumentSnapshot document : snapshot.getDocuments()) {
+                        sample.add(document.getData());
+                    }
+                    return FieldStatistics.of(sample);
+                });
+    }
+
+    /**
+     * The collection's composite indexes, each listing its equality fields followed by its range field.
+     * The query planner only combines equality filters with a range filter on another field when a
+     * listed index covers them; the indexes must also exist in Firestore.
+     *
+     * @return The composite indexes, none by default
+     */
+    protected List<List<String>> getCompositeIndexes() {
+        return List.of();
+    }
+
+    /**
+     * Name fields, such as an author, that {@link #findByFieldPhonetic} may resolve by sound.
+     *
+     * @return The field names, none by default
+     */
+    protected List<String> getPhoneticFields() {
+        return List.of();
+    }
+
+    /**
+     * Find entities whose field equals a name or, if none does, whose field sounds like it.
+     * The misspelled name is resolved to the stored spellings that sound like it through an
+     * in-memory phonetic index of the field, so the fallback costs a hash lookup per word and
+     * one query per 30 spellings rather than a scan of the collection. Concurrent identical
+     * fallbacks share one set of queries.
+     *
+     * @param field A field named by {@link #getPhoneticFields()}
+     * @param name The name as typed
+     * @return The matching entities
+     */
+    protected List<T> findByFieldPhonetic(String field, String name) {
+        List<T> exact = findByField(field, name);
+        if (!exact.isEmpty() || name == null || !getPhoneticFields().contains(field)) {
+            return exact;
+        }
+        return queryFlights.execute(phoneticKey(field, name), () -> queryBySound(field, name));
+    }
+
+    private List<T> queryBySound(String field, String name) {
+        PhoneticNameIndex index;
         try {
-            return tryExecute(() -> {
-                Query query = firestore.collection(collectionName);
-                
-                if (criteria.getSearchTerm() != null && !criteria.getSearchTerm().isEmpty()) {
-                    String defaultSearchField = getDefaultSearchField();
-                    query = query.whereGreaterThanOrEqualTo(defaultSearchField, criteria.getSearchTerm())
-                            .whereLessThanOrEqualTo(defaultSearchField, criteria.getSearchTerm() + "\uf8ff");
-                }
-                
-                if (criteria.getFilterField() != null && criteria.getFilterValue() != null) {
-                    query = query.whereEqualTo(criteria.getFilterField(), criteria.getFilterValue());
-                }
-                
-                if (criteria.getSortField() != null) {
-                    Query.Direction direction = criteria.getSortDirection() == SearchCriteria.SortDirection.DESC 
-                            ? Query.Direction.DESCENDING 
-                            : Query.Direction.ASCENDING;
-                    query = query.orderBy(criteria.getSortField(), direction);
+            index = phoneticIndex(field).join();
+        } catch (CompletionException e) {
+            throw new RuntimeException("Failed to load phonetic index of " + field + " in " + collectionName, e.getCause());
+        }
+        List<String> spellings = soundAlikes(field, name, index);
+        List<T> matches = new ArrayList<>();
+        for (int start = 0; start < spellings.size(); start += IN_FILTER_LIMIT) {
+            List<String> chunk = spellings.subList(start, Math.min(start + IN_FILTER_LIMIT, spellings.size()));
+            matches.addAll(runSearchQuery(firestore.collection(collectionName).whereIn(field, new ArrayList<>(chunk))));
+        }
+        return matches;
+    }
+
+    /**
+     * Find entities like {@link #findByFieldPhonetic} without blocking; the phonetic index is
+     * loaded without blocking too if this is its first use.
+     *
+     * @param field A field named by {@link #getPhoneticFields()}
+     * @param name The name as typed
+     * @return A future completed with the matching entities
+     */
+    protected CompletableFuture<List<T>> findByFieldPhoneticAsync(String field, String name) {
+        return findByFieldAsync(field, name).thenCompose(exact -> {
+            if (!exact.isEmpty() || name == null || !getPhoneticFields().contains(field)) {
+                return CompletableFuture.completedFuture(exact);
+            }
+            return queryFlights.executeAsync(phoneticKey(field, name), () -> phoneticIndex(field).thenCompose(index -> {
+                List<String> spellings = soundAlikes(field, name, index);
+                List<CompletableFuture<List<T>>> chunks = new ArrayList<>();
+                for (int start = 0; start < spellings.size(); start += IN_FILTER_LIMIT) {
+                    List<String> chunk = spellings.subList(start, Math.min(start + IN_FILTER_LIMIT, spellings.size()));
+                    chunks.add(toCompletableFuture(firestore.collection(collectionName)
+                            .whereIn(field, new ArrayList<>(chunk)).get()).thenApply(this::decodeAndCache));
                 }
-                
+                return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])).thenApply(done -> {
+                    List<T> matches = new ArrayList<>();
+                    for (CompletableFuture<List<T>> chunk : chunks) {
+                        matches.addAll(chunk.join());
+                    }
+                    return matches;
+                });
+            }));
+        });
+    }
+
+    /**
+     * The stored spellings of a field that sound like a name, other than the name itself.
+     */
+    private List<String> soundAlikes(String field, String name, PhoneticNameIndex index) {
+        List<String> spellings = new ArrayList<>(index.lookup(name));
+        spellings.remove(name);
+        if (!spellings.isEmpty()) {
+            logger.debug("Resolved {} '{}' in {} to {}", field, name, collectionName, spellings);
+        }
+        return spellings;
+    }
+
+    private static final class PhoneticLoad {
+        private final CompletableFuture<PhoneticNameIndex> index = new CompletableFuture<>();
+        // Spellings written while the field is read, by entity ID; null for a delete
+        private final Map<String, String> writes = new HashMap<>();
+    }
+
+    /**
+     * Get the phonetic index of a field, reading the field of every document page by page on
+     * first use. Concurrent first uses share one read. Writes made during the read are recorded
+     * and applied over the loaded spellings before the index is published, so none is lost.
+     */
+    private CompletableFuture<PhoneticNameIndex> phoneticIndex(String field) {
+        PhoneticNameIndex index = phoneticIndexes.get(field);
+        if (index != null) {
+            return CompletableFuture.completedFuture(index);
+        }
+        PhoneticLoad started = new PhoneticLoad();
+        PhoneticLoad load = phoneticLoads.computeIfAbsent(field, key -> started);
+        if (load != started) {
+            return load.index;
+        }
+        // A load that finished since the check above published its index before giving up its entry
+        index = phoneticIndexes.get(field);
+        if (index != null) {
+            phoneticLoads.remove(field, started);
+            started.index.complete(index);
+            return started.index;
+        }
+        FirestorePageIterator.collectAsync(firestore.collection(collectionName).select(field),
+                FirestorePageIterator.DEFAULT_PAGE_SIZE,
+                document -> new AbstractMap.SimpleEntry<>(document.getId(), document.getString(field)))
+                .whenComplete((names, error) -> {
+                    PhoneticNameIndex loaded = null;
+                    if (error == null) {
+                        loaded = new PhoneticNameIndex();
+                        for (Map.Entry<String, String> name : names) {
+                            loaded.put(name.getKey(), name.getValue());
+                        }
+                    }
+                    PhoneticNameIndex published = loaded;
+                    phoneticLoads.compute(field, (key, finishing) -> {
+                        if (published != null) {
+                            started.writes.forEach(published::put);
+                            phoneticIndexes.put(field, published);
+                        }
+                        return null;
+                    });
+                    if (loaded != null) {
+                        logger.info("Loaded phonetic index of {} in {} with {} entries", field, collectionName,
+                                loaded.size());
+                        started.index.complete(loaded);
+                    } else {
+                        started.index.completeExceptionally(error);
+                    }
+                });
+        return started.index;
+    }
+
+    private void updatePhoneticIndexes(ID id, T entity) {
+        // Loads first: a load that finishes in between has published its index by the time the indexes are read
+        for (String field : phoneticLoads.keySet()) {
+            phoneticLoads.computeIfPresent(field, (key, load) -> {
+                load.writes.put(String.valueOf(id), spellingOf(entity, field));
+                return load;
+            });
+        }
+        for (Map.Entry<String, PhoneticNameIndex> index : phoneticIndexes.entrySet()) {
+            index.getValue().put(String.valueOf(id), spellingOf(entity, index.getKey()));
+        }
+    }
+
+    private String spellingOf(T entity, String field) {
+        if (entity == null) {
+            return null;
+        }
+        Function<T, Object> getter = codec.getter(field);
+        Object value = getter != null ? getter.apply(entity) : null;
+        return value != null ? value.toString() : null;
+    }
+
+    private List<T> runSearchQuery(Query query) {
+        try {
+            return tryExecute(() -> {
                 QuerySnapshot querySnapshot = query.get().get();
                 List<T> entities = new ArrayList<>();
                 for (DocumentSnapshot document : querySnapshot.getDocuments()) {
@@ -268,7 +886,6 @@ public abstract class AbstractFirestoreRepository<T, ID> implements FirestoreRep
                         @SuppressWarnings("unchecked")
                         ID id = (ID) document.getId();
                         cache.put(id, entity);
-                        cacheTimestamps.put(id, System.currentTimeMillis());
                         logger.debug("Updated cache for entity with id: {} from search query", id);
                     } catch (InterruptedException | ExecutionException e) {
                         logger.error("Error converting document to entity", e);
@@ -283,6 +900,249 @@ public abstract class AbstractFirestoreRepository<T, ID> implements FirestoreRep
         }
     }
 
+    private static String fieldKey(String field, Object value) {
+        return "field:" + field + "=" + value;
+    }
+
+    private static String phoneticKey(String field, String name) {
+        return "phonetic:" + field + "=" + name;
+    }
+
+    /**
+     * Key a search by every part of its criteria.
+     */
+    private static String searchKey(SearchCriteria criteria) {
+        String key = "search:" + criteria.getSearchTerm() + "|" + criteria.getFilterField() + "="
+                + criteria.getFilterValue() + "|" + criteria.getSortField() + " " + criteria.getSortDirection();
+        if (criteria instanceof EnhancedSearchCriteria enhanced) {
+            StringBuilder filters = new StringBuilder(key).append("|eq:").append(enhanced.getEqualityFilters());
+            enhanced.getRangeFilters().forEach((field, range) -> filters.append("|range:").append(field).append('=')
+                    .append(range.getMin()).append("..").append(range.getMax()));
+            for (EnhancedSearchCriteria.KeywordFilter keyword : enhanced.getKeywordFilters()) {
+                filters.append("|keyword:").append(keyword.getKeyword()).append(keyword.getFields());
+            }
+            key = filters.toString();
+        }
+        return key;
+    }
+
+    protected Query buildSearchQuery(SearchCriteria criteria) {
+        Query query = firestore.collection(collectionName);
+        
+        if (criteria.getSearchTerm() != null && !criteria.getSearchTerm().isEmpty()) {
+            String defaultSearchField = getDefaultSearchField();
+            query = query.whereGreaterThanOrEqualTo(defaultSearchField, criteria.getSearchTerm())
+                    .whereLessThanOrEqualTo(defaultSearchField, criteria.getSearchTerm() + "\uf8ff");
+        }
+        
+        if (criteria.getFilterField() != null && criteria.getFilterValue() != null) {
+            query = query.whereEqualTo(criteria.getFilterField(), criteria.getFilterValue());
+        }
+        
+        if (criteria.getSortField() != null) {
+            Query.Direction direction = criteria.getSortDirection() == SearchCriteria.SortDirection.DESC 
+                    ? Query.Direction.DESCENDING 
+                    : Query.Direction.ASCENDING;
+            query = query.orderBy(criteria.getSortField(), direction);
+        }
+        return query;
+    }
+
+    @Override
+    public CompletableFuture<T> saveAsync(T entity) {
+        Map<String, Object> data = convertToMap(entity);
+        DocumentReference docRef = firestore.collection(collectionName).document();
+        if (hasServerValues(data)) {
+            return toCompletableFuture(docRef.set(tracked(data)))
+                    .thenCompose(writeResult -> toCompletableFuture(docRef.get())
+                            .thenApply(snapshot -> cacheWritten(docRef.getId(), decode(snapshot),
+                                    writeResult.getUpdateTime())));
+        }
+        return toCompletableFuture(docRef.set(tracked(data)))
+                .thenApply(writeResult -> cacheWritten(docRef.getId(),
+                        convertWrittenData(docRef.getId(), data, writeResult.getUpdateTime()),
+                        writeResult.getUpdateTime()));
+    }
+
+    @Override
+    public CompletableFuture<Optional<T>> findByIdAsync(ID id) {
+        T cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(Optional.of(cached));
+        }
+        return lookupFlights.executeAsync(id, () ->
+                toCompletableFuture(firestore.collection(collectionName).document(id.toString()).get())
+                        .thenApply(document -> {
+                            if (!document.exists()) {
+                                return Optional.<T>empty();
+                            }
+                            T entity = decode(document);
+                            cache.put(id, entity);
+                            return Optional.of(entity);
+                        }));
+    }
+
+    @Override
+    public CompletableFuture<List<T>> findAllAsync() {
+        return FirestorePageIterator.collectAsync(firestore.collection(collectionName),
+                FirestorePageIterator.DEFAULT_PAGE_SIZE, this::decodeAndCacheDocument);
+    }
+
+    @Override
+    public CompletableFuture<List<T>> findByFieldAsync(String field, Object value) {
+        return queryFlights.executeAsync(fieldKey(field, value), () ->
+                toCompletableFuture(firestore.collection(collectionName).whereEqualTo(field, value).get())
+                        .thenApply(this::decodeAndCache));
+    }
+
+    @Override
+    public CompletableFuture<List<T>> searchAsync(SearchCriteria criteria) {
+        // Planned like search(), since both share one flight per criteria key
+        if (criteria instanceof EnhancedSearchCriteria) {
+            return queryFlights.executeAsync(searchKey(criteria), () -> planAsync(criteria).thenCompose(plan ->
+                    toCompletableFuture(plan.getQuery().get()).thenApply(snapshot -> plan.apply(decodeAndCache(snapshot)))));
+        }
+        return queryFlights.executeAsync(searchKey(criteria), () ->
+                toCompletableFuture(buildSearchQuery(criteria).get()).thenApply(this::decodeAndCache));
+    }
+
+    @Override
+    public <P> CompletableFuture<List<P>> findAllProjectedAsync(Projection<P> projection) {
+        return FirestorePageIterator.collectAsync(firestore.collection(collectionName).select(projection.getFields()),
+                FirestorePageIterator.DEFAULT_PAGE_SIZE, projection::decode);
+    }
+
+    @Override
+    public <P> CompletableFuture<List<P>> searchProjectedAsync(SearchCriteria criteria, Projection<P> projection) {
+        return toCompletableFuture(buildSearchQuery(criteria).select(projection.getFields()).get())
+                .thenApply(querySnapshot -> {
+                    List<P> summaries = new ArrayList<>(querySnapshot.size());
+                    for (DocumentSnapshot document : querySnapshot.getDocuments()) {
+                        summaries.add(projection.decode(document));
+                    }
+                    return summaries;
+                });
+    }
+
+    @Override
+    public CompletableFuture<T> updateAsync(ID id, Map<String, Object> updates) {
+        DocumentReference docRef = firestore.collection(collectionName).document(id.toString());
+        return toCompletableFuture(docRef.update(tracked(updates))).thenCompose(writeResult -> {
+            T cached = currentCached(id);
+            if (cached == null || hasServerValues(updates)) {
+                return toCompletableFuture(docRef.get()).thenApply(snapshot -> cacheWritten(docRef.getId(),
+                        decode(snapshot), writeResult.getUpdateTime()));
+            }
+            Map<String, Object> merged = new HashMap<>(convertToMap(cached));
+            merged.putAll(updates);
+            return CompletableFuture.completedFuture(cacheWritten(docRef.getId(),
+                    convertWrittenData(docRef.getId(), merged, writeResult.getUpdateTime()),
+                    writeResult.getUpdateTime()));
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteByIdAsync(ID id) {
+        DocumentReference docRef = firestore.collection(collectionName).document(id.toString());
+        return toCompletableFuture(trackedDelete(firestore.batch(), docRef).commit())
+                .thenApply(results -> {
+                    cache.invalidate(id);
+                    counter.invalidateAll();
+                    notifyDeleted(id, results.get(0).getUpdateTime());
+                    return true;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Long> countAsync() {
+        return counter.countAsync("*", firestore.collection(collectionName));
+    }
+
+    private T decode(DocumentSnapshot document) {
+        try {
+            return convertToEntity(document);
+        } catch (InterruptedException | ExecutionException e) {
+            logger.error("Error converting document to entity", e);
+            throw new RuntimeException("Failed to convert document to entity", e);
+        }
+    }
+
+    private List<T> decodeAndCache(QuerySnapshot querySnapshot) {
+        List<T> entities = new ArrayList<>(querySnapshot.size());
+        for (DocumentSnapshot document : querySnapshot.getDocuments()) {
+            entities.add(decodeAndCacheDocument(document));
+        }
+        return entities;
+    }
+
+    private T decodeAndCacheDocument(DocumentSnapshot document) {
+        T entity = decode(document);
+        @SuppressWarnings("unchecked")
+        ID id = (ID) document.getId();
+        cache.put(id, entity);
+        return entity;
+    }
+
+    private T cacheWritten(String documentId, T entity, Timestamp commitTime) {
+        @SuppressWarnings("unchecked")
+        ID id = (ID) documentId;
+        cache.put(id, entity);
+        counter.invalidateAll();
+        notifySaved(id, entity, commitTime);
+        return entity;
+    }
+
+    @Override
+    public void addChangeListener(EntityChangeListener<T, ID> listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Tell change listeners about a committed write. Subclasses that write to Firestore
+     * directly instead of through the methods here should call this themselves, and should
+     * pass what they write through {@link #tracked} and delete with {@link #trackedDelete}.
+     */
+    protected void notifySaved(ID id, T entity) {
+        notifySaved(id, entity, null);
+    }
+
+    /**
+     * Tell change listeners about a committed write and its commit time.
+     */
+    protected void notifySaved(ID id, T entity, Timestamp commitTime) {
+        if (entity != null) {
+            updatePhoneticIndexes(id, entity);
+        }
+        for (EntityChangeListener<T, ID> listener : changeListeners) {
+            try {
+                listener.onSaved(id, entity, commitTime);
+            } catch (RuntimeException e) {
+                logger.warn("Change listener failed for saved entity {}: {}", id, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Tell change listeners about a committed delete.
+     */
+    protected void notifyDeleted(ID id) {
+        notifyDeleted(id, null);
+    }
+
+    /**
+     * Tell change listeners about a committed delete and its commit time.
+     */
+    protected void notifyDeleted(ID id, Timestamp commitTime) {
+        updatePhoneticIndexes(id, null);
+        for (EntityChangeListener<T, ID> listener : changeListeners) {
+            try {
+                listener.onDeleted(id, commitTime);
+            } catch (RuntimeException e) {
+                logger.warn("Change listener failed for deleted entity {}: {}", id, e.getMessage());
+            }
+        }
+    }
+
     @Override
     public CollectionReference getCollection() {
         return firestore.collection(collectionName);
@@ -291,13 +1151,20 @@ public abstract class AbstractFirestoreRepository<T, ID> implements FirestoreRep
     @Override
     public Long count() {
         try {
-            return tryExecute(() -> {
-            QuerySnapshot querySnapshot = firestore.collection(collectionName).get().get();
-            return (long) querySnapshot.size();
-            });
-        } catch (InterruptedException | ExecutionException e) {
+            return counter.count("*", firestore.collection(collectionName));
+        } catch (RuntimeException e) {
             logger.error("Error counting entities", e);
-            throw new RuntimeException("Failed to count entities", e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Long countByField(String field, Object value) {
+        try {
+            return counter.count(field + "=" + value, firestore.collection(collectionName).whereEqualTo(field, value));
+        } catch (RuntimeException e) {
+            logger.error("Error counting entities by field", e);
+            throw e;
         }
     }
 
@@ -306,17 +1173,24 @@ public abstract class AbstractFirestoreRepository<T, ID> implements FirestoreRep
         try {
             return tryExecute(() -> {
             QuerySnapshot querySnapshot = firestore.collection(collectionName).get().get();
-            List<ApiFuture<WriteResult>> futures = querySnapshot.getDocuments().stream()
-                    .map(document -> document.getReference().delete())
+            List<ApiFuture<List<WriteResult>>> futures = querySnapshot.getDocuments().stream()
+                    .map(document -> trackedDelete(firestore.batch(), document.getReference()).commit())
                     .collect(Collectors.toList());
             
-            for (ApiFuture<WriteResult> future : futures) {
-                future.get();
+            List<Timestamp> commitTimes = new ArrayList<>(futures.size());
+            for (ApiFuture<List<WriteResult>> future : futures) {
+                commitTimes.add(future.get().get(0).getUpdateTime());
             }
             
             // Clear entire cache
-            cache.clear();
-            cacheTimestamps.clear();
+            cache.invalidateAll();
+            counter.invalidateAll();
+            List<QueryDocumentSnapshot> documents = querySnapshot.getDocuments();
+            for (int i = 0; i < documents.size(); i++) {
+                @SuppressWarnings("unchecked")
+                ID id = (ID) documents.get(i).getId();
+                notifyDeleted(id, commitTimes.get(i));
+            }
             
             return true;
             });
@@ -332,31 +1206,37 @@ public abstract class AbstractFirestoreRepository<T, ID> implements FirestoreRep
             return tryExecute(() -> {
                 WriteBatch batch = firestore.batch();
                 List<DocumentReference> docRefs = new ArrayList<>();
+                List<Map<String, Object>> dataList = new ArrayList<>();
                 
                 // First pass: Create all documents and add to batch
                 for (T entity : entities) {
                     Map<String, Object> data = convertToMap(entity);
                     DocumentReference docRef = firestore.collection(collectionName).document();
-                    batch.set(docRef, data);
+                    batch.set(docRef, tracked(data));
                     docRefs.add(docRef);
+                    dataList.add(data);
                 }
                 
                 // Execute batch write
-                batch.commit().get();
+                List<WriteResult> writeResults = batch.commit().get();
                 
-                // Second pass: Retrieve all saved documents and update cache
+                // Second pass: Build saved entities from the written data and update cache
                 List<T> savedEntities = new ArrayList<>();
-                for (DocumentReference docRef : docRefs) {
-                    DocumentSnapshot snapshot = docRef.get().get();
-                    T savedEntity = convertToEntity(snapshot);
+                for (int i = 0; i < docRefs.size(); i++) {
+                    DocumentReference docRef = docRefs.get(i);
+                    Map<String, Object> data = dataList.get(i);
+                    T savedEntity = hasServerValues(data)
+                            ? convertToEntity(docRef.get().get())
+                            : convertWrittenData(docRef.getId(), data, writeResults.get(i).getUpdateTime());
                     savedEntities.add(savedEntity);
                     
                     // Update cache with new entity
                     @SuppressWarnings("unchecked")
-                    ID id = (ID) snapshot.getId();
+                    ID id = (ID) docRef.getId();
                     cache.put(id, savedEntity);
-                    cacheTimestamps.put(id, System.currentTimeMillis());
+                    notifySaved(id, savedEntity, writeResults.get(i).getUpdateTime());
                 }
+                counter.invalidateAll();
                 
                 return savedEntities;
             });
@@ -371,42 +1251,43 @@ public abstract class AbstractFirestoreRepository<T, ID> implements FirestoreRep
     }
 
     protected Map<String, Object> convertToMap(T entity) {
-        Map<String, Object> map = new HashMap<>();
-        for (Field field : entityClass.getDeclaredFields()) {
-            try {
-                field.setAccessible(true);
-                Object value = field.get(entity);
-                if (value != null) {
-                    map.put(field.getName(), value);
-                }
-            } catch (IllegalAccessException e) {
-                logger.warn("Failed to access field {}", field.getName(), e);
+        return codec.toMap(entity);
+    }
+
+    /**
+     * Build an entity from data this repository has just written, without reading it back.
+     * The document ID and the write's update time are added under {@code id} and
+     * {@code updateTime} so they are applied to entities that declare those fields.
+     *
+     * @param id The document ID
+     * @param data The data that was written
+     * @param updateTime The update time reported by the write
+     * @return The entity as stored
+     */
+    protected T convertWrittenData(String id, Map<String, Object> data, Timestamp updateTime) {
+        Map<String, Object> written = new HashMap<>(data);
+        written.put("id", id);
+        written.put("updateTime", updateTime);
+        return codec.fromMap(written);
+    }
+
+    /**
+     * Check whether written data contains values that are only known after the server applies them,
+     * such as server timestamps, increments or nested field paths.
+     */
+    private static boolean hasServerValues(Map<String, Object> data) {
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            if (entry.getValue() instanceof FieldValue || entry.getKey().indexOf('.') >= 0) {
+                return true;
             }
         }
-        return map;
+        return false;
     }
 
     protected T convertToEntity(DocumentSnapshot document) throws InterruptedException, ExecutionException {
-        if (document == null || !document.exists()) {
-            return null;
-        }
-
         try {
-            T entity = entityClass.getDeclaredConstructor().newInstance();
-            for (Field field : entityClass.getDeclaredFields()) {
-                field.setAccessible(true);
-                try {
-                    Object value = document.get(field.getName());
-                    if (value != null) {
-                        field.set(entity, value);
-                    }
-                } catch (Exception e) {
-                    logger.error("Error getting field {} from document", field.getName(), e);
-                    throw e; // Re-throw the original exception
-                }
-            }
-            return entity;
-        } catch (Exception e) {
+            return codec.fromDocument(document);
+        } catch (RuntimeException e) {
             logger.error("Failed to convert document to entity", e);
             throw new RuntimeException("Failed to convert document to entity", e);
         }
@@ -0,0 +1,110 @@
+package se.fulkopinglibraryweb.repository;
+
+import se.fulkopinglibraryweb.service.search.SearchCriteria;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link FirestoreRepository}.
+ * Every method returns as soon as the Firestore request has been issued; the returned future
+ * is completed from the client's callback, so no caller thread waits on the round trip.
+ *
+ * @param <T> The entity type this repository manages
+ * @param <ID> The type of the entity's ID field
+ */
+public interface AsyncFirestoreRepository<T, ID> {
+
+    /**
+     * Save an entity.
+     *
+     * @param entity The entity to save
+     * @return A future with the saved entity
+     */
+    CompletableFuture<T> saveAsync(T entity);
+
+    /**
+     * Find an entity by its ID, completing immediately on a cache hit.
+     *
+     * @param id The ID of the entity to find
+     * @return A future with the found entity, or empty if not found
+     */
+    CompletableFuture<Optional<T>> findByIdAsync(ID id);
+
+    /**
+     * Find all entities in the collection.
+     *
+     * @return A future with all entities
+     */
+    CompletableFuture<List<T>> findAllAsync();
+
+    /**
+     * Find entities whose field equals a value.
+     *
+     * @param field The field to filter on
+     * @param value The value to match
+     * @return A future with the matching entities
+     */
+    CompletableFuture<List<T>> findByFieldAsync(String field, Object value);
+
+    /**
+     * Search entities using the provided criteria.
+     *
+     * @param criteria The search criteria
+     * @return A future with the matching entities
+     */
+    CompletableFuture<List<T>> searchAsync(SearchCriteria criteria);
+
+    /**
+     * Fetch only the projected fields of every document, decoded into summaries.
+     *
+     * @param projection The fields to fetch and their decoder
+     * @return A future with the summaries
+     */
+    <P> CompletableFuture<List<P>> findAllProjectedAsync(Projection<P> projection);
+
+    /**
+     * Fetch only the projected fields of the documents matching the search criteria.
+     *
+     * @param criteria The search criteria
+     * @param projection The fields to fetch and their decoder
+     * @return A future with the matching summaries
+     */
+    <P> CompletableFuture<List<P>> searchProjectedAsync(SearchCriteria criteria, Projection<P> projection);
+
+    /**
+     * Update specific fields of an entity.
+     *
+     * @param id The ID of the entity to update
+     * @param updates Map of field names to new values
+     * @return A future with the updated entity
+     */
+    CompletableFuture<T> updateAsync(ID id, Map<String, Object> updates);
+
+    /**
+     * Delete an entity by its ID.
+     *
+     * @param id The ID of the entity to delete
+     * @return A future completed with true once the delete is committed
+     */
+    CompletableFuture<Boolean> deleteByIdAsync(ID id);
+
+    /**
+     * Check if an entity with the given ID exists.
+     *
+     * @param id The ID to check
+     * @return A future with true if the entity exists
+     */
+    default CompletableFuture<Boolean> existsByIdAsync(ID id) {
+        return findByIdAsync(id).thenApply(Optional::isPresent);
+    }
+
+    /**
+     * Count the entities in the collection with a server-side aggregation.
+     *
+     * @return A future with the count
+     */
+    CompletableFuture<Long> countAsync();
+}
@@ -1,14 +1,21 @@
 package se.fulkopinglibraryweb.repository;
 
 import se.fulkopinglibraryweb.model.Book;
+import se.fulkopinglibraryweb.model.BookSummary;
 import se.fulkopinglibraryweb.service.search.SearchCriteria;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public interface BookRepository extends FirestoreRepository<Book, String> {
     List<Book> findByIsbn(String isbn);
     List<Book> findByAuthor(String author);
+
+    /**
+     * Find books by author like {@link #findByAuthor}, including authors that sound alike, without blocking.
+     */
+    CompletableFuture<List<Book>> findByAuthorAsync(String author);
     List<Book> findByTitle(String title);
     List<Book> findByYear(int year);
     List<Book> findAll();
@@ -17,6 +24,16 @@ public interface BookRepository extends FirestoreRepository<Book, String> {
     void cancelReservation(String bookId);
     List<Book> findReservedBooks(String userId);
     List<Book> searchBooks(SearchCriteria criteria);
+
+    /**
+     * List all books with only the fields the list view renders.
+     */
+    List<BookSummary> findAllSummaries();
+
+    /**
+     * Search books like {@link #searchBooks}, fetching only the fields the list view renders.
+     */
+    List<BookSummary> searchSummaries(SearchCriteria criteria);
     List<String> getSearchableFields();
     Optional<Book> findById(String id);
     Optional<Book> getById(String id);
@@ -0,0 +1,94 @@
+package se.fulkopinglibraryweb.repository;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.WriteBatch;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lets a reader find what changed in a collection since a point in time without listing it.
+ * A repository with change tracking enabled stamps every write with its commit time under
+ * {@link #WRITTEN_AT_FIELD}, and leaves a tombstone with the delete's commit time in a companion
+ * collection named after the tracked one with a {@code _tombstones} suffix for every delete.
+ * Tombstones carry an {@link #EXPIRE_AT_FIELD} for a Firestore TTL policy, so a reader that is more
+ * than {@link #TOMBSTONE_RETENTION} behind has to reload the whole collection instead.
+ * The TTL policy and the single-field index on {@link #WRITTEN_AT_FIELD} must be configured in
+ * Firestore; without the policy tombstones are never removed.
+ */
+public final class ChangeTracking {
+    public static final String WRITTEN_AT_FIELD = "writtenAt";
+    public static final String DELETED_AT_FIELD = "deletedAt";
+    public static final String EXPIRE_AT_FIELD = "expireAt";
+    public static final Duration TOMBSTONE_RETENTION = Duration.ofDays(30);
+    private static final String TOMBSTONE_SUFFIX = "_tombstones";
+
+    private ChangeTracking() {
+    }
+
+    /**
+     * Copy written data with the commit time stamp added.
+     *
+     * @param data The data to write
+     * @return A copy of the data to pass to set or update instead
+     */
+    public static Map<String, Object> stamped(Map<String, Object> data) {
+        Map<String, Object> stamped = new HashMap<>(data);
+        stamped.put(WRITTEN_AT_FIELD, FieldValue.serverTimestamp());
+        return stamped;
+    }
+
+    /**
+     * Add the delete of a document and its tombstone to a batch, so both commit together.
+     * The delete's write result comes first in the committed results.
+     *
+     * @param batch The batch to add to
+     * @param document The document to delete
+     * @return The batch
+     */
+    public static WriteBatch delete(WriteBatch batch, DocumentReference document) {
+        Map<String, Object> tombstone = new HashMap<>();
+        tombstone.put(DELETED_AT_FIELD, FieldValue.serverTimestamp());
+        Instant expiry = Instant.now().plus(TOMBSTONE_RETENTION);
+        tombstone.put(EXPIRE_AT_FIELD, Timestamp.ofTimeSecondsAndNanos(expiry.getEpochSecond(), expiry.getNano()));
+        return batch.delete(document).set(tombstones(document.getParent()).document(document.getId()), tombstone);
+    }
+
+    /**
+     * @param collection A tracked collection
+     * @param mark A commit time
+     * @return The documents of the collection written after the mark, oldest write first
+     */
+    public static Query writtenSince(CollectionReference collection, Timestamp mark) {
+        return collection.whereGreaterThan(WRITTEN_AT_FIELD, mark).orderBy(WRITTEN_AT_FIELD);
+    }
+
+    /**
+     * @param collection A tracked collection
+     * @param mark A commit time
+     * @return The tombstones of the documents of the collection deleted after the mark, each with
+     *         the ID of the deleted document
+     */
+    public static Query deletedSince(CollectionReference collection, Timestamp mark) {
+        return tombstones(collection).whereGreaterThan(DELETED_AT_FIELD, mark).orderBy(DELETED_AT_FIELD);
+    }
+
+    /**
+     * @param mark A commit time
+     * @return True if tombstones of deletes since the mark may already have expired
+     */
+    public static boolean isBeyondRetention(Timestamp mark) {
+        return Instant.ofEpochSecond(mark.getSeconds(), mark.getNanos())
+                .isBefore(Instant.now().minus(TOMBSTONE_RETENTION));
+    }
+
+    private static CollectionReference tombstones(CollectionReference collection) {
+        return collection.getFirestore().collection(collection.getPath() + TOMBSTONE_SUFFIX);
+    }
+}
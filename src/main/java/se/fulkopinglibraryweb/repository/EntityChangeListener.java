@@ -0,0 +1,51 @@
+package se.fulkopinglibraryweb.repository;
+
+import com.google.cloud.Timestamp;
+
+/**
+ * Receives the entities a repository writes or deletes, so derived in-memory structures
+ * such as search indexes can be kept current without re-reading the collection.
+ * Callbacks run on the writing thread after the write has committed and should be cheap.
+ *
+ * @param <T> The entity type
+ * @param <ID> The ID type
+ */
+public interface EntityChangeListener<T, ID> {
+
+    /**
+     * An entity was created or replaced, locally or (with snapshot sync) by another instance.
+     *
+     * @param id The ID of the entity
+     * @param entity The entity as written
+     */
+    void onSaved(ID id, T entity);
+
+    /**
+     * An entity was deleted.
+     *
+     * @param id The ID of the deleted entity
+     */
+    void onDeleted(ID id);
+
+    /**
+     * An entity was created or replaced, with the time Firestore committed the write.
+     * Listeners that track how far they are up to date override this; the default ignores the time.
+     *
+     * @param id The ID of the entity
+     * @param entity The entity as written
+     * @param commitTime The commit time of the write, or null if it is not known
+     */
+    default void onSaved(ID id, T entity, Timestamp commitTime) {
+        onSaved(id, entity);
+    }
+
+    /**
+     * An entity was deleted, with the time Firestore committed the delete.
+     *
+     * @param id The ID of the deleted entity
+     * @param commitTime The commit time of the delete, or null if it is not known
+     */
+    default void onDeleted(ID id, Timestamp commitTime) {
+        onDeleted(id);
+    }
+}
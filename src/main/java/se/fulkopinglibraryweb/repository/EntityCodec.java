@@ -0,0 +1,288 @@
+package se.fulkopinglibraryweb.repository;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentSnapshot;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Converts entities to and from Firestore documents without per-document reflection.
+ * The declared fields of an entity class are resolved once into method handle accessors
+ * with a precomputed coercion from the Firestore value type (for example Long to int),
+ * and the resulting plan is shared by every conversion of that class. The same plan copies
+ * entities, for readers that must keep a version of an entity its owner may still modify.
+ *
+ * @param <T> The entity type
+ */
+public final class EntityCodec<T> {
+    private static final Map<Class<?>, EntityCodec<?>> CODECS = new ConcurrentHashMap<>();
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Class<T> entityClass;
+    private final MethodHandle constructor;
+    private final FieldAccessor[] accessors;
+    // Readers by field name: the declared fields, then fields inherited from superclasses
+    private final Map<String, Function<T, Object>> readers;
+    // Every assignable instance field of the class and its superclasses, as copied by copy()
+    private final FieldAccessor[] copiedFields;
+
+    private EntityCodec(Class<T> entityClass) {
+        this.entityClass = entityClass;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(entityClass, MethodHandles.lookup());
+            Constructor<T> noArgs = entityClass.getDeclaredConstructor();
+            this.constructor = lookup.unreflectConstructor(noArgs).asType(MethodType.methodType(Object.class));
+
+            List<FieldAccessor> plan = new ArrayList<>();
+            for (Field field : entityClass.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                    continue;
+                }
+                MethodHandle getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+                MethodHandle setter = Modifier.isFinal(modifiers)
+                        ? null
+                        : lookup.unreflectSetter(field).asType(SETTER_TYPE);
+                plan.add(new FieldAccessor(field.getName(), getter, setter, coercionFor(field.getType())));
+            }
+            this.accessors = plan.toArray(new FieldAccessor[0]);
+            this.readers = readers(entityClass, accessors);
+            this.copiedFields = copiedFields(entityClass);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("Cannot build codec for " + entityClass.getName(), e);
+        }
+    }
+
+    /**
+     * Get the codec for an entity class, building it on first use.
+     *
+     * @param entityClass The entity class
+     * @return The shared codec for the class
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EntityCodec<T> forClass(Class<T> entityClass) {
+        return (EntityCodec<T>) CODECS.computeIfAbsent(entityClass, EntityCodec::new);
+    }
+
+    public Class<T> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * Get a reader for one field of the entity, using the same accessor as {@link #toMap}.
+     * Inherited fields are not part of the stored document, but can still be read this way, for
+     * example by filters evaluated in memory. All readers are resolved when the codec is built.
+     *
+     * @param field The field name, as stored in Firestore
+     * @return The reader, or null if the entity has no such field
+     */
+    public Function<T, Object> getter(String field) {
+        return readers.get(field);
+    }
+
+    private static <T> Map<String, Function<T, Object>> readers(Class<T> entityClass, FieldAccessor[] accessors) {
+        Map<String, Function<T, Object>> readers = new HashMap<>();
+        for (FieldAccessor accessor : accessors) {
+            readers.put(accessor.name, accessor::get);
+        }
+        for (Class<?> type = entityClass.getSuperclass(); type != null && type != Object.class;
+                type = type.getSuperclass()) {
+            MethodHandles.Lookup lookup;
+            try {
+                lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            } catch (IllegalAccessException e) {
+                continue;
+            }
+            for (Field declared : type.getDeclaredFields()) {
+                String field = declared.getName();
+                if (Modifier.isStatic(declared.getModifiers()) || declared.isSynthetic() || readers.containsKey(field)) {
+                    continue;
+                }
+                try {
+                    MethodHandle getter = lookup.unreflectGetter(declared).asType(GETTER_TYPE);
+                    readers.put(field, entity -> {
+                        try {
+                            return getter.invokeExact((Object) entity);
+                        } catch (Throwable e) {
+                            throw new IllegalStateException("Failed to read field " + field, e);
+                        }
+                    });
+                } catch (IllegalAccessException e) {
+                    // Not readable through this codec
+                }
+            }
+        }
+        return readers;
+    }
+
+    private static FieldAccessor[] copiedFields(Class<?> entityClass) throws IllegalAccessException {
+        List<FieldAccessor> fields = new ArrayList<>();
+        for (Class<?> type = entityClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            for (Field field : type.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || field.isSynthetic()) {
+                    continue;
+                }
+                fields.add(new FieldAccessor(field.getName(), lookup.unreflectGetter(field).asType(GETTER_TYPE),
+                        lookup.unreflectSetter(field).asType(SETTER_TYPE), Function.identity()));
+            }
+        }
+        return fields.toArray(new FieldAccessor[0]);
+    }
+
+    /**
+     * Copy an entity field by field, including transient fields and fields inherited from
+     * superclasses, so setting a field of either one does not change the other.
+     * Field values are shared, not copied.
+     *
+     * @param entity The entity to copy
+     * @return A new entity with the same field values
+     */
+    public T copy(T entity) {
+        T copy = newInstance();
+        for (FieldAccessor field : copiedFields) {
+            field.set(copy, field.get(entity));
+        }
+        return copy;
+    }
+
+    /**
+     * Convert an entity to a Firestore document map, skipping null fields.
+     *
+     * @param entity The entity to convert
+     * @return The document data
+     */
+    public Map<String, Object> toMap(T entity) {
+        Map<String, Object> map = new HashMap<>(accessors.length * 2);
+        for (FieldAccessor accessor : accessors) {
+            Object value = accessor.get(entity);
+            if (value != null) {
+                map.put(accessor.name, value);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Convert a Firestore document to a new entity instance.
+     *
+     * @param document The document snapshot
+     * @return The entity, or null if the document does not exist
+     */
+    public T fromDocument(DocumentSnapshot document) {
+        if (document == null || !document.exists()) {
+            return null;
+        }
+        return fromMap(document.getData());
+    }
+
+    /**
+     * Convert document data to a new entity instance.
+     *
+     * @param data The document data
+     * @return The entity
+     */
+    public T fromMap(Map<String, Object> data) {
+        T entity = newInstance();
+        if (data == null) {
+            return entity;
+        }
+        for (FieldAccessor accessor : accessors) {
+            Object value = data.get(accessor.name);
+            if (value != null && accessor.setter != null) {
+                accessor.set(entity, value);
+            }
+        }
+        return entity;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T newInstance() {
+        try {
+            return (T) constructor.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to instantiate " + entityClass.getName(), e);
+        }
+    }
+
+    private static Function<Object, Object> coercionFor(Class<?> type) {
+        if (type == int.class || type == Integer.class) {
+            return value -> value instanceof Number number ? number.intValue() : value;
+        }
+        if (type == long.class || type == Long.class) {
+            return value -> value instanceof Number number ? number.longValue() : value;
+        }
+        if (type == double.class || type == Double.class) {
+            return value -> value instanceof Number number ? number.doubleValue() : value;
+        }
+        if (type == float.class || type == Float.class) {
+            return value -> value instanceof Number number ? number.floatValue() : value;
+        }
+        if (type.isEnum()) {
+            return enumCoercion(type);
+        }
+        if (type == Date.class) {
+            return value -> value instanceof Timestamp timestamp ? timestamp.toDate() : value;
+        }
+        if (Set.class.isAssignableFrom(type)) {
+            return value -> value instanceof Collection<?> collection && !(value instanceof Set)
+                    ? new HashSet<>(collection)
+                    : value;
+        }
+        return Function.identity();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Function<Object, Object> enumCoercion(Class<?> type) {
+        Class<? extends Enum> enumType = (Class<? extends Enum>) type;
+        return value -> value instanceof String name ? Enum.valueOf(enumType, name) : value;
+    }
+
+    private static final class FieldAccessor {
+        private final String name;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final Function<Object, Object> coercion;
+
+        private FieldAccessor(String name, MethodHandle getter, MethodHandle setter,
+                              Function<Object, Object> coercion) {
+            this.name = name;
+            this.getter = getter;
+            this.setter = setter;
+            this.coercion = coercion;
+        }
+
+        private Object get(Object entity) {
+            try {
+                return getter.invokeExact(entity);
+            } catch (Throwable e) {
+                throw new IllegalStateException("Failed to read field " + name, e);
+            }
+        }
+
+        private void set(Object entity, Object value) {
+            try {
+                setter.invokeExact(entity, coercion.apply(value));
+            } catch (Throwable e) {
+                throw new IllegalStateException("Failed to write field " + name, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package se.fulkopinglibraryweb.repository;
+
+import se.fulkopinglibraryweb.service.search.SearchTokenizer;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Value histograms of the fields of a sample of documents, used to estimate what fraction of a
+ * collection a filter keeps. Numbers are compared as doubles, so a year stored as a long matches
+ * an int bound. Each estimate is at least one in the sample size plus one, since a value missing
+ * from the sample may still occur in the collection.
+ * Fields absent from the sample fall back to fixed guesses: one in ten for equality and
+ * containment, one in three for ranges.
+ */
+public final class FieldStatistics {
+    private static final double UNKNOWN_EQUALITY = 0.1;
+    private static final double UNKNOWN_RANGE = 1.0 / 3;
+    private static final double UNKNOWN_CONTAINS = 0.1;
+
+    private final int sampleSize;
+    private final Map<String, Map<Object, Integer>> histograms;
+
+    private FieldStatistics(int sampleSize, Map<String, Map<Object, Integer>> histograms) {
+        this.sampleSize = sampleSize;
+        this.histograms = histograms;
+    }
+
+    /**
+     * @return Statistics that know no fields, so every estimate is a fixed guess
+     */
+    public static FieldStatistics empty() {
+        return new FieldStatistics(0, Map.of());
+    }
+
+    /**
+     * Count the scalar field values of a sample of documents.
+     *
+     * @param sample The data of each sampled document
+     * @return The statistics
+     */
+    public static FieldStatistics of(Collection<Map<String, Object>> sample) {
+        Map<String, Map<Object, Integer>> histograms = new HashMap<>();
+        for (Map<String, Object> document : sample) {
+            for (Map.Entry<String, Object> field : document.entrySet()) {
+                Object value = FieldValues.normalize(field.getValue());
+                if (value instanceof String || value instanceof Double || value instanceof Boolean) {
+                    histograms.computeIfAbsent(field.getKey(), k -> new HashMap<>()).merge(value, 1, Integer::sum);
+                }
+            }
+        }
+        return new FieldStatistics(sample.size(), histograms);
+    }
+
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * @return The estimated fraction of documents whose field equals the value
+     */
+    public double equalTo(String field, Object value) {
+        Map<Object, Integer> histogram = histograms.get(field);
+        if (histogram == null) {
+            return UNKNOWN_EQUALITY;
+        }
+        return fraction(histogram.getOrDefault(FieldValues.normalize(value), 0));
+    }
+
+    /**
+     * @param min The inclusive lower bound, or null for none
+     * @param max The inclusive upper bound, or null for none
+     * @return The estimated fraction of documents whose field lies within the bounds
+     */
+    public double between(String field, Object min, Object max) {
+        Map<Object, Integer> histogram = histograms.get(field);
+        if (histogram == null) {
+            return UNKNOWN_RANGE;
+        }
+        int count = 0;
+        for (Map.Entry<Object, Integer> value : histogram.entrySet()) {
+            if (FieldValues.within(value.getKey(), min, max)) {
+                count += value.getValue();
+            }
+        }
+        return fraction(count);
+    }
+
+    /**
+     * @return The estimated fraction of documents whose field starts with the prefix
+     */
+    public double startsWith(String field, String prefix) {
+        Map<Object, Integer> histogram = histograms.get(field);
+        if (histogram == null) {
+            return UNKNOWN_RANGE;
+        }
+        int count = 0;
+        for (Map.Entry<Object, Integer> value : histogram.entrySet()) {
+            if (value.getKey() instanceof String text && text.startsWith(prefix)) {
+                count += value.getValue();
+            }
+        }
+        return fraction(count);
+    }
+
+    /**
+     * @param keyword A keyword normalized with {@link SearchTokenizer#normalize}
+     * @return The estimated fraction of documents in which at least one of the fields contains the keyword
+     */
+    public double contains(List<String> fields, String keyword) {
+        double missed = 1;
+        for (String field : fields) {
+            Map<Object, Integer> histogram = histograms.get(field);
+            if (histogram == null) {
+                missed *= 1 - UNKNOWN_CONTAINS;
+                continue;
+            }
+            int count = 0;
+            for (Map.Entry<Object, Integer> value : histogram.entrySet()) {
+                if (value.getKey() instanceof String text && SearchTokenizer.normalize(text).contains(keyword)) {
+                    count += value.getValue();
+                }
+            }
+            missed *= 1 - fraction(count);
+        }
+        return 1 - missed;
+    }
+
+    private double fraction(int count) {
+        return Math.max(count, 1) / (double) (sampleSize + 1);
+    }
+}
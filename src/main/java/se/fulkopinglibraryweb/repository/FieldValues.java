@@ -0,0 +1,76 @@
+package se.fulkopinglibraryweb.repository;
+
+import java.util.Objects;
+
+/**
+ * Compares entity field values with filter values the way Firestore compares stored values:
+ * numbers by value whatever their Java type, enums by name, and values of different types never
+ * within a range of each other.
+ */
+final class FieldValues {
+
+    private FieldValues() {
+    }
+
+    static boolean equal(Object actual, Object expected) {
+        Object left = normalize(actual);
+        Object right = normalize(expected);
+        if (left instanceof Double && right instanceof Double) {
+            return Double.compare((Double) left, (Double) right) == 0;
+        }
+        return Objects.equals(left, right);
+    }
+
+    /**
+     * @param min The inclusive lower bound, or null for none
+     * @param max The inclusive upper bound, or null for none
+     */
+    static boolean within(Object value, Object min, Object max) {
+        Object actual = normalize(value);
+        if (actual == null) {
+            return false;
+        }
+        if (min != null) {
+            Object lower = normalize(min);
+            if (!sameType(actual, lower) || compare(actual, lower) < 0) {
+                return false;
+            }
+        }
+        if (max != null) {
+            Object upper = normalize(max);
+            return sameType(actual, upper) && compare(actual, upper) <= 0;
+        }
+        return true;
+    }
+
+    /**
+     * Order two field values for sorting, with nulls last and values of different types by their text.
+     */
+    static int compare(Object a, Object b) {
+        Object left = normalize(a);
+        Object right = normalize(b);
+        if (left == null || right == null) {
+            return left == null ? (right == null ? 0 : 1) : -1;
+        }
+        if (sameType(left, right) && left instanceof Comparable) {
+            @SuppressWarnings("unchecked")
+            Comparable<Object> comparable = (Comparable<Object>) left;
+            return comparable.compareTo(right);
+        }
+        return left.toString().compareTo(right.toString());
+    }
+
+    private static boolean sameType(Object a, Object b) {
+        return a.getClass() == b.getClass();
+    }
+
+    static Object normalize(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        if (value instanceof Enum<?> constant) {
+            return constant.name();
+        }
+        return value;
+    }
+}
@@ -2,23 +2,110 @@ package se.fulkopinglibraryweb.repository;
 
 import com.google.cloud.firestore.CollectionReference;
 import com.google.cloud.firestore.DocumentSnapshot;
+import se.fulkopinglibraryweb.model.Page;
 import se.fulkopinglibraryweb.service.search.SearchCriteria;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface FirestoreRepository<T, ID> extends GenericRepository<T, ID> {
+public interface FirestoreRepository<T, ID> extends GenericRepository<T, ID>, AsyncFirestoreRepository<T, ID> {
     T save(T entity);
+
+    /**
+     * Save an entity, optionally reading it back to pick up server-computed fields.
+     * Without a reload the returned entity is built from the written data and generated ID.
+     */
+    T save(T entity, boolean reload);
     Optional<T> findById(ID id);
+
+    /**
+     * Find many entities by ID with batched multi-get requests, serving cached entities first.
+     * IDs that do not exist are absent from the returned map.
+     */
+    Map<ID, T> findAllById(Collection<ID> ids);
     List<T> findAll();
+
+    /**
+     * Stream every entity in the collection, fetched lazily in pages of the default size.
+     * The stream holds a pending page request and should be closed when not fully consumed.
+     */
+    Stream<T> streamAll();
+
+    /**
+     * Stream every entity in the collection, fetched lazily in pages of {@code pageSize}.
+     */
+    Stream<T> streamAll(int pageSize);
+
+    /**
+     * Fetch one page of the collection, ordered by {@code orderField} and then document ID.
+     * Pages are chained with the opaque {@link Page#getNextCursor() cursor} of the previous page,
+     * pushed down as {@code startAfter}, so every page costs the same to fetch.
+     * Documents without {@code orderField} are not listed when it is set.
+     * The total is counted with the first page only and carried in the cursor, so later pages
+     * report the total as it was when the listing started.
+     *
+     * @param orderField The field to order by, or null to order by document ID only
+     * @param cursor The cursor of the previous page, or null for the first page
+     * @param pageSize The number of entities per page
+     */
+    Page<T> findPage(String orderField, String cursor, int pageSize);
+
+    /**
+     * Fetch only the projected fields of every document, decoded into summaries.
+     * Summaries bypass the entity cache; detail views should keep using {@link #findById}.
+     */
+    <P> List<P> findAllProjected(Projection<P> projection);
+
+    /**
+     * Fetch only the projected fields of the documents where {@code field} equals {@code value}.
+     */
+    <P> List<P> findByFieldProjected(String field, Object value, Projection<P> projection);
+
+    /**
+     * Fetch only the projected fields of the documents matching the search criteria.
+     */
+    <P> List<P> searchProjected(SearchCriteria criteria, Projection<P> projection);
     Boolean deleteById(ID id);
     List<T> findByField(String field, Object value);
     List<T> findByFieldSync(String field, Object value);
     T update(ID id, Map<String, Object> updates);
+
+    /**
+     * Update an entity, optionally reading it back to pick up server-computed fields.
+     * Without a reload the updates are applied to the cached entity when the snapshot listener
+     * keeps the cache current. Otherwise, and whenever the updates hold server-computed values,
+     * the document is read back after the write, costing one extra Firestore read; set
+     * {@code firestore.cache.snapshot-sync} to avoid it.
+     */
+    T update(ID id, Map<String, Object> updates, boolean reload);
     CollectionReference getCollection();
+
+    /**
+     * Register a listener that is told about every entity this repository writes or deletes.
+     */
+    void addChangeListener(EntityChangeListener<T, ID> listener);
+
+    /**
+     * Subscribe to the collection so writes made by other instances reach the cache and the change
+     * listeners, not only writes made through this repository. Does nothing if already subscribed.
+     */
+    void enableSnapshotSync();
+
+    /**
+     * Stamp every write and leave a tombstone for every delete, so a reader restored from a
+     * snapshot can catch up without listing the collection, see {@link ChangeTracking}.
+     */
+    void enableChangeTracking();
     List<T> search(SearchCriteria criteria);
     Long count();
+
+    /**
+     * Count the entities whose {@code field} equals {@code value} with a server-side aggregation.
+     */
+    Long countByField(String field, Object value);
     Boolean deleteAll();
     List<T> saveAll(List<T> entities);
 }
@@ -1,9 +1,11 @@
 package se.fulkopinglibraryweb.repository;
 
 import se.fulkopinglibraryweb.model.Magazine;
+import se.fulkopinglibraryweb.model.MagazineSummary;
 import se.fulkopinglibraryweb.service.search.SearchCriteria;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Repository interface for Magazine entities.
@@ -59,6 +61,14 @@ public interface MagazineRepository extends FirestoreRepository<Magazine, String
      */
     List<Magazine> findLatest(int limit);
 
+    /**
+     * Find the latest magazine issues without blocking the calling thread.
+     *
+     * @param limit The maximum number of issues to return
+     * @return A future with the latest magazine issues
+     */
+    CompletableFuture<List<Magazine>> findLatestAsync(int limit);
+
     /**
      * Search magazines using the provided search criteria.
      *
@@ -66,4 +76,34 @@ public interface MagazineRepository extends FirestoreRepository<Magazine, String
      * @return A list of matching magazines
      */
     List<Magazine> search(SearchCriteria criteria);
+
+    /**
+     * List all magazines with only the fields the list view renders.
+     *
+     * @return A list of magazine summaries
+     */
+    List<MagazineSummary> findAllSummaries();
+
+    /**
+     * List all magazine summaries without blocking the calling thread.
+     *
+     * @return A future with the magazine summaries
+     */
+    CompletableFuture<List<MagazineSummary>> findAllSummariesAsync();
+
+    /**
+     * Search magazines, fetching only the fields the list view renders.
+     *
+     * @param criteria The search criteria to use
+     * @return A list of matching magazine summaries
+     */
+    List<MagazineSummary> searchSummaries(SearchCriteria criteria);
+
+    /**
+     * Search magazine summaries without blocking the calling thread.
+     *
+     * @param criteria The search criteria to use
+     * @return A future with the matching magazine summaries
+     */
+    CompletableFuture<List<MagazineSummary>> searchSummariesAsync(SearchCriteria criteria);
 }
@@ -1,6 +1,7 @@
 package se.fulkopinglibraryweb.repository;
 
 import se.fulkopinglibraryweb.model.Media;
+import se.fulkopinglibraryweb.model.MediaSummary;
 
 import java.util.List;
 
@@ -41,4 +42,20 @@ public interface MediaRepository extends FirestoreRepository<Media, String> {
      * @return A boolean indicating availability
      */
     boolean isAvailable(String mediaId);
+
+    /**
+     * List all media with only the fields the list view renders.
+     *
+     * @return A list of media summaries
+     */
+    List<MediaSummary> findAllSummaries();
+
+    /**
+     * Find media where a field equals a value, fetching only the fields the list view renders.
+     *
+     * @param field The field to match
+     * @param value The value to match
+     * @return A list of matching media summaries
+     */
+    List<MediaSummary> findSummariesByField(String field, Object value);
 }
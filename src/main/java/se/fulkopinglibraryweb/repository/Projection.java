@@ -0,0 +1,50 @@
+package se.fulkopinglibraryweb.repository;
+
+import com.google.cloud.firestore.DocumentSnapshot;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * A subset of document fields to fetch with {@code Query.select(...)}, together with the
+ * decoder that turns a projected document into a lightweight summary type.
+ * List and search views use projections so they do not transfer or decode fields they never render.
+ *
+ * @param <P> The summary type produced from each projected document
+ */
+public final class Projection<P> {
+    private final String[] fields;
+    private final Function<DocumentSnapshot, P> decoder;
+
+    private Projection(Function<DocumentSnapshot, P> decoder, String[] fields) {
+        if (fields.length == 0) {
+            throw new IllegalArgumentException("A projection must select at least one field");
+        }
+        this.decoder = decoder;
+        this.fields = fields.clone();
+    }
+
+    /**
+     * Create a projection over the given fields.
+     *
+     * @param decoder The function mapping a projected document to its summary
+     * @param fields The document fields to fetch; the document ID is always available
+     * @return The projection
+     */
+    public static <P> Projection<P> of(Function<DocumentSnapshot, P> decoder, String... fields) {
+        return new Projection<>(decoder, fields);
+    }
+
+    public String[] getFields() {
+        return fields.clone();
+    }
+
+    public P decode(DocumentSnapshot document) {
+        return decoder.apply(document);
+    }
+
+    @Override
+    public String toString() {
+        return "Projection" + Arrays.toString(fields);
+    }
+}
@@ -0,0 +1,129 @@
+package se.fulkopinglibraryweb.repository;
+
+import com.google.cloud.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * A compiled search: the Firestore query that reads the narrowest indexed slice of the collection,
+ * the filters Firestore cannot apply, to be evaluated in memory in the given order, and the sort
+ * order when Firestore cannot sort the slice itself. Built by {@link QueryPlanner}.
+ *
+ * @param <T> The entity type
+ */
+public final class QueryPlan<T> {
+
+    /**
+     * A filter evaluated in memory.
+     *
+     * @param description The filter in readable form, e.g. {@code year in [1990, 2000]}
+     * @param selectivity The estimated fraction of documents it keeps
+     * @param cost The relative cost of evaluating it once
+     * @param test The filter itself
+     * @param <T> The entity type
+     */
+    public record Filter<T>(String description, double selectivity, double cost, Predicate<T> test) {
+
+        /**
+         * @return The expected cost of evaluating it per document it rejects; cheap, selective filters rank first
+         */
+        public double rank() {
+            return selectivity >= 1 ? Double.POSITIVE_INFINITY : cost / (1 - selectivity);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (selectivity %.3f, cost %.0f)", description, selectivity, cost);
+        }
+    }
+
+    private final Query query;
+    private final List<String> pushedDown;
+    private final double estimatedSelectivity;
+    private final List<Filter<T>> residuals;
+    private final Comparator<T> order;
+
+    QueryPlan(Query query, List<String> pushedDown, double estimatedSelectivity, List<Filter<T>> residuals,
+            Comparator<T> order) {
+        this.query = query;
+        this.pushedDown = pushedDown;
+        this.estimatedSelectivity = estimatedSelectivity;
+        this.residuals = residuals;
+        this.order = order;
+    }
+
+    /**
+     * @return The query to run against Firestore
+     */
+    public Query getQuery() {
+        return query;
+    }
+
+    /**
+     * @return The filters applied by Firestore, in readable form
+     */
+    public List<String> getPushedDown() {
+        return pushedDown;
+    }
+
+    /**
+     * @return The estimated fraction of the collection the query reads
+     */
+    public double getEstimatedSelectivity() {
+        return estimatedSelectivity;
+    }
+
+    /**
+     * @return The filters applied in memory, in evaluation order
+     */
+    public List<Filter<T>> getResiduals() {
+        return residuals;
+    }
+
+    /**
+     * @return True if the results of the query must still be sorted in memory
+     */
+    public boolean sortsInMemory() {
+        return order != null;
+    }
+
+    /**
+     * @return True if an entity passes every in-memory filter
+     */
+    public boolean test(T entity) {
+        for (Filter<T> filter : residuals) {
+            if (!filter.test().test(entity)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Apply the in-memory filters and sort order to the entities read by the query.
+     *
+     * @param fetched The entities returned by {@link #getQuery()}
+     * @return The entities matching the whole search, in the requested order
+     */
+    public List<T> apply(List<T> fetched) {
+        List<T> matches = new ArrayList<>(residuals.isEmpty() ? fetched.size() : Math.min(fetched.size(), 16));
+        for (T entity : fetched) {
+            if (test(entity)) {
+                matches.add(entity);
+            }
+        }
+        if (order != null) {
+            matches.sort(order);
+        }
+        return matches;
+    }
+
+    @Override
+    public String toString() {
+        return "firestore " + pushedDown + String.format(" (~%.3f of collection)", estimatedSelectivity)
+                + ", then in memory " + residuals + (order != null ? ", sorted in memory" : "");
+    }
+}
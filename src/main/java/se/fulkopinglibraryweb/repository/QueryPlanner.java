@@ -0,0 +1,312 @@
+package se.fulkopinglibraryweb.repository;
+
+import com.google.cloud.firestore.Query;
+import se.fulkopinglibraryweb.service.search.EnhancedSearchCriteria;
+import se.fulkopinglibraryweb.service.search.SearchCriteria;
+import se.fulkopinglibraryweb.service.search.SearchTokenizer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Compiles search criteria into a {@link QueryPlan}.
+ * Firestore can serve any number of equality filters, or one range filter, from its automatic
+ * single-field indexes, but equality filters together with a range on another field need a
+ * composite index whose last field is the range field. The planner therefore considers pushing
+ * down all equality filters, each range alone, and each declared composite index whose fields the
+ * criteria filter on, and picks the one estimated to read the fewest documents.
+ * Everything else, including keyword filters, which Firestore cannot evaluate at all, runs in
+ * memory in order of cost per rejected document, so cheap, selective comparisons come first.
+ *
+ * @param <T> The entity type
+ */
+public final class QueryPlanner<T> {
+    private static final String PREFIX_END = "\uf8ff";
+    // Relative cost of evaluating one filter on one entity
+    private static final double PRIMITIVE_COMPARISON_COST = 1;
+    private static final double OBJECT_COMPARISON_COST = 2;
+    private static final double KEYWORD_COST_PER_FIELD = 10;
+
+    private final EntityCodec<T> codec;
+    private final String defaultSearchField;
+    private final List<List<String>> compositeIndexes;
+
+    /**
+     * @param codec The codec of the entity type, used to read field values in memory
+     * @param defaultSearchField The field a criteria's search term is a prefix of
+     * @param compositeIndexes The collection's composite indexes, each listing its equality fields
+     *        followed by its range field
+     */
+    public QueryPlanner(EntityCodec<T> codec, String defaultSearchField, List<List<String>> compositeIndexes) {
+        this.codec = codec;
+        this.defaultSearchField = defaultSearchField;
+        this.compositeIndexes = compositeIndexes;
+    }
+
+    private enum Kind {
+        EQUAL,
+        RANGE,
+        PREFIX,
+        KEYWORD
+    }
+
+    private static final class Condition {
+        private final Kind kind;
+        private final String field;
+        private final Object min;
+        private final Object max;
+        private final List<String> fields;
+        private double selectivity;
+
+        private Condition(Kind kind, String field, Object min, Object max, List<String> fields) {
+            this.kind = kind;
+            this.field = field;
+            this.min = min;
+            this.max = max;
+            this.fields = fields;
+        }
+
+        private boolean isRange() {
+            return kind == Kind.RANGE || kind == Kind.PREFIX;
+        }
+
+        @Override
+        public String toString() {
+            return switch (kind) {
+                case EQUAL -> field + " == " + min;
+                case RANGE -> field + " in [" + (min != null ? min : "") + ", " + (max != null ? max : "") + "]";
+                case PREFIX -> field + " starts with '" + min + "'";
+                case KEYWORD -> "any of " + fields + " contains '" + min + "'";
+            };
+        }
+    }
+
+    /**
+     * Compile search criteria against a collection.
+     *
+     * @param collection The collection to query
+     * @param criteria The criteria; an {@link EnhancedSearchCriteria} adds equality, range and keyword filters
+     * @param statistics Statistics of the collection's fields
+     * @return The plan
+     */
+    public QueryPlan<T> plan(Query collection, SearchCriteria criteria, FieldStatistics statistics) {
+        List<Condition> conditions = conditionsOf(criteria);
+        for (Condition condition : conditions) {
+            condition.selectivity = estimate(condition, statistics);
+        }
+
+        List<Condition> pushed = chooseAccessPath(conditions);
+        Query query = collection;
+        List<String> pushedDown = new ArrayList<>(pushed.size());
+        double estimatedSelectivity = 1;
+        Condition range = null;
+        for (Condition condition : pushed) {
+            query = pushDown(query, condition);
+            pushedDown.add(condition.toString());
+            estimatedSelectivity *= condition.selectivity;
+            if (condition.isRange()) {
+                range = condition;
+            }
+        }
+
+        List<QueryPlan.Filter<T>> residuals = new ArrayList<>();
+        for (Condition condition : conditions) {
+            if (!pushed.contains(condition)) {
+                residuals.add(compile(condition, statistics));
+            }
+        }
+        residuals.sort(Comparator.comparingDouble(QueryPlan.Filter::rank));
+
+        Comparator<T> order = null;
+        String sortField = criteria.getSortField();
+        if (sortField != null) {
+            boolean descending = criteria.getSortDirection() == SearchCriteria.SortDirection.DESC;
+            // Firestore must order by the range field first, so any other order is applied in memory
+            if (range == null || range.field.equals(sortField)) {
+                query = query.orderBy(sortField, descending ? Query.Direction.DESCENDING : Query.Direction.ASCENDING);
+            } else {
+                Function<T, Object> reader = reader(sortField);
+                Comparator<T> ascending = (a, b) -> FieldValues.compare(reader.apply(a), reader.apply(b));
+                order = descending ? ascending.reversed() : ascending;
+            }
+        }
+        return new QueryPlan<>(query, pushedDown, estimatedSelectivity, residuals, order);
+    }
+
+    private List<Condition> conditionsOf(SearchCriteria criteria) {
+        List<Condition> conditions = new ArrayList<>();
+        String searchTerm = criteria.getSearchTerm();
+        if (searchTerm != null && !searchTerm.isEmpty()) {
+            conditions.add(new Condition(Kind.PREFIX, defaultSearchField, searchTerm, null, null));
+        }
+        if (criteria.getFilterField() != null && criteria.getFilterValue() != null) {
+            conditions.add(new Condition(Kind.EQUAL, criteria.getFilterField(), criteria.getFilterValue(), null, null));
+        }
+        if (criteria instanceof EnhancedSearchCriteria enhanced) {
+            enhanced.getEqualityFilters().forEach((field, value) ->
+                    conditions.add(new Condition(Kind.EQUAL, field, value, null, null)));
+            for (Map.Entry<String, EnhancedSearchCriteria.RangeFilter> range : enhanced.getRangeFilters().entrySet()) {
+                Object min = range.getValue().getMin();
+                Object max = range.getValue().getMax();
+                if (min != null && FieldValues.equal(min, max)) {
+                    conditions.add(new Condition(Kind.EQUAL, range.getKey(), min, null, null));
+                } else if (min != null || max != null) {
+                    conditions.add(new Condition(Kind.RANGE, range.getKey(), min, max, null));
+                }
+            }
+            for (EnhancedSearchCriteria.KeywordFilter keyword : enhanced.getKeywordFilters()) {
+                String normalized = SearchTokenizer.normalize(keyword.getKeyword());
+                if (!normalized.isEmpty() && !keyword.getFields().isEmpty()) {
+                    conditions.add(new Condition(Kind.KEYWORD, null, normalized, null, keyword.getFields()));
+                }
+            }
+        }
+        return conditions;
+    }
+
+    private static double estimate(Condition condition, FieldStatistics statistics) {
+        return switch (condition.kind) {
+            case EQUAL -> statistics.equalTo(condition.field, condition.min);
+            case RANGE -> statistics.between(condition.field, condition.min, condition.max);
+            case PREFIX -> statistics.startsWith(condition.field, (String) condition.min);
+            case KEYWORD -> statistics.contains(condition.fields, (String) condition.min);
+        };
+    }
+
+    /**
+     * Pick the conditions Firestore can apply together that leave the fewest documents to read.
+     */
+    private List<Condition> chooseAccessPath(List<Condition> conditions) {
+        List<Condition> equalities = new ArrayList<>();
+        List<Condition> ranges = new ArrayList<>();
+        for (Condition condition : conditions) {
+            if (condition.kind == Kind.EQUAL) {
+                equalities.add(condition);
+            } else if (condition.isRange()) {
+                ranges.add(condition);
+            }
+        }
+
+        List<List<Condition>> candidates = new ArrayList<>();
+        candidates.add(equalities);
+        for (Condition range : ranges) {
+            candidates.add(List.of(range));
+        }
+        for (List<String> index : compositeIndexes) {
+            String rangeField = index.get(index.size() - 1);
+            List<Condition> indexed = new ArrayList<>(index.size());
+            for (String field : index.subList(0, index.size() - 1)) {
+                equalities.stream().filter(c -> c.field.equals(field)).findFirst().ifPresent(indexed::add);
+            }
+            if (indexed.size() != index.size() - 1) {
+                continue;
+            }
+            for (Condition range : ranges) {
+                if (range.field.equals(rangeField)) {
+                    List<Condition> candidate = new ArrayList<>(indexed);
+                    candidate.add(range);
+                    candidates.add(candidate);
+                }
+            }
+        }
+
+        List<Condition> best = candidates.get(0);
+        double bestSelectivity = selectivityOf(best);
+        for (List<Condition> candidate : candidates) {
+            double selectivity = selectivityOf(candidate);
+            if (selectivity < bestSelectivity || (selectivity == bestSelectivity && candidate.size() > best.size())) {
+                best = candidate;
+                bestSelectivity = selectivity;
+            }
+        }
+        return best;
+    }
+
+    private static double selectivityOf(List<Condition> conditions) {
+        double selectivity = 1;
+        for (Condition condition : conditions) {
+            selectivity *= condition.selectivity;
+        }
+        return selectivity;
+    }
+
+    private static Query pushDown(Query query, Condition condition) {
+        return switch (condition.kind) {
+            case EQUAL -> query.whereEqualTo(condition.field, condition.min);
+            case RANGE -> {
+                Query ranged = query;
+                if (condition.min != null) {
+                    ranged = ranged.whereGreaterThanOrEqualTo(condition.field, condition.min);
+                }
+                if (condition.max != null) {
+                    ranged = ranged.whereLessThanOrEqualTo(condition.field, condition.max);
+                }
+                yield ranged;
+            }
+            case PREFIX -> query.whereGreaterThanOrEqualTo(condition.field, condition.min)
+                    .whereLessThanOrEqualTo(condition.field, condition.min + PREFIX_END);
+            case KEYWORD -> throw new IllegalArgumentException("Keyword filters cannot be pushed down");
+        };
+    }
+
+    private QueryPlan.Filter<T> compile(Condition condition, FieldStatistics statistics) {
+        String description = condition.toString();
+        switch (condition.kind) {
+            case EQUAL: {
+                Function<T, Object> reader = reader(condition.field);
+                Object expected = condition.min;
+                boolean primitive = expected instanceof Boolean || expected instanceof Number;
+                return new QueryPlan.Filter<>(description, condition.selectivity,
+                        primitive ? PRIMITIVE_COMPARISON_COST : OBJECT_COMPARISON_COST,
+                        entity -> FieldValues.equal(reader.apply(entity), expected));
+            }
+            case RANGE: {
+                Function<T, Object> reader = reader(condition.field);
+                Object min = condition.min;
+                Object max = condition.max;
+                boolean primitive = (min == null || min instanceof Number) && (max == null || max instanceof Number);
+                return new QueryPlan.Filter<>(description, condition.selectivity,
+                        primitive ? PRIMITIVE_COMPARISON_COST : OBJECT_COMPARISON_COST,
+                        entity -> FieldValues.within(reader.apply(entity), min, max));
+            }
+            case PREFIX: {
+                Function<T, Object> reader = reader(condition.field);
+                String prefix = (String) condition.min;
+                return new QueryPlan.Filter<>(description, condition.selectivity, OBJECT_COMPARISON_COST,
+                        entity -> reader.apply(entity) instanceof String value && value.startsWith(prefix));
+            }
+            default: {
+                // Try the fields most likely to contain the keyword first
+                String keyword = (String) condition.min;
+                List<String> fields = new ArrayList<>(condition.fields);
+                fields.sort(Comparator.comparingDouble(field -> -statistics.contains(List.of(field), keyword)));
+                List<Predicate<T>> branches = new ArrayList<>(fields.size());
+                for (String field : fields) {
+                    Function<T, Object> reader = reader(field);
+                    branches.add(entity -> {
+                        Object value = reader.apply(entity);
+                        return value != null && SearchTokenizer.normalize(value.toString()).contains(keyword);
+                    });
+                }
+                return new QueryPlan.Filter<>(description, condition.selectivity,
+                        KEYWORD_COST_PER_FIELD * fields.size(), entity -> {
+                            for (Predicate<T> branch : branches) {
+                                if (branch.test(entity)) {
+                                    return true;
+                                }
+                            }
+                            return false;
+                        });
+            }
+        }
+    }
+
+    private Function<T, Object> reader(String field) {
+        Function<T, Object> getter = codec.getter(field);
+        return getter != null ? getter : entity -> null;
+    }
+}
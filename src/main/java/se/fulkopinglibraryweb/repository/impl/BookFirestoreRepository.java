@@ -4,19 +4,30 @@ import com.google.cloud.firestore.CollectionReference;
 import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.Query;
 import com.google.cloud.firestore.QuerySnapshot;
-import com.google.cloud.firestore.AggregateQuerySnapshot;
 import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.WriteResult;
 import java.util.concurrent.ExecutionException;
 import se.fulkopinglibraryweb.model.Book;
+import se.fulkopinglibraryweb.model.BookSummary;
 import se.fulkopinglibraryweb.repository.BookRepository;
 import se.fulkopinglibraryweb.repository.AbstractFirestoreRepository;
 import se.fulkopinglibraryweb.repository.FirestoreRepository;
+import se.fulkopinglibraryweb.repository.Projection;
 import se.fulkopinglibraryweb.service.search.SearchCriteria;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 public class BookFirestoreRepository extends AbstractFirestoreRepository<Book, String> implements BookRepository {
+    private static final Projection<BookSummary> SUMMARY = Projection.of(document -> {
+        Long year = document.getLong("year");
+        Boolean available = document.getBoolean("available");
+        return new BookSummary(document.getId(), document.getString("title"), document.getString("author"),
+                document.getString("isbn"), year != null ? year.intValue() : 0, Boolean.TRUE.equals(available));
+    }, "title", "author", "isbn", "year", "available");
+
     private final FirestoreRepository<Book, String> firestoreRepository;
 
     public BookFirestoreRepository(FirestoreRepository<Book, String> firestoreRepository) {
@@ -26,17 +37,10 @@ public class BookFirestoreRepository extends AbstractFirestoreRepository<Book, S
 
     @Override
     public List<Book> findAll() {
-        try {
-            QuerySnapshot querySnapshot = getCollection().get().get();
-            return querySnapshot.getDocuments()
-                .stream()
-                .map(this::convertToEntity)
-                .toList();
-        } catch (ExecutionException e) {
+        try (Stream<Book> books = streamAll()) {
+            return books.toList();
+        } catch (RuntimeException e) {
             throw new RuntimeException("Failed to get all books", e);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Thread interrupted while getting all books", e);
         }
     }
 
@@ -44,7 +48,9 @@ public class BookFirestoreRepository extends AbstractFirestoreRepository<Book, S
     public void deleteAll(List<String> ids) {
         for (String id : ids) {
             try {
-                getCollection().document(id).delete().get();
+                List<WriteResult> results = trackedDelete(firestore.batch(),
+                        getCollection().document(id)).commit().get();
+                notifyDeleted(id, results.get(0).getUpdateTime());
             } catch (ExecutionException e) {
                 throw new RuntimeException("Failed to delete book with id: " + id, e);
             } catch (InterruptedException e) {
@@ -77,19 +83,7 @@ public class BookFirestoreRepository extends AbstractFirestoreRepository<Book, S
     @Override
     public List<Book> searchBooks(SearchCriteria criteria) {
         try {
-            Query query = getCollection();
-            
-            if (criteria.getFilterField() != null && criteria.getFilterValue() != null) {
-                query = query.whereEqualTo(criteria.getFilterField(), criteria.getFilterValue());
-            }
-            
-            if (criteria.getSortField() != null && criteria.getSortDirection() != null) {
-                query = criteria.getSortDirection() == SearchCriteria.SortDirection.ASC ?
-                    query.orderBy(criteria.getSortField(), Query.Direction.ASCENDING) :
-                    query.orderBy(criteria.getSortField(), Query.Direction.DESCENDING);
-            }
-            
-            QuerySnapshot querySnapshot = query.get().get();
+            QuerySnapshot querySnapshot = buildBookSearchQuery(criteria).get().get();
             return querySnapshot.getDocuments()
                 .stream()
                 .map(this::convertToEntity)
@@ -103,22 +97,28 @@ public class BookFirestoreRepository extends AbstractFirestoreRepository<Book, S
     }
 
     @Override
-    public List<Book> findByField(String field, Object value) {
-        try {
-            QuerySnapshot querySnapshot = getCollection()
-                .whereEqualTo(field, value)
-                .get()
-                .get();
-            return querySnapshot.getDocuments()
-                .stream()
-                .map(this::convertToEntity)
-                .toList();
-        } catch (ExecutionException e) {
-            throw new RuntimeException("Failed to find books by " + field, e);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Thread interrupted while finding books by " + field, e);
+    public List<BookSummary> findAllSummaries() {
+        return findAllProjected(SUMMARY);
+    }
+
+    @Override
+    public List<BookSummary> searchSummaries(SearchCriteria criteria) {
+        return findProjected(buildBookSearchQuery(criteria), SUMMARY);
+    }
+
+    private Query buildBookSearchQuery(SearchCriteria criteria) {
+        Query query = getCollection();
+        
+        if (criteria.getFilterField() != null && criteria.getFilterValue() != null) {
+            query = query.whereEqualTo(criteria.getFilterField(), criteria.getFilterValue());
+        }
+        
+        if (criteria.getSortField() != null && criteria.getSortDirection() != null) {
+            query = criteria.getSortDirection() == SearchCriteria.SortDirection.ASC ?
+                query.orderBy(criteria.getSortField(), Query.Direction.ASCENDING) :
+                query.orderBy(criteria.getSortField(), Query.Direction.DESCENDING);
         }
+        return query;
     }
 
     @Override
@@ -128,7 +128,12 @@ public class BookFirestoreRepository extends AbstractFirestoreRepository<Book, S
 
     @Override
     public List<Book> findByAuthor(String author) {
-        return findByField("author", author);
+        return findByFieldPhonetic("author", author);
+    }
+
+    @Override
+    public CompletableFuture<List<Book>> findByAuthorAsync(String author) {
+        return findByFieldPhoneticAsync("author", author);
     }
 
     @Override
@@ -147,44 +152,38 @@ public class BookFirestoreRepository extends AbstractFirestoreRepository<Book, S
     }
 
     @Override
-    public Optional<Book> findById(String id) {
-        try {
-            DocumentSnapshot document = getCollection()
-                .document(id)
-                .get()
-                .get();
-            return Optional.ofNullable(convertToEntity(document));
-        } catch (ExecutionException e) {
-            throw new RuntimeException("Failed to find book by id", e);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Thread interrupted while finding book by id", e);
-        }
+    protected List<List<String>> getCompositeIndexes() {
+        return List.of(List.of("author", "title"), List.of("author", "year"), List.of("available", "year"));
     }
 
     @Override
-    public Optional<Book> getById(String id) {
-        return findById(id);
+    protected List<String> getPhoneticFields() {
+        return List.of("author");
     }
 
     @Override
-    public Long count() {
-        try {
-            AggregateQuerySnapshot countSnapshot = getCollection().count().get().get();
-            return countSnapshot.getCount();
-        } catch (ExecutionException e) {
-            throw new RuntimeException("Failed to count books", e);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Thread interrupted while counting books", e);
-        }
+    protected int weigh(Book book) {
+        // Roughly one unit per 64 characters of text held by the cached book
+        int chars = length(book.getTitle()) + length(book.getAuthor()) + length(book.getIsbn());
+        return 1 + chars / 64;
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    @Override
+    public Optional<Book> getById(String id) {
+        return findById(id);
     }
 
     @Override
     public List<Book> saveAll(List<Book> entities) {
         for (Book book : entities) {
             try {
-                getCollection().document(book.getId()).set(convertToMap(book)).get();
+                WriteResult result = getCollection().document(book.getId())
+                        .set(tracked(convertToMap(book))).get();
+                notifySaved(book.getId(), book, result.getUpdateTime());
             } catch (ExecutionException e) {
                 throw new RuntimeException("Failed to save book with id: " + book.getId(), e);
             } catch (InterruptedException e) {
@@ -205,7 +204,7 @@ public class BookFirestoreRepository extends AbstractFirestoreRepository<Book, S
     @Override
     public void reserve(String bookId) {
         try {
-            getCollection().document(bookId).update("reserved", true).get();
+            getCollection().document(bookId).update(tracked(Map.of("reserved", true))).get();
         } catch (ExecutionException e) {
             throw new RuntimeException("Failed to reserve book with id: " + bookId, e);
         } catch (InterruptedException e) {
@@ -217,7 +216,7 @@ public class BookFirestoreRepository extends AbstractFirestoreRepository<Book, S
     @Override
     public void cancelReservation(String bookId) {
         try {
-            getCollection().document(bookId).update("reserved", false).get();
+            getCollection().document(bookId).update(tracked(Map.of("reserved", false))).get();
         } catch (ExecutionException e) {
             throw new RuntimeException("Failed to cancel reservation for book with id: " + bookId, e);
         } catch (InterruptedException e) {
@@ -1,24 +1,38 @@
 package se.fulkopinglibraryweb.repository.impl;
 
+import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.DocumentSnapshot;
 import org.springframework.stereotype.Repository;
 import se.fulkopinglibraryweb.model.Frequency;
 import se.fulkopinglibraryweb.model.ItemType;
 import se.fulkopinglibraryweb.model.Magazine;
+import se.fulkopinglibraryweb.model.MagazineSummary;
 import se.fulkopinglibraryweb.repository.AbstractFirestoreRepository;
 import se.fulkopinglibraryweb.repository.MagazineRepository;
+import se.fulkopinglibraryweb.repository.Projection;
 import se.fulkopinglibraryweb.service.search.SearchCriteria;
 
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
+import static se.fulkopinglibraryweb.utils.ApiFutureUtils.toCompletableFuture;
+
 @Repository
 public class MagazineFirestoreRepository extends AbstractFirestoreRepository<Magazine, String> implements MagazineRepository {
     private static final String PUBLICATION_DATE_FIELD = "publicationDate";
     private static final String COLLECTION_NAME = "magazines";
+    private static final Projection<MagazineSummary> SUMMARY = Projection.of(document -> {
+        Long issueNumber = document.getLong("issueNumber");
+        Long year = document.getLong("publicationYear");
+        Boolean available = document.getBoolean("available");
+        return new MagazineSummary(document.getId(), document.getString("title"), document.getString("publisher"),
+                document.getString("issn"), issueNumber != null ? issueNumber.intValue() : 0,
+                year != null ? year.intValue() : 0, Boolean.TRUE.equals(available));
+    }, "title", "publisher", "issn", "issueNumber", "publicationYear", "available");
     
     public MagazineFirestoreRepository() {
         super(COLLECTION_NAME);
@@ -55,6 +69,16 @@ public class MagazineFirestoreRepository extends AbstractFirestoreRepository<Mag
         return magazine;
     }
 
+    @Override
+    protected Magazine convertWrittenData(String id, Map<String, Object> data, Timestamp updateTime) {
+        // The codec only maps the fields Magazine declares, so the inherited ones are set here
+        Magazine magazine = super.convertWrittenData(id, data, updateTime);
+        magazine.setTitle((String) data.get("title"));
+        Object available = data.get("available");
+        magazine.setAvailable(available instanceof Boolean ? (Boolean) available : true);
+        return magazine;
+    }
+
     @Override
     public Map<String, Object> convertToMap(Magazine magazine) {
         Map<String, Object> data = new HashMap<>();
@@ -81,23 +105,19 @@ public class MagazineFirestoreRepository extends AbstractFirestoreRepository<Mag
         return Arrays.asList("title", "publisher", "issn");
     }
 
+    @Override
+    protected List<List<String>> getCompositeIndexes() {
+        return List.of(List.of("publisher", "title"), List.of("category", "publicationYear"));
+    }
+
+    @Override
+    protected List<String> getPhoneticFields() {
+        return List.of("publisher");
+    }
+
     @Override
     public List<Magazine> findByPublisher(String publisher) {
-        try {
-            return firestore.collection(COLLECTION_NAME)
-                .whereEqualTo("publisher", publisher)
-                .get()
-                .get()
-                .getDocuments()
-                .stream()
-                .map(this::convertToEntity)
-                .toList();
-        } catch (ExecutionException e) {
-            throw new RuntimeException("Failed to find magazines by publisher", e);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Thread interrupted while finding magazines by publisher", e);
-        }
+        return findByFieldPhonetic("publisher", publisher);
     }
 
     @Override
@@ -196,4 +216,35 @@ public class MagazineFirestoreRepository extends AbstractFirestoreRepository<Mag
         }
     }
 
+    @Override
+    public CompletableFuture<List<Magazine>> findLatestAsync(int limit) {
+        return toCompletableFuture(firestore.collection(COLLECTION_NAME)
+                .orderBy(PUBLICATION_DATE_FIELD, com.google.cloud.firestore.Query.Direction.DESCENDING)
+                .limit(limit)
+                .get())
+            .thenApply(snapshot -> snapshot.getDocuments()
+                .stream()
+                .map(this::convertToEntity)
+                .toList());
+    }
+
+    @Override
+    public List<MagazineSummary> findAllSummaries() {
+        return findAllProjected(SUMMARY);
+    }
+
+    @Override
+    public List<MagazineSummary> searchSummaries(SearchCriteria criteria) {
+        return searchProjected(criteria, SUMMARY);
+    }
+
+    @Override
+    public CompletableFuture<List<MagazineSummary>> findAllSummariesAsync() {
+        return findAllProjectedAsync(SUMMARY);
+    }
+
+    @Override
+    public CompletableFuture<List<MagazineSummary>> searchSummariesAsync(SearchCriteria criteria) {
+        return searchProjectedAsync(criteria, SUMMARY);
+    }
 }
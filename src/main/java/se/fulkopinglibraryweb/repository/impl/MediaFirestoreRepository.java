@@ -3,8 +3,10 @@ package se.fulkopinglibraryweb.repository.impl;
 import com.google.cloud.firestore.DocumentSnapshot;
 import org.springframework.stereotype.Repository;
 import se.fulkopinglibraryweb.model.Media;
+import se.fulkopinglibraryweb.model.MediaSummary;
 import se.fulkopinglibraryweb.repository.AbstractFirestoreRepository;
 import se.fulkopinglibraryweb.repository.MediaRepository;
+import se.fulkopinglibraryweb.repository.Projection;
 import se.fulkopinglibraryweb.service.search.SearchCriteria;
 
 import java.util.Arrays;
@@ -17,6 +19,13 @@ import java.util.Optional;
 public class MediaFirestoreRepository extends AbstractFirestoreRepository<Media, String> implements MediaRepository {
 
     private static final String COLLECTION_NAME = "media";
+    private static final Projection<MediaSummary> SUMMARY = Projection.of(document -> {
+        Long releaseYear = document.getLong("releaseYear");
+        Boolean available = document.getBoolean("available");
+        return new MediaSummary(document.getId(), document.getString("title"), document.getString("type"),
+                document.getString("director"), document.getString("catalog"),
+                releaseYear != null ? releaseYear.intValue() : 0, available != null ? available : true);
+    }, "title", "type", "director", "catalog", "releaseYear", "available");
     
     public MediaFirestoreRepository() {
         super(COLLECTION_NAME);
@@ -32,6 +41,16 @@ public class MediaFirestoreRepository extends AbstractFirestoreRepository<Media,
         return Arrays.asList("title", "director", "catalog");
     }
 
+    @Override
+    protected List<List<String>> getCompositeIndexes() {
+        return List.of(List.of("type", "title"), List.of("director", "releaseYear"));
+    }
+
+    @Override
+    protected List<String> getPhoneticFields() {
+        return List.of("director");
+    }
+
     @Override
     public Media convertToEntity(DocumentSnapshot document) {
         if (document == null || !document.exists()) {
@@ -74,7 +93,7 @@ public class MediaFirestoreRepository extends AbstractFirestoreRepository<Media,
 
     @Override
     public List<Media> findByDirector(String director) {
-        return super.findByFieldSync("director", director);
+        return findByFieldPhonetic("director", director);
     }
 
     @Override
@@ -88,4 +107,13 @@ public class MediaFirestoreRepository extends AbstractFirestoreRepository<Media,
         return media.map(Media::isAvailable).orElse(false);
     }
 
+    @Override
+    public List<MediaSummary> findAllSummaries() {
+        return findAllProjected(SUMMARY);
+    }
+
+    @Override
+    public List<MediaSummary> findSummariesByField(String field, Object value) {
+        return findByFieldProjected(field, value, SUMMARY);
+    }
 }
@@ -2,8 +2,8 @@ package se.fulkopinglibraryweb.service;
 
 import se.fulkopinglibraryweb.service.interfaces.SearchService;
 import se.fulkopinglibraryweb.service.search.SearchCriteria;
+import se.fulkopinglibraryweb.utils.EditDistance;
 import se.fulkopinglibraryweb.utils.LoggerUtil;
-import org.apache.commons.text.similarity.LevenshteinDistance;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,7 +14,6 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 public abstract class AbstractSearchService<T> implements SearchService<T> {
-    private final LevenshteinDistance levenshteinDistance = new LevenshteinDistance();
     private final String serviceName;
     protected final Logger logger = LoggerFactory.getLogger(getClass());
 
@@ -100,11 +99,7 @@ public abstract class AbstractSearchService<T> implements SearchService<T> {
 
         if (itemValue.isEmpty()) return false;
 
-        int distance = levenshteinDistance.apply(itemValue, query);
-        int maxLength = Math.max(itemValue.length(), query.length());
-        double similarity = 1.0 - ((double) distance / maxLength);
-
-        return similarity >= threshold;
+        return EditDistance.isSimilar(itemValue, query, threshold);
     }
 
     protected abstract List<T> getAllItems();
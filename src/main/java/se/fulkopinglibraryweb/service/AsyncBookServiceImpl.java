@@ -13,100 +13,84 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 public class AsyncBookServiceImpl implements AsyncBookService {
     private final BookRepository bookRepository;
     private final BookMapper bookMapper;
-    protected final Executor executorService;
 
-    public AsyncBookServiceImpl(BookRepository bookRepository, BookMapper bookMapper, Executor executorService) {
+    public AsyncBookServiceImpl(BookRepository bookRepository, BookMapper bookMapper) {
         this.bookRepository = bookRepository;
         this.bookMapper = bookMapper;
-        this.executorService = executorService;
     }
 
     @Override
     public CompletableFuture<Optional<Book>> read(String id) {
-        return CompletableFuture.supplyAsync(() -> bookRepository.findById(id), executorService);
+        return bookRepository.findByIdAsync(id);
     }
 
     @Override
     public CompletableFuture<Book> update(Book book) {
-        return CompletableFuture.supplyAsync(() -> bookRepository.save(book), executorService);
+        return bookRepository.saveAsync(book);
     }
 
     @Override
     public CompletableFuture<Book> create(Book book) {
-        return CompletableFuture.supplyAsync(() -> bookRepository.save(book), executorService);
+        return bookRepository.saveAsync(book);
     }
 
     @Override
     public CompletableFuture<Book> getById(String id) {
-        return CompletableFuture.supplyAsync(() -> bookRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Book not found")), executorService);
+        return bookRepository.findByIdAsync(id)
+            .thenApply(book -> book.orElseThrow(() -> new RuntimeException("Book not found")));
     }
 
     @Override
     public CompletableFuture<List<Book>> getAll() {
-        return CompletableFuture.supplyAsync(() -> bookRepository.findAll(), executorService);
+        return bookRepository.findAllAsync();
     }
 
     @Override
     public CompletableFuture<Boolean> isAvailable(String bookId) {
-        return CompletableFuture.supplyAsync(() -> {
-            Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> new RuntimeException("Book not found"));
-            return book.isAvailable();
-        }, executorService);
+        return getById(bookId).thenApply(Book::isAvailable);
     }
 
     @Override
     public CompletableFuture<Void> delete(String id) {
-        return CompletableFuture.runAsync(() -> bookRepository.deleteById(id), executorService);
+        return bookRepository.deleteByIdAsync(id).thenApply(deleted -> null);
     }
 
     @Override
     public CompletableFuture<Boolean> reserveBook(String bookId) {
-        return CompletableFuture.supplyAsync(() -> {
-            Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> new RuntimeException("Book not found"));
+        return getById(bookId).thenCompose(book -> {
             if (book.isAvailable()) {
                 book.setAvailable(false);
-                bookRepository.save(book);
-                return true;
+                return bookRepository.saveAsync(book).thenApply(saved -> true);
             }
-            return false;
-        }, executorService);
+            return CompletableFuture.completedFuture(false);
+        });
     }
 
     @Override
     public CompletableFuture<Boolean> cancelReservation(String bookId) {
-        return CompletableFuture.supplyAsync(() -> {
-            Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> new RuntimeException("Book not found"));
+        return getById(bookId).thenCompose(book -> {
             if (!book.isAvailable()) {
                 book.setAvailable(true);
-                bookRepository.save(book);
-                return true;
+                return bookRepository.saveAsync(book).thenApply(saved -> true);
             }
-            return false;
-        }, executorService);
+            return CompletableFuture.completedFuture(false);
+        });
     }
 
     @Override
     public CompletableFuture<List<Book>> searchBooks(SearchCriteria criteria) {
-        return CompletableFuture.supplyAsync(() -> {
-            List<Book> results = bookRepository.search(criteria);
-            return results != null ? results : List.of();
-        }, executorService);
+        return bookRepository.searchAsync(criteria)
+            .thenApply(results -> results != null ? results : List.of());
     }
 
     @Override
     public CompletableFuture<Book> findByIsbn(String isbn) {
-        return CompletableFuture.supplyAsync(() -> {
-            List<Book> books = bookRepository.findByIsbn(isbn);
+        return bookRepository.findByFieldAsync("isbn", isbn).thenApply(books -> {
             if (books.isEmpty()) {
                 throw new BookServiceException(
                     "Book with ISBN " + isbn + " not found",
@@ -116,21 +100,21 @@ public class AsyncBookServiceImpl implements AsyncBookService {
                 );
             }
             return books.get(0);
-        }, executorService);
+        });
     }
 
     @Override
     public CompletableFuture<List<Book>> findByAuthor(String author) {
-        return CompletableFuture.supplyAsync(() -> bookRepository.findByAuthor(author), executorService);
+        return bookRepository.findByAuthorAsync(author);
     }
 
     @Override
     public CompletableFuture<List<Book>> findByTitle(String title) {
-        return CompletableFuture.supplyAsync(() -> bookRepository.findByTitle(title), executorService);
+        return bookRepository.findByFieldAsync("title", title);
     }
 
     @Override
     public CompletableFuture<List<Book>> findByYear(int year) {
-        return CompletableFuture.supplyAsync(() -> bookRepository.findByYear(year), executorService);
+        return bookRepository.findByFieldAsync("year", year);
     }
 }
@@ -1,6 +1,7 @@
 package se.fulkopinglibraryweb.service;
 
 import se.fulkopinglibraryweb.model.Magazine;
+import se.fulkopinglibraryweb.model.MagazineSummary;
 import se.fulkopinglibraryweb.repository.MagazineRepository;
 import se.fulkopinglibraryweb.service.interfaces.AsyncMagazineService;
 import se.fulkopinglibraryweb.service.interfaces.AsyncCrudOperations;
@@ -19,47 +20,43 @@ public class AsyncMagazineServiceImpl implements AsyncMagazineService {
 
     @Override
     public CompletableFuture<Magazine> create(Magazine magazine) {
-        return CompletableFuture.supplyAsync(() -> magazineRepository.save(magazine));
+        return magazineRepository.saveAsync(magazine);
     }
 
     @Override
     public CompletableFuture<Magazine> getById(String id) {
-        return CompletableFuture.supplyAsync(() -> magazineRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Magazine not found")));
+        return magazineRepository.findByIdAsync(id)
+            .thenApply(magazine -> magazine.orElseThrow(() -> new RuntimeException("Magazine not found")));
     }
 
     @Override
     public CompletableFuture<Optional<Magazine>> read(String id) {
-        return CompletableFuture.supplyAsync(() -> magazineRepository.findById(id));
+        return magazineRepository.findByIdAsync(id);
     }
 
     @Override
     public CompletableFuture<Magazine> update(Magazine magazine) {
-        return CompletableFuture.supplyAsync(() -> magazineRepository.save(magazine));
+        return magazineRepository.saveAsync(magazine);
     }
 
     @Override
     public CompletableFuture<Void> delete(String id) {
-        return CompletableFuture.runAsync(() -> magazineRepository.deleteById(id));
+        return magazineRepository.deleteByIdAsync(id).thenApply(deleted -> null);
     }
 
     @Override
     public CompletableFuture<List<Magazine>> getAll() {
-        return CompletableFuture.supplyAsync(() -> magazineRepository.findAll());
+        return magazineRepository.findAllAsync();
     }
 
     @Override
     public CompletableFuture<List<Magazine>> search(SearchCriteria criteria) {
-        return CompletableFuture.supplyAsync(() -> magazineRepository.search(criteria));
+        return magazineRepository.searchAsync(criteria);
     }
 
     @Override
     public CompletableFuture<Boolean> isAvailableForLending(String id) {
-        return CompletableFuture.supplyAsync(() -> {
-            Magazine magazine = magazineRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Magazine not found"));
-            return magazine.isAvailable();
-        });
+        return getById(id).thenApply(Magazine::isAvailable);
     }
 
     // AsyncMagazineService methods
@@ -91,15 +88,25 @@ public class AsyncMagazineServiceImpl implements AsyncMagazineService {
 
     @Override
     public CompletableFuture<List<Magazine>> searchMagazines(String query) {
-        return CompletableFuture.supplyAsync(() -> {
-            SearchCriteria criteria = new SearchCriteria();
-            criteria.setSearchTerm(query);
-            return magazineRepository.search(criteria);
-        });
+        SearchCriteria criteria = new SearchCriteria();
+        criteria.setSearchTerm(query);
+        return magazineRepository.searchAsync(criteria);
+    }
+
+    @Override
+    public CompletableFuture<List<MagazineSummary>> getMagazineSummaries() {
+        return magazineRepository.findAllSummariesAsync();
+    }
+
+    @Override
+    public CompletableFuture<List<MagazineSummary>> searchMagazineSummaries(String query) {
+        SearchCriteria criteria = new SearchCriteria();
+        criteria.setSearchTerm(query);
+        return magazineRepository.searchSummariesAsync(criteria);
     }
 
     @Override
     public CompletableFuture<List<Magazine>> getLatestIssues(int limit) {
-        return CompletableFuture.supplyAsync(() -> magazineRepository.findLatest(limit));
+        return magazineRepository.findLatestAsync(limit);
     }
 }
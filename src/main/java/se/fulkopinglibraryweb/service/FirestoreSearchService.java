@@ -1,34 +1,99 @@
 package se.fulkopinglibraryweb.service;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.CollectionReference;
-import se.fulkopinglibraryweb.model.Book;
+import com.google.cloud.firestore.DocumentSnapshot;
+import se.fulkopinglibraryweb.cache.SearchResultCache;
+import se.fulkopinglibraryweb.cache.SearchResultCacheStats;
 import se.fulkopinglibraryweb.model.LibraryItem;
-import se.fulkopinglibraryweb.model.Magazine;
-import se.fulkopinglibraryweb.model.Media;
-import se.fulkopinglibraryweb.model.ItemType;
-import se.fulkopinglibraryweb.utils.SearchBook;
-import se.fulkopinglibraryweb.utils.SearchMagazine;
-import se.fulkopinglibraryweb.utils.SearchMedia;
+import se.fulkopinglibraryweb.model.Page;
+import se.fulkopinglibraryweb.repository.ChangeTracking;
+import se.fulkopinglibraryweb.repository.EntityChangeListener;
+import se.fulkopinglibraryweb.repository.EntityCodec;
+import se.fulkopinglibraryweb.repository.FirestoreRepository;
+import se.fulkopinglibraryweb.service.search.FacetedResult;
+import se.fulkopinglibraryweb.service.search.IndexSnapshot;
+import se.fulkopinglibraryweb.service.search.InvertedIndex;
+import se.fulkopinglibraryweb.service.search.SearchTokenizer;
+import se.fulkopinglibraryweb.service.search.SearchableSchema;
+import se.fulkopinglibraryweb.service.search.SortedMatches;
+import se.fulkopinglibraryweb.utils.FirestorePageIterator;
+import se.fulkopinglibraryweb.utils.PageCursor;
+import se.fulkopinglibraryweb.utils.SingleFlight;
+import se.fulkopinglibraryweb.utils.SingleFlightStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import se.fulkopinglibraryweb.service.search.SearchCriteria;
 
+/**
+ * Searches one item collection through a per-node {@link InvertedIndex} over its searchable fields.
+ * The index is loaded from Firestore on first use and then kept current by the repository change
+ * hooks registered through {@link #followWrites}, so searches never read the collection.
+ * With a snapshot file configured, the index is saved after each full load and on shutdown, and a
+ * restart restores it from that file and then fetches only the documents updated since.
+ * Results of the term, paged and ranked searches are kept in a {@link SearchResultCache}, which the
+ * same change hooks keep consistent with the index, and concurrent misses for the same search share
+ * one evaluation. Returned items are the indexed ones, so callers must not modify them.
+ */
 public class FirestoreSearchService<T extends LibraryItem> implements SearchService<T> {
     private static final Logger logger = LoggerFactory.getLogger(FirestoreSearchService.class);
     private static final int MAX_RETRIES = 3;
     private static final long RETRY_DELAY_MS = 1000;
+    private static final long RESULT_CACHE_SIZE = 10_000;
+    private static final Duration RESULT_CACHE_EXPIRY = Duration.ofMinutes(10);
+    private static final ObjectMapper SNAPSHOT_MAPPER = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     private final CollectionReference collection;
     private final Class<T> itemClass;
-    private final SearchBook searchBook;
-    private final SearchMagazine searchMagazine;
-    private final SearchMedia searchMedia;
+    private final EntityCodec<T> codec;
+    private final InvertedIndex<T> index;
+    private final SearchResultCache<T> resultCache;
+    // Concurrent identical searches that miss the result cache share one evaluation
+    private final SingleFlight<SearchResultCache.Key, Object> searchFlights = new SingleFlight<>();
+    private final Path snapshotFile;
+    private volatile boolean indexed;
+    // The newest document update time the index is known to reflect
+    private volatile Timestamp highWaterMark;
+    // Orders index writes; while the index is loaded, also collects the writes to replay over the loaded items
+    private final Object writeLock = new Object();
+    private Map<String, BufferedWrite<T>> loadingWrites;
+
+    // A write seen while the index was loading; a null item is a delete
+    private record BufferedWrite<T>(T item, Timestamp commitTime) {
+    }
 
     public FirestoreSearchService(CollectionReference collection, Class<T> itemClass) {
+        this(collection, itemClass, null);
+    }
+
+    /**
+     * @param collection The collection to search
+     * @param itemClass The item type stored in the collection
+     * @param snapshotFile Where to save and restore the index, or null to always load it from Firestore
+     */
+    public FirestoreSearchService(CollectionReference collection, Class<T> itemClass, Path snapshotFile) {
         if (collection == null) {
             throw new IllegalArgumentException("Collection reference cannot be null");
         }
@@ -37,133 +102,558 @@ public class FirestoreSearchService<T extends LibraryItem> implements SearchServ
         }
         this.collection = collection;
         this.itemClass = itemClass;
-        this.searchBook = new SearchBook();
-        this.searchMagazine = new SearchMagazine();
-        this.searchMedia = new SearchMedia();
+        this.codec = EntityCodec.forClass(itemClass);
+        this.index = new InvertedIndex<>(SearchableSchema.forClass(itemClass));
+        this.resultCache = new SearchResultCache<>(RESULT_CACHE_SIZE, RESULT_CACHE_EXPIRY, LibraryItem::getId,
+            this::fieldValue, index::termsOf);
+        this.snapshotFile = snapshotFile;
+    }
+
+    /**
+     * A repository change listener that applies saved and deleted items to the index and moves the
+     * high-water mark to their commit times.
+     * Register it with the repository for the same collection so the index stays current.
+     * The index keeps its own copy of each saved item, so an item the repository later modifies in
+     * place cannot change what was indexed and compared against.
+     *
+     * @return The listener
+     */
+    public EntityChangeListener<T, String> indexUpdater() {
+        return new EntityChangeListener<>() {
+            @Override
+            public void onSaved(String id, T entity) {
+                onSaved(id, entity, null);
+            }
+
+            @Override
+            public void onSaved(String id, T entity, Timestamp commitTime) {
+                if (entity != null) {
+                    applyWrite(id, entity, commitTime);
+                }
+            }
+
+            @Override
+            public void onDeleted(String id) {
+                onDeleted(id, null);
+            }
+
+            @Override
+            public void onDeleted(String id, Timestamp commitTime) {
+                applyWrite(id, null, commitTime);
+            }
+        };
+    }
+
+    /**
+     * Keep the index current with every write to the repository's collection: registers the
+     * {@link #indexUpdater()} and turns on the repository's snapshot sync, which is what reports
+     * writes made by other instances. Without it those writes would only be seen on the next restart.
+     * With a snapshot file configured, also turns on the repository's change tracking, which a
+     * restored snapshot catches up from.
+     *
+     * @param repository The repository for the searched collection
+     */
+    public void followWrites(FirestoreRepository<T, String> repository) {
+        repository.addChangeListener(indexUpdater());
+        repository.enableSnapshotSync();
+        if (snapshotFile != null) {
+            repository.enableChangeTracking();
+        }
+    }
+
+    private void applyWrite(String id, T written, Timestamp commitTime) {
+        T item = written == null ? null : codec.copy(written);
+        synchronized (writeLock) {
+            T previous = index.get(id);
+            if (item != null) {
+                index.put(id, item);
+            } else {
+                index.remove(id);
+            }
+            if (previous != null || item != null) {
+                resultCache.onWrite(id, previous, item);
+            }
+            if (loadingWrites != null) {
+                // The load may have read this item before the write, so the write is applied again after it
+                loadingWrites.put(id, new BufferedWrite<>(item, commitTime));
+            } else if (highWaterMark != null) {
+                highWaterMark = later(highWaterMark, commitTime);
+            }
+        }
+    }
+
+    private void startLoading() {
+        synchronized (writeLock) {
+            loadingWrites = new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * Apply the writes seen while the index was loading over the loaded items and stop collecting them.
+     * Must be called with the write lock held.
+     *
+     * @param mark The high-water mark of the loaded items
+     * @return The high-water mark including the replayed writes
+     */
+    private Timestamp replayLoadingWrites(Timestamp mark) {
+        for (Map.Entry<String, BufferedWrite<T>> write : loadingWrites.entrySet()) {
+            if (write.getValue().item() != null) {
+                index.put(write.getKey(), write.getValue().item());
+            } else {
+                index.remove(write.getKey());
+            }
+            mark = later(mark, write.getValue().commitTime());
+        }
+        loadingWrites = null;
+        return mark;
+    }
+
+    private void stopLoading() {
+        synchronized (writeLock) {
+            loadingWrites = null;
+        }
+    }
+
+    /**
+     * Reload the whole index from Firestore, reading the collection page by page.
+     * Writes made while the collection is read are applied again once it has been loaded.
+     */
+    public synchronized void rebuildIndex() {
+        Map<String, T> entries = new LinkedHashMap<>();
+        Timestamp[] newest = new Timestamp[1];
+        startLoading();
+        try {
+            try (Stream<T> items = FirestorePageIterator.stream(collection, FirestorePageIterator.DEFAULT_PAGE_SIZE,
+                    document -> {
+                        newest[0] = later(newest[0], document.getUpdateTime());
+                        T item = document.toObject(itemClass);
+                        if (item != null) {
+                            item.setId(document.getId());
+                        }
+                        return item;
+                    })) {
+                items.forEach(item -> {
+                    if (item != null) {
+                        entries.put(item.getId(), item);
+                    }
+                });
+            }
+            synchronized (writeLock) {
+                index.rebuild(entries);
+                highWaterMark = replayLoadingWrites(newest[0] != null ? newest[0] : Timestamp.MIN_VALUE);
+                resultCache.invalidateAll();
+                indexed = true;
+            }
+        } finally {
+            stopLoading();
+        }
+        logger.info("Indexed {} items from collection {}", entries.size(), collection.getPath());
+        saveSnapshot();
+    }
+
+    /**
+     * Write the index to the snapshot file, if one is configured, so the next start can restore it
+     * instead of reading the whole collection. Failures are logged; the file is only replaced once
+     * a new snapshot is complete.
+     */
+    public void saveSnapshot() {
+        Timestamp mark = highWaterMark;
+        if (snapshotFile == null || !indexed || mark == null) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            IndexSnapshot.write(snapshotFile, index,
+                Instant.ofEpochSecond(mark.getSeconds(), mark.getNanos()), FirestoreSearchService::encode);
+            logger.info("Saved {} items of collection {} to {} in {} ms", index.size(), collection.getPath(), snapshotFile,
+                (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to save search index snapshot {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Restore the index from the snapshot file and apply the changes made since it was written.
+     * Writes made while it is restored are applied again afterwards.
+     * Leaves the index empty and not indexed if there is no usable snapshot.
+     */
+    private void restoreSnapshot() {
+        long start = System.nanoTime();
+        startLoading();
+        try {
+            Instant written = IndexSnapshot.read(snapshotFile, index, this::decode);
+            if (written == null) {
+                logger.info("No usable search index snapshot at {}", snapshotFile);
+                return;
+            }
+            Timestamp mark = Timestamp.ofTimeSecondsAndNanos(written.getEpochSecond(), written.getNano());
+            if (ChangeTracking.isBeyondRetention(mark)) {
+                logger.info("Search index snapshot {} predates the retained tombstones, loading from Firestore instead",
+                    snapshotFile);
+                index.clear();
+                return;
+            }
+            int restored = index.size();
+            Timestamp[] newest = {mark};
+            int changes = catchUp(mark, newest);
+            synchronized (writeLock) {
+                highWaterMark = replayLoadingWrites(newest[0]);
+                indexed = true;
+            }
+            logger.info("Restored {} items of collection {} from {} and applied {} later changes in {} ms", restored,
+                collection.getPath(), snapshotFile, changes, (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to restore search index snapshot {}, loading from Firestore instead: {}",
+                snapshotFile, e.getMessage());
+            index.clear();
+        } finally {
+            stopLoading();
+        }
+    }
+
+    /**
+     * Bring a restored index up to date from the tombstones left and the documents written since
+     * its high-water mark, see {@link ChangeTracking}, without listing the collection.
+     * Deletes are applied first, so an item deleted and then written again stays indexed.
+     *
+     * @param mark The high-water mark of the restored snapshot
+     * @param newest Receives the newest commit time applied
+     * @return The number of documents removed or fetched
+     */
+    private int catchUp(Timestamp mark, Timestamp[] newest) {
+        int changes = 0;
+        try (Stream<DocumentSnapshot> tombstones = FirestorePageIterator.stream(
+                ChangeTracking.deletedSince(collection, mark), FirestorePageIterator.DEFAULT_PAGE_SIZE, document -> document)) {
+            for (Iterator<DocumentSnapshot> documents = tombstones.iterator(); documents.hasNext();) {
+                DocumentSnapshot tombstone = documents.next();
+                index.remove(tombstone.getId());
+                newest[0] = later(newest[0], tombstone.getUpdateTime());
+                changes++;
+            }
+        }
+        try (Stream<DocumentSnapshot> written = FirestorePageIterator.stream(
+                ChangeTracking.writtenSince(collection, mark), FirestorePageIterator.DEFAULT_PAGE_SIZE, document -> document)) {
+            for (Iterator<DocumentSnapshot> documents = written.iterator(); documents.hasNext();) {
+                DocumentSnapshot document = documents.next();
+                T item = document.toObject(itemClass);
+                if (item != null) {
+                    item.setId(document.getId());
+                    index.put(document.getId(), item);
+                }
+                newest[0] = later(newest[0], document.getUpdateTime());
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    private static Timestamp later(Timestamp a, Timestamp b) {
+        if (a == null) {
+            return b;
+        }
+        return b != null && b.compareTo(a) > 0 ? b : a;
+    }
+
+    private static byte[] encode(Object item) {
+        try {
+            return SNAPSHOT_MAPPER.writeValueAsBytes(item);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to encode search index entry", e);
+        }
+    }
+
+    private T decode(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        try {
+            return SNAPSHOT_MAPPER.readValue(bytes, itemClass);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to decode search index entry", e);
+        }
+    }
+
+    /**
+     * @return The number of items currently in the index
+     */
+    public int getIndexSize() {
+        return index.size();
+    }
+
+    /**
+     * @return Hit, miss, eviction, invalidation and update counts of the search result cache
+     */
+    public SearchResultCacheStats getResultCacheStats() {
+        return resultCache.stats();
+    }
+
+    /**
+     * @return How many searches ran versus joined an identical search already in flight
+     */
+    public SingleFlightStats getDedupStats() {
+        return searchFlights.stats();
+    }
+
+    /**
+     * @param limit The maximum number of searches to return
+     * @return The searches that absorbed the most duplicate calls, with their counts
+     */
+    public Map<String, Long> getTopDeduplicatedSearches(int limit) {
+        Map<String, Long> top = new LinkedHashMap<>();
+        searchFlights.topShared(limit).forEach((key, count) -> top.put(key.toString(), count));
+        return top;
+    }
+
+    private SearchResultCache.Key cacheKey(String operation, String query, String field, List<Object> criteria,
+                                           List<Object> page) {
+        return new SearchResultCache.Key(operation, itemClass.getSimpleName(), SearchTokenizer.normalize(query),
+            field, criteria, page);
+    }
+
+    /**
+     * @return The searchable fields a query on the field reads: that field, or all of them by default
+     */
+    private Set<String> fieldsSearched(String field) {
+        return field == null || "default".equals(field)
+            ? new HashSet<>(index.getSchema().fieldNames())
+            : new HashSet<>(List.of(field));
+    }
+
+    /**
+     * @return The terms that every item matching a query on the field is indexed under
+     */
+    private List<String> termsOf(String query, String field) {
+        SearchableSchema<T> schema = index.getSchema();
+        int searchable = field == null ? -1 : schema.indexOf(field);
+        if (searchable >= 0 && schema.isDigitsOnly(searchable)) {
+            return List.of(schema.keyOf(searchable, query));
+        }
+        return SearchTokenizer.tokenize(query);
+    }
+
+    private Object fieldValue(T item, String field) {
+        SearchableSchema<T> schema = index.getSchema();
+        int searchable = schema.indexOf(field);
+        if (searchable >= 0) {
+            return schema.valueOf(item, searchable);
+        }
+        Function<T, Object> reader = schema.reader(field);
+        // A field the schema cannot read is treated as changed by every write
+        return reader != null ? reader.apply(item) : new Object();
+    }
+
+    private List<T> cachedList(SearchResultCache.Key key, Set<String> fields, List<String> terms,
+                               Supplier<List<T>> search) {
+        List<T> results = resultCache.get(key, new SearchResultCache.Dependencies(fields, terms),
+            shared(key, search), list -> list, (list, items) -> items);
+        return new ArrayList<>(results);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> Supplier<V> shared(SearchResultCache.Key key, Supplier<V> search) {
+        return () -> (V) searchFlights.execute(key, search::get);
+    }
+
+    private List<T> searchPage(String query, String type, String sortField, String sortOrder, int page, int size) {
+        Function<T, Object> sortKey = sortKeyOf(sortField);
+        boolean descending = "DESC".equalsIgnoreCase(sortOrder);
+        Set<String> fields = fieldsSearched(type);
+        List<Object> criteria = List.of();
+        if (sortKey != null) {
+            fields.add(sortField);
+            criteria = Arrays.asList(sortField, descending);
+        }
+        return cachedList(cacheKey("page", query, type, criteria, List.of(page, size)), fields, termsOf(query, type),
+            () -> {
+                if (sortKey == null) {
+                    return index.search(query, type).stream()
+                        .skip((long) (page - 1) * size)
+                        .limit(size)
+                        .collect(Collectors.toList());
+                }
+                List<T> upToPage = index.sorted(query, type, sortField, descending, null, null, page * size).items();
+                return new ArrayList<>(upToPage.subList(Math.min(upToPage.size(), (page - 1) * size), upToPage.size()));
+            });
+    }
+
+    /**
+     * @return A reader for the sort field, or null to keep the index order when no sort field is given
+     */
+    private Function<T, Object> sortKeyOf(String sortField) {
+        if (sortField == null || sortField.isEmpty()) {
+            return null;
+        }
+        Function<T, Object> sortKey = index.getSchema().reader(sortField);
+        if (sortKey == null) {
+            throw new IllegalArgumentException("Unknown sort field: " + sortField);
+        }
+        return sortKey;
+    }
+
+    private void ensureIndexed() throws InterruptedException {
+        if (indexed) {
+            return;
+        }
+        synchronized (this) {
+            if (!indexed && snapshotFile != null) {
+                restoreSnapshot();
+            }
+            for (int attempt = 1; !indexed; attempt++) {
+                try {
+                    rebuildIndex();
+                } catch (RuntimeException e) {
+                    if (attempt == MAX_RETRIES) {
+                        throw e;
+                    }
+                    logger.warn("Attempt {} to build search index failed, retrying after delay. Error: {}",
+                        attempt, e.getMessage());
+                    Thread.sleep(RETRY_DELAY_MS);
+                }
+            }
+        }
     }
 
     @Override
     public List<T> search(String query, String type, SearchCriteria criteria) throws Exception {
         validateSearchParameters(query, type);
-        List<T> allItems = collection.get().get().toObjects(itemClass);
-        
-        return allItems.stream()
-            .filter(item -> {
-                if (item == null) return false;
-                
-                switch (item.getType()) {
-                    case BOOK:
-                        if (item instanceof Book book) {
-                            return searchBook.matches(book, query, type) && 
-                                   searchBook.matchesCriteria(book, criteria);
-                        }
-                        break;
-                    case MAGAZINE:
-                        if (item instanceof Magazine magazine) {
-                            return searchMagazine.matches(magazine, query, type) && 
-                                   searchMagazine.matchesCriteria(magazine, criteria);
-                        }
-                        break;
-                    case MEDIA:
-                        if (item instanceof Media media) {
-                            return searchMedia.matches(media, query, type) && 
-                                   searchMedia.matchesCriteria(media, criteria);
-                        }
-                        break;
-                    default:
-                        return false;
-                }
-                return false;
-            })
-            .collect(Collectors.toList());
+        ensureIndexed();
+        Set<String> fields = fieldsSearched(type);
+        List<String> terms = termsOf(query, type);
+        if (criteria == null) {
+            return cachedList(cacheKey("terms", query, type, List.of(), List.of()), fields, terms,
+                () -> index.search(query, type));
+        }
+        String searchTerm = criteria.getSearchTerm();
+        if (searchTerm != null && !searchTerm.isEmpty()) {
+            fields.addAll(index.getSchema().fieldNames());
+            terms = new ArrayList<>(terms);
+            terms.add(SearchTokenizer.normalize(searchTerm));
+        }
+        Map<String, Object> filters = new LinkedHashMap<>();
+        if (criteria.getFilterField() != null) {
+            fields.add(criteria.getFilterField());
+            if (criteria.getFilterValue() != null) {
+                filters.put(criteria.getFilterField(), criteria.getFilterValue());
+            }
+        }
+        // The index checks the search term against its precomputed keys; the filter is compiled once per search
+        Predicate<T> filter = compileFilters(filters);
+        List<Object> criteriaKey = Arrays.asList(SearchTokenizer.normalize(searchTerm), criteria.getFilterField(),
+            criteria.getFilterValue());
+        return cachedList(cacheKey("terms", query, type, criteriaKey, List.of()), fields, terms,
+            () -> index.search(query, type, searchTerm).stream()
+                .filter(filter)
+                .collect(Collectors.toList()));
     }
 
     @Override
     public List<T> fuzzySearch(String query, String type, double threshold) throws Exception {
         validateSearchParameters(query, type);
-        List<T> allItems = collection.get().get().toObjects(itemClass);
-        return allItems.stream()
-            .filter(item -> calculateSimilarity(item, query) >= threshold)
-            .collect(Collectors.toList());
+        ensureIndexed();
+        return index.similar(query, threshold);
     }
 
     @Override
     public List<T> searchPaginated(String query, String type, int page, int size) throws Exception {
         validateSearchParameters(query, type);
-        List<T> allItems = collection.get().get().toObjects(itemClass);
-        return allItems.stream()
-            .skip((page - 1) * size)
-            .limit(size)
-            .collect(Collectors.toList());
+        ensureIndexed();
+        return searchPage(query, type, null, null, page, size);
     }
 
     @Override
     public List<T> search(String query, String searchType, int page, int pageSize, String sortField, String sortOrder) {
         validateSearchParameters(query, searchType, page, pageSize);
+        sortKeyOf(sortField);
         
-        for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
-            try {
-                List<T> allItems = collection.get().get().toObjects(itemClass);
-                
-                List<T> results = allItems.stream()
-                    .filter(item -> {
-                        if (item == null) return false;
-                        
-                        switch (item.getType()) {
-                            case BOOK:
-                                if (item instanceof Book book) {
-                                    return searchBook.matches(book, query, searchType);
-                                }
-                                break;
-                            case MAGAZINE:
-                                if (item instanceof Magazine magazine) {
-                                    return searchMagazine.matches(magazine, query, searchType);
-                                }
-                                break;
-                            case MEDIA:
-                                if (item instanceof Media media) {
-                                    return searchMedia.matches(media, query, searchType);
-                                }
-                                break;
-                            case MUSIC:
-                            case MOVIE:
-                            case PODCAST:
-                                // Handle these types similarly to other types
-                                return false;
-                        }
-                        return false;
-                    })
-                    .collect(Collectors.toList());
-                
-                // Apply pagination
-                int offset = (page - 1) * pageSize;
-                results = results.stream()
-                    .skip(offset)
-                    .limit(pageSize)
-                    .collect(Collectors.toList());
-                
-                logger.info("Successfully retrieved {} items for search query: {}", results.size(), query);
-                return results;
-
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                logger.error("Search operation interrupted", e);
-                throw new RuntimeException("Search operation interrupted", e);
-            } catch (Exception e) {
-                if (attempt == MAX_RETRIES) {
-                    logger.error("Final attempt failed for search operation. Query: {}, Error: {}", query, e.getMessage());
-                    return new ArrayList<>();
-                }
-                logger.warn("Attempt {} failed, retrying after delay. Error: {}", attempt, e.getMessage());
-                try {
-                    Thread.sleep(RETRY_DELAY_MS);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    throw new RuntimeException("Retry delay interrupted", ie);
-                }
-            }
+        try {
+            ensureIndexed();
+            List<T> results = searchPage(query, searchType, sortField, sortOrder, page, pageSize);
+            
+            logger.info("Successfully retrieved {} items for search query: {}", results.size(), query);
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Search operation interrupted", e);
+            throw new RuntimeException("Search operation interrupted", e);
+        } catch (Exception e) {
+            logger.error("Search failed. Query: {}, Error: {}", query, e.getMessage());
+            return new ArrayList<>();
         }
-        return new ArrayList<>();
+    }
+
+    @Override
+    public Page<T> searchPage(String query, String searchType, String sortField, String sortOrder,
+                              String cursor, int pageSize) {
+        validateSearchParameters(query, searchType, 1, pageSize);
+        try {
+            ensureIndexed();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Search operation interrupted", e);
+        }
+        Function<T, Object> sortKey = sortKeyOf(sortField);
+        boolean descending = "DESC".equalsIgnoreCase(sortOrder);
+        Set<String> fields = fieldsSearched(searchType);
+        if (sortKey != null) {
+            fields.add(sortField);
+        }
+        SearchResultCache.Key key = cacheKey("cursor", query, searchType, Arrays.asList(sortField, descending),
+            Arrays.asList(cursor, pageSize));
+        return resultCache.get(key, new SearchResultCache.Dependencies(fields, termsOf(query, searchType)),
+            shared(key, () -> findPage(query, searchType, sortField, sortKey, descending, cursor, pageSize)),
+            Page::getContent,
+            (found, content) -> new Page<>(content, found.getPageSize(), found.getTotalElements(), found.getNextCursor()));
+    }
+
+    private Page<T> findPage(String query, String searchType, String sortField, Function<T, Object> sortKey,
+                             boolean descending, String cursor, int pageSize) {
+        PageCursor after = cursor == null || cursor.isEmpty() ? null : PageCursor.decode(cursor);
+        Object afterValue = after == null || after.getSortValues().isEmpty() ? null : after.getSortValues().get(0);
+
+        // One extra match tells whether there is a next page
+        SortedMatches<T> matches = index.sorted(query, searchType, sortKey == null ? null : sortField, descending,
+            afterValue, after == null ? null : after.getDocumentId(), pageSize + 1);
+        List<T> content = matches.items();
+        String nextCursor = null;
+        if (content.size() > pageSize) {
+            content = new ArrayList<>(content.subList(0, pageSize));
+            T last = content.get(pageSize - 1);
+            List<Object> sortValues = sortKey == null
+                ? List.of()
+                : Collections.singletonList(sortKey.apply(last));
+            nextCursor = new PageCursor(sortValues, last.getId()).encode();
+        }
+        return new Page<>(content, pageSize, matches.total(), nextCursor);
+    }
+
+    @Override
+    public List<T> rankedSearch(String query, String searchType, int limit) {
+        if (query == null || query.trim().isEmpty()) {
+            throw new IllegalArgumentException("Search query cannot be null or empty");
+        }
+        try {
+            ensureIndexed();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Search operation interrupted", e);
+        }
+        // BM25 scores depend on statistics of the whole collection, so any new item may reorder the result
+        return cachedList(cacheKey("ranked", query, searchType, List.of(), List.of(limit)), fieldsSearched(searchType),
+            null, () -> index.ranked(query, searchType, limit));
+    }
+
+    @Override
+    public FacetedResult<T> facetedSearch(String query, String searchType, Map<String, List<String>> facetFilters,
+            int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be greater than 0");
+        }
+        try {
+            ensureIndexed();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Search operation interrupted", e);
+        }
+        return index.faceted(query, searchType, facetFilters, limit);
     }
 
     @Override
@@ -180,62 +670,20 @@ public class FirestoreSearchService<T extends LibraryItem> implements SearchServ
             effectiveMaxDistance = maxDistance;
         }
 
-        for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
-            try {
-                List<T> allItems = collection.get().get().toObjects(itemClass);
-                
-                List<T> results = allItems.stream()
-                    .filter(item -> {
-                        if (item == null) return false;
-                        
-                        switch (item.getType()) {
-                            case BOOK:
-                                if (item instanceof Book book) {
-                                    return searchBook.fuzzyMatches(book, query, effectiveMaxDistance);
-                                }
-                                break;
-                            case MAGAZINE:
-                                if (item instanceof Magazine magazine) {
-                                    return searchMagazine.fuzzyMatches(magazine, query, effectiveMaxDistance);
-                                }
-                                break;
-                            case MEDIA:
-                                if (item instanceof Media media) {
-                                    return searchMedia.fuzzyMatches(media, query, effectiveMaxDistance);
-                                }
-                                break;
-                            case MUSIC:
-                            case MOVIE:
-                            case PODCAST:
-                                // Handle these types similarly to other types
-                                return false;
-                        }
-                        return false;
-                    })
-                    .collect(Collectors.toList());
-                
-                logger.info("Fuzzy search completed. Query: {}, Results: {}", query, results.size());
-                return results;
-
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                logger.error("Fuzzy search operation interrupted", e);
-                throw new RuntimeException("Fuzzy search operation interrupted", e);
-            } catch (Exception e) {
-                if (attempt == MAX_RETRIES) {
-                    logger.error("Final attempt failed for fuzzy search. Query: {}, Error: {}", query, e.getMessage());
-                    return new ArrayList<>();
-                }
-                logger.warn("Attempt {} failed, retrying after delay. Error: {}", attempt, e.getMessage());
-                try {
-                    Thread.sleep(RETRY_DELAY_MS);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    throw new RuntimeException("Retry delay interrupted", ie);
-                }
-            }
+        try {
+            ensureIndexed();
+            List<T> results = index.fuzzy(query, effectiveMaxDistance);
+            
+            logger.info("Fuzzy search completed. Query: {}, Results: {}", query, results.size());
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Fuzzy search operation interrupted", e);
+            throw new RuntimeException("Fuzzy search operation interrupted", e);
+        } catch (Exception e) {
+            logger.error("Fuzzy search failed. Query: {}, Error: {}", query, e.getMessage());
+            return new ArrayList<>();
         }
-        return new ArrayList<>();
     }
 
     @Override
@@ -245,104 +693,30 @@ public class FirestoreSearchService<T extends LibraryItem> implements SearchServ
             return new ArrayList<>();
         }
 
-        for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
-            try {
-                List<T> allItems = collection.get().get().toObjects(itemClass);
-                
-                List<T> results = allItems.stream()
-                    .filter(item -> {
-                        if (item == null) return false;
-                        
-                        switch (item.getType()) {
-                            case BOOK:
-                                if (item instanceof Book book) {
-                                    return searchBook.partialMatches(book, query);
-                                }
-                                break;
-                            case MAGAZINE:
-                                if (item instanceof Magazine magazine) {
-                                    return searchMagazine.partialMatches(magazine, query);
-                                }
-                                break;
-                            case MEDIA:
-                                if (item instanceof Media media) {
-                                    return searchMedia.partialMatches(media, query);
-                                }
-                                break;
-                            case MUSIC:
-                            case MOVIE:
-                            case PODCAST:
-                                // Handle these types similarly to other types
-                                return false;
-                        }
-                        return false;
-                    })
-                    .collect(Collectors.toList());
-                
-                logger.info("Partial match search completed. Query: {}, Results: {}", query, results.size());
-                return results;
-
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                logger.error("Partial match search operation interrupted", e);
-                throw new RuntimeException("Partial match search operation interrupted", e);
-            } catch (Exception e) {
-                if (attempt == MAX_RETRIES) {
-                    logger.error("Final attempt failed for partial match search. Query: {}, Error: {}", query, e.getMessage());
-                    return new ArrayList<>();
-                }
-                logger.warn("Attempt {} failed, retrying after delay. Error: {}", attempt, e.getMessage());
-                try {
-                    Thread.sleep(RETRY_DELAY_MS);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    throw new RuntimeException("Retry delay interrupted", ie);
-                }
-            }
-        }
-        return new ArrayList<>();
-    }
-
-    private boolean matchesFilters(T item, Map<String, Object> filters) {
-        if (filters == null || filters.isEmpty()) return true;
-        return filters.entrySet().stream()
-            .allMatch(entry -> matchesFilter(item, entry.getKey(), entry.getValue()));
-    }
-
-    private boolean matchesFilter(T item, String key, Object value) {
         try {
-            Object itemValue = item.getClass().getMethod("get" + key.substring(0, 1).toUpperCase() + key.substring(1))
-                .invoke(item);
-            return value.equals(itemValue);
+            ensureIndexed();
+            List<T> results = index.containing(query, null);
+            
+            logger.info("Partial match search completed. Query: {}, Results: {}", query, results.size());
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Partial match search operation interrupted", e);
+            throw new RuntimeException("Partial match search operation interrupted", e);
         } catch (Exception e) {
-            logger.error("Error matching filter: {}", e.getMessage());
-            return false;
-        }
-    }
-
-    private double calculateSimilarity(T item, String query) {
-        try {
-            String itemStr = item.toString().toLowerCase();
-            query = query.toLowerCase();
-            return 1.0 - ((double) levenshteinDistance(itemStr, query) / Math.max(itemStr.length(), query.length()));
-        } catch (Exception e) {
-            logger.error("Error calculating similarity: {}", e.getMessage());
-            return 0.0;
+            logger.error("Partial match search failed. Query: {}, Error: {}", query, e.getMessage());
+            return new ArrayList<>();
         }
     }
 
-    private int levenshteinDistance(String s1, String s2) {
-        int[][] dp = new int[s1.length() + 1][s2.length() + 1];
-        for (int i = 0; i <= s1.length(); i++) dp[i][0] = i;
-        for (int j = 0; j <= s2.length(); j++) dp[0][j] = j;
-        
-        for (int i = 1; i <= s1.length(); i++) {
-            for (int j = 1; j <= s2.length(); j++) {
-                int cost = (s1.charAt(i - 1) == s2.charAt(j - 1)) ? 0 : 1;
-                dp[i][j] = Math.min(Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1), dp[i - 1][j - 1] + cost);
-            }
+    private Predicate<T> compileFilters(Map<String, Object> filters) {
+        Predicate<T> combined = item -> true;
+        if (filters == null) return combined;
+        SearchableSchema<T> schema = index.getSchema();
+        for (Map.Entry<String, Object> entry : filters.entrySet()) {
+            combined = combined.and(schema.filter(entry.getKey(), entry.getValue()));
         }
-        return dp[s1.length()][s2.length()];
+        return combined;
     }
 
     private void validateSearchParameters(String query, String type) {
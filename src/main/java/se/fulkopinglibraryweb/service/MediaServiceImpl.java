@@ -4,6 +4,7 @@ import se.fulkopinglibraryweb.exception.MediaServiceException;
 import se.fulkopinglibraryweb.exception.MediaServiceException.ErrorType;
 import se.fulkopinglibraryweb.model.MediaType;
 import se.fulkopinglibraryweb.model.Media;
+import se.fulkopinglibraryweb.model.MediaSummary;
 import se.fulkopinglibraryweb.model.Loan;
 import java.util.Optional;
 import java.util.HashMap;
@@ -104,6 +105,42 @@ public class MediaServiceImpl implements MediaService {
         }
     }
 
+    @Override
+    public List<MediaSummary> getAllMediaSummaries() {
+        LoggerUtil.logInfo(MediaServiceImpl.class, "Getting all media summaries");
+        try {
+            return mediaRepository.findAllSummaries();
+        } catch (Exception e) {
+            LoggerUtil.logError(MediaServiceImpl.class, "Failed to get all media summaries", e);
+            throw new MediaServiceException("Failed to get all media", "getAllMediaSummaries", "all", ErrorType.DATABASE, e);
+        }
+    }
+
+    @Override
+    public List<MediaSummary> searchMediaSummaries(String searchType, String searchQuery) {
+        LoggerUtil.logInfo(MediaServiceImpl.class,
+            String.format("Searching media summaries by type: %s with query: %s", searchType, searchQuery));
+        if (!"title".equalsIgnoreCase(searchType) && !"director".equalsIgnoreCase(searchType)) {
+            throw new MediaServiceException("Invalid search type", "searchMediaSummaries", String.valueOf(searchType), ErrorType.VALIDATION);
+        }
+        try {
+            return mediaRepository.findSummariesByField(searchType.toLowerCase(), searchQuery);
+        } catch (Exception e) {
+            LoggerUtil.logError(MediaServiceImpl.class, "Failed to search media summaries", e);
+            throw new MediaServiceException("Failed to search media", "searchMediaSummaries", String.valueOf(searchQuery), ErrorType.DATABASE, e);
+        }
+    }
+
+    @Override
+    public long countMedia() {
+        try {
+            return mediaRepository.count();
+        } catch (Exception e) {
+            LoggerUtil.logError(MediaServiceImpl.class, "Failed to count media", e);
+            throw new MediaServiceException("Failed to count media", "countMedia", "all", ErrorType.DATABASE, e);
+        }
+    }
+
     @Override
     public List<Media> getMediaByType(String type) {
         LoggerUtil.logInfo(MediaServiceImpl.class, String.format("Finding media by type: %s", type));
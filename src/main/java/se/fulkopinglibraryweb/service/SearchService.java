@@ -1,8 +1,11 @@
 package se.fulkopinglibraryweb.service;
 
 import se.fulkopinglibraryweb.model.LibraryItem;
+import se.fulkopinglibraryweb.model.Page;
+import se.fulkopinglibraryweb.service.search.FacetedResult;
 import se.fulkopinglibraryweb.service.search.SearchCriteria;
 import java.util.List;
+import java.util.Map;
 
 public interface SearchService<T> {
     /**
@@ -25,6 +28,40 @@ public interface SearchService<T> {
                            int page, int pageSize, 
                            String sortField, String sortOrder);
 
+    /**
+     * Searches with keyset pagination: each page ends with an opaque cursor for the next one,
+     * so deep pages cost the same as the first
+     * @param query The search query
+     * @param searchType The type of search (title, author, isbn, etc)
+     * @param sortField Field to sort by, or null to order by document ID only
+     * @param sortOrder Sort order (ASC/DESC)
+     * @param cursor The next cursor of the previous page, or null for the first page
+     * @param pageSize Number of results per page
+     * @return The page of matching items with the cursor of the next page
+     */
+    Page<T> searchPage(String query, String searchType, String sortField, String sortOrder,
+                       String cursor, int pageSize);
+
+    /**
+     * Searches for the most relevant items, scored with BM25 and weighted per field.
+     * Document frequencies and field lengths are those of the whole collection, not of the matches.
+     * @param query The search query
+     * @param searchType The field to search, or "default" for all searchable fields
+     * @param limit Maximum number of results
+     * @return At most limit matching items, most relevant first
+     */
+    List<T> rankedSearch(String query, String searchType, int limit);
+
+    /**
+     * Searches items narrowed by facet values, counting the matches for every facet value
+     * @param query The search query, or null or empty to match every item
+     * @param searchType The field to search, or "default" for all searchable fields
+     * @param facetFilters Per facet name (e.g. "year", "available"), the values to keep
+     * @param limit Maximum number of items to return
+     * @return The matching items, their total count and the counts per facet value
+     */
+    FacetedResult<T> facetedSearch(String query, String searchType, Map<String, List<String>> facetFilters, int limit);
+
     /**
      * Performs fuzzy search using Levenshtein distance
      * @param query The search query
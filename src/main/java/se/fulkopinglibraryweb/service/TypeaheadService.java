@@ -0,0 +1,187 @@
+package se.fulkopinglibraryweb.service;
+
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.Query;
+import se.fulkopinglibraryweb.model.Book;
+import se.fulkopinglibraryweb.model.LibraryItem;
+import se.fulkopinglibraryweb.model.Magazine;
+import se.fulkopinglibraryweb.model.Media;
+import se.fulkopinglibraryweb.repository.EntityChangeListener;
+import se.fulkopinglibraryweb.service.search.CompletionTrie;
+import se.fulkopinglibraryweb.utils.FirestorePageIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Search-box suggestions from the titles and creators (author, publisher or director) of every
+ * tracked collection, served from a {@link CompletionTrie} without reading Firestore.
+ * The collections are read once on first use; afterwards the repository change hooks registered
+ * through {@link #catalogUpdater} keep the suggestions current one item at a time.
+ */
+public class TypeaheadService {
+    private static final Logger logger = LoggerFactory.getLogger(TypeaheadService.class);
+    private static final int MAX_SUGGESTIONS = 10;
+    private static final String TITLE_FIELD = "title";
+
+    private final CompletionTrie trie = new CompletionTrie(MAX_SUGGESTIONS);
+    // The phrases each item contributed, keyed by collection path and item ID, so an update can retract them
+    private final Map<String, String[]> contributions = new HashMap<>();
+    private final List<Source> sources = new CopyOnWriteArrayList<>();
+    private volatile boolean loaded;
+
+    private record Source(CollectionReference collection, String creatorField) {
+    }
+
+    /**
+     * Track a collection and get the repository change listener that keeps its suggestions current.
+     * Register the listener with the repository for the same collection.
+     *
+     * @param collection The collection to suggest from
+     * @param itemClass The item type stored in the collection
+     * @return The listener
+     */
+    public <T extends LibraryItem> EntityChangeListener<T, String> catalogUpdater(CollectionReference collection,
+            Class<T> itemClass) {
+        sources.add(new Source(collection, creatorFieldOf(itemClass)));
+        String prefix = collection.getPath() + '/';
+        return new EntityChangeListener<>() {
+            @Override
+            public void onSaved(String id, T entity) {
+                if (entity != null) {
+                    apply(prefix + id, phrasesOf(entity));
+                }
+            }
+
+            @Override
+            public void onDeleted(String id) {
+                apply(prefix + id, null);
+            }
+        };
+    }
+
+    /**
+     * Suggest completions for what has been typed so far.
+     *
+     * @param prefix The text typed so far
+     * @param limit Maximum number of suggestions
+     * @return Suggestions, most common first
+     */
+    public List<CompletionTrie.Suggestion> suggest(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) {
+            return new ArrayList<>();
+        }
+        ensureLoaded();
+        return trie.complete(prefix, Math.min(limit, MAX_SUGGESTIONS));
+    }
+
+    /**
+     * @return The number of distinct phrases that can be suggested
+     */
+    public int getSuggestionCount() {
+        return trie.size();
+    }
+
+    /**
+     * Reload every tracked collection, reading each page by page.
+     */
+    public synchronized void reload() {
+        trie.clear();
+        contributions.clear();
+        for (Source source : sources) {
+            load(source);
+        }
+        loaded = true;
+        logger.info("Loaded {} typeahead suggestions from {} collections", trie.size(), sources.size());
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+        }
+    }
+
+    // Reads only the title and creator of each item rather than whole documents
+    private void load(Source source) {
+        String prefix = source.collection().getPath() + '/';
+        String creatorField = source.creatorField();
+        Query projection = creatorField == null
+                ? source.collection().select(TITLE_FIELD)
+                : source.collection().select(TITLE_FIELD, creatorField);
+        try (Stream<Map.Entry<String, String[]>> items = FirestorePageIterator.stream(projection,
+                FirestorePageIterator.DEFAULT_PAGE_SIZE,
+                document -> new AbstractMap.SimpleEntry<>(document.getId(), phrasesOf(document.getString(TITLE_FIELD),
+                        creatorField, creatorField == null ? null : document.getString(creatorField))))) {
+            items.forEach(item -> apply(prefix + item.getKey(), item.getValue()));
+        }
+    }
+
+    /**
+     * Replace the phrases an item contributes.
+     *
+     * @param key The item's collection path and ID
+     * @param phrases Field and text pairs, or null to retract the item
+     */
+    private synchronized void apply(String key, String[] phrases) {
+        String[] previous = phrases == null ? contributions.remove(key) : contributions.put(key, phrases);
+        if (previous != null) {
+            for (int i = 0; i < previous.length; i += 2) {
+                trie.remove(previous[i], previous[i + 1]);
+            }
+        }
+        if (phrases != null) {
+            for (int i = 0; i < phrases.length; i += 2) {
+                trie.add(phrases[i], phrases[i + 1]);
+            }
+        }
+    }
+
+    private static String[] phrasesOf(LibraryItem item) {
+        if (item instanceof Book book) {
+            return phrasesOf(item.getTitle(), "author", book.getAuthor());
+        } else if (item instanceof Magazine magazine) {
+            return phrasesOf(item.getTitle(), "publisher", magazine.getPublisher());
+        } else if (item instanceof Media media) {
+            return phrasesOf(item.getTitle(), "director", media.getDirector());
+        }
+        return phrasesOf(item.getTitle(), null, null);
+    }
+
+    private static String[] phrasesOf(String title, String creatorField, String creator) {
+        List<String> phrases = new ArrayList<>(4);
+        addPhrase(phrases, TITLE_FIELD, title);
+        if (creatorField != null) {
+            addPhrase(phrases, creatorField, creator);
+        }
+        return phrases.toArray(new String[0]);
+    }
+
+    private static String creatorFieldOf(Class<? extends LibraryItem> itemClass) {
+        if (Book.class.isAssignableFrom(itemClass)) {
+            return "author";
+        } else if (Magazine.class.isAssignableFrom(itemClass)) {
+            return "publisher";
+        } else if (Media.class.isAssignableFrom(itemClass)) {
+            return "director";
+        }
+        return null;
+    }
+
+    private static void addPhrase(List<String> phrases, String field, String text) {
+        if (text != null && !text.isBlank()) {
+            phrases.add(field);
+            phrases.add(text);
+        }
+    }
+}
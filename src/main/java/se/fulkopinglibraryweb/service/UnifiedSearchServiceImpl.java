@@ -1,6 +1,7 @@
 package se.fulkopinglibraryweb.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import se.fulkopinglibraryweb.model.LibraryItem;
 import se.fulkopinglibraryweb.repository.BookRepository;
@@ -13,47 +14,83 @@ import se.fulkopinglibraryweb.model.Media;
 import se.fulkopinglibraryweb.service.interfaces.UnifiedSearchService;
 import se.fulkopinglibraryweb.service.search.SearchCriteria;
 
-import com.google.cloud.firestore.Firestore;
+import se.fulkopinglibraryweb.service.search.UnifiedSearchResult;
+import se.fulkopinglibraryweb.utils.FanOut;
+import se.fulkopinglibraryweb.utils.FanOutStats;
+
+import org.springframework.beans.factory.annotation.Value;
+
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import se.fulkopinglibraryweb.utils.LoggerUtil;
 @Service
 public class UnifiedSearchServiceImpl implements UnifiedSearchService {
 
+    private static final Duration DEFAULT_DEADLINE = Duration.ofSeconds(2);
+
     private final BookRepository bookRepository;
     private final MagazineRepository magazineRepository;
     private final MediaRepository mediaRepository;
     private final FirestoreRepository<LibraryItem, String> firestoreRepository;
+    private final FanOut fanOut;
+    private final Duration deadline;
+
     @Autowired
     public UnifiedSearchServiceImpl(
             BookRepository bookRepository,
             MagazineRepository magazineRepository,
             MediaRepository mediaRepository,
-            FirestoreRepository<LibraryItem, String> firestoreRepository) {
+            FirestoreRepository<LibraryItem, String> firestoreRepository,
+            @Qualifier("fanOutExecutor") ExecutorService fanOutExecutor,
+            @Value("${search.unified.deadline-ms:2000}") long deadlineMillis) {
         this.bookRepository = bookRepository;
         this.magazineRepository = magazineRepository;
         this.mediaRepository = mediaRepository;
         this.firestoreRepository = firestoreRepository;
+        this.fanOut = new FanOut(fanOutExecutor);
+        this.deadline = deadlineMillis > 0 ? Duration.ofMillis(deadlineMillis) : DEFAULT_DEADLINE;
     }
 
     @Override
     public List<LibraryItem> search(SearchCriteria criteria) {
-        List<LibraryItem> results = new ArrayList<>();
-        
-        try {
-            // Search local repositories
-            results.addAll(bookRepository.searchBooks(criteria));
-            results.addAll(magazineRepository.search(criteria));
-            results.addAll(mediaRepository.search(criteria));
-            
-            // Search Firestore
-            results.addAll(firestoreRepository.search(criteria));
-        } catch (Exception e) {
-            LoggerUtil.logError("Error during unified search", e);
-            throw new RuntimeException("Search operation failed", e);
+        UnifiedSearchResult result = search(criteria, deadline);
+        if (!result.incomplete().containsValue(Boolean.FALSE)) {
+            throw new RuntimeException("Search operation failed: no source answered within " + deadline.toMillis() + " ms");
+        }
+        return result.items();
+    }
+
+    @Override
+    public UnifiedSearchResult search(SearchCriteria criteria, Duration deadline) {
+        // Each source is a separate Firestore round trip, so issue them all at once
+        Map<String, Callable<List<? extends LibraryItem>>> sources = new LinkedHashMap<>();
+        sources.put("books", () -> bookRepository.searchBooks(criteria));
+        sources.put("magazines", () -> magazineRepository.search(criteria));
+        sources.put("media", () -> mediaRepository.search(criteria));
+        sources.put("firestore", () -> firestoreRepository.search(criteria));
+
+        List<LibraryItem> items = new ArrayList<>();
+        Map<String, Boolean> incomplete = new LinkedHashMap<>();
+        Map<String, Long> latencyMillis = new LinkedHashMap<>();
+        for (FanOut.Outcome<List<? extends LibraryItem>> outcome : fanOut.invokeAll(sources, deadline)) {
+            if (!outcome.incomplete()) {
+                items.addAll(outcome.value());
+            }
+            incomplete.put(outcome.source(), outcome.incomplete());
+            latencyMillis.put(outcome.source(), outcome.latencyMillis());
         }
-        
-        return results;
+        LoggerUtil.logDebug(UnifiedSearchServiceImpl.class, "Unified search latency per source (ms): {}", latencyMillis);
+        return new UnifiedSearchResult(items, incomplete, latencyMillis);
+    }
+
+    @Override
+    public Map<String, FanOutStats> getSourceStats() {
+        return fanOut.getStats();
     }
 
     @Override
@@ -11,6 +11,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 
 public abstract class AbstractAsyncGenericService<T, DTO, ID, R extends FirestoreRepository<T, ID>> 
     implements AsyncGenericService<T, DTO, ID> {
@@ -31,34 +33,12 @@ public abstract class AbstractAsyncGenericService<T, DTO, ID, R extends Firestor
     }
 
     protected CompletableFuture<T> saveEntity(T entity) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                monitor.recordRequestStart("save");
-                T saved = repository.save(entity);
-                monitor.recordRequestEnd("save");
-                return saved;
-            } catch (Exception e) {
-                monitor.recordError("save");
-                logger.error("Failed to save entity: {}", e.getMessage(), e);
-                throw wrapException("Failed to save entity", "save", null, e);
-            }
-        });
+        return monitored("save", null, "Failed to save entity", () -> repository.saveAsync(entity));
     }
 
     @Override
     public CompletableFuture<Optional<T>> findById(ID id) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                monitor.recordRequestStart("findById");
-                Optional<T> entity = repository.findById(id);
-                monitor.recordRequestEnd("findById");
-                return entity;
-            } catch (Exception e) {
-                monitor.recordError("findById");
-                logger.error("Failed to find entity with id {}: {}", id, e.getMessage(), e);
-                throw wrapException("Failed to find entity", "findById", id, e);
-            }
-        });
+        return monitored("findById", id, "Failed to find entity", () -> repository.findByIdAsync(id));
     }
 
     @Override
@@ -78,40 +58,21 @@ public abstract class AbstractAsyncGenericService<T, DTO, ID, R extends Firestor
     }
 
     protected CompletableFuture<T> updateEntity(ID id, T entity) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                monitor.recordRequestStart("update");
-                if (!repository.existsById(id)) {
+        return monitored("update", id, "Failed to update entity", () -> repository.existsByIdAsync(id)
+            .thenCompose(exists -> {
+                if (!exists) {
                     throw new RuntimeException("Entity not found");
                 }
-                T updated = repository.save(entity);
-                monitor.recordRequestEnd("update");
-                return updated;
-            } catch (Exception e) {
-                monitor.recordError("update");
-                logger.error("Failed to update entity with id {}: {}", id, e.getMessage(), e);
-                throw wrapException("Failed to update entity", "update", id, e);
-            }
-        });
+                return repository.saveAsync(entity);
+            }));
     }
 
     @Override
     public CompletableFuture<Boolean> deleteById(ID id) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                monitor.recordRequestStart("delete");
-                boolean existed = repository.existsById(id);
-                if (existed) {
-                    repository.deleteById(id);
-                }
-                monitor.recordRequestEnd("delete");
-                return existed;
-            } catch (Exception e) {
-                monitor.recordError("delete");
-                logger.error("Failed to delete entity with id {}: {}", id, e.getMessage(), e);
-                throw wrapException("Failed to delete entity", "delete", id, e);
-            }
-        });
+        return monitored("delete", id, "Failed to delete entity", () -> repository.existsByIdAsync(id)
+            .thenCompose(existed -> existed
+                ? repository.deleteByIdAsync(id)
+                : CompletableFuture.completedFuture(false)));
     }
 
     @Override
@@ -121,49 +82,44 @@ public abstract class AbstractAsyncGenericService<T, DTO, ID, R extends Firestor
     }
 
     protected CompletableFuture<List<T>> findAllEntities() {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                monitor.recordRequestStart("findAll");
-                List<T> entities = repository.findAll();
-                monitor.recordRequestEnd("findAll");
-                return entities;
-            } catch (Exception e) {
-                monitor.recordError("findAll");
-                logger.error("Failed to find all entities: {}", e.getMessage(), e);
-                throw wrapException("Failed to find all entities", "findAll", null, e);
-            }
-        });
+        return monitored("findAll", null, "Failed to find all entities", repository::findAllAsync);
     }
 
     @Override
     public CompletableFuture<Boolean> existsById(ID id) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                monitor.recordRequestStart("exists");
-                boolean exists = repository.existsById(id);
-                monitor.recordRequestEnd("exists");
-                return exists;
-            } catch (Exception e) {
-                monitor.recordError("exists");
-                logger.error("Failed to check existence for id {}: {}", id, e.getMessage(), e);
-                throw wrapException("Failed to check existence", "exists", id, e);
-            }
-        });
+        return monitored("exists", id, "Failed to check existence", () -> repository.existsByIdAsync(id));
     }
 
     @Override
     public CompletableFuture<Long> count() {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                monitor.recordRequestStart("count");
-                long count = repository.count();
-                monitor.recordRequestEnd("count");
-                return count;
-            } catch (Exception e) {
-                monitor.recordError("count");
-                logger.error("Failed to count entities: {}", e.getMessage(), e);
-                throw wrapException("Failed to count entities", "count", null, e);
+        return monitored("count", null, "Failed to count entities", repository::countAsync);
+    }
+
+    /**
+     * Run a repository call that completes asynchronously, recording its timing and wrapping failures.
+     * No thread is held while the call is in flight.
+     */
+    protected <V> CompletableFuture<V> monitored(String operation, ID id, String errorMessage,
+                                                 Supplier<CompletableFuture<V>> call) {
+        monitor.recordRequestStart(operation);
+        CompletableFuture<V> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.handle((result, error) -> {
+            if (error == null) {
+                monitor.recordRequestEnd(operation);
+                return result;
             }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause()
+                : error;
+            monitor.recordError(operation);
+            logger.error("{} (id {}): {}", errorMessage, id, cause.getMessage(), cause);
+            throw wrapException(errorMessage, operation, id,
+                cause instanceof Exception exception ? exception : new RuntimeException(cause));
         });
     }
 
@@ -6,6 +6,7 @@ import se.fulkopinglibraryweb.dtos.BookDTO;
 import se.fulkopinglibraryweb.exception.BookServiceException;
 import se.fulkopinglibraryweb.mappers.BookMapper;
 import se.fulkopinglibraryweb.model.Book;
+import se.fulkopinglibraryweb.model.BookSummary;
 import se.fulkopinglibraryweb.repository.BookRepository;
 import se.fulkopinglibraryweb.service.AsyncBookServiceImpl;
 import se.fulkopinglibraryweb.service.interfaces.BookService;
@@ -180,6 +181,26 @@ public class BookServiceImpl implements BookService {
         }
     }
 
+    @Override
+    public List<BookSummary> findAllSummaries() {
+        try {
+            return bookRepository.findAllSummaries();
+        } catch (Exception e) {
+            throw new BookServiceException("Failed to list books", "findAllSummaries", null,
+                BookServiceException.ErrorType.DATABASE, e);
+        }
+    }
+
+    @Override
+    public List<BookSummary> searchBookSummaries(SearchCriteria criteria) {
+        try {
+            return bookRepository.searchSummaries(criteria);
+        } catch (Exception e) {
+            throw new BookServiceException("Search failed", "searchBookSummaries", null,
+                BookServiceException.ErrorType.DATABASE, e);
+        }
+    }
+
     @Override
     public Book findByIsbn(String isbn) {
         try {
@@ -20,12 +20,16 @@ import com.google.cloud.firestore.*;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import se.fulkopinglibraryweb.utils.AggregateCounter;
 
 /**
  * Service class that manages library item loans
@@ -84,6 +88,7 @@ public class LoanServiceImpl implements LoanService {
             Date dueDate = calculateDueDate(loanDate, itemType);
             Loan loan = new Loan(userId, itemId, loanDate, dueDate, LoanStatus.ACTIVE);
             docRef.set(loan).get();
+            counter.invalidateAll();
             return loan;
         } catch (InterruptedException | ExecutionException e) {
             logger.error("Error creating loan for user {} and item {}", userId, itemId, e);
@@ -96,16 +101,7 @@ public class LoanServiceImpl implements LoanService {
         try {
             List<Loan> loans = loanCollection.whereEqualTo("userId", userId).get().get()
                     .toObjects(Loan.class);
-            return loans.stream()
-                    .map(loan -> {
-                        try {
-                            return enrichLoanWithItem(loan);
-                        } catch (InterruptedException | ExecutionException e) {
-                            logger.error("Error enriching loan with item for user {}", userId, e);
-                            throw new RuntimeException(e);
-                        }
-                    })
-                    .collect(Collectors.toList());
+            return enrichLoansWithItems(loans);
         } catch (InterruptedException | ExecutionException e) {
             logger.error("Error getting loans with items for user {}", userId, e);
             throw new RuntimeException(e);
@@ -117,16 +113,7 @@ public class LoanServiceImpl implements LoanService {
         try {
             List<Loan> loans = loanCollection.whereEqualTo("userId", userId).get().get()
                     .toObjects(Loan.class);
-            return loans.stream()
-                    .map(loan -> {
-                        try {
-                            return enrichLoanWithItem(loan);
-                        } catch (InterruptedException | ExecutionException e) {
-                            logger.error("Error enriching loan with item for user {}", userId, e);
-                            throw new RuntimeException(e);
-                        }
-                    })
-                    .collect(Collectors.toList());
+            return enrichLoansWithItems(loans);
         } catch (InterruptedException | ExecutionException e) {
             logger.error("Error getting loans with items for user {}", userId, e);
             throw new RuntimeException(e);
@@ -138,6 +125,7 @@ public class LoanServiceImpl implements LoanService {
         try {
             DocumentReference docRef = loanCollection.document(loanId);
             docRef.update("status", LoanStatus.RETURNED).get();
+            counter.invalidateAll();
             return docRef.get().get().toObject(Loan.class);
         } catch (InterruptedException | ExecutionException e) {
             logger.error("Error returning loan {}", loanId, e);
@@ -161,6 +149,7 @@ public class LoanServiceImpl implements LoanService {
             DocumentReference docRef = snapshot.getDocuments().get(0).getReference();
             docRef.update("status", LoanStatus.RETURNED);
             docRef.update("status", LoanStatus.RETURNED).get();
+            counter.invalidateAll();
         } catch (InterruptedException | ExecutionException e) {
             logger.error("Error returning loan for user {} and item {}", userId, itemId, e);
             throw new RuntimeException(e);
@@ -188,6 +177,7 @@ public class LoanServiceImpl implements LoanService {
             Date dueDate = calculateDueDate(loanDate, itemType);
             Loan loan = new Loan(userId, itemId, loanDate, dueDate, LoanStatus.ACTIVE);
             docRef.set(loan).get();
+            counter.invalidateAll();
             return loan;
         } catch (Exception e) {
             logger.error("Error borrowing item {} for user {}", itemId, userId, e);
@@ -210,6 +200,7 @@ public class LoanServiceImpl implements LoanService {
         });
         try {
             batch.commit().get();
+            counter.invalidateAll();
             return loans;
         } catch (InterruptedException | ExecutionException e) {
             logger.error("Error processing batch loans", e);
@@ -218,6 +209,7 @@ public class LoanServiceImpl implements LoanService {
     }
 
     private final CollectionReference loanCollection;
+    private final AggregateCounter counter = new AggregateCounter();
     private final Firestore firestore;
     private final BookRepository bookRepository;
     private final MagazineRepository magazineRepository;
@@ -264,6 +256,7 @@ public class LoanServiceImpl implements LoanService {
             
             DocumentReference docRef = snapshot.getDocuments().get(0).getReference();
             docRef.update("status", LoanStatus.RETURNED).get();
+            counter.invalidateAll();
             return true;
         } catch (InterruptedException | ExecutionException e) {
             logger.error("Error returning item {} for user {}", itemId, userId, e);
@@ -285,32 +278,82 @@ public class LoanServiceImpl implements LoanService {
         }
     }
 
-    private Loan enrichLoanWithItem(Loan loan) throws InterruptedException, ExecutionException {
-        String itemId = loan.getItemId();
-        if (itemId != null) {
+    @Override
+    public List<Loan> getLoansByStatus(LoanStatus status, int limit) {
+        try {
+            return loanCollection
+                    .whereEqualTo("status", status)
+                    .limit(limit)
+                    .get()
+                    .get()
+                    .toObjects(Loan.class);
+        } catch (InterruptedException | ExecutionException e) {
+            logger.error("Error getting loans by status {}", status, e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public long countLoansByStatus(LoanStatus status) {
+        try {
+            return counter.count("status=" + status, loanCollection.whereEqualTo("status", status));
+        } catch (RuntimeException e) {
+            logger.error("Error counting loans by status {}", status, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Attach item details to a batch of loans, fetching each item type with one multi-get
+     * instead of one lookup per loan.
+     */
+    private List<Loan> enrichLoansWithItems(List<Loan> loans) {
+        Set<String> bookIds = new HashSet<>();
+        Set<String> magazineIds = new HashSet<>();
+        Set<String> mediaIds = new HashSet<>();
+        for (Loan loan : loans) {
+            String itemId = loan.getItemId();
+            if (itemId == null) {
+                continue;
+            }
             String itemType = itemId.split("_")[0];
-            
             if ("BOOK".equalsIgnoreCase(itemType)) {
-                Optional<Book> optionalBook = bookRepository.findById(itemId);
-                optionalBook.ifPresent(book -> {
-                    loan.setBook(itemId);
-                    loan.setBookDetails(book);
-                });
+                bookIds.add(itemId);
             } else if ("MAGAZINE".equalsIgnoreCase(itemType)) {
-                Optional<Magazine> optionalMagazine = magazineRepository.findById(itemId);
-                optionalMagazine.ifPresent(magazine -> {
-                    loan.setMagazine(itemId);
-                    loan.setMagazineDetails(magazine);
-                });
+                magazineIds.add(itemId);
             } else if ("MEDIA".equalsIgnoreCase(itemType)) {
-                Optional<Media> optionalMedia = mediaRepository.findById(itemId);
-                optionalMedia.ifPresent(media -> {
-                    loan.setMedia(itemId);
-                    loan.setMediaDetails(media);
-                });
+                mediaIds.add(itemId);
+            }
+        }
+
+        Map<String, Book> books = bookIds.isEmpty() ? Map.of() : bookRepository.findAllById(bookIds);
+        Map<String, Magazine> magazines = magazineIds.isEmpty() ? Map.of() : magazineRepository.findAllById(magazineIds);
+        Map<String, Media> media = mediaIds.isEmpty() ? Map.of() : mediaRepository.findAllById(mediaIds);
+
+        for (Loan loan : loans) {
+            String itemId = loan.getItemId();
+            if (itemId == null) {
+                continue;
+            }
+            Book book = books.get(itemId);
+            if (book != null) {
+                loan.setBook(itemId);
+                loan.setBookDetails(book);
+                continue;
+            }
+            Magazine magazine = magazines.get(itemId);
+            if (magazine != null) {
+                loan.setMagazine(itemId);
+                loan.setMagazineDetails(magazine);
+                continue;
+            }
+            Media mediaItem = media.get(itemId);
+            if (mediaItem != null) {
+                loan.setMedia(itemId);
+                loan.setMediaDetails(mediaItem);
             }
         }
-        return loan;
+        return loans;
     }
 
     private static final Logger logger = LoggerFactory.getLogger(LoanServiceImpl.class);
@@ -5,6 +5,7 @@ import se.fulkopinglibraryweb.repository.MediaRepository;
 import se.fulkopinglibraryweb.service.interfaces.MediaService;
 import se.fulkopinglibraryweb.service.interfaces.LoanService;
 import se.fulkopinglibraryweb.model.Media;
+import se.fulkopinglibraryweb.model.MediaSummary;
 import se.fulkopinglibraryweb.model.Loan;
 import se.fulkopinglibraryweb.utils.LoggerUtil;
 
@@ -50,6 +51,15 @@ public class MediaServiceImpl implements MediaService {
         return mediaRepository.findAll();
     }
 
+    @Override
+    public long countMedia() {
+        try {
+            return mediaRepository.count();
+        } catch (Exception e) {
+            throw new MediaServiceException("Failed to count media", "countMedia", "all", MediaServiceException.ErrorType.DATABASE, e);
+        }
+    }
+
     @Override
     public List<Media> searchMedia(String searchType, String searchQuery) {
         if (searchType.equalsIgnoreCase("type")) {
@@ -58,6 +68,19 @@ public class MediaServiceImpl implements MediaService {
             throw new MediaServiceException("Invalid search type", "searchMedia", String.valueOf(searchType), MediaServiceException.ErrorType.VALIDATION);
     }
 
+    @Override
+    public List<MediaSummary> getAllMediaSummaries() {
+        return mediaRepository.findAllSummaries();
+    }
+
+    @Override
+    public List<MediaSummary> searchMediaSummaries(String searchType, String searchQuery) {
+        if (searchType.equalsIgnoreCase("type")) {
+            return mediaRepository.findSummariesByField("type", searchQuery);
+        }
+        throw new MediaServiceException("Invalid search type", "searchMediaSummaries", String.valueOf(searchType), MediaServiceException.ErrorType.VALIDATION);
+    }
+
     @Override
     public Media getMediaById(String mediaId) {
         return mediaRepository.findById(mediaId)
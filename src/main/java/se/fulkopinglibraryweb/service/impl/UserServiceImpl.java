@@ -8,6 +8,8 @@ import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
 import se.fulkopinglibraryweb.repository.UserRepository;
 import se.fulkopinglibraryweb.service.interfaces.UserService;
+import se.fulkopinglibraryweb.utils.AggregateCounter;
+import se.fulkopinglibraryweb.utils.FirestorePageIterator;
 import se.fulkopinglibraryweb.utils.PasswordUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,6 +19,8 @@ import org.springframework.stereotype.Service;
 import java.util.List;
 import java.util.Optional;
 import java.util.ArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class UserServiceImpl implements UserService {
@@ -29,6 +33,7 @@ public class UserServiceImpl implements UserService {
     
     private final PasswordUtils passwordUtils;
     private final CollectionReference userCollection;
+    private final AggregateCounter counter = new AggregateCounter();
     private final Logger logger;
 
     public UserServiceImpl(Firestore firestore, UserRepository userRepository, PasswordUtils passwordUtils) {
@@ -52,6 +57,7 @@ public class UserServiceImpl implements UserService {
             DocumentReference docRef = userCollection.document();
             docRef.set(user).get();
             user.setId(docRef.getId());
+            counter.invalidateAll();
             return user;
         } catch (Exception e) {
             logger.error("Failed to create user: {}", e.getMessage());
@@ -89,19 +95,43 @@ public class UserServiceImpl implements UserService {
     public List<User> findAll() {
         logger.info("Fetching all users");
         
-        try {
-            List<QueryDocumentSnapshot> documents = userCollection.get().get().getDocuments();
-            List<User> users = new ArrayList<>();
-            for (QueryDocumentSnapshot document : documents) {
-                users.add(document.toObject(User.class));
-            }
-            return users;
+        try (Stream<User> users = streamAll()) {
+            return users.collect(Collectors.toCollection(ArrayList::new));
         } catch (Exception e) {
             logger.error("Failed to fetch all users: {}", e.getMessage());
             throw new RuntimeException("Failed to fetch all users", e);
         }
     }
 
+    @Override
+    public List<User> findAll(int limit) {
+        logger.info("Fetching up to {} users", limit);
+        
+        try {
+            return userCollection.limit(limit).get().get().toObjects(User.class);
+        } catch (Exception e) {
+            logger.error("Failed to fetch users: {}", e.getMessage());
+            throw new RuntimeException("Failed to fetch users", e);
+        }
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        logger.info("Streaming all users");
+        return FirestorePageIterator.stream(userCollection, FirestorePageIterator.DEFAULT_PAGE_SIZE,
+                document -> document.toObject(User.class));
+    }
+
+    @Override
+    public long countUsers() {
+        try {
+            return counter.count("*", userCollection);
+        } catch (Exception e) {
+            logger.error("Failed to count users: {}", e.getMessage());
+            throw new RuntimeException("Failed to count users", e);
+        }
+    }
+
     @Override
     public User update(User user) {
         logger.info("Updating user: {}", user.getId());
@@ -121,6 +151,7 @@ public class UserServiceImpl implements UserService {
         
         try {
             userCollection.document(userId).delete().get();
+            counter.invalidateAll();
         } catch (Exception e) {
             logger.error("Failed to delete user: {}", e.getMessage());
             throw new RuntimeException("Failed to delete user", e);
@@ -1,6 +1,7 @@
 package se.fulkopinglibraryweb.service.interfaces;
 
 import se.fulkopinglibraryweb.model.Magazine;
+import se.fulkopinglibraryweb.model.MagazineSummary;
 import se.fulkopinglibraryweb.service.search.SearchCriteria;
 
 import java.util.List;
@@ -15,6 +16,8 @@ public interface AsyncMagazineService extends AsyncCrudOperations<Magazine, Stri
     CompletableFuture<Void> deleteMagazine(String id);
     CompletableFuture<List<Magazine>> search(SearchCriteria criteria);
     CompletableFuture<List<Magazine>> searchMagazines(String query);
+    CompletableFuture<List<MagazineSummary>> getMagazineSummaries();
+    CompletableFuture<List<MagazineSummary>> searchMagazineSummaries(String query);
     CompletableFuture<List<Magazine>> getLatestIssues(int limit);
     CompletableFuture<Boolean> isAvailableForLending(String id);
 }
@@ -1,6 +1,7 @@
 package se.fulkopinglibraryweb.service.interfaces;
 
 import se.fulkopinglibraryweb.model.Book;
+import se.fulkopinglibraryweb.model.BookSummary;
 import se.fulkopinglibraryweb.service.search.SearchCriteria;
 
 import java.util.List;
@@ -29,4 +30,8 @@ public interface BookService extends GenericService<Book, String> {
     List<Book> findByAuthor(String author);
     List<Book> findByTitle(String title);
     List<Book> findByYear(int year);
+
+    // Projected reads for list views
+    List<BookSummary> findAllSummaries();
+    List<BookSummary> searchBookSummaries(SearchCriteria criteria);
 }
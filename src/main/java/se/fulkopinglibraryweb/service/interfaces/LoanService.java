@@ -19,6 +19,8 @@ public interface LoanService {
     Loan returnLoan(String loanId);
     void returnLoan(String userId, String bookId);
     List<Loan> getLoansByStatus(LoanStatus status);
+    List<Loan> getLoansByStatus(LoanStatus status, int limit);
+    long countLoansByStatus(LoanStatus status);
     List<Loan> getBorrowedItems(String userId);
     List<Loan> getLoansForItem(String itemId);
 }
@@ -2,13 +2,17 @@ package se.fulkopinglibraryweb.service.interfaces;
 
 import java.util.List;
 import se.fulkopinglibraryweb.model.Media;
+import se.fulkopinglibraryweb.model.MediaSummary;
 import se.fulkopinglibraryweb.model.Loan;
 
 public interface MediaService {
     void addMedia(String title);
     void updateMedia(String mediaId, String title);
     List<Media> getAllMedia();
+    long countMedia();
     List<Media> searchMedia(String searchType, String searchQuery);
+    List<MediaSummary> getAllMediaSummaries();
+    List<MediaSummary> searchMediaSummaries(String searchType, String searchQuery);
     Media getMediaById(String mediaId);
     boolean isAvailable(String mediaId);
     Loan borrowMedia(String userId, String mediaId);
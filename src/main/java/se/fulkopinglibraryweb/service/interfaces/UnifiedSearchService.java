@@ -2,8 +2,12 @@ package se.fulkopinglibraryweb.service.interfaces;
 
 import se.fulkopinglibraryweb.model.LibraryItem;
 import se.fulkopinglibraryweb.service.search.SearchCriteria;
+import se.fulkopinglibraryweb.service.search.UnifiedSearchResult;
+import se.fulkopinglibraryweb.utils.FanOutStats;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 
 public interface UnifiedSearchService {
     /**
@@ -13,6 +17,20 @@ public interface UnifiedSearchService {
      */
     List<LibraryItem> search(SearchCriteria criteria);
 
+    /**
+     * Searches all sources concurrently, waiting at most until the deadline
+     * @param criteria Search criteria containing fields and values to search for
+     * @param deadline The most time to wait for all sources together
+     * @return The merged items, with per-source completeness and latency
+     */
+    UnifiedSearchResult search(SearchCriteria criteria, Duration deadline);
+
+    /**
+     * Gets the latency, timeout, failure and rejection statistics of each source of the concurrent search
+     * @return The statistics keyed by source name
+     */
+    Map<String, FanOutStats> getSourceStats();
+
     /**
      * Searches across a specific type of library item
      * @param criteria Search criteria containing fields and values to search for
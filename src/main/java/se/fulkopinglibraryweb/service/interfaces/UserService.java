@@ -4,12 +4,16 @@ import se.fulkopinglibraryweb.model.User;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserService {
     User create(User user);
     User createUser(String username, String email, String password, String role);
     Optional<User> findById(String id);
     List<User> findAll();
+    List<User> findAll(int limit);
+    Stream<User> streamAll();
+    long countUsers();
     User update(User user);
     void delete(String userId);
     boolean authenticateUser(String username, String password);
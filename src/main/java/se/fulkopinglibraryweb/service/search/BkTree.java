@@ -0,0 +1,117 @@
+package se.fulkopinglibraryweb.service.search;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.function.ObjIntConsumer;
+
+import se.fulkopinglibraryweb.utils.EditDistance;
+
+/**
+ * A Burkhard-Keller tree of index terms under Levenshtein distance.
+ * Each child edge is labelled with its distance to the parent term, so by the triangle inequality a
+ * lookup within {@code k} edits only descends into edges labelled {@code d - k .. d + k}, where
+ * {@code d} is the distance from the query to the parent. Most of the vocabulary is never compared.
+ * Terms cannot be removed; callers skip terms that no longer occur in any document, and rebuild
+ * the tree once too many have accumulated.
+ * Not thread-safe.
+ */
+final class BkTree {
+
+    private Node root;
+    private int size;
+
+    /**
+     * Add a term to the tree.
+     *
+     * @param term The term to add
+     * @return True if the term was not already present
+     */
+    boolean add(String term) {
+        if (root == null) {
+            root = new Node(term);
+            size++;
+            return true;
+        }
+        Node node = root;
+        while (true) {
+            int distance = EditDistance.distance(node.term, term);
+            if (distance == 0) {
+                return false;
+            }
+            Node child = node.child(distance);
+            if (child == null) {
+                node.addChild(distance, new Node(term));
+                size++;
+                return true;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Visit every term within a number of edits of a query term.
+     *
+     * @param query The query term
+     * @param maxDistance The maximum number of edits
+     * @param visitor Called with each matching term and its distance to the query
+     */
+    void search(String query, int maxDistance, ObjIntConsumer<String> visitor) {
+        if (root == null) {
+            return;
+        }
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int distance = EditDistance.distance(node.term, query);
+            if (distance <= maxDistance) {
+                visitor.accept(node.term, distance);
+            }
+            for (int i = 0; i < node.childCount; i++) {
+                if (Math.abs(node.edges[i] - distance) <= maxDistance) {
+                    pending.push(node.children[i]);
+                }
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        root = null;
+        size = 0;
+    }
+
+    private static final class Node {
+        private final String term;
+        private int[] edges = new int[0];
+        private Node[] children = new Node[0];
+        private int childCount;
+
+        private Node(String term) {
+            this.term = term;
+        }
+
+        private Node child(int distance) {
+            for (int i = 0; i < childCount; i++) {
+                if (edges[i] == distance) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private void addChild(int distance, Node child) {
+            if (childCount == edges.length) {
+                int capacity = Math.max(2, childCount * 2);
+                edges = Arrays.copyOf(edges, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            edges[childCount] = distance;
+            children[childCount++] = child;
+        }
+    }
+}
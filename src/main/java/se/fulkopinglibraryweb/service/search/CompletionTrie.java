@@ -0,0 +1,396 @@
+package se.fulkopinglibraryweb.service.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A radix trie of normalized catalog phrases for typeahead.
+ * Every node keeps its best completions precomputed, most common phrase first, so answering a
+ * keystroke is a walk down at most one node per edge label followed by a copy of that list;
+ * nothing below the node is visited. A phrase is reachable from the start of each of its words,
+ * so "rings" completes "The Lord of the Rings".
+ * Phrases are counted: the same title on several items is one suggestion whose weight is the
+ * number of items carrying it, and it disappears once the last of them is removed.
+ */
+public class CompletionTrie {
+
+    private static final Comparator<Phrase> BEST_FIRST = Comparator
+            .comparingInt((Phrase phrase) -> -phrase.count)
+            .thenComparing(phrase -> phrase.key)
+            .thenComparing(phrase -> phrase.field);
+
+    private final int maxCompletions;
+    private final Node root = new Node("");
+    private final Map<String, Phrase> phrases = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * A completion offered for a prefix.
+     *
+     * @param text The phrase as it was first added
+     * @param field The field it came from, e.g. "title" or "author"
+     * @param count The number of items carrying it
+     */
+    public record Suggestion(String text, String field, int count) {
+    }
+
+    /**
+     * @param maxCompletions How many completions each node keeps; the largest useful limit for {@link #complete}
+     */
+    public CompletionTrie(int maxCompletions) {
+        if (maxCompletions < 1) {
+            throw new IllegalArgumentException("Max completions must be greater than 0");
+        }
+        this.maxCompletions = maxCompletions;
+    }
+
+    /**
+     * Count one more item carrying a phrase.
+     *
+     * @param field The field the phrase came from
+     * @param text The phrase; blank phrases are ignored
+     */
+    public void add(String field, String text) {
+        String key = SearchTokenizer.normalize(text);
+        if (key.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Phrase phrase = phrases.get(field + '\u0000' + key);
+            if (phrase == null) {
+                phrase = new Phrase(key, field, text.trim());
+                phrases.put(field + '\u0000' + key, phrase);
+                phrase.count = 1;
+                for (int start : wordStarts(key)) {
+                    List<Node> path = insert(key.substring(start));
+                    path.get(path.size() - 1).addTerminal(phrase);
+                    refresh(path);
+                }
+            } else {
+                phrase.count++;
+                refreshAll(phrase);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Count one fewer item carrying a phrase, dropping it when no item is left.
+     *
+     * @param field The field the phrase came from
+     * @param text The phrase as passed to {@link #add}
+     */
+    public void remove(String field, String text) {
+        String key = SearchTokenizer.normalize(text);
+        if (key.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Phrase phrase = phrases.get(field + '\u0000' + key);
+            if (phrase == null) {
+                return;
+            }
+            if (--phrase.count > 0) {
+                refreshAll(phrase);
+                return;
+            }
+            phrases.remove(field + '\u0000' + key);
+            for (int start : wordStarts(key)) {
+                List<Node> path = find(key.substring(start));
+                if (path != null) {
+                    path.get(path.size() - 1).removeTerminal(phrase);
+                    prune(path);
+                    refresh(path);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the best completions of a prefix.
+     *
+     * @param prefix What the user has typed so far
+     * @param limit Maximum number of completions, capped at the trie's max completions
+     * @return The completions, most common first
+     */
+    public List<Suggestion> complete(String prefix, int limit) {
+        String key = SearchTokenizer.normalize(prefix);
+        if (key.isEmpty() || limit < 1) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int matched = 0;
+            while (matched < key.length()) {
+                Node child = node.child(key.charAt(matched));
+                if (child == null) {
+                    return new ArrayList<>();
+                }
+                int common = commonPrefixLength(child.label, key, matched);
+                // The prefix may end part-way along an edge, but may not leave it
+                if (common < child.label.length() && matched + common < key.length()) {
+                    return new ArrayList<>();
+                }
+                matched += common;
+                node = child;
+            }
+            int count = Math.min(limit, node.top.length);
+            List<Suggestion> suggestions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Phrase phrase = node.top[i];
+                suggestions.add(new Suggestion(phrase.text, phrase.field, phrase.count));
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The number of distinct phrases
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return phrases.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            phrases.clear();
+            root.childCount = 0;
+            root.children = new Node[0];
+            root.top = new Phrase[0];
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static int[] wordStarts(String key) {
+        int[] starts = new int[key.length()];
+        int count = 0;
+        for (int i = 0; i < key.length(); i++) {
+            if (i == 0 || key.charAt(i - 1) == ' ') {
+                starts[count++] = i;
+            }
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    private static int commonPrefixLength(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Walk to the node for a key, creating and splitting nodes as needed.
+     *
+     * @return The nodes from the root down to the key's node
+     */
+    private List<Node> insert(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int matched = 0;
+        while (matched < key.length()) {
+            Node child = node.child(key.charAt(matched));
+            if (child == null) {
+                child = new Node(key.substring(matched));
+                node.addChild(child);
+                path.add(child);
+                return path;
+            }
+            int common = commonPrefixLength(child.label, key, matched);
+            if (common < child.label.length()) {
+                // Split the edge where the key leaves it
+                Node middle = new Node(child.label.substring(0, common));
+                node.replaceChild(child, middle);
+                child.label = child.label.substring(common);
+                middle.addChild(child);
+                middle.top = child.top;
+                child = middle;
+            }
+            path.add(child);
+            node = child;
+            matched += common;
+        }
+        return path;
+    }
+
+    /**
+     * @return The nodes from the root down to the node for exactly this key, or null if there is none
+     */
+    private List<Node> find(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int matched = 0;
+        while (matched < key.length()) {
+            Node child = node.child(key.charAt(matched));
+            if (child == null || !key.startsWith(child.label, matched)) {
+                return null;
+            }
+            path.add(child);
+            node = child;
+            matched += child.label.length();
+        }
+        return path;
+    }
+
+    private void refreshAll(Phrase phrase) {
+        for (int start : wordStarts(phrase.key)) {
+            List<Node> path = find(phrase.key.substring(start));
+            if (path != null) {
+                refresh(path);
+            }
+        }
+    }
+
+    /**
+     * Recompute the precomputed completions bottom-up along a path.
+     */
+    private void refresh(List<Node> path) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            path.get(i).recomputeTop(maxCompletions);
+        }
+    }
+
+    /**
+     * Detach nodes left with neither phrases nor children, bottom-up.
+     */
+    private static void prune(List<Node> path) {
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node node = path.get(i);
+            if (node.terminalCount > 0 || node.childCount > 0) {
+                return;
+            }
+            path.get(i - 1).removeChild(node);
+            path.remove(i);
+        }
+    }
+
+    private static final class Phrase {
+        private final String key;
+        private final String field;
+        private final String text;
+        private int count;
+
+        private Phrase(String key, String field, String text) {
+            this.key = key;
+            this.field = field;
+            this.text = text;
+        }
+    }
+
+    private static final class Node {
+        private String label;
+        private Node[] children = new Node[0];
+        private int childCount;
+        private Phrase[] terminals = new Phrase[0];
+        private int terminalCount;
+        private Phrase[] top = new Phrase[0];
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        private Node child(char first) {
+            for (int i = 0; i < childCount; i++) {
+                if (children[i].label.charAt(0) == first) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private void addChild(Node child) {
+            if (childCount == children.length) {
+                children = Arrays.copyOf(children, Math.max(2, childCount * 2));
+            }
+            children[childCount++] = child;
+        }
+
+        private void replaceChild(Node child, Node replacement) {
+            for (int i = 0; i < childCount; i++) {
+                if (children[i] == child) {
+                    children[i] = replacement;
+                    return;
+                }
+            }
+        }
+
+        private void removeChild(Node child) {
+            for (int i = 0; i < childCount; i++) {
+                if (children[i] == child) {
+                    children[i] = children[--childCount];
+                    children[childCount] = null;
+                    return;
+                }
+            }
+        }
+
+        private void addTerminal(Phrase phrase) {
+            if (terminalCount == terminals.length) {
+                terminals = Arrays.copyOf(terminals, Math.max(1, terminalCount * 2));
+            }
+            terminals[terminalCount++] = phrase;
+        }
+
+        private void removeTerminal(Phrase phrase) {
+            for (int i = 0; i < terminalCount; i++) {
+                if (terminals[i] == phrase) {
+                    terminals[i] = terminals[--terminalCount];
+                    terminals[terminalCount] = null;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Merge this node's own phrases with its children's completions. A phrase can reach a node
+         * through more than one of its words, so duplicates are dropped.
+         */
+        private void recomputeTop(int maxCompletions) {
+            List<Phrase> candidates = new ArrayList<>(terminalCount + childCount * maxCompletions);
+            for (int i = 0; i < terminalCount; i++) {
+                candidates.add(terminals[i]);
+            }
+            for (int i = 0; i < childCount; i++) {
+                candidates.addAll(Arrays.asList(children[i].top));
+            }
+            candidates.sort(BEST_FIRST);
+            List<Phrase> best = new ArrayList<>(Math.min(maxCompletions, candidates.size()));
+            Phrase previous = null;
+            for (Phrase phrase : candidates) {
+                if (phrase != previous) {
+                    best.add(phrase);
+                    if (best.size() == maxCompletions) {
+                        break;
+                    }
+                }
+                previous = phrase;
+            }
+            top = best.toArray(new Phrase[0]);
+        }
+    }
+}
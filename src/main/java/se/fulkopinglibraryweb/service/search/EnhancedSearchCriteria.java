@@ -3,6 +3,7 @@ package se.fulkopinglibraryweb.service.search;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -13,15 +14,28 @@ import java.util.Map;
  */
 public class EnhancedSearchCriteria extends SearchCriteria {
     
+    private Map<String, Object> equalityFilters = new LinkedHashMap<>();
     private Map<String, RangeFilter> rangeFilters = new HashMap<>();
     private List<KeywordFilter> keywordFilters = new ArrayList<>();
     
+    /**
+     * Adds a filter requiring a field to equal a value.
+     * 
+     * @param field The field to filter on
+     * @param value The required value
+     * @return This SearchCriteria instance for method chaining
+     */
+    public EnhancedSearchCriteria addEqualityFilter(String field, Object value) {
+        equalityFilters.put(field, value);
+        return this;
+    }
+    
     /**
      * Adds a range filter for a specific field.
      * 
      * @param field The field to filter on
-     * @param min The minimum value (inclusive)
-     * @param max The maximum value (inclusive)
+     * @param min The minimum value (inclusive), or null for no lower bound
+     * @param max The maximum value (inclusive), or null for no upper bound
      * @return This SearchCriteria instance for method chaining
      */
     public EnhancedSearchCriteria addRangeFilter(String field, Object min, Object max) {
@@ -41,6 +55,15 @@ public class EnhancedSearchCriteria extends SearchCriteria {
         return this;
     }
     
+    /**
+     * Gets all equality filters.
+     * 
+     * @return Map of field names to required values
+     */
+    public Map<String, Object> getEqualityFilters() {
+        return equalityFilters;
+    }
+    
     /**
      * Gets all range filters.
      * 
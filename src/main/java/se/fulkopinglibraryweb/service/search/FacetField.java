@@ -0,0 +1,12 @@
+package se.fulkopinglibraryweb.service.search;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Marks a field whose values patrons can narrow results by, with a count shown next to each value.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FacetField {
+    String name() default "";
+}
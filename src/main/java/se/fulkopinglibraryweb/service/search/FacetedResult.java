@@ -0,0 +1,15 @@
+package se.fulkopinglibraryweb.service.search;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Items matching a faceted search, with the number of matches for each facet value.
+ *
+ * @param items The matching items, at most the requested number
+ * @param total The number of matching items
+ * @param facetCounts Per facet name, the count of matches for each value, most frequent value first
+ * @param <T> The item type
+ */
+public record FacetedResult<T>(List<T> items, int total, Map<String, Map<String, Integer>> facetCounts) {
+}
@@ -0,0 +1,142 @@
+package se.fulkopinglibraryweb.service.search;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Writes an {@link InvertedIndex} to a versioned binary file and restores it from a memory mapping
+ * of that file, so a restarted node can serve searches without re-reading its collection.
+ * The file holds a header (format version, item class, schema and the high-water mark of the
+ * document update times it reflects) followed by the index itself: the term dictionaries and
+ * posting lists, trigram and phonetic posting lists, facet bitmaps and a document table giving each document
+ * ID's item ID, search keys, facet values, terms and encoded item. Restoring copies the posting
+ * lists out of the mapping as they are rather than re-indexing every item, and leaves each item
+ * encoded in the mapping until a search first returns it.
+ * A snapshot written for a different item class or schema is ignored rather than misread.
+ */
+public final class IndexSnapshot {
+    private static final int MAGIC = 0x464C5358;
+    // 3: collections are stamped for catch-up, so earlier snapshots are reloaded in full once
+    private static final int VERSION = 3;
+    private static final int NULL_LENGTH = -1;
+
+    private IndexSnapshot() {
+    }
+
+    /**
+     * Write an index to a file, replacing it atomically once complete.
+     *
+     * @param file The snapshot file
+     * @param index The index to write
+     * @param highWaterMark The newest document update time the index is known to reflect
+     * @param encoder Encodes an item; its bytes are passed back to the decoder on restore
+     * @throws IOException If the file cannot be written
+     */
+    public static <T> void write(Path file, InvertedIndex<T> index, Instant highWaterMark,
+            Function<T, byte[]> encoder) throws IOException {
+        SearchableSchema<T> schema = index.getSchema();
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(highWaterMark.getEpochSecond());
+                out.writeInt(highWaterMark.getNano());
+                writeString(out, schema.getItemClass().getName());
+                writeNames(out, schema.fieldNames());
+                writeNames(out, schema.facetNames());
+                index.writeTo(out, encoder);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Replace the contents of an index with a snapshot.
+     *
+     * @param file The snapshot file
+     * @param index The index to fill
+     * @param decoder Decodes the bytes produced by the encoder given to {@link #write}
+     * @return The high-water mark stored in the snapshot, or null if the file does not exist or
+     *         was written for another format, item class or schema
+     * @throws IOException If the file cannot be read or is truncated
+     */
+    public static <T> Instant read(Path file, InvertedIndex<T> index, Function<ByteBuffer, T> decoder)
+            throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        SearchableSchema<T> schema = index.getSchema();
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            Instant highWaterMark = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+            if (!schema.getItemClass().getName().equals(readString(buffer))
+                    || !schema.fieldNames().equals(readNames(buffer))
+                    || !schema.facetNames().equals(readNames(buffer))) {
+                return null;
+            }
+            index.readFrom(buffer, decoder);
+            return highWaterMark;
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt search index snapshot " + file, e);
+        }
+    }
+
+    private static void writeNames(DataOutputStream out, List<String> names) throws IOException {
+        out.writeInt(names.size());
+        for (String name : names) {
+            writeString(out, name);
+        }
+    }
+
+    private static List<String> readNames(ByteBuffer buffer) {
+        String[] names = new String[buffer.getInt()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = readString(buffer);
+        }
+        return List.of(names);
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
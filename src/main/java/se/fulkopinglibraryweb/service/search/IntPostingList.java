@@ -0,0 +1,99 @@
+package se.fulkopinglibraryweb.service.search;
+
+import java.util.Arrays;
+
+/**
+ * A sorted, duplicate-free list of primitive document IDs.
+ * Document IDs are handed out in increasing order, so most additions are appends.
+ */
+final class IntPostingList {
+    private static final int INITIAL_CAPACITY = 4;
+
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * @param sortedIds Sorted, duplicate-free document IDs; the list takes ownership of the array
+     */
+    static IntPostingList of(int[] sortedIds) {
+        IntPostingList list = new IntPostingList();
+        list.ids = sortedIds.length == 0 ? new int[INITIAL_CAPACITY] : sortedIds;
+        list.size = sortedIds.length;
+        return list;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int get(int position) {
+        return ids[position];
+    }
+
+    void add(int docId) {
+        if (size > 0 && ids[size - 1] >= docId) {
+            int position = Arrays.binarySearch(ids, 0, size, docId);
+            if (position >= 0) {
+                return;
+            }
+            insertAt(-position - 1, docId);
+            return;
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        ids[size++] = docId;
+    }
+
+    void remove(int docId) {
+        int position = Arrays.binarySearch(ids, 0, size, docId);
+        if (position < 0) {
+            return;
+        }
+        System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+        size--;
+    }
+
+    boolean contains(int docId) {
+        return Arrays.binarySearch(ids, 0, size, docId) >= 0;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    private void insertAt(int position, int docId) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        ids[position] = docId;
+        size++;
+    }
+
+    /**
+     * Intersect a sorted ID array with this list.
+     *
+     * @param candidates Sorted document IDs
+     * @param count The number of valid entries in {@code candidates}
+     * @return The number of surviving IDs, compacted to the front of {@code candidates}
+     */
+    int retainIn(int[] candidates, int count) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < size; i++) {
+            int candidate = candidates[i];
+            while (j < size && ids[j] < candidate) {
+                j++;
+            }
+            if (j < size && ids[j] == candidate) {
+                candidates[kept++] = candidate;
+            }
+        }
+        return kept;
+    }
+}
@@ -0,0 +1,1615 @@
+package se.fulkopinglibraryweb.service.search;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import se.fulkopinglibraryweb.utils.PageCursor;
+
+/**
+ * An in-memory inverted index over the {@link SearchableField} fields of one item type.
+ * Each item is given a compact int document ID, and every term maps to a sorted posting list of
+ * those IDs, both per field and across all fields. A query intersects the posting lists of its
+ * terms, starting from the shortest, so its cost depends on the number of matches rather than the
+ * size of the catalog.
+ * Field values are indexed by their search keys (see {@link SearchTokenizer}), computed once per
+ * item, and each query is normalized once per request in the same way.
+ * Substring queries use a second index from every trigram of the field keys to the
+ * documents containing it; intersecting the trigrams of the query leaves a small candidate set,
+ * and only those candidates are checked with {@code contains}. Needles too short to have a
+ * trigram match the start of a term instead, found in a sorted term dictionary.
+ * Typo-tolerant queries look up the terms of the full-text fields in a {@link BkTree}, then
+ * union the posting lists of the terms found. Fields marked phonetic, such as author names, are
+ * first looked up by the {@link PhoneticKey} of each query word, and the tree is only searched
+ * when nothing sounds like the query.
+ * Ranked queries score the term matches with BM25 per field, weighted by the field's boost, and
+ * keep only the best {@code k} in a bounded heap.
+ * Each value of a {@link FacetField} field maps to a bitmap of the documents having it, so facet
+ * filters and per-value counts are bitmap ANDs and population counts rather than queries.
+ * Sorted listings walk the documents in the order of a sort field and document ID, kept in a tree
+ * per sort field from its first use, from the cursor position onwards and keep the matches, so a
+ * page costs about its size divided by the share of items matching; queries with few matches sort
+ * just those instead.
+ * Items are added, replaced and removed incrementally; reads and writes are guarded by a read-write lock.
+ * The whole index can be written to and restored from an {@link IndexSnapshot}; restored items stay
+ * encoded until first returned, and the fuzzy term tree is rebuilt on the first fuzzy query.
+ *
+ * @param <T> The item type
+ */
+public class InvertedIndex<T> {
+    private static final int[] NO_DOCS = new int[0];
+    private static final int TRIGRAM = 3;
+    // Share of the fuzzy term tree that may be dead terms before the tree is rebuilt from the live ones
+    private static final double MAX_DEAD_FUZZY_TERMS = 0.5;
+    // BM25 term-frequency saturation and length normalization
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Added to the score of an item whose identifier field equals the query, so it ranks first
+    private static final double EXACT_IDENTIFIER_BOOST = 1_000_000;
+    // Counting one match's facet value by hand costs about as much as ANDing this many bitmap words
+    private static final int PER_MATCH_COST_IN_WORDS = 64;
+
+    private final SearchableSchema<T> schema;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> docIds = new HashMap<>();
+    private final List<String> externalIds = new ArrayList<>();
+    // Each document's item, or a LazyItem restored from a snapshot and not yet decoded
+    private final List<Object> items = new ArrayList<>();
+    // Terms indexed for each document, per field, so removal does not depend on the item being unchanged
+    private final List<String[][]> indexedTerms = new ArrayList<>();
+    // How often each of the terms above occurs in its field, for BM25 scoring
+    private final List<int[][]> termFrequencies = new ArrayList<>();
+    // Normalized search keys of each document's fields, computed once when the item is indexed
+    private final List<String[]> indexedKeys = new ArrayList<>();
+    // Facet values of each document, so removal does not depend on the item being unchanged
+    private final List<String[]> indexedFacets = new ArrayList<>();
+    private final Deque<Integer> freeDocIds = new ArrayDeque<>();
+    private final BitSet liveDocs = new BitSet();
+    private final List<Map<String, BitSet>> facetBitmaps;
+    private final List<Map<String, IntPostingList>> fieldPostings;
+    private final Map<String, IntPostingList> allFieldPostings = new HashMap<>();
+    // Every term of allFieldPostings in order, so needles too short for a trigram are looked up as term prefixes
+    private final NavigableSet<String> sortedTerms = new TreeSet<>();
+    private final List<Map<Long, IntPostingList>> fieldTrigrams;
+    private final Map<Long, IntPostingList> allFieldTrigrams = new HashMap<>();
+    // Phonetic key of each term to its documents, for the fields marked phonetic only
+    private final List<Map<String, IntPostingList>> phoneticPostings;
+    private final int[] phoneticFields;
+    private final int[] fullTextFields;
+    private final long[] totalFieldLength;
+    private final int[] fieldDocCount;
+    private final BkTree fuzzyTerms = new BkTree();
+    // Terms in the tree that no longer occur in any full-text field
+    private int deadFuzzyTerms;
+    // False after a restore until the tree has been filled from the restored full-text terms
+    private volatile boolean fuzzyTermsComplete = true;
+    // Every document in sort order, per sort field requested so far; the empty name orders by document ID
+    private final Map<String, SortOrder> sortOrders = new HashMap<>();
+
+    public InvertedIndex(SearchableSchema<T> schema) {
+        this.schema = schema;
+        this.fieldPostings = new ArrayList<>(schema.size());
+        this.fieldTrigrams = new ArrayList<>(schema.size());
+        this.phoneticPostings = new ArrayList<>(schema.size());
+        for (int i = 0; i < schema.size(); i++) {
+            fieldPostings.add(new HashMap<>());
+            fieldTrigrams.add(new HashMap<>());
+            phoneticPostings.add(new HashMap<>());
+        }
+        this.facetBitmaps = new ArrayList<>(schema.facetNames().size());
+        for (int i = 0; i < schema.facetNames().size(); i++) {
+            facetBitmaps.add(new HashMap<>());
+        }
+        this.fullTextFields = IntStream.range(0, schema.size()).filter(schema::isFullText).toArray();
+        this.phoneticFields = IntStream.range(0, schema.size()).filter(schema::isPhonetic).toArray();
+        this.totalFieldLength = new long[schema.size()];
+        this.fieldDocCount = new int[schema.size()];
+    }
+
+    public SearchableSchema<T> getSchema() {
+        return schema;
+    }
+
+    /**
+     * Add an item, or replace the indexed version of an item with the same ID.
+     *
+     * @param id The document ID of the item
+     * @param item The item to index
+     */
+    public void put(String id, T item) {
+        index(id, item, extractKeys(item), extractFacets(item));
+    }
+
+    private void index(String id, Object item, String[] keys, String[] facets) {
+        int[][] frequencies = new int[keys.length][];
+        String[][] terms = termsOf(keys, frequencies);
+        lock.writeLock().lock();
+        try {
+            Integer existing = docIds.get(id);
+            int docId;
+            if (existing != null) {
+                docId = existing;
+                unindex(docId);
+            } else {
+                docId = allocateDocId(id);
+            }
+            items.set(docId, item);
+            for (SortOrder order : sortOrders.values()) {
+                order.remove(docId);
+                order.add(docId, item);
+            }
+            indexedTerms.set(docId, terms);
+            termFrequencies.set(docId, frequencies);
+            indexedKeys.set(docId, keys);
+            indexedFacets.set(docId, facets);
+            liveDocs.set(docId);
+            for (int facet = 0; facet < facets.length; facet++) {
+                if (facets[facet] != null) {
+                    facetBitmaps.get(facet).computeIfAbsent(facets[facet], v -> new BitSet()).set(docId);
+                }
+            }
+            for (int field = 0; field < terms.length; field++) {
+                int length = fieldLength(frequencies[field]);
+                if (length > 0) {
+                    totalFieldLength[field] += length;
+                    fieldDocCount[field]++;
+                }
+                Map<String, IntPostingList> postings = fieldPostings.get(field);
+                for (String term : terms[field]) {
+                    IntPostingList list = postings.get(term);
+                    if (list == null) {
+                        // The tree keeps the terms it has seen, so only a term new to the field can be new to it
+                        if (schema.isFullText(field)) {
+                            boolean live = isLiveFullTextTerm(term);
+                            if (!fuzzyTerms.add(term) && !live) {
+                                deadFuzzyTerms--;
+                            }
+                        }
+                        list = new IntPostingList();
+                        postings.put(term, list);
+                    }
+                    list.add(docId);
+                    allFieldPostings.computeIfAbsent(term, t -> {
+                        sortedTerms.add(t);
+                        return new IntPostingList();
+                    }).add(docId);
+                }
+                Map<Long, IntPostingList> trigrams = fieldTrigrams.get(field);
+                for (long trigram : trigramsOf(keys[field])) {
+                    trigrams.computeIfAbsent(trigram, t -> new IntPostingList()).add(docId);
+                    allFieldTrigrams.computeIfAbsent(trigram, t -> new IntPostingList()).add(docId);
+                }
+                if (schema.isPhonetic(field)) {
+                    for (String term : terms[field]) {
+                        String phonetic = PhoneticKey.ofTerm(term);
+                        if (!phonetic.isEmpty()) {
+                            phoneticPostings.get(field).computeIfAbsent(phonetic, k -> new IntPostingList()).add(docId);
+                        }
+                    }
+                }
+            }
+            compactFuzzyTerms();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove an item from the index. Unknown IDs are ignored.
+     *
+     * @param id The document ID of the item
+     */
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer docId = docIds.remove(id);
+            if (docId == null) {
+                return;
+            }
+            unindex(docId);
+            for (SortOrder order : sortOrders.values()) {
+                order.remove(docId);
+            }
+            items.set(docId, null);
+            indexedTerms.set(docId, null);
+            termFrequencies.set(docId, null);
+            indexedKeys.set(docId, null);
+            indexedFacets.set(docId, null);
+            liveDocs.clear(docId);
+            externalIds.set(docId, null);
+            freeDocIds.push(docId);
+            compactFuzzyTerms();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace the whole index contents.
+     *
+     * @param entries The items to index, keyed by document ID
+     */
+    public void rebuild(Map<String, T> entries) {
+        lock.writeLock().lock();
+        try {
+            clear();
+            entries.forEach(this::put);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            docIds.clear();
+            externalIds.clear();
+            items.clear();
+            indexedTerms.clear();
+            termFrequencies.clear();
+            Arrays.fill(totalFieldLength, 0);
+            Arrays.fill(fieldDocCount, 0);
+            indexedKeys.clear();
+            indexedFacets.clear();
+            liveDocs.clear();
+            facetBitmaps.forEach(Map::clear);
+            freeDocIds.clear();
+            fieldPostings.forEach(Map::clear);
+            allFieldPostings.clear();
+            sortedTerms.clear();
+            fieldTrigrams.forEach(Map::clear);
+            allFieldTrigrams.clear();
+            phoneticPostings.forEach(Map::clear);
+            fuzzyTerms.clear();
+            deadFuzzyTerms = 0;
+            fuzzyTermsComplete = true;
+            sortOrders.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return The number of indexed items
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param id The document ID of an item
+     * @return The indexed version of the item, or null if it is not indexed
+     */
+    public T get(String id) {
+        lock.readLock().lock();
+        try {
+            Integer docId = docIds.get(id);
+            return docId == null ? null : item(docId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param item An item, indexed or not
+     * @return The distinct terms the item would be indexed under, across all searchable fields
+     */
+    public Set<String> termsOf(T item) {
+        Set<String> terms = new HashSet<>();
+        for (int field = 0; field < schema.size(); field++) {
+            terms.addAll(fieldTerms(field, schema.keyOf(field, schema.valueOf(item, field))));
+        }
+        return terms;
+    }
+
+    /**
+     * @return The document IDs of all indexed items
+     */
+    public Set<String> ids() {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(docIds.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write the index contents in the layout read by {@link #readFrom}: the term dictionary and
+     * posting lists of each field, the trigram and phonetic posting lists, the facet bitmaps, the
+     * field length totals and then one record per document ID slot. Documents refer to their terms by position in
+     * the field's dictionary, so each term is stored once.
+     */
+    void writeTo(DataOutputStream out, Function<T, byte[]> encoder) throws IOException {
+        lock.readLock().lock();
+        try {
+            List<Map<String, Integer>> ordinals = new ArrayList<>(schema.size());
+            for (Map<String, IntPostingList> postings : fieldPostings) {
+                Map<String, Integer> fieldOrdinals = new HashMap<>(postings.size() * 2);
+                out.writeInt(postings.size());
+                for (Map.Entry<String, IntPostingList> posting : postings.entrySet()) {
+                    fieldOrdinals.put(posting.getKey(), fieldOrdinals.size());
+                    IndexSnapshot.writeString(out, posting.getKey());
+                    writeInts(out, posting.getValue().toArray());
+                }
+                ordinals.add(fieldOrdinals);
+            }
+            writePostings(out, allFieldPostings);
+            for (Map<Long, IntPostingList> trigrams : fieldTrigrams) {
+                writeTrigrams(out, trigrams);
+            }
+            writeTrigrams(out, allFieldTrigrams);
+            for (Map<String, IntPostingList> postings : phoneticPostings) {
+                writePostings(out, postings);
+            }
+            for (Map<String, BitSet> bitmaps : facetBitmaps) {
+                out.writeInt(bitmaps.size());
+                for (Map.Entry<String, BitSet> bitmap : bitmaps.entrySet()) {
+                    IndexSnapshot.writeString(out, bitmap.getKey());
+                    long[] words = bitmap.getValue().toLongArray();
+                    ByteBuffer bytes = ByteBuffer.allocate(words.length * Long.BYTES);
+                    bytes.asLongBuffer().put(words);
+                    out.writeInt(words.length);
+                    out.write(bytes.array());
+                }
+            }
+            for (int field = 0; field < schema.size(); field++) {
+                out.writeLong(totalFieldLength[field]);
+                out.writeInt(fieldDocCount[field]);
+            }
+
+            out.writeInt(items.size());
+            for (int docId = 0; docId < items.size(); docId++) {
+                Object item = items.get(docId);
+                out.writeBoolean(item != null);
+                if (item == null) {
+                    continue;
+                }
+                IndexSnapshot.writeString(out, externalIds.get(docId));
+                for (String key : indexedKeys.get(docId)) {
+                    IndexSnapshot.writeString(out, key);
+                }
+                for (String facet : indexedFacets.get(docId)) {
+                    IndexSnapshot.writeString(out, facet);
+                }
+                String[][] terms = indexedTerms.get(docId);
+                int[][] frequencies = termFrequencies.get(docId);
+                for (int field = 0; field < terms.length; field++) {
+                    out.writeInt(terms[field].length);
+                    for (int i = 0; i < terms[field].length; i++) {
+                        out.writeInt(ordinals.get(field).get(terms[field][i]));
+                        out.writeInt(frequencies[field][i]);
+                    }
+                }
+                ByteBuffer stored = item instanceof LazyItem<?> lazy ? lazy.encoded() : null;
+                if (stored != null) {
+                    byte[] body = new byte[stored.remaining()];
+                    stored.get(body);
+                    out.writeInt(body.length);
+                    out.write(body);
+                } else {
+                    byte[] body = encoder.apply(resolve(item));
+                    out.writeInt(body.length);
+                    out.write(body);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replace the index contents with those written by {@link #writeTo}. Posting lists and
+     * bitmaps are copied out of the buffer as they are; item bodies are left in it and decoded
+     * on first use, so the buffer must stay valid for the life of the index.
+     *
+     * @return The number of items restored
+     */
+    int readFrom(ByteBuffer buffer, Function<ByteBuffer, T> decoder) {
+        lock.writeLock().lock();
+        try {
+            clear();
+            List<String[]> dictionaries = new ArrayList<>(schema.size());
+            for (Map<String, IntPostingList> postings : fieldPostings) {
+                String[] dictionary = new String[buffer.getInt()];
+                for (int ordinal = 0; ordinal < dictionary.length; ordinal++) {
+                    dictionary[ordinal] = IndexSnapshot.readString(buffer);
+                    postings.put(dictionary[ordinal], IntPostingList.of(readInts(buffer)));
+                }
+                dictionaries.add(dictionary);
+            }
+            readPostings(buffer, allFieldPostings);
+            sortedTerms.addAll(allFieldPostings.keySet());
+            for (Map<Long, IntPostingList> trigrams : fieldTrigrams) {
+                readTrigrams(buffer, trigrams);
+            }
+            readTrigrams(buffer, allFieldTrigrams);
+            for (Map<String, IntPostingList> postings : phoneticPostings) {
+                readPostings(buffer, postings);
+            }
+            for (Map<String, BitSet> bitmaps : facetBitmaps) {
+                for (int count = buffer.getInt(); count > 0; count--) {
+                    String value = IndexSnapshot.readString(buffer);
+                    long[] words = new long[buffer.getInt()];
+                    buffer.asLongBuffer().get(words);
+                    buffer.position(buffer.position() + words.length * Long.BYTES);
+                    bitmaps.put(value, BitSet.valueOf(words));
+                }
+            }
+            for (int field = 0; field < schema.size(); field++) {
+                totalFieldLength[field] = buffer.getLong();
+                fieldDocCount[field] = buffer.getInt();
+            }
+
+            int slots = buffer.getInt();
+            for (int docId = 0; docId < slots; docId++) {
+                if (buffer.get() == 0) {
+                    externalIds.add(null);
+                    items.add(null);
+                    indexedTerms.add(null);
+                    termFrequencies.add(null);
+                    indexedKeys.add(null);
+                    indexedFacets.add(null);
+                    freeDocIds.push(docId);
+                    continue;
+                }
+                String id = IndexSnapshot.readString(buffer);
+                String[] keys = new String[schema.size()];
+                for (int field = 0; field < keys.length; field++) {
+                    keys[field] = IndexSnapshot.readString(buffer);
+                }
+                String[] facets = new String[facetBitmaps.size()];
+                for (int facet = 0; facet < facets.length; facet++) {
+                    facets[facet] = IndexSnapshot.readString(buffer);
+                }
+                String[][] terms = new String[keys.length][];
+                int[][] frequencies = new int[keys.length][];
+                for (int field = 0; field < keys.length; field++) {
+                    int count = buffer.getInt();
+                    terms[field] = new String[count];
+                    frequencies[field] = new int[count];
+                    for (int i = 0; i < count; i++) {
+                        terms[field][i] = dictionaries.get(field)[buffer.getInt()];
+                        frequencies[field][i] = buffer.getInt();
+                    }
+                }
+                int length = buffer.getInt();
+                ByteBuffer body = buffer.slice(buffer.position(), length);
+                buffer.position(buffer.position() + length);
+
+                docIds.put(id, docId);
+                externalIds.add(id);
+                items.add(new LazyItem<>(body, decoder));
+                indexedTerms.add(terms);
+                termFrequencies.add(frequencies);
+                indexedKeys.add(keys);
+                indexedFacets.add(facets);
+                liveDocs.set(docId);
+            }
+            fuzzyTermsComplete = fullTextFields.length == 0;
+            return docIds.size();
+        } catch (RuntimeException e) {
+            clear();
+            throw e;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(values.length * Integer.BYTES);
+        bytes.asIntBuffer().put(values);
+        out.writeInt(values.length);
+        out.write(bytes.array());
+    }
+
+    private static int[] readInts(ByteBuffer buffer) {
+        int[] values = new int[buffer.getInt()];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Integer.BYTES);
+        return values;
+    }
+
+    private static void writePostings(DataOutputStream out, Map<String, IntPostingList> postings) throws IOException {
+        out.writeInt(postings.size());
+        for (Map.Entry<String, IntPostingList> posting : postings.entrySet()) {
+            IndexSnapshot.writeString(out, posting.getKey());
+            writeInts(out, posting.getValue().toArray());
+        }
+    }
+
+    private static void readPostings(ByteBuffer buffer, Map<String, IntPostingList> postings) {
+        for (int count = buffer.getInt(); count > 0; count--) {
+            postings.put(IndexSnapshot.readString(buffer), IntPostingList.of(readInts(buffer)));
+        }
+    }
+
+    private static void writeTrigrams(DataOutputStream out, Map<Long, IntPostingList> trigrams) throws IOException {
+        out.writeInt(trigrams.size());
+        for (Map.Entry<Long, IntPostingList> posting : trigrams.entrySet()) {
+            out.writeLong(posting.getKey());
+            writeInts(out, posting.getValue().toArray());
+        }
+    }
+
+    private static void readTrigrams(ByteBuffer buffer, Map<Long, IntPostingList> trigrams) {
+        for (int count = buffer.getInt(); count > 0; count--) {
+            trigrams.put(buffer.getLong(), IntPostingList.of(readInts(buffer)));
+        }
+    }
+
+    /**
+     * @return A snapshot of all indexed items, in document ID order
+     */
+    public List<T> all() {
+        lock.readLock().lock();
+        try {
+            List<T> result = new ArrayList<>(docIds.size());
+            for (int docId = 0; docId < items.size(); docId++) {
+                if (items.get(docId) != null) {
+                    result.add(item(docId));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the items containing every term of a query.
+     *
+     * @param query The query text
+     * @param field A searchable field name, or null or "default" to match terms in any field
+     * @return The matching items in document ID order; empty if the field is not searchable
+     */
+    public List<T> search(String query, String field) {
+        lock.readLock().lock();
+        try {
+            int[] matches = matchDocIds(query, field);
+            List<T> result = new ArrayList<>(matches.length);
+            for (int docId : matches) {
+                result.add(item(docId));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find one page of the items containing every term of a query, ordered by a field and then by
+     * document ID, starting after the position of the last item of the previous page.
+     * The first call for a sort field builds its order, which later writes keep current.
+     *
+     * @param query The query text
+     * @param field A searchable field name, or null or "default" to match terms in any field
+     * @param sortField A field of the item class to order by, or null to order by document ID only
+     * @param descending Whether to list the items in reverse order
+     * @param afterValue The sort value of the last item of the previous page
+     * @param afterId The document ID of the last item of the previous page, or null for the first page
+     * @param limit The maximum number of items to return
+     * @return At most {@code limit} matches in order, and the number of matches
+     */
+    public SortedMatches<T> sorted(String query, String field, String sortField, boolean descending,
+                                   Object afterValue, String afterId, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be greater than 0");
+        }
+        String orderName = sortField == null ? "" : sortField.toLowerCase(Locale.ROOT);
+        ensureSortOrder(orderName);
+        lock.readLock().lock();
+        try {
+            int[] matches = matchDocIds(query, field);
+            List<T> result = new ArrayList<>(Math.min(limit, matches.length));
+            if (matches.length == 0) {
+                return new SortedMatches<>(result, 0);
+            }
+            SortOrder order = sortOrders.get(orderName);
+            SortEntry after = afterId == null ? null : new SortEntry(afterValue, afterId, -1);
+            // Walking the order visits about limit / (matches / items) documents; sorting the matches costs about one per match
+            if ((long) limit * docIds.size() / matches.length < matches.length) {
+                BitSet matching = toBitmap(matches);
+                NavigableSet<SortEntry> entries = descending ? order.entries.descendingSet() : order.entries;
+                if (after != null) {
+                    entries = entries.tailSet(after, false);
+                }
+                for (SortEntry entry : entries) {
+                    if (matching.get(entry.docId())) {
+                        result.add(item(entry.docId()));
+                        if (result.size() == limit) {
+                            break;
+                        }
+                    }
+                }
+            } else {
+                Comparator<SortEntry> position = descending ? SORT_POSITION.reversed() : SORT_POSITION;
+                List<SortEntry> remaining = new ArrayList<>(matches.length);
+                for (int docId : matches) {
+                    SortEntry entry = order.byDocId.get(docId);
+                    if (after == null || position.compare(entry, after) > 0) {
+                        remaining.add(entry);
+                    }
+                }
+                remaining.sort(position);
+                for (int i = 0; i < remaining.size() && i < limit; i++) {
+                    result.add(item(remaining.get(i).docId()));
+                }
+            }
+            return new SortedMatches<>(result, matches.length);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Build the order of a sort field over all documents if it does not exist yet.
+     */
+    private void ensureSortOrder(String orderName) {
+        lock.readLock().lock();
+        try {
+            if (sortOrders.containsKey(orderName)) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Function<T, Object> key = null;
+        if (!orderName.isEmpty()) {
+            key = schema.reader(orderName);
+            if (key == null) {
+                throw new IllegalArgumentException("Unknown sort field: " + orderName);
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            if (!sortOrders.containsKey(orderName)) {
+                SortOrder order = new SortOrder(key);
+                for (int docId = 0; docId < items.size(); docId++) {
+                    if (items.get(docId) != null) {
+                        order.add(docId, items.get(docId));
+                    }
+                }
+                sortOrders.put(orderName, order);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the items containing every term of a query that also have a field value containing
+     * a substring. The substring is checked against the stored keys of the term matches only.
+     *
+     * @param query The query text
+     * @param field A searchable field name, or null or "default" to match terms in any field
+     * @param substring Text that some searchable field must contain, or null for no such condition
+     * @return The matching items in document ID order
+     */
+    public List<T> search(String query, String field, String substring) {
+        if (substring == null || substring.isEmpty()) {
+            return search(query, field);
+        }
+        String textNeedle = SearchTokenizer.normalize(substring);
+        String digitNeedle = SearchTokenizer.digitsOnly(substring);
+        lock.readLock().lock();
+        try {
+            int[] matches = matchDocIds(query, field);
+            List<T> result = new ArrayList<>(matches.length);
+            for (int docId : matches) {
+                if (keysContain(indexedKeys.get(docId), -1, textNeedle, digitNeedle)) {
+                    result.add(item(docId));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the items with a field value containing a substring, ignoring case.
+     * A substring shorter than three characters matches the start of a word instead, since
+     * nearly every item contains one or two letters somewhere.
+     *
+     * @param substring The text to look for
+     * @param field A searchable field name, or null or "default" to look in any field
+     * @return The matching items in document ID order; empty if the field is not searchable or
+     *         the substring is blank
+     */
+    public List<T> containing(String substring, String field) {
+        lock.readLock().lock();
+        try {
+            int[] matches = matchContaining(substring, field);
+            List<T> result = new ArrayList<>(matches.length);
+            for (int docId : matches) {
+                result.add(item(docId));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the best-scoring items containing every term of a query, plus any item whose
+     * identifier field (such as ISBN) equals the query, which ranks first.
+     * Matches are scored with BM25 in each field, multiplied by the field's boost and summed.
+     *
+     * @param query The query text
+     * @param field A searchable field name, or null or "default" to match and score all fields
+     * @param limit The maximum number of items to return
+     * @return At most {@code limit} items, best first
+     */
+    public List<T> ranked(String query, String field, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be greater than 0");
+        }
+        int onlyField = -1;
+        if (field != null && !"default".equals(field)) {
+            onlyField = schema.indexOf(field);
+            if (onlyField < 0) {
+                return new ArrayList<>();
+            }
+        }
+        String[] textTerms = new LinkedHashSet<>(SearchTokenizer.tokenize(query)).toArray(new String[0]);
+        String digits = SearchTokenizer.digitsOnly(query);
+        lock.readLock().lock();
+        try {
+            int[] candidates = union(matchDocIds(query, field), exactIdentifierMatches(digits, onlyField));
+            TopKHeap best = new TopKHeap(Math.min(limit, candidates.length));
+            for (int docId : candidates) {
+                best.offer(docId, score(docId, onlyField, textTerms, digits));
+            }
+            int[] ranked = best.drainBestFirst();
+            List<T> result = new ArrayList<>(ranked.length);
+            for (int docId : ranked) {
+                result.add(item(docId));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the items matching a query and the selected facet values, and count the matches for
+     * every facet value. The counts for a facet ignore the selection on that same facet, so they
+     * show how many results each alternative value would give.
+     *
+     * @param query The query text, or null or blank to match every item
+     * @param field A searchable field name, or null or "default" to match terms in any field
+     * @param selected Per facet name, the values to keep; an item must have one of the selected
+     *                 values of every facet in the map. Values compare ignoring case.
+     * @param limit The maximum number of items to return, at least 1
+     * @return The first {@code limit} matches in document ID order, the number of matches and the
+     *         counts per facet value
+     * @throws IllegalArgumentException If the limit is less than 1
+     */
+    public FacetedResult<T> faceted(String query, String field, Map<String, ? extends Collection<String>> selected,
+            int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be greater than 0");
+        }
+        List<String> facetNames = schema.facetNames();
+        lock.readLock().lock();
+        try {
+            boolean matchAll = query == null || query.isBlank();
+            BitSet matches = matchAll ? (BitSet) liveDocs.clone() : toBitmap(matchDocIds(query, field));
+            BitSet[] selections = new BitSet[facetNames.size()];
+            boolean emptied = false;
+            if (selected != null) {
+                for (Map.Entry<String, ? extends Collection<String>> selection : selected.entrySet()) {
+                    int facet = facetNames.indexOf(selection.getKey());
+                    if (facet < 0) {
+                        // Nothing has a value for a facet the item type does not have
+                        matches.clear();
+                        emptied = true;
+                        continue;
+                    }
+                    BitSet union = new BitSet();
+                    for (String value : selection.getValue()) {
+                        BitSet bitmap = facetBitmap(facet, value);
+                        if (bitmap != null) {
+                            union.or(bitmap);
+                        }
+                    }
+                    selections[facet] = union;
+                }
+            }
+
+            BitSet result = (BitSet) matches.clone();
+            for (BitSet selection : selections) {
+                if (selection != null) {
+                    result.and(selection);
+                }
+            }
+            Map<String, Map<String, Integer>> facetCounts = new LinkedHashMap<>();
+            for (int facet = 0; facet < facetNames.size(); facet++) {
+                BitSet base = matches;
+                for (int other = 0; other < selections.length; other++) {
+                    if (other != facet && selections[other] != null) {
+                        if (base == matches) {
+                            base = (BitSet) matches.clone();
+                        }
+                        base.and(selections[other]);
+                    }
+                }
+                boolean everyItem = matchAll && !emptied && base == matches;
+                facetCounts.put(facetNames.get(facet), countValues(facet, base, everyItem));
+            }
+
+            int total = result.cardinality();
+            List<T> page = new ArrayList<>(Math.min(limit, total));
+            for (int docId = result.nextSetBit(0); docId >= 0 && page.size() < limit;
+                    docId = result.nextSetBit(docId + 1)) {
+                page.add(item(docId));
+            }
+            return new FacetedResult<>(page, total, facetCounts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Count the documents of a set for every value of a facet, most frequent value first.
+     * Must be called with the read lock held.
+     *
+     * @param everyItem True if the set is every live document, so each bitmap's size is its count
+     */
+    private Map<String, Integer> countValues(int facet, BitSet docs, boolean everyItem) {
+        Map<String, BitSet> bitmaps = facetBitmaps.get(facet);
+        Map<String, Integer> counts = new HashMap<>();
+        if (everyItem) {
+            bitmaps.forEach((value, bitmap) -> counts.put(value, bitmap.cardinality()));
+        } else if ((long) docs.cardinality() * PER_MATCH_COST_IN_WORDS < (long) bitmaps.size() * (items.size() / Long.SIZE + 1)) {
+            // Few matches: reading each match's value is cheaper than intersecting every bitmap
+            for (int docId = docs.nextSetBit(0); docId >= 0; docId = docs.nextSetBit(docId + 1)) {
+                String value = indexedFacets.get(docId)[facet];
+                if (value != null) {
+                    counts.merge(value, 1, Integer::sum);
+                }
+            }
+        } else {
+            BitSet scratch = new BitSet(items.size());
+            for (Map.Entry<String, BitSet> entry : bitmaps.entrySet()) {
+                scratch.clear();
+                scratch.or(entry.getValue());
+                scratch.and(docs);
+                int count = scratch.cardinality();
+                if (count > 0) {
+                    counts.put(entry.getKey(), count);
+                }
+            }
+        }
+        List<Map.Entry<String, Integer>> ordered = new ArrayList<>(counts.entrySet());
+        ordered.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        Map<String, Integer> sorted = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : ordered) {
+            sorted.put(entry.getKey(), entry.getValue());
+        }
+        return sorted;
+    }
+
+    /**
+     * The bitmap of a facet value, matching the value exactly or else ignoring case.
+     */
+    private BitSet facetBitmap(int facet, String value) {
+        Map<String, BitSet> bitmaps = facetBitmaps.get(facet);
+        BitSet bitmap = bitmaps.get(value);
+        if (bitmap != null || value == null) {
+            return bitmap;
+        }
+        for (Map.Entry<String, BitSet> entry : bitmaps.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(value.trim())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static BitSet toBitmap(int[] docIds) {
+        BitSet bitmap = new BitSet();
+        for (int docId : docIds) {
+            bitmap.set(docId);
+        }
+        return bitmap;
+    }
+
+    /**
+     * The documents whose identifier field key equals the digits of a query.
+     * Must be called with the read lock held.
+     */
+    private int[] exactIdentifierMatches(String digits, int onlyField) {
+        if (digits.isEmpty()) {
+            return NO_DOCS;
+        }
+        int[] matches = NO_DOCS;
+        for (int field = 0; field < schema.size(); field++) {
+            if ((onlyField < 0 || onlyField == field) && schema.isDigitsOnly(field)) {
+                IntPostingList list = fieldPostings.get(field).get(digits);
+                if (list != null) {
+                    matches = union(matches, list.toArray());
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Score one document against a query. Must be called with the read lock held.
+     */
+    private double score(int docId, int onlyField, String[] textTerms, String digits) {
+        String[][] terms = indexedTerms.get(docId);
+        int[][] frequencies = termFrequencies.get(docId);
+        String[] keys = indexedKeys.get(docId);
+        int documentCount = docIds.size();
+        double score = 0;
+        for (int field = 0; field < terms.length; field++) {
+            if (onlyField >= 0 && field != onlyField) {
+                continue;
+            }
+            if (schema.isDigitsOnly(field)) {
+                if (!digits.isEmpty() && digits.equals(keys[field])) {
+                    score += EXACT_IDENTIFIER_BOOST * schema.boost(field);
+                }
+                continue;
+            }
+            int length = fieldLength(frequencies[field]);
+            if (length == 0) {
+                continue;
+            }
+            double averageLength = (double) totalFieldLength[field] / fieldDocCount[field];
+            double lengthNorm = K1 * (1 - B + B * length / averageLength);
+            double fieldScore = 0;
+            for (String term : textTerms) {
+                int frequency = frequencyOf(terms[field], frequencies[field], term);
+                if (frequency == 0) {
+                    continue;
+                }
+                int documentFrequency = fieldPostings.get(field).get(term).size();
+                double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+                fieldScore += idf * frequency * (K1 + 1) / (frequency + lengthNorm);
+            }
+            score += schema.boost(field) * fieldScore;
+        }
+        return score;
+    }
+
+    private static int frequencyOf(String[] terms, int[] frequencies, String term) {
+        for (int i = 0; i < terms.length; i++) {
+            if (terms[i].equals(term)) {
+                return frequencies[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Find the items whose full-text fields contain, for every term of a query, a term within a
+     * number of edits of it, together with the items whose phonetic fields sound like the query.
+     *
+     * @param query The query text
+     * @param maxDistance The maximum Levenshtein distance per term
+     * @return The matching items in document ID order
+     */
+    public List<T> fuzzy(String query, int maxDistance) {
+        ensureFuzzyTerms();
+        lock.readLock().lock();
+        try {
+            BitSet matches = matchFuzzy(query, maxDistance, 0);
+            matches.or(matchPhonetic(query));
+            return itemsOf(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the items whose full-text fields contain, for every term of a query, a term at least
+     * as similar as a threshold, where similarity is {@code 1 - distance / longer length},
+     * together with the items whose phonetic fields sound like the query.
+     *
+     * @param query The query text
+     * @param minSimilarity The minimum similarity per term, between 0 and 1
+     * @return The matching items in document ID order
+     */
+    public List<T> similar(String query, double minSimilarity) {
+        if (minSimilarity <= 0) {
+            return all();
+        }
+        ensureFuzzyTerms();
+        lock.readLock().lock();
+        try {
+            BitSet matches = matchFuzzy(query, Integer.MAX_VALUE, minSimilarity);
+            matches.or(matchPhonetic(query));
+            return itemsOf(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the documents with a phonetic field in which every word of the query has a word that
+     * sounds like it. Must be called with the read lock held.
+     *
+     * @return The documents, empty if there are none
+     */
+    private BitSet matchPhonetic(String query) {
+        List<String> queryKeys = phoneticFields.length == 0 ? List.of() : PhoneticKey.ofText(query);
+        BitSet result = new BitSet();
+        if (queryKeys.isEmpty()) {
+            return result;
+        }
+        for (int field : phoneticFields) {
+            BitSet fieldMatches = null;
+            for (String key : queryKeys) {
+                IntPostingList list = phoneticPostings.get(field).get(key);
+                if (list == null) {
+                    fieldMatches = null;
+                    break;
+                }
+                BitSet keyMatches = new BitSet();
+                for (int i = 0; i < list.size(); i++) {
+                    keyMatches.set(list.get(i));
+                }
+                if (fieldMatches == null) {
+                    fieldMatches = keyMatches;
+                } else {
+                    fieldMatches.and(keyMatches);
+                }
+            }
+            if (fieldMatches != null) {
+                result.or(fieldMatches);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Fill the fuzzy term tree after a restore, which leaves it empty to keep restoring cheap.
+     */
+    private void ensureFuzzyTerms() {
+        if (fuzzyTermsComplete) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!fuzzyTermsComplete) {
+                fillFuzzyTerms();
+                fuzzyTermsComplete = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuild the fuzzy term tree from the live full-text terms once too much of it is dead terms,
+     * which every lookup would otherwise still compare against. Must be called with the write lock held.
+     */
+    private void compactFuzzyTerms() {
+        if (fuzzyTermsComplete && deadFuzzyTerms > fuzzyTerms.size() * MAX_DEAD_FUZZY_TERMS) {
+            fillFuzzyTerms();
+        }
+    }
+
+    private void fillFuzzyTerms() {
+        fuzzyTerms.clear();
+        for (int field : fullTextFields) {
+            fieldPostings.get(field).keySet().forEach(fuzzyTerms::add);
+        }
+        deadFuzzyTerms = 0;
+    }
+
+    private boolean isLiveFullTextTerm(String term) {
+        for (int field : fullTextFields) {
+            if (fieldPostings.get(field).containsKey(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The number of terms in the fuzzy term tree, including dead terms not yet compacted away
+     */
+    int fuzzyTermCount() {
+        lock.readLock().lock();
+        try {
+            return fuzzyTerms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the document IDs matching a fuzzy query. Must be called with the read lock held.
+     */
+    private BitSet matchFuzzy(String query, int maxDistance, double minSimilarity) {
+        Set<String> queryTerms = new LinkedHashSet<>(SearchTokenizer.tokenize(query));
+        BitSet result = null;
+        for (String queryTerm : queryTerms) {
+            // A term within d edits is at most d longer, so d <= (1 - s) * (length + d) bounds the search
+            int budget = minSimilarity > 0
+                    ? (int) ((1 - minSimilarity) * queryTerm.length() / minSimilarity)
+                    : maxDistance;
+            BitSet termMatches = new BitSet(items.size());
+            fuzzyTerms.search(queryTerm, budget, (term, distance) -> {
+                if (minSimilarity > 0
+                        && 1.0 - (double) distance / Math.max(term.length(), queryTerm.length()) < minSimilarity) {
+                    return;
+                }
+                // Terms stay in the tree after their last document is removed until it is compacted; those have no postings
+                for (int field : fullTextFields) {
+                    IntPostingList list = fieldPostings.get(field).get(term);
+                    if (list != null) {
+                        for (int i = 0; i < list.size(); i++) {
+                            termMatches.set(list.get(i));
+                        }
+                    }
+                }
+            });
+            if (result == null) {
+                result = termMatches;
+            } else {
+                result.and(termMatches);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result == null ? new BitSet() : result;
+    }
+
+    private List<T> itemsOf(BitSet docIds) {
+        List<T> result = new ArrayList<>(docIds.cardinality());
+        for (int docId = docIds.nextSetBit(0); docId >= 0; docId = docIds.nextSetBit(docId + 1)) {
+            result.add(item(docId));
+        }
+        return result;
+    }
+
+    /**
+     * Find the document IDs of the items containing every term of a query.
+     * Must be called with the read lock held.
+     */
+    private int[] matchDocIds(String query, String field) {
+        Map<String, IntPostingList> postings;
+        List<String> queryTerms;
+        if (field == null || "default".equals(field)) {
+            postings = allFieldPostings;
+            queryTerms = SearchTokenizer.tokenize(query);
+        } else {
+            int fieldIndex = schema.indexOf(field);
+            if (fieldIndex < 0) {
+                return NO_DOCS;
+            }
+            postings = fieldPostings.get(fieldIndex);
+            queryTerms = fieldTerms(fieldIndex, schema.keyOf(fieldIndex, query));
+        }
+        Set<String> terms = new LinkedHashSet<>(queryTerms);
+        if (terms.isEmpty()) {
+            return NO_DOCS;
+        }
+        List<IntPostingList> lists = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            IntPostingList list = postings.get(term);
+            if (list == null || list.isEmpty()) {
+                return NO_DOCS;
+            }
+            lists.add(list);
+        }
+        // Start from the rarest term so every later step only narrows a short candidate list
+        lists.sort(Comparator.comparingInt(IntPostingList::size));
+        int[] candidates = lists.get(0).toArray();
+        int count = candidates.length;
+        for (int i = 1; i < lists.size() && count > 0; i++) {
+            count = lists.get(i).retainIn(candidates, count);
+        }
+        return count == candidates.length ? candidates : Arrays.copyOf(candidates, count);
+    }
+
+    /**
+     * Find the document IDs of the items with a field value containing a substring.
+     * Must be called with the read lock held.
+     */
+    private int[] matchContaining(String substring, String field) {
+        int fieldIndex = -1;
+        if (field != null && !"default".equals(field)) {
+            fieldIndex = schema.indexOf(field);
+            if (fieldIndex < 0) {
+                return NO_DOCS;
+            }
+        }
+        String textNeedle = SearchTokenizer.normalize(substring);
+        String digitNeedle = SearchTokenizer.digitsOnly(substring);
+        if (textNeedle.isEmpty()) {
+            return NO_DOCS;
+        }
+        int[] candidates;
+        if (fieldIndex >= 0) {
+            String needle = schema.isDigitsOnly(fieldIndex) ? digitNeedle : textNeedle;
+            if (needle.isEmpty()) {
+                return NO_DOCS;
+            }
+            if (needle.length() < TRIGRAM) {
+                return termPrefixMatches(needle, fieldPostings.get(fieldIndex));
+            }
+            candidates = trigramCandidates(needle, fieldTrigrams.get(fieldIndex));
+        } else if (textNeedle.length() < TRIGRAM) {
+            int[] matches = termPrefixMatches(textNeedle, allFieldPostings);
+            // An identifier is one term of its digits, so "9-" must also be looked up as "9"
+            if (hasDigitsOnlyField() && !digitNeedle.isEmpty() && !digitNeedle.equals(textNeedle)) {
+                matches = union(matches, termPrefixMatches(digitNeedle, allFieldPostings));
+            }
+            return matches;
+        } else {
+            candidates = trigramCandidates(textNeedle, allFieldTrigrams);
+            // Identifier fields hold only digits, so "91-1" must also be looked up as "911"
+            if (hasDigitsOnlyField() && digitNeedle.length() >= TRIGRAM && !digitNeedle.equals(textNeedle)) {
+                candidates = union(candidates, trigramCandidates(digitNeedle, allFieldTrigrams));
+            }
+        }
+        // Sharing every trigram does not guarantee the trigrams are adjacent, so verify each candidate
+        int kept = 0;
+        for (int docId : candidates) {
+            if (keysContain(indexedKeys.get(docId), fieldIndex, textNeedle, digitNeedle)) {
+                candidates[kept++] = docId;
+            }
+        }
+        return kept == candidates.length ? candidates : Arrays.copyOf(candidates, kept);
+    }
+
+    /**
+     * The documents that have every trigram of a needle at least a trigram long.
+     */
+    private int[] trigramCandidates(String needle, Map<Long, IntPostingList> trigrams) {
+        long[] queryTrigrams = trigramsOf(needle);
+        List<IntPostingList> lists = new ArrayList<>(queryTrigrams.length);
+        for (long trigram : queryTrigrams) {
+            IntPostingList list = trigrams.get(trigram);
+            if (list == null || list.isEmpty()) {
+                return NO_DOCS;
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(IntPostingList::size));
+        int[] candidates = lists.get(0).toArray();
+        int count = candidates.length;
+        for (int i = 1; i < lists.size() && count > 0; i++) {
+            count = lists.get(i).retainIn(candidates, count);
+        }
+        return count == candidates.length ? candidates : Arrays.copyOf(candidates, count);
+    }
+
+    /**
+     * The documents with a term in {@code postings} that starts with a needle, found by walking the
+     * sorted term dictionary from the needle, so the cost depends on the number of such terms.
+     */
+    private int[] termPrefixMatches(String needle, Map<String, IntPostingList> postings) {
+        BitSet matches = new BitSet(items.size());
+        for (String term : sortedTerms.tailSet(needle, true)) {
+            if (!term.startsWith(needle)) {
+                break;
+            }
+            IntPostingList list = postings.get(term);
+            if (list != null) {
+                for (int i = 0; i < list.size(); i++) {
+                    matches.set(list.get(i));
+                }
+            }
+        }
+        return matches.stream().toArray();
+    }
+
+    private boolean keysContain(String[] keys, int fieldIndex, String textNeedle, String digitNeedle) {
+        if (fieldIndex >= 0) {
+            return keyContains(keys[fieldIndex], fieldIndex, textNeedle, digitNeedle);
+        }
+        for (int field = 0; field < keys.length; field++) {
+            if (keyContains(keys[field], field, textNeedle, digitNeedle)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean keyContains(String key, int field, String textNeedle, String digitNeedle) {
+        if (key == null) {
+            return false;
+        }
+        if (schema.isDigitsOnly(field)) {
+            return !digitNeedle.isEmpty() && key.contains(digitNeedle);
+        }
+        return key.contains(textNeedle);
+    }
+
+    private boolean hasDigitsOnlyField() {
+        for (int field = 0; field < schema.size(); field++) {
+            if (schema.isDigitsOnly(field)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] merged = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                merged[count++] = a[i++];
+            } else if (a[i] > b[j]) {
+                merged[count++] = b[j++];
+            } else {
+                merged[count++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            merged[count++] = a[i++];
+        }
+        while (j < b.length) {
+            merged[count++] = b[j++];
+        }
+        return Arrays.copyOf(merged, count);
+    }
+
+    private T item(int docId) {
+        return resolve(items.get(docId));
+    }
+
+    /**
+     * A document's place in a sort order: its sort value when it was indexed, then its document ID.
+     */
+    private record SortEntry(Object value, String id, int docId) {
+    }
+
+    private static final Comparator<SortEntry> SORT_POSITION = (a, b) -> {
+        int result = PageCursor.compareValues(a.value(), b.value());
+        return result != 0 ? result : a.id().compareTo(b.id());
+    };
+
+    /**
+     * All documents ordered by one sort field. Must be read and written with the index lock held.
+     */
+    private final class SortOrder {
+        private final Function<T, Object> key;
+        private final TreeSet<SortEntry> entries = new TreeSet<>(SORT_POSITION);
+        private final Map<Integer, SortEntry> byDocId = new HashMap<>();
+
+        private SortOrder(Function<T, Object> key) {
+            this.key = key;
+        }
+
+        private void add(int docId, Object item) {
+            SortEntry entry = new SortEntry(key == null ? null : key.apply(resolve(item)), externalIds.get(docId), docId);
+            entries.add(entry);
+            byDocId.put(docId, entry);
+        }
+
+        private void remove(int docId) {
+            SortEntry entry = byDocId.remove(docId);
+            if (entry != null) {
+                entries.remove(entry);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T resolve(Object item) {
+        return item instanceof LazyItem<?> lazy ? (T) lazy.get() : (T) item;
+    }
+
+    /**
+     * An item restored from a snapshot, decoded once on first use.
+     */
+    private static final class LazyItem<T> {
+        private ByteBuffer encoded;
+        private Function<ByteBuffer, T> decoder;
+        private volatile T item;
+
+        private LazyItem(ByteBuffer encoded, Function<ByteBuffer, T> decoder) {
+            this.encoded = encoded;
+            this.decoder = decoder;
+        }
+
+        private T get() {
+            T decoded = item;
+            if (decoded == null) {
+                synchronized (this) {
+                    decoded = item;
+                    if (decoded == null) {
+                        decoded = decoder.apply(encoded.duplicate());
+                        item = decoded;
+                        encoded = null;
+                        decoder = null;
+                    }
+                }
+            }
+            return decoded;
+        }
+
+        /**
+         * @return The stored bytes if the item has not been decoded, so writing it again needs no re-encoding
+         */
+        private synchronized ByteBuffer encoded() {
+            return encoded == null ? null : encoded.duplicate();
+        }
+    }
+
+    private int allocateDocId(String id) {
+        int docId;
+        if (!freeDocIds.isEmpty()) {
+            docId = freeDocIds.pop();
+            externalIds.set(docId, id);
+        } else {
+            docId = items.size();
+            externalIds.add(id);
+            items.add(null);
+            indexedTerms.add(null);
+            termFrequencies.add(null);
+            indexedKeys.add(null);
+            indexedFacets.add(null);
+        }
+        docIds.put(id, docId);
+        return docId;
+    }
+
+    private void unindex(int docId) {
+        String[][] terms = indexedTerms.get(docId);
+        int[][] frequencies = termFrequencies.get(docId);
+        String[] values = indexedKeys.get(docId);
+        if (terms == null) {
+            return;
+        }
+        String[] facets = indexedFacets.get(docId);
+        for (int facet = 0; facet < facets.length; facet++) {
+            BitSet bitmap = facets[facet] == null ? null : facetBitmaps.get(facet).get(facets[facet]);
+            if (bitmap != null) {
+                bitmap.clear(docId);
+                if (bitmap.isEmpty()) {
+                    facetBitmaps.get(facet).remove(facets[facet]);
+                }
+            }
+        }
+        for (int field = 0; field < terms.length; field++) {
+            int length = fieldLength(frequencies[field]);
+            if (length > 0) {
+                totalFieldLength[field] -= length;
+                fieldDocCount[field]--;
+            }
+            Map<String, IntPostingList> postings = fieldPostings.get(field);
+            for (String term : terms[field]) {
+                removePosting(postings, term, docId);
+                removePosting(allFieldPostings, term, docId);
+                if (!allFieldPostings.containsKey(term)) {
+                    sortedTerms.remove(term);
+                }
+                if (schema.isFullText(field) && !postings.containsKey(term) && !isLiveFullTextTerm(term)) {
+                    deadFuzzyTerms++;
+                }
+            }
+            Map<Long, IntPostingList> trigrams = fieldTrigrams.get(field);
+            for (long trigram : trigramsOf(values[field])) {
+                removePosting(trigrams, trigram, docId);
+                removePosting(allFieldTrigrams, trigram, docId);
+            }
+            if (schema.isPhonetic(field)) {
+                for (String term : terms[field]) {
+                    removePosting(phoneticPostings.get(field), PhoneticKey.ofTerm(term), docId);
+                }
+            }
+        }
+    }
+
+    private static <K> void removePosting(Map<K, IntPostingList> postings, K term, int docId) {
+        IntPostingList list = postings.get(term);
+        if (list == null) {
+            return;
+        }
+        list.remove(docId);
+        if (list.isEmpty()) {
+            postings.remove(term);
+        }
+    }
+
+    private String[] extractKeys(T item) {
+        String[] keys = new String[schema.size()];
+        for (int field = 0; field < keys.length; field++) {
+            String value = schema.valueOf(item, field);
+            keys[field] = value == null ? null : schema.keyOf(field, value);
+        }
+        return keys;
+    }
+
+    private String[] extractFacets(T item) {
+        String[] facets = new String[schema.facetNames().size()];
+        for (int facet = 0; facet < facets.length; facet++) {
+            facets[facet] = schema.facetValueOf(item, facet);
+        }
+        return facets;
+    }
+
+    /**
+     * Split field keys into their distinct terms, filling in how often each term occurs.
+     */
+    private String[][] termsOf(String[] keys, int[][] frequencies) {
+        String[][] terms = new String[keys.length][];
+        for (int field = 0; field < keys.length; field++) {
+            if (keys[field] == null) {
+                terms[field] = new String[0];
+                frequencies[field] = new int[0];
+                continue;
+            }
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            for (String term : fieldTerms(field, keys[field])) {
+                counts.merge(term, 1, Integer::sum);
+            }
+            terms[field] = counts.keySet().toArray(new String[0]);
+            frequencies[field] = counts.values().stream().mapToInt(Integer::intValue).toArray();
+        }
+        return terms;
+    }
+
+    private static int fieldLength(int[] frequencies) {
+        int length = 0;
+        for (int frequency : frequencies) {
+            length += frequency;
+        }
+        return length;
+    }
+
+    /**
+     * Split a field key into terms; an identifier key is a single term.
+     */
+    private List<String> fieldTerms(int field, String key) {
+        if (schema.isDigitsOnly(field)) {
+            return key.isEmpty() ? List.of() : List.of(key);
+        }
+        return SearchTokenizer.splitKey(key);
+    }
+
+    /**
+     * The distinct trigrams of a key, each packed into a long as three 16-bit chars.
+     */
+    private static long[] trigramsOf(String value) {
+        if (value == null || value.length() < TRIGRAM) {
+            return new long[0];
+        }
+        long[] trigrams = new long[value.length() - TRIGRAM + 1];
+        for (int i = 0; i < trigrams.length; i++) {
+            trigrams[i] = ((long) value.charAt(i) << 32) | ((long) value.charAt(i + 1) << 16) | value.charAt(i + 2);
+        }
+        return Arrays.stream(trigrams).distinct().toArray();
+    }
+}
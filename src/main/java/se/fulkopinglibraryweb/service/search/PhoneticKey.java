@@ -0,0 +1,178 @@
+package se.fulkopinglibraryweb.service.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reduces names to a phonetic key tuned for Swedish and other Nordic spellings, so that
+ * spellings which sound alike, such as "Lindgr\u00e9n" and "Lindgren", "Strindbergh" and
+ * "Strindberg", "Carlsson" and "Karlson", or "Sj\u00f6berg" and "Schoberg", share a key.
+ * Each word is keyed separately, from its search key (see {@link SearchTokenizer}):
+ * <ul>
+ *   <li>the sje sound (sj, sch, skj, stj, and sk before a front vowel) and the tje sound
+ *       (tj, kj, and k before a front vowel) each become one symbol, and initial hj, dj, gj and
+ *       lj become j</li>
+ *   <li>c becomes s before a front vowel and k otherwise; ck, ch and q become k, qu kv, ph f,
+ *       w becomes v, z becomes s, x becomes ks and th and dt become t</li>
+ *   <li>h is kept only at the start of a word before a vowel, and j only at the start of a word</li>
+ *   <li>vowels are dropped, except that a word starting with a vowel keeps one vowel symbol</li>
+ *   <li>runs of the same symbol collapse to one, so -sson, -son and -sen agree</li>
+ * </ul>
+ */
+public final class PhoneticKey {
+    private static final char VOWEL = 'a';
+    private static final char SJE = '#';
+    private static final char TJE = '%';
+
+    private PhoneticKey() {
+    }
+
+    /**
+     * Key every word of a text.
+     *
+     * @param text A name or query, in any form
+     * @return The key of each word, in order; words that reduce to nothing are left out
+     */
+    public static List<String> ofText(String text) {
+        List<String> keys = new ArrayList<>();
+        for (String term : SearchTokenizer.tokenize(text)) {
+            String key = ofTerm(term);
+            if (!key.isEmpty()) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Key one word.
+     *
+     * @param term A single term produced by {@link SearchTokenizer}
+     * @return The phonetic key, or an empty string if the term has no letters
+     */
+    public static String ofTerm(String term) {
+        StringBuilder key = new StringBuilder(term.length());
+        int length = term.length();
+        int i = 0;
+        if (length > 1 && term.charAt(1) == 'j' && "hdgl".indexOf(term.charAt(0)) >= 0) {
+            i = 1;
+        }
+        for (; i < length; i++) {
+            char c = term.charAt(i);
+            char next = i + 1 < length ? term.charAt(i + 1) : 0;
+            char afterNext = i + 2 < length ? term.charAt(i + 2) : 0;
+            switch (c) {
+                case 's':
+                    if (next == 'j') {
+                        append(key, SJE);
+                        i++;
+                    } else if (next == 'c' && afterNext == 'h') {
+                        append(key, SJE);
+                        i += 2;
+                    } else if ((next == 'k' || next == 't') && afterNext == 'j') {
+                        append(key, SJE);
+                        i += 2;
+                    } else if (next == 'k' && isFrontVowel(afterNext)) {
+                        append(key, SJE);
+                        i++;
+                    } else {
+                        append(key, 's');
+                    }
+                    break;
+                case 't':
+                    if (next == 'j') {
+                        append(key, TJE);
+                        i++;
+                    } else {
+                        append(key, 't');
+                        if (next == 'h') {
+                            i++;
+                        }
+                    }
+                    break;
+                case 'k':
+                    if (next == 'j') {
+                        append(key, TJE);
+                        i++;
+                    } else if (isFrontVowel(next)) {
+                        append(key, TJE);
+                    } else {
+                        append(key, 'k');
+                    }
+                    break;
+                case 'c':
+                    if (next == 'k' || next == 'h') {
+                        append(key, 'k');
+                        i++;
+                    } else {
+                        append(key, isFrontVowel(next) ? 's' : 'k');
+                    }
+                    break;
+                case 'd':
+                    append(key, next == 't' ? 't' : 'd');
+                    if (next == 't') {
+                        i++;
+                    }
+                    break;
+                case 'p':
+                    if (next == 'h') {
+                        append(key, 'f');
+                        i++;
+                    } else {
+                        append(key, 'p');
+                    }
+                    break;
+                case 'h':
+                    if (key.length() == 0 && isVowel(next)) {
+                        append(key, 'h');
+                    }
+                    break;
+                case 'j':
+                    if (key.length() == 0) {
+                        append(key, 'j');
+                    }
+                    break;
+                case 'q':
+                    append(key, 'k');
+                    if (next == 'u') {
+                        append(key, 'v');
+                        i++;
+                    }
+                    break;
+                case 'w':
+                    append(key, 'v');
+                    break;
+                case 'z':
+                    append(key, 's');
+                    break;
+                case 'x':
+                    append(key, 'k');
+                    append(key, 's');
+                    break;
+                default:
+                    if (isVowel(c)) {
+                        if (key.length() == 0) {
+                            append(key, VOWEL);
+                        }
+                    } else if (Character.isLetterOrDigit(c)) {
+                        append(key, c);
+                    }
+            }
+        }
+        return key.toString();
+    }
+
+    private static void append(StringBuilder key, char symbol) {
+        if (key.length() == 0 || key.charAt(key.length() - 1) != symbol) {
+            key.append(symbol);
+        }
+    }
+
+    private static boolean isVowel(char c) {
+        return "aeiouy\u00e5\u00e4\u00f6".indexOf(c) >= 0;
+    }
+
+    private static boolean isFrontVowel(char c) {
+        return "eiy\u00e4\u00f6".indexOf(c) >= 0;
+    }
+}
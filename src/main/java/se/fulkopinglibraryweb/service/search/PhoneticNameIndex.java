@@ -0,0 +1,119 @@
+package se.fulkopinglibraryweb.service.search;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A secondary index from the {@link PhoneticKey} of each word of a name field to the spellings
+ * of that field stored in a collection, so a misspelled name resolves to the stored spellings
+ * that sound like it with one hash lookup per word instead of an edit-distance scan.
+ * Items are tracked by ID, so saving an item replaces its previous spelling and a spelling
+ * disappears once no item carries it.
+ */
+public class PhoneticNameIndex {
+    private final Map<String, String> spellingById = new HashMap<>();
+    // Phonetic word key to the spellings containing that word, with the number of items carrying each
+    private final Map<String, Map<String, Integer>> spellingsByKey = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Record an item's spelling, replacing the one previously recorded for it.
+     *
+     * @param id The item ID
+     * @param spelling The name as stored, or null or blank if the item has none
+     */
+    public void put(String id, String spelling) {
+        lock.writeLock().lock();
+        try {
+            String previous = spelling == null || spelling.isBlank()
+                    ? spellingById.remove(id)
+                    : spellingById.put(id, spelling);
+            if (previous != null) {
+                for (String key : PhoneticKey.ofText(previous)) {
+                    Map<String, Integer> spellings = spellingsByKey.get(key);
+                    if (spellings != null && spellings.merge(previous, -1, Integer::sum) <= 0) {
+                        spellings.remove(previous);
+                        if (spellings.isEmpty()) {
+                            spellingsByKey.remove(key);
+                        }
+                    }
+                }
+            }
+            if (spelling != null && !spelling.isBlank()) {
+                for (String key : PhoneticKey.ofText(spelling)) {
+                    spellingsByKey.computeIfAbsent(key, k -> new HashMap<>()).merge(spelling, 1, Integer::sum);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forget an item. Unknown IDs are ignored.
+     *
+     * @param id The item ID
+     */
+    public void remove(String id) {
+        put(id, null);
+    }
+
+    /**
+     * Find the stored spellings that sound like a name: every word of the name must sound like
+     * a word of the spelling, so "Lindgr\u00e9n" finds "Astrid Lindgren".
+     *
+     * @param name The name as typed
+     * @return The matching spellings, empty if none
+     */
+    public Set<String> lookup(String name) {
+        List<String> keys = PhoneticKey.ofText(name);
+        if (keys.isEmpty()) {
+            return new HashSet<>();
+        }
+        lock.readLock().lock();
+        try {
+            Set<String> matches = null;
+            for (String key : keys) {
+                Map<String, Integer> spellings = spellingsByKey.get(key);
+                if (spellings == null) {
+                    return new HashSet<>();
+                }
+                if (matches == null) {
+                    matches = new HashSet<>(spellings.keySet());
+                } else {
+                    matches.retainAll(spellings.keySet());
+                }
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The number of items with a spelling
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return spellingById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            spellingById.clear();
+            spellingsByKey.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package se.fulkopinglibraryweb.service.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Normalizes field values and queries into search keys and splits them into index terms.
+ * Keys are case-folded and whitespace-collapsed. Diacritics are removed except on the Swedish
+ * letters \u00e5, \u00e4 and \u00f6, which are distinct letters rather than accented vowels;
+ * the Danish and Norwegian \u00e6 and \u00f8 fold to \u00e4 and \u00f6. Characters from
+ * U+2000 up are only lower-cased.
+ * Terms are maximal runs of letters and digits in a key, so punctuation and whitespace separate them.
+ */
+public final class SearchTokenizer {
+    // Characters below this, which covers the Latin, Greek and Cyrillic blocks, are folded by table lookup;
+    // the table is computed once so keys are built without decomposing characters one by one
+    private static final int FOLDED_RANGE = 0x2000;
+    private static final char[] FOLDED = foldTable();
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * Normalize a whole value into its search key.
+     *
+     * @param text The text to normalize
+     * @return The folded text with runs of whitespace collapsed to one space and no leading or
+     *         trailing whitespace, or an empty string for null
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String composed = Normalizer.isNormalized(text, Normalizer.Form.NFC)
+                ? text
+                : Normalizer.normalize(text, Normalizer.Form.NFC);
+        StringBuilder key = new StringBuilder(composed.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < composed.length(); i++) {
+            char c = composed.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = key.length() > 0;
+                continue;
+            }
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (pendingSpace) {
+                key.append(' ');
+                pendingSpace = false;
+            }
+            key.append(fold(c));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Reduce an identifier such as an ISBN or ISSN to its digits.
+     *
+     * @param text The identifier
+     * @return The digits of the identifier in order, or an empty string for null
+     */
+    public static String digitsOnly(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder key = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                key.append(c);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Split text into index terms.
+     *
+     * @param text The text to split
+     * @return The terms in order of appearance, possibly with duplicates
+     */
+    public static List<String> tokenize(String text) {
+        return splitKey(normalize(text));
+    }
+
+    /**
+     * Split a key that is already normalized into index terms.
+     *
+     * @param normalized A key returned by {@link #normalize(String)}
+     * @return The terms in order of appearance, possibly with duplicates
+     */
+    static List<String> splitKey(String normalized) {
+        List<String> terms = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i < normalized.length(); i++) {
+            if (Character.isLetterOrDigit(normalized.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                terms.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            terms.add(normalized.substring(start));
+        }
+        return terms;
+    }
+
+    private static char fold(char c) {
+        return c < FOLDED_RANGE ? FOLDED[c] : Character.toLowerCase(c);
+    }
+
+    private static char[] foldTable() {
+        char[] table = new char[FOLDED_RANGE];
+        for (int c = 0; c < FOLDED_RANGE; c++) {
+            table[c] = computeFold((char) c);
+        }
+        return table;
+    }
+
+    private static char computeFold(char c) {
+        if (c < 0x80) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        char lower = Character.toLowerCase(c);
+        switch (lower) {
+            case '\u00e5':
+            case '\u00e4':
+            case '\u00f6':
+                return lower;
+            case '\u00e6':
+                return '\u00e4';
+            case '\u00f8':
+                return '\u00f6';
+            default:
+                // Keep the base letter of any other accented character, e.g. \u00e9 becomes e
+                return Normalizer.normalize(String.valueOf(lower), Normalizer.Form.NFD).charAt(0);
+        }
+    }
+}
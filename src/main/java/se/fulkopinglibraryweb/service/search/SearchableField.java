@@ -0,0 +1,19 @@
+package se.fulkopinglibraryweb.service.search;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Marks a field of an item class that searches match against, see {@link SearchableSchema}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SearchableField {
+    String name() default "";
+    boolean fullText() default false;
+    // Identifiers such as ISBN and ISSN are matched on their digits only
+    boolean digitsOnly() default false;
+    // Weight of the field when ranking search results
+    double boost() default 1.0;
+    // Names such as authors, which typo-tolerant searches match by sound before by edit distance
+    boolean phonetic() default false;
+}
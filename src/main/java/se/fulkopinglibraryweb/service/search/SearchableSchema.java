@@ -0,0 +1,321 @@
+package se.fulkopinglibraryweb.service.search;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * The {@link SearchableField} fields of an item class and its superclasses, resolved once into
+ * method handle accessors and shared by every index and filter for that class.
+ * Every instance field also gets a compiled equality filter, looked up by name ignoring case.
+ * {@link FacetField} fields are resolved the same way, for facet counts.
+ * A subclass field shadows a superclass field of the same name.
+ *
+ * @param <T> The item type
+ */
+public final class SearchableSchema<T> {
+    private static final Map<Class<?>, SearchableSchema<?>> SCHEMAS = new ConcurrentHashMap<>();
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final Class<T> itemClass;
+    private final List<String> names;
+    private final boolean[] fullText;
+    private final boolean[] digitsOnly;
+    private final boolean[] phonetic;
+    private final double[] boosts;
+    private final MethodHandle[] getters;
+    private final List<String> facetNames;
+    private final MethodHandle[] facetGetters;
+    private final Map<String, FilterField> filterFields;
+
+    private SearchableSchema(Class<T> itemClass) {
+        this.itemClass = itemClass;
+        List<String> fieldNames = new ArrayList<>();
+        List<Boolean> fullTextFlags = new ArrayList<>();
+        List<Boolean> digitsOnlyFlags = new ArrayList<>();
+        List<Boolean> phoneticFlags = new ArrayList<>();
+        List<Double> fieldBoosts = new ArrayList<>();
+        List<MethodHandle> fieldGetters = new ArrayList<>();
+        Set<String> mapped = new HashSet<>();
+        List<String> facets = new ArrayList<>();
+        List<MethodHandle> facetFieldGetters = new ArrayList<>();
+        Map<String, FilterField> filters = new HashMap<>();
+        try {
+            for (Class<?> type = itemClass; type != null && type != Object.class; type = type.getSuperclass()) {
+                MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+                for (Field field : type.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                        continue;
+                    }
+                    String filterName = field.getName().toLowerCase(Locale.ROOT);
+                    if (!filters.containsKey(filterName)) {
+                        filters.put(filterName, new FilterField(field.getName(), field.getType(),
+                                lookup.unreflectGetter(field).asType(GETTER_TYPE)));
+                    }
+                    FacetField facet = field.getAnnotation(FacetField.class);
+                    if (facet != null) {
+                        String facetName = facet.name().isEmpty() ? field.getName() : facet.name();
+                        if (!facets.contains(facetName)) {
+                            facets.add(facetName);
+                            facetFieldGetters.add(lookup.unreflectGetter(field).asType(GETTER_TYPE));
+                        }
+                    }
+                    SearchableField annotation = field.getAnnotation(SearchableField.class);
+                    if (annotation == null) {
+                        continue;
+                    }
+                    String name = annotation.name().isEmpty() ? field.getName() : annotation.name();
+                    if (!mapped.add(name)) {
+                        continue;
+                    }
+                    fieldNames.add(name);
+                    fullTextFlags.add(annotation.fullText());
+                    digitsOnlyFlags.add(annotation.digitsOnly());
+                    phoneticFlags.add(annotation.phonetic());
+                    fieldBoosts.add(annotation.boost());
+                    fieldGetters.add(lookup.unreflectGetter(field).asType(GETTER_TYPE));
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot build search schema for " + itemClass.getName(), e);
+        }
+        this.names = Collections.unmodifiableList(fieldNames);
+        this.fullText = new boolean[fullTextFlags.size()];
+        this.digitsOnly = new boolean[digitsOnlyFlags.size()];
+        this.phonetic = new boolean[phoneticFlags.size()];
+        this.boosts = new double[fieldBoosts.size()];
+        for (int i = 0; i < fullText.length; i++) {
+            fullText[i] = fullTextFlags.get(i);
+            digitsOnly[i] = digitsOnlyFlags.get(i);
+            phonetic[i] = phoneticFlags.get(i);
+            boosts[i] = fieldBoosts.get(i);
+        }
+        this.getters = fieldGetters.toArray(new MethodHandle[0]);
+        this.facetNames = Collections.unmodifiableList(facets);
+        this.facetGetters = facetFieldGetters.toArray(new MethodHandle[0]);
+        this.filterFields = filters;
+    }
+
+    /**
+     * Get the schema for an item class, building it on first use.
+     *
+     * @param itemClass The item class
+     * @return The shared schema for the class
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> SearchableSchema<T> forClass(Class<T> itemClass) {
+        return (SearchableSchema<T>) SCHEMAS.computeIfAbsent(itemClass, SearchableSchema::new);
+    }
+
+    public Class<T> getItemClass() {
+        return itemClass;
+    }
+
+    /**
+     * @return The searchable field names, in declaration order with subclass fields first
+     */
+    public List<String> fieldNames() {
+        return names;
+    }
+
+    public int size() {
+        return getters.length;
+    }
+
+    /**
+     * @param name A field name
+     * @return The position of the field in this schema, or -1 if it is not searchable
+     */
+    public int indexOf(String name) {
+        return names.indexOf(name);
+    }
+
+    public String name(int field) {
+        return names.get(field);
+    }
+
+    public boolean isFullText(int field) {
+        return fullText[field];
+    }
+
+    public boolean isDigitsOnly(int field) {
+        return digitsOnly[field];
+    }
+
+    /**
+     * @return True if typo-tolerant searches match the field by {@link PhoneticKey} first
+     */
+    public boolean isPhonetic(int field) {
+        return phonetic[field];
+    }
+
+    /**
+     * @return The weight of the field in ranked search
+     */
+    public double boost(int field) {
+        return boosts[field];
+    }
+
+    /**
+     * Normalize text the way a field's search key is normalized.
+     *
+     * @param field The position of the field in this schema
+     * @param text A field value or query
+     * @return The digits of the text for identifier fields, otherwise its folded text
+     */
+    public String keyOf(int field, String text) {
+        return digitsOnly[field] ? SearchTokenizer.digitsOnly(text) : SearchTokenizer.normalize(text);
+    }
+
+    /**
+     * Read a searchable field as text.
+     *
+     * @param item The item to read
+     * @param field The position of the field in this schema
+     * @return The field value as a string, or null if it is unset
+     */
+    public String valueOf(T item, int field) {
+        try {
+            Object value = getters[field].invokeExact((Object) item);
+            return value == null ? null : value.toString();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to read searchable field " + names.get(field), e);
+        }
+    }
+
+    /**
+     * @return The facet names, in declaration order with subclass fields first
+     */
+    public List<String> facetNames() {
+        return facetNames;
+    }
+
+    /**
+     * Read a facet field as text.
+     *
+     * @param item The item to read
+     * @param facet The position of the facet in {@link #facetNames()}
+     * @return The facet value as a string, or null if it is unset
+     */
+    public String facetValueOf(T item, int facet) {
+        try {
+            Object value = facetGetters[facet].invokeExact((Object) item);
+            return value == null ? null : value.toString();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to read facet field " + facetNames.get(facet), e);
+        }
+    }
+
+    /**
+     * Get a compiled reader for any field of the item class, e.g. to sort by it.
+     *
+     * @param field The field name, ignoring case
+     * @return A function reading the field, or null if the field does not exist
+     */
+    public Function<T, Object> reader(String field) {
+        FilterField filterField = field == null ? null : filterFields.get(field.toLowerCase(Locale.ROOT));
+        return filterField == null ? null : filterField::read;
+    }
+
+    /**
+     * Compile an equality filter on any field of the item class. A string value is converted to
+     * the field type first, so "2001" matches an int field and "true" a boolean one; string
+     * fields compare ignoring case.
+     *
+     * @param field The field name, ignoring case
+     * @param value The value to compare with
+     * @return A predicate on items; it matches nothing if the field does not exist or the value
+     *         cannot be converted
+     */
+    public Predicate<T> filter(String field, Object value) {
+        FilterField filterField = field == null ? null : filterFields.get(field.toLowerCase(Locale.ROOT));
+        if (filterField == null) {
+            return item -> false;
+        }
+        return filterField.equalTo(value);
+    }
+
+    private static final class FilterField {
+        private final String name;
+        private final Class<?> type;
+        private final MethodHandle getter;
+        private final Function<String, Object> parser;
+
+        private FilterField(String name, Class<?> type, MethodHandle getter) {
+            this.name = name;
+            this.type = type;
+            this.getter = getter;
+            this.parser = parserFor(type);
+        }
+
+        private <T> Predicate<T> equalTo(Object value) {
+            if (value == null) {
+                return item -> read(item) == null;
+            }
+            if (type == String.class) {
+                String expected = value.toString();
+                return item -> expected.equalsIgnoreCase((String) read(item));
+            }
+            Object expected = value instanceof String text ? parser.apply(text) : value;
+            if (expected == null) {
+                return item -> false;
+            }
+            return item -> expected.equals(read(item));
+        }
+
+        private Object read(Object item) {
+            try {
+                return getter.invokeExact(item);
+            } catch (Throwable e) {
+                throw new IllegalStateException("Failed to read filter field " + name, e);
+            }
+        }
+
+        private static Function<String, Object> parserFor(Class<?> type) {
+            if (type == int.class || type == Integer.class) {
+                return text -> parseOrNull(text, Integer::valueOf);
+            }
+            if (type == long.class || type == Long.class) {
+                return text -> parseOrNull(text, Long::valueOf);
+            }
+            if (type == double.class || type == Double.class) {
+                return text -> parseOrNull(text, Double::valueOf);
+            }
+            if (type == boolean.class || type == Boolean.class) {
+                return text -> Boolean.valueOf(text.trim());
+            }
+            if (type.isEnum()) {
+                return text -> {
+                    for (Object constant : type.getEnumConstants()) {
+                        if (((Enum<?>) constant).name().equalsIgnoreCase(text.trim())) {
+                            return constant;
+                        }
+                    }
+                    return null;
+                };
+            }
+            return text -> null;
+        }
+
+        private static Object parseOrNull(String text, Function<String, Object> parser) {
+            try {
+                return parser.apply(text.trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
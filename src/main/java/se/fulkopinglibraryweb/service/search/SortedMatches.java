@@ -0,0 +1,13 @@
+package se.fulkopinglibraryweb.service.search;
+
+import java.util.List;
+
+/**
+ * One page of the items matching a sorted search.
+ *
+ * @param items The matching items in sort order, at most the requested number
+ * @param total The number of matching items
+ * @param <T> The item type
+ */
+public record SortedMatches<T>(List<T> items, int total) {
+}
@@ -0,0 +1,96 @@
+package se.fulkopinglibraryweb.service.search;
+
+/**
+ * Keeps the {@code k} highest-scoring document IDs seen so far in a primitive binary min-heap,
+ * so ranking {@code n} matches costs O(n log k) and never sorts the full match set.
+ * Equal scores rank the lower document ID first, which keeps results stable.
+ * Not thread-safe.
+ */
+final class TopKHeap {
+    private final int capacity;
+    private final int[] docIds;
+    private final double[] scores;
+    private int size;
+
+    TopKHeap(int capacity) {
+        this.capacity = capacity;
+        this.docIds = new int[capacity];
+        this.scores = new double[capacity];
+    }
+
+    void offer(int docId, double score) {
+        if (capacity == 0) {
+            return;
+        }
+        if (size < capacity) {
+            docIds[size] = docId;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (ranksBefore(docId, score, docIds[0], scores[0])) {
+            // The root is the weakest of the current top k; replace it
+            docIds[0] = docId;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Empty the heap.
+     *
+     * @return The kept document IDs, best first
+     */
+    int[] drainBestFirst() {
+        int[] ranked = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            ranked[i] = docIds[0];
+            size--;
+            docIds[0] = docIds[size];
+            scores[0] = scores[size];
+            siftDown(0);
+        }
+        return ranked;
+    }
+
+    private static boolean ranksBefore(int docId, double score, int otherDocId, double otherScore) {
+        return score > otherScore || (score == otherScore && docId < otherDocId);
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!ranksBefore(docIds[parent], scores[parent], docIds[position], scores[position])) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int weakest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && ranksBefore(docIds[weakest], scores[weakest], docIds[left], scores[left])) {
+                weakest = left;
+            }
+            if (right < size && ranksBefore(docIds[weakest], scores[weakest], docIds[right], scores[right])) {
+                weakest = right;
+            }
+            if (weakest == position) {
+                return;
+            }
+            swap(position, weakest);
+            position = weakest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int docId = docIds[i];
+        docIds[i] = docIds[j];
+        docIds[j] = docId;
+        double score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+}
@@ -0,0 +1,23 @@
+package se.fulkopinglibraryweb.service.search;
+
+import se.fulkopinglibraryweb.model.LibraryItem;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The merged result of a unified search across all item sources.
+ *
+ * @param items The matching items from every source that answered in time
+ * @param incomplete Per source, true if its results are missing because it timed out or failed
+ * @param latencyMillis Per source, how long it took or how long it was waited for
+ */
+public record UnifiedSearchResult(List<LibraryItem> items, Map<String, Boolean> incomplete, Map<String, Long> latencyMillis) {
+
+    /**
+     * @return True if any source is missing from {@link #items()}
+     */
+    public boolean isPartial() {
+        return incomplete.containsValue(Boolean.TRUE);
+    }
+}
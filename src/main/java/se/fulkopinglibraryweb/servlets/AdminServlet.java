@@ -13,28 +13,31 @@ import se.fulkopinglibraryweb.service.interfaces.UserService;
 import se.fulkopinglibraryweb.service.interfaces.LoanService;
 import se.fulkopinglibraryweb.service.interfaces.BookService;
 import se.fulkopinglibraryweb.service.interfaces.MediaService;
+import se.fulkopinglibraryweb.service.interfaces.UnifiedSearchService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.List;
-import se.fulkopinglibraryweb.model.Book;
-import se.fulkopinglibraryweb.model.Media;
 
 @WebServlet("/admin/*")
 public class AdminServlet extends HttpServlet {
     private static final Logger logger = LoggerFactory.getLogger(AdminServlet.class);
+    private static final int DASHBOARD_LIST_LIMIT = 50;
     private final UserService userService;
     private final LoanService loanService;
     private final BookService bookService;
     private final MediaService mediaService;
+    private final UnifiedSearchService unifiedSearchService;
 
     public AdminServlet(UserService userService, LoanService loanService,
-                        BookService bookService, MediaService mediaService) {
+                        BookService bookService, MediaService mediaService,
+                        UnifiedSearchService unifiedSearchService) {
         this.userService = userService;
         this.loanService = loanService;
         this.bookService = bookService;
         this.mediaService = mediaService;
+        this.unifiedSearchService = unifiedSearchService;
     }
 
     @Override
@@ -47,23 +50,23 @@ public class AdminServlet extends HttpServlet {
         }
 
         try {
-            List<User> users = userService.findAll();
-            List<Media> media = mediaService.getAllMedia();
-            List<Loan> overdueLoans = loanService.getLoansByStatus(LoanStatus.OVERDUE);
-            List<Book> books = bookService.findAll();
+            // Lists are capped for display; totals come from server-side count aggregations
+            List<User> users = userService.findAll(DASHBOARD_LIST_LIMIT);
+            List<Loan> overdueLoans = loanService.getLoansByStatus(LoanStatus.OVERDUE, DASHBOARD_LIST_LIMIT);
 
             request.setAttribute("users", users);
             request.setAttribute("overdueLoans", overdueLoans);
 
-            int totalUsers = users.size();
-            int activeLoans = 0;
-            int overdueItems = overdueLoans.size();
-            int totalItems = books.size() + media.size();
+            long totalUsers = userService.countUsers();
+            long activeLoans = loanService.countLoansByStatus(LoanStatus.ACTIVE);
+            long overdueItems = loanService.countLoansByStatus(LoanStatus.OVERDUE);
+            long totalItems = bookService.count() + mediaService.countMedia();
 
             request.setAttribute("totalUsers", totalUsers);
             request.setAttribute("activeLoans", activeLoans);
             request.setAttribute("overdueItems", overdueItems);
             request.setAttribute("totalItems", totalItems);
+            request.setAttribute("searchSourceStats", unifiedSearchService.getSourceStats());
 
             request.getRequestDispatcher("/WEB-INF/views/admin.jsp").forward(request, response);
         } catch (Exception e) {
@@ -1,6 +1,7 @@
 package se.fulkopinglibraryweb.servlets;
 
 import se.fulkopinglibraryweb.model.Book;
+import se.fulkopinglibraryweb.model.BookSummary;
 import se.fulkopinglibraryweb.service.interfaces.BookService;
 import se.fulkopinglibraryweb.service.search.SearchCriteria;
 import org.slf4j.Logger;
@@ -42,15 +43,15 @@ public class BookServlet extends HttpServlet {
         String searchType = request.getParameter("searchType");
         String searchQuery = request.getParameter("searchQuery");
 
-        List<Book> bookList;
+        List<BookSummary> bookList;
         if (searchQuery != null && !searchQuery.trim().isEmpty()) {
             logger.info("Searching books by {} = {}", searchType, searchQuery);
             SearchCriteria criteria = new SearchCriteria();
             criteria.setFilterField(searchType);
             criteria.setFilterValue(searchQuery);
-            bookList = bookService.searchBooks(criteria);
+            bookList = bookService.searchBookSummaries(criteria);
         } else {
-            bookList = bookService.findAll();
+            bookList = bookService.findAllSummaries();
         }
 
         request.setAttribute("bookList", bookList);
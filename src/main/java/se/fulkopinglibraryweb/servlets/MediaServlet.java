@@ -1,6 +1,7 @@
 package se.fulkopinglibraryweb.servlets;
 
 import se.fulkopinglibraryweb.model.Media;
+import se.fulkopinglibraryweb.model.MediaSummary;
 import se.fulkopinglibraryweb.service.interfaces.MediaService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,12 +35,12 @@ public class MediaServlet extends HttpServlet {
             String searchType = request.getParameter("searchType");
             String searchQuery = request.getParameter("searchQuery");
 
-            List<Media> mediaList;
+            List<MediaSummary> mediaList;
             if (searchQuery != null && !searchQuery.trim().isEmpty()) {
                 logger.info("Performing search: {} = {}", searchType, searchQuery);
-                mediaList = mediaService.searchMedia(searchType, searchQuery);
+                mediaList = mediaService.searchMediaSummaries(searchType, searchQuery);
             } else {
-                mediaList = mediaService.getAllMedia();
+                mediaList = mediaService.getAllMediaSummaries();
             }
 
             request.setAttribute("mediaList", mediaList);
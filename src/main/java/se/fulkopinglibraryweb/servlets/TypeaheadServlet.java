@@ -0,0 +1,64 @@
+package se.fulkopinglibraryweb.servlets;
+
+import com.google.gson.Gson;
+import se.fulkopinglibraryweb.service.TypeaheadService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.inject.Inject;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Suggestions for the search box as the user types, answered from memory.
+ * GET /api/suggest?q=lord+of&amp;limit=5 returns a JSON array of {text, field, count}.
+ */
+@WebServlet("/api/suggest")
+public class TypeaheadServlet extends HttpServlet {
+    private static final Logger logger = LoggerFactory.getLogger(TypeaheadServlet.class);
+    private static final int DEFAULT_LIMIT = 8;
+    private final TypeaheadService typeaheadService;
+    private final Gson gson;
+
+    @Inject
+    public TypeaheadServlet(TypeaheadService typeaheadService) {
+        this.typeaheadService = typeaheadService;
+        this.gson = new Gson();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter out = response.getWriter();
+
+        try {
+            String prefix = request.getParameter("q");
+            int limit = DEFAULT_LIMIT;
+            String limitParam = request.getParameter("limit");
+            if (limitParam != null && !limitParam.isBlank()) {
+                limit = Integer.parseInt(limitParam.trim());
+                if (limit < 1) {
+                    response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                    out.print(gson.toJson("Limit must be greater than 0"));
+                    return;
+                }
+            }
+
+            // Consecutive keystrokes repeat prefixes, so let the browser reuse recent answers
+            response.setHeader("Cache-Control", "private, max-age=30");
+            out.print(gson.toJson(typeaheadService.suggest(prefix, limit)));
+        } catch (NumberFormatException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            out.print(gson.toJson("Limit must be a number"));
+        } catch (Exception e) {
+            logger.error("Error in TypeaheadServlet.doGet: {}", e.getMessage(), e);
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            out.print(gson.toJson("Internal server error"));
+        }
+    }
+}
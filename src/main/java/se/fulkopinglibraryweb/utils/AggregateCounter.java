@@ -0,0 +1,70 @@
+package se.fulkopinglibraryweb.utils;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.cloud.firestore.AggregateQuerySnapshot;
+import com.google.cloud.firestore.Query;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Counts documents with Firestore aggregation queries, so only the count crosses the wire.
+ * Results are kept for a short time, keyed by a caller-supplied description of the query,
+ * so dashboards that render on every page view do not issue a new aggregation each time.
+ * Concurrent requests for the same key, blocking or not, share one aggregation.
+ */
+public class AggregateCounter {
+
+    private static final Duration DEFAULT_TTL = Duration.ofSeconds(30);
+    private static final long MAX_CACHED_COUNTS = 256;
+
+    private final AsyncCache<String, Long> counts;
+
+    public AggregateCounter() {
+        this(DEFAULT_TTL);
+    }
+
+    public AggregateCounter(Duration ttl) {
+        this.counts = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(MAX_CACHED_COUNTS)
+                .buildAsync();
+    }
+
+    /**
+     * Count the documents matched by a query, serving a recent result when there is one.
+     *
+     * @param key A stable description of the query, e.g. "status=OVERDUE"
+     * @param query The query to count
+     * @return The number of matching documents
+     */
+    public long count(String key, Query query) {
+        try {
+            return countAsync(key, query).join();
+        } catch (CompletionException e) {
+            throw new RuntimeException("Failed to count documents", e.getCause());
+        }
+    }
+
+    /**
+     * Count the documents matched by a query without blocking, serving a recent result when there is one.
+     * A failed count is not cached.
+     *
+     * @param key A stable description of the query, e.g. "status=OVERDUE"
+     * @param query The query to count
+     * @return A future completed with the number of matching documents
+     */
+    public CompletableFuture<Long> countAsync(String key, Query query) {
+        return counts.get(key, (k, executor) -> ApiFutureUtils.toCompletableFuture(query.count().get())
+                .thenApply(AggregateQuerySnapshot::getCount));
+    }
+
+    /**
+     * Drop all cached counts, typically after a write to the counted collection.
+     */
+    public void invalidateAll() {
+        counts.synchronous().invalidateAll();
+    }
+}
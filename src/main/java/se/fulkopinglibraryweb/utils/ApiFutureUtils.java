@@ -0,0 +1,48 @@
+package se.fulkopinglibraryweb.utils;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Utility class for bridging Firestore's {@link ApiFuture} to {@link CompletableFuture}.
+ * The bridge completes from the client's own callback, so no thread is parked waiting on a result.
+ */
+public final class ApiFutureUtils {
+
+    private ApiFutureUtils() {
+    }
+
+    /**
+     * Adapt an ApiFuture to a CompletableFuture.
+     * Cancelling the returned future also cancels the underlying request.
+     *
+     * @param <V> The type of the result
+     * @param apiFuture The future returned by the Firestore client
+     * @return A CompletableFuture completed with the same result or failure
+     */
+    public static <V> CompletableFuture<V> toCompletableFuture(ApiFuture<V> apiFuture) {
+        CompletableFuture<V> future = new CompletableFuture<>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                apiFuture.cancel(mayInterruptIfRunning);
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        ApiFutures.addCallback(apiFuture, new ApiFutureCallback<V>() {
+            @Override
+            public void onSuccess(V result) {
+                future.complete(result);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+}
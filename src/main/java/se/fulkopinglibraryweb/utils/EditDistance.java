@@ -0,0 +1,142 @@
+package se.fulkopinglibraryweb.utils;
+
+/**
+ * Levenshtein distance shared by every fuzzy search path.
+ * Two rolling rows are kept in a per-thread buffer that grows to the longest string seen, so a
+ * comparison allocates nothing. The bounded variants only fill the diagonal band of width
+ * {@code 2k + 1} and stop as soon as every cell of a row exceeds the bound, so comparing strings of
+ * length {@code n} within {@code k} edits costs O(k * n) rather than O(n * n).
+ */
+public final class EditDistance {
+
+    private static final int INITIAL_ROW_LENGTH = 64;
+    private static final ThreadLocal<int[][]> ROWS =
+            ThreadLocal.withInitial(() -> new int[2][INITIAL_ROW_LENGTH]);
+
+    private EditDistance() {
+    }
+
+    /**
+     * Compute the exact Levenshtein distance between two strings.
+     *
+     * @param a The first string
+     * @param b The second string
+     * @return The number of single-character insertions, deletions and substitutions
+     */
+    public static int distance(CharSequence a, CharSequence b) {
+        return bounded(a, b, Math.max(a.length(), b.length()));
+    }
+
+    /**
+     * Compute the Levenshtein distance between two strings, giving up once it exceeds a bound.
+     *
+     * @param a The first string
+     * @param b The second string
+     * @param maxDistance The largest distance of interest
+     * @return The distance if it is at most {@code maxDistance}, otherwise {@code maxDistance + 1}
+     */
+    public static int bounded(CharSequence a, CharSequence b, int maxDistance) {
+        // Keep the shorter string along the row to keep the buffer small
+        if (a.length() < b.length()) {
+            CharSequence swap = a;
+            a = b;
+            b = swap;
+        }
+        int n = a.length();
+        int m = b.length();
+        int k = Math.min(maxDistance, n);
+        int exceeded = k + 1;
+        if (k < 0) {
+            return maxDistance + 1;
+        }
+        if (n - m > k) {
+            return exceeded;
+        }
+        if (m == 0) {
+            return n;
+        }
+
+        int[][] rows = rows(m + 1);
+        int[] previous = rows[0];
+        int[] current = rows[1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j <= k ? j : exceeded;
+        }
+        for (int i = 1; i <= n; i++) {
+            int from = Math.max(1, i - k);
+            int to = Math.min(m, i + k);
+            int rowMin;
+            if (from == 1) {
+                current[0] = i <= k ? i : exceeded;
+                rowMin = current[0];
+            } else {
+                current[from - 1] = exceeded;
+                rowMin = exceeded;
+            }
+            char ca = a.charAt(i - 1);
+            for (int j = from; j <= to; j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (value > exceeded) {
+                    value = exceeded;
+                }
+                current[j] = value;
+                if (value < rowMin) {
+                    rowMin = value;
+                }
+            }
+            // The next row reads one cell past this row's band
+            if (to < m) {
+                current[to + 1] = exceeded;
+            }
+            if (rowMin > k) {
+                return exceeded;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[m], exceeded);
+    }
+
+    /**
+     * Check whether two strings are within a number of edits of each other.
+     *
+     * @param a The first string
+     * @param b The second string
+     * @param maxDistance The maximum number of edits
+     * @return True if the distance is at most {@code maxDistance}
+     */
+    public static boolean within(CharSequence a, CharSequence b, int maxDistance) {
+        return bounded(a, b, maxDistance) <= maxDistance;
+    }
+
+    /**
+     * Check whether two strings reach a similarity threshold, where similarity is
+     * {@code 1 - distance / longer length}. The threshold is turned into an edit bound first,
+     * so dissimilar strings are rejected without computing their full distance.
+     *
+     * @param a The first string
+     * @param b The second string
+     * @param minSimilarity The minimum similarity, between 0 and 1
+     * @return True if the similarity is at least {@code minSimilarity}
+     */
+    public static boolean isSimilar(CharSequence a, CharSequence b, double minSimilarity) {
+        int longest = Math.max(a.length(), b.length());
+        if (longest == 0 || minSimilarity <= 0) {
+            return true;
+        }
+        int maxDistance = (int) Math.floor((1 - minSimilarity) * longest);
+        return within(a, b, maxDistance);
+    }
+
+    private static int[][] rows(int length) {
+        int[][] rows = ROWS.get();
+        if (rows[0].length < length) {
+            int capacity = Math.max(length, rows[0].length * 2);
+            rows = new int[][] {new int[capacity], new int[capacity]};
+            ROWS.set(rows);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,192 @@
+package se.fulkopinglibraryweb.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs independent calls to several named sources concurrently under one overall deadline.
+ * Results are collected as each source completes; sources still running at the deadline are
+ * cancelled and reported as timed out, so the caller waits roughly as long as the slowest source
+ * that makes the deadline rather than the sum of all of them.
+ * The executor should reject calls it has no room for rather than run them on the caller's thread,
+ * which would hold the caller past the deadline; a rejected source is reported without being run.
+ * Latency, timeouts, failures and rejections are tracked per source.
+ */
+public class FanOut {
+
+    private static final Logger logger = LoggerFactory.getLogger(FanOut.class);
+
+    private final ExecutorService executor;
+    private final ConcurrentMap<String, SourceMetrics> metrics = new ConcurrentHashMap<>();
+
+    public FanOut(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * How a source fared in one fan-out.
+     */
+    public enum Status {
+        COMPLETED,
+        TIMED_OUT,
+        FAILED,
+        REJECTED
+    }
+
+    /**
+     * The outcome of one source.
+     *
+     * @param source The source name
+     * @param value The result, or null unless the source completed
+     * @param status Whether the source completed, missed the deadline or failed
+     * @param latencyMillis Time from the start of the fan-out until the source finished or was abandoned
+     * @param <R> The result type
+     */
+    public record Outcome<R>(String source, R value, Status status, long latencyMillis) {
+
+        /**
+         * @return True if the source's results are missing from the merged result
+         */
+        public boolean incomplete() {
+            return status != Status.COMPLETED;
+        }
+    }
+
+    /**
+     * Run every call concurrently and wait for them until the deadline.
+     *
+     * @param calls The calls keyed by source name, in the order outcomes should be reported
+     * @param deadline The most time to wait for all sources together
+     * @return One outcome per source, in the order of {@code calls}
+     * @param <R> The result type
+     */
+    public <R> List<Outcome<R>> invokeAll(Map<String, Callable<R>> calls, Duration deadline) {
+        long start = System.nanoTime();
+        long deadlineNanos = start + deadline.toNanos();
+        ExecutorCompletionService<R> completion = new ExecutorCompletionService<>(executor);
+        Map<Future<R>, String> pending = new LinkedHashMap<>();
+        Map<String, Outcome<R>> outcomes = new HashMap<>();
+        for (Map.Entry<String, Callable<R>> call : calls.entrySet()) {
+            String source = call.getKey();
+            try {
+                pending.put(completion.submit(call.getValue()), source);
+            } catch (RejectedExecutionException e) {
+                logger.warn("Source {} rejected: the fan-out executor is saturated", source);
+                outcomes.put(source, new Outcome<>(source, null, Status.REJECTED, elapsedMillis(start)));
+                metricsFor(source).rejected();
+            }
+        }
+
+        try {
+            while (!pending.isEmpty()) {
+                long remaining = deadlineNanos - System.nanoTime();
+                Future<R> done = remaining > 0 ? completion.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                if (done == null) {
+                    break;
+                }
+                String source = pending.remove(done);
+                long latency = elapsedMillis(start);
+                try {
+                    outcomes.put(source, new Outcome<>(source, done.get(), Status.COMPLETED, latency));
+                    metricsFor(source).completed(latency);
+                } catch (ExecutionException e) {
+                    logger.warn("Source {} failed after {} ms", source, latency, e.getCause());
+                    outcomes.put(source, new Outcome<>(source, null, Status.FAILED, latency));
+                    metricsFor(source).failed(latency);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while waiting for {} source(s)", pending.size());
+        }
+
+        long abandonedAt = elapsedMillis(start);
+        for (Map.Entry<Future<R>, String> late : pending.entrySet()) {
+            late.getKey().cancel(true);
+            String source = late.getValue();
+            logger.warn("Source {} missed the {} ms deadline", source, deadline.toMillis());
+            outcomes.put(source, new Outcome<>(source, null, Status.TIMED_OUT, abandonedAt));
+            metricsFor(source).timedOut(abandonedAt);
+        }
+
+        List<Outcome<R>> ordered = new ArrayList<>(calls.size());
+        for (String source : calls.keySet()) {
+            ordered.add(outcomes.get(source));
+        }
+        return ordered;
+    }
+
+    /**
+     * @return Point-in-time statistics for every source seen so far, keyed by source name
+     */
+    public Map<String, FanOutStats> getStats() {
+        Map<String, FanOutStats> stats = new LinkedHashMap<>();
+        metrics.forEach((source, sourceMetrics) -> stats.put(source, sourceMetrics.snapshot()));
+        return Collections.unmodifiableMap(stats);
+    }
+
+    private SourceMetrics metricsFor(String source) {
+        return metrics.computeIfAbsent(source, k -> new SourceMetrics());
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static final class SourceMetrics {
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder timedOut = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder totalLatencyMillis = new LongAdder();
+        private final LongAccumulator maxLatencyMillis = new LongAccumulator(Math::max, 0);
+
+        private void completed(long latencyMillis) {
+            completed.increment();
+            record(latencyMillis);
+        }
+
+        private void timedOut(long latencyMillis) {
+            timedOut.increment();
+            record(latencyMillis);
+        }
+
+        private void failed(long latencyMillis) {
+            failed.increment();
+            record(latencyMillis);
+        }
+
+        private void rejected() {
+            rejected.increment();
+        }
+
+        private void record(long latencyMillis) {
+            totalLatencyMillis.add(latencyMillis);
+            maxLatencyMillis.accumulate(latencyMillis);
+        }
+
+        private FanOutStats snapshot() {
+            return new FanOutStats(completed.sum(), timedOut.sum(), failed.sum(), rejected.sum(),
+                    totalLatencyMillis.sum(), maxLatencyMillis.get());
+        }
+    }
+}
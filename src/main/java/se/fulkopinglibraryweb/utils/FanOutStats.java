@@ -0,0 +1,23 @@
+package se.fulkopinglibraryweb.utils;
+
+/**
+ * Point-in-time statistics for one source of a {@link FanOut}.
+ *
+ * @param completed Calls that returned before the deadline
+ * @param timedOut Calls abandoned at the deadline
+ * @param failed Calls that threw
+ * @param rejected Calls the executor had no room for, which were not run and are not counted in the latencies
+ * @param totalLatencyMillis Summed latency of all calls, counting abandoned calls up to the deadline
+ * @param maxLatencyMillis The slowest call seen
+ */
+public record FanOutStats(long completed, long timedOut, long failed, long rejected, long totalLatencyMillis,
+                          long maxLatencyMillis) {
+
+    /**
+     * @return The mean latency over all calls that were run
+     */
+    public double averageLatencyMillis() {
+        long calls = completed + timedOut + failed;
+        return calls == 0 ? 0.0 : (double) totalLatencyMillis / calls;
+    }
+}
@@ -1,27 +1,30 @@
 package se.fulkopinglibraryweb.utils;
 
 import com.google.cloud.firestore.CollectionReference;
-import com.google.cloud.firestore.QueryDocumentSnapshot;
 import se.fulkopinglibraryweb.model.Page;
 
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class FirestoreListHelper<T> {
 
     public List<T> getAllResults(CollectionReference collectionRef) 
             throws ExecutionException, InterruptedException {
         
-        // Get all documents
-        List<QueryDocumentSnapshot> documents = collectionRef
-            .get()
-            .get()
-            .getDocuments();
-            
-        // Convert to entities
-        return documents.stream()
-            .map(doc -> (T) doc.toObject(Object.class))
-            .collect(Collectors.toList());
+        // Read page by page so no single snapshot holds the whole collection
+        try (Stream<T> results = streamAllResults(collectionRef, FirestorePageIterator.DEFAULT_PAGE_SIZE)) {
+            return results.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Stream all documents of a collection in pages of {@code pageSize}.
+     * The stream should be closed if it is not fully consumed.
+     */
+    @SuppressWarnings("unchecked")
+    public Stream<T> streamAllResults(CollectionReference collectionRef, int pageSize) {
+        return FirestorePageIterator.stream(collectionRef, pageSize, doc -> (T) doc.toObject(Object.class));
     }
 }
@@ -0,0 +1,155 @@
+package se.fulkopinglibraryweb.utils;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over the results of a Firestore query one fixed-size page at a time.
+ * Pages are ordered by document ID and chained with {@code startAfter(lastDocument)}, and the
+ * next page is requested as soon as the current one arrives so it loads while the caller
+ * processes the current page. At most two pages are held in memory at any time.
+ * The mapper may return null for a document; the null is passed on like any other element.
+ *
+ * @param <T> The type each document is mapped to
+ */
+public class FirestorePageIterator<T> implements Iterator<T>, AutoCloseable {
+
+    public static final int DEFAULT_PAGE_SIZE = 500;
+
+    private final Query query;
+    private final int pageSize;
+    private final Function<DocumentSnapshot, T> mapper;
+    private Iterator<QueryDocumentSnapshot> currentPage = Collections.emptyIterator();
+    private ApiFuture<QuerySnapshot> nextPage;
+    private boolean started;
+    private boolean closed;
+
+    public FirestorePageIterator(Query query, int pageSize, Function<DocumentSnapshot, T> mapper) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+        this.query = query.orderBy(FieldPath.documentId());
+        this.pageSize = pageSize;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Create a lazily consumed stream over all documents matched by a query.
+     * Closing the stream cancels any page that is still being fetched.
+     *
+     * @param query The query to page through
+     * @param pageSize The number of documents per page
+     * @param mapper The function to map each document
+     * @return A sequential stream of mapped documents
+     */
+    public static <T> Stream<T> stream(Query query, int pageSize, Function<DocumentSnapshot, T> mapper) {
+        FirestorePageIterator<T> iterator = new FirestorePageIterator<>(query, pageSize, mapper);
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(iterator::close);
+    }
+
+    /**
+     * Read all documents matched by a query page by page without blocking a thread. Each page is
+     * requested from the client callback of the previous one, in the same order as the iterator.
+     *
+     * @param query The query to page through
+     * @param pageSize The number of documents per page
+     * @param mapper The function to map each document
+     * @return A future completed with the mapped documents
+     */
+    public static <T> CompletableFuture<List<T>> collectAsync(Query query, int pageSize,
+                                                              Function<DocumentSnapshot, T> mapper) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+        return collectAfter(query.orderBy(FieldPath.documentId()), null, pageSize, mapper, new ArrayList<>());
+    }
+
+    private static <T> CompletableFuture<List<T>> collectAfter(Query ordered, DocumentSnapshot cursor, int pageSize,
+                                                               Function<DocumentSnapshot, T> mapper, List<T> collected) {
+        Query page = cursor == null ? ordered : ordered.startAfter(cursor);
+        return ApiFutureUtils.toCompletableFuture(page.limit(pageSize).get()).thenCompose(snapshot -> {
+            List<QueryDocumentSnapshot> documents = snapshot.getDocuments();
+            for (QueryDocumentSnapshot document : documents) {
+                collected.add(mapper.apply(document));
+            }
+            return documents.size() < pageSize
+                    ? CompletableFuture.completedFuture(collected)
+                    : collectAfter(ordered, documents.get(documents.size() - 1), pageSize, mapper, collected);
+        });
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!started && !closed) {
+            started = true;
+            nextPage = fetchAfter(null);
+        }
+        while (!currentPage.hasNext()) {
+            if (nextPage == null) {
+                return false;
+            }
+            List<QueryDocumentSnapshot> documents = awaitNextPage();
+            // A full page may have more behind it; start fetching it before handing this one out
+            nextPage = documents.size() == pageSize
+                    ? fetchAfter(documents.get(documents.size() - 1))
+                    : null;
+            currentPage = documents.iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return mapper.apply(currentPage.next());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (nextPage != null) {
+            nextPage.cancel(true);
+            nextPage = null;
+        }
+        currentPage = Collections.emptyIterator();
+    }
+
+    private ApiFuture<QuerySnapshot> fetchAfter(DocumentSnapshot cursor) {
+        Query page = cursor == null ? query : query.startAfter(cursor);
+        return page.limit(pageSize).get();
+    }
+
+    private List<QueryDocumentSnapshot> awaitNextPage() {
+        try {
+            return nextPage.get().getDocuments();
+        } catch (ExecutionException e) {
+            nextPage = null;
+            throw new RuntimeException("Failed to fetch next page", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            nextPage = null;
+            throw new RuntimeException("Thread interrupted while fetching next page", e);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package se.fulkopinglibraryweb.utils;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentSnapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The position of the last item of a page in a keyset-paginated listing: the values of the sort
+ * fields plus the document ID, which breaks ties. The next page starts strictly after it, so
+ * fetching any page costs the same as fetching the first.
+ * A cursor may also carry the total counted for the first page, so later pages need not count again.
+ * Cursors are handed to clients as opaque URL-safe strings.
+ */
+public final class PageCursor {
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte TIMESTAMP = 5;
+
+    private final List<Object> sortValues;
+    private final String documentId;
+    private final long total;
+
+    public PageCursor(List<Object> sortValues, String documentId) {
+        this(sortValues, documentId, -1);
+    }
+
+    public PageCursor(List<Object> sortValues, String documentId, long total) {
+        if (documentId == null) {
+            throw new IllegalArgumentException("Document ID cannot be null");
+        }
+        this.sortValues = Collections.unmodifiableList(new ArrayList<>(sortValues));
+        this.documentId = documentId;
+        this.total = total;
+    }
+
+    /**
+     * Create the cursor positioned at a document.
+     *
+     * @param document The last document of a page
+     * @param orderFields The fields the listing is ordered by, before the document ID
+     * @return The cursor
+     */
+    public static PageCursor of(DocumentSnapshot document, List<String> orderFields) {
+        return of(document, orderFields, -1);
+    }
+
+    /**
+     * Create the cursor positioned at a document, carrying the total of the listing.
+     *
+     * @param document The last document of a page
+     * @param orderFields The fields the listing is ordered by, before the document ID
+     * @param total The number of items in the listing, or -1 if unknown
+     * @return The cursor
+     */
+    public static PageCursor of(DocumentSnapshot document, List<String> orderFields, long total) {
+        List<Object> values = new ArrayList<>(orderFields.size());
+        for (String field : orderFields) {
+            values.add(document.get(field));
+        }
+        return new PageCursor(values, document.getId(), total);
+    }
+
+    public List<Object> getSortValues() {
+        return sortValues;
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    /**
+     * @return The total carried by the cursor, or -1 if it carries none
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return The sort values followed by the document ID, as passed to {@code Query.startAfter}
+     */
+    public Object[] startAfterValues() {
+        Object[] values = sortValues.toArray(new Object[sortValues.size() + 1]);
+        values[sortValues.size()] = documentId;
+        return values;
+    }
+
+    /**
+     * Encode the cursor as an opaque token.
+     *
+     * @return A URL-safe string
+     */
+    public String encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(sortValues.size());
+            for (Object value : sortValues) {
+                writeValue(out, value);
+            }
+            out.writeUTF(documentId);
+            if (total >= 0) {
+                out.writeLong(total);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode page cursor", e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Decode a token produced by {@link #encode()}.
+     *
+     * @param token The token
+     * @return The cursor
+     * @throws IllegalArgumentException If the token is not a valid cursor
+     */
+    public static PageCursor decode(String token) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            int count = in.readUnsignedByte();
+            List<Object> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                values.add(readValue(in));
+            }
+            String documentId = in.readUTF();
+            // Cursors without a total end at the document ID
+            long total = in.available() == Long.BYTES ? in.readLong() : -1;
+            if (in.available() > 0 || total < -1) {
+                throw new IllegalArgumentException("Invalid page cursor");
+            }
+            return new PageCursor(values, documentId, total);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page cursor", e);
+        }
+    }
+
+    /**
+     * Compare two sort values the way the in-memory listings order them: nulls first, numbers by
+     * value regardless of their boxed type, then natural order for values of the same class.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static int compareValues(Object a, Object b) {
+        if (a == b) {
+            return 0;
+        }
+        if (a == null) {
+            return -1;
+        }
+        if (b == null) {
+            return 1;
+        }
+        if (a instanceof Number x && b instanceof Number y) {
+            if (isIntegral(x) && isIntegral(y)) {
+                return Long.compare(x.longValue(), y.longValue());
+            }
+            return Double.compare(x.doubleValue(), y.doubleValue());
+        }
+        if (a instanceof Comparable comparable && a.getClass() == b.getClass()) {
+            return comparable.compareTo(b);
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte;
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Boolean flag) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean(flag);
+        } else if (value instanceof Number number && isIntegral(number)) {
+            out.writeByte(LONG);
+            out.writeLong(number.longValue());
+        } else if (value instanceof Number number) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(number.doubleValue());
+        } else if (value instanceof Timestamp timestamp) {
+            out.writeByte(TIMESTAMP);
+            out.writeLong(timestamp.getSeconds());
+            out.writeInt(timestamp.getNanos());
+        } else {
+            out.writeByte(STRING);
+            out.writeUTF(value.toString());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case BOOLEAN:
+                return in.readBoolean();
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case TIMESTAMP:
+                return Timestamp.ofTimeSecondsAndNanos(in.readLong(), in.readInt());
+            case STRING:
+                return in.readUTF();
+            default:
+                throw new IllegalArgumentException("Invalid page cursor");
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package se.fulkopinglibraryweb.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent identical reads into one. The first caller for a key runs the call,
+ * and callers that arrive with the same key while it is in flight wait on the same result and
+ * are released together when it completes. Nothing is cached: once a call completes, the next
+ * caller for its key runs a fresh one.
+ * Results are shared between the callers of a flight, so they should be treated as read-only.
+ *
+ * @param <K> The key identifying identical calls
+ * @param <V> The result type
+ */
+public class SingleFlight<K, V> {
+
+    private static final long MAX_TRACKED_KEYS = 1_000;
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder sharedCalls = new LongAdder();
+    private final Cache<K, LongAdder> sharedByKey = Caffeine.newBuilder()
+            .maximumSize(MAX_TRACKED_KEYS)
+            .build();
+
+    /**
+     * Run a blocking call, or wait for the identical call already in flight.
+     *
+     * @param key The key identifying the call
+     * @param call The call to run if none is in flight for the key
+     * @return The result of the call
+     */
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            recordShared(key);
+            return await(existing);
+        }
+        executions.increment();
+        try {
+            V result = call.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Start an asynchronous call, or join the identical call already in flight.
+     * Each caller gets its own dependent future, so cancelling one does not affect the others.
+     *
+     * @param key The key identifying the call
+     * @param call The call to start if none is in flight for the key
+     * @return A future completed with the result of the call
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            recordShared(key);
+            return existing.copy();
+        }
+        executions.increment();
+        CompletableFuture<V> source;
+        try {
+            source = call.get();
+        } catch (RuntimeException e) {
+            source = CompletableFuture.failedFuture(e);
+        }
+        source.whenComplete((result, error) -> {
+            inFlight.remove(key, flight);
+            if (error != null) {
+                flight.completeExceptionally(error);
+            } else {
+                flight.complete(result);
+            }
+        });
+        return flight.copy();
+    }
+
+    /**
+     * @return Totals of calls that ran and calls that were served by another caller's flight
+     */
+    public SingleFlightStats stats() {
+        return new SingleFlightStats(executions.sum(), sharedCalls.sum(), inFlight.size());
+    }
+
+    /**
+     * @param key The key to look up
+     * @return How many callers with this key were served by a flight they did not start
+     */
+    public long sharedCount(K key) {
+        LongAdder count = sharedByKey.getIfPresent(key);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * @param limit The maximum number of keys to return
+     * @return The keys that absorbed the most duplicate calls, most deduplicated first
+     */
+    public Map<K, Long> topShared(int limit) {
+        Map<K, Long> top = new LinkedHashMap<>();
+        sharedByKey.asMap().entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().sum()))
+                .sorted(Map.Entry.<K, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(limit)
+                .forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+        return top;
+    }
+
+    private void recordShared(K key) {
+        sharedCalls.increment();
+        sharedByKey.get(key, k -> new LongAdder()).increment();
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package se.fulkopinglibraryweb.utils;
+
+/**
+ * Point-in-time statistics for a {@link SingleFlight}.
+ *
+ * @param executions Calls that actually ran
+ * @param sharedCalls Calls that joined a flight started by another caller
+ * @param inFlight Flights currently running
+ */
+public record SingleFlightStats(long executions, long sharedCalls, int inFlight) {
+
+    /**
+     * @return The fraction of all calls that were absorbed by an existing flight
+     */
+    public double dedupRate() {
+        long calls = executions + sharedCalls;
+        return calls == 0 ? 0.0 : (double) sharedCalls / calls;
+    }
+}
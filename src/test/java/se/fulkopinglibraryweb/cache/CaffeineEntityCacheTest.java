@@ -0,0 +1,117 @@
+package se.fulkopinglibraryweb.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CaffeineEntityCacheTest {
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    /**
+     * A cache whose loader returns the key and a load counter, so reloads are visible, and whose evictions,
+     * expiry and refreshes run on the calling thread against a manual clock.
+     */
+    private CaffeineEntityCache.Builder<String, String> builder() {
+        return CaffeineEntityCache.<String, String>builder(key -> key + loads.incrementAndGet())
+                .ticker(nanos::get)
+                .executor(Runnable::run);
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    @Test
+    void keepsNoMoreEntitiesThanTheMaximumWeight() {
+        CaffeineEntityCache<String, String> cache = builder().maximumWeight(10).build();
+        for (int i = 0; i < 100; i++) {
+            cache.put("id" + i, "entity" + i);
+        }
+        EntityCacheStats stats = cache.stats();
+        assertTrue(stats.estimatedSize() <= 10, "size " + stats.estimatedSize());
+        assertEquals(100 - stats.estimatedSize(), stats.evictionCount());
+        assertEquals(stats.evictionCount(), stats.evictionWeight());
+    }
+
+    @Test
+    void boundsEntitiesByTheirWeight() {
+        CaffeineEntityCache<String, String> cache = builder()
+                .maximumWeight(100)
+                .weigher(String::length)
+                .build();
+        for (int i = 0; i < 10; i++) {
+            cache.put("id" + i, "x".repeat(30));
+        }
+        EntityCacheStats stats = cache.stats();
+        assertTrue(stats.estimatedSize() <= 3, "size " + stats.estimatedSize());
+        assertEquals(30 * stats.evictionCount(), stats.evictionWeight());
+    }
+
+    @Test
+    void countsEntitiesWeighedBelowOneAsOne() {
+        CaffeineEntityCache<String, String> cache = builder()
+                .maximumWeight(10)
+                .weigher(value -> 0)
+                .build();
+        for (int i = 0; i < 20; i++) {
+            cache.put("id" + i, "entity" + i);
+        }
+        assertTrue(cache.stats().estimatedSize() <= 10);
+    }
+
+    @Test
+    void expiresEntitiesAfterWrite() {
+        CaffeineEntityCache<String, String> cache = builder()
+                .expireAfterWrite(Duration.ofMinutes(30))
+                .build();
+        assertEquals("a1", cache.get("a"));
+        advance(Duration.ofMinutes(29));
+        assertEquals("a1", cache.getIfPresent("a"));
+        advance(Duration.ofMinutes(2));
+        assertNull(cache.getIfPresent("a"));
+        assertEquals("a2", cache.get("a"));
+    }
+
+    @Test
+    void refreshesEntitiesReadAfterTheRefreshInterval() {
+        CaffeineEntityCache<String, String> cache = builder()
+                .expireAfterWrite(Duration.ofMinutes(30))
+                .refreshAfterWrite(Duration.ofMinutes(5))
+                .build();
+        assertEquals("a1", cache.get("a"));
+        advance(Duration.ofMinutes(6));
+        // The stale entity is served while it reloads, so the read does not wait for Firestore
+        assertEquals("a1", cache.get("a"));
+        assertEquals("a2", cache.getIfPresent("a"));
+
+        EntityCacheStats stats = cache.stats();
+        assertEquals(1, stats.missCount());
+        assertEquals(2, stats.hitCount());
+        assertEquals(2, stats.loadCount());
+    }
+
+    @Test
+    void countsHitsAndMisses() {
+        CaffeineEntityCache<String, String> cache = builder().build();
+        cache.get("a");
+        cache.get("a");
+        cache.getIfPresent("b");
+        cache.put("c", "c");
+        cache.put("c", null);
+        assertNull(cache.getIfPresent("c"));
+
+        EntityCacheStats stats = cache.stats();
+        assertEquals(1, stats.hitCount());
+        assertEquals(3, stats.missCount());
+        assertEquals(1, stats.loadCount());
+        assertEquals(0.25, stats.hitRate());
+        assertEquals(1, stats.estimatedSize());
+    }
+}
@@ -0,0 +1,145 @@
+package se.fulkopinglibraryweb.cache;
+
+import org.junit.jupiter.api.Test;
+import se.fulkopinglibraryweb.model.Book;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SearchResultCacheTest {
+    private static final SearchResultCache.Key PIPPI = key("pippi");
+    private static final SearchResultCache.Dependencies TITLE_PIPPI =
+            new SearchResultCache.Dependencies(Set.of("title"), List.of("pippi"));
+
+    private final SearchResultCache<Book> cache = new SearchResultCache<>(100, Duration.ofMinutes(10), Book::getId,
+            SearchResultCacheTest::field, SearchResultCacheTest::terms);
+    private final AtomicInteger searches = new AtomicInteger();
+
+    private static SearchResultCache.Key key(String query) {
+        return new SearchResultCache.Key("term", "Book", query, null, List.of(), List.of());
+    }
+
+    private static Object field(Book book, String name) {
+        return switch (name) {
+            case "title" -> book.getTitle();
+            case "author" -> book.getAuthor();
+            case "available" -> book.isAvailable();
+            default -> null;
+        };
+    }
+
+    private static Set<String> terms(Book book) {
+        return new HashSet<>(Arrays.asList((book.getTitle() + " " + book.getAuthor()).toLowerCase(Locale.ROOT)
+                .split(" ")));
+    }
+
+    private static Book book(String id, String title, boolean available) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor("Astrid Lindgren");
+        book.setAvailable(available);
+        return book;
+    }
+
+    private List<Book> get(SearchResultCache.Key key, SearchResultCache.Dependencies dependencies,
+                           Supplier<List<Book>> search) {
+        return cache.get(key, dependencies, () -> {
+            searches.incrementAndGet();
+            return search.get();
+        }, Function.identity(), (result, items) -> items);
+    }
+
+    @Test
+    void servesACachedResultUntilAWriteCanChangeIt() {
+        Book pippi = book("a", "Pippi", true);
+        assertEquals(List.of(pippi), get(PIPPI, TITLE_PIPPI, () -> List.of(pippi)));
+        assertEquals(List.of(pippi), get(PIPPI, TITLE_PIPPI, () -> List.of(pippi)));
+        assertEquals(1, searches.get());
+
+        cache.onWrite("b", book("b", "Emil", true), book("b", "Emil Again", true));
+        get(PIPPI, TITLE_PIPPI, () -> List.of(pippi));
+        assertEquals(1, searches.get());
+
+        Book returns = book("c", "Pippi Returns", true);
+        cache.onWrite("c", null, returns);
+        assertEquals(List.of(pippi, returns), get(PIPPI, TITLE_PIPPI, () -> List.of(pippi, returns)));
+        assertEquals(2, searches.get());
+        assertEquals(1, cache.stats().invalidationCount());
+    }
+
+    @Test
+    void dropsAResultWhenAnItemStopsMatching() {
+        Book before = book("a", "Pippi", true);
+        get(PIPPI, TITLE_PIPPI, () -> List.of(before));
+        cache.onWrite("a", before, book("a", "Emil", true));
+        assertEquals(List.of(), get(PIPPI, TITLE_PIPPI, List::of));
+        assertEquals(2, searches.get());
+    }
+
+    @Test
+    void dropsAResultWhenAnItemInItIsDeleted() {
+        Book pippi = book("a", "Pippi", true);
+        get(PIPPI, TITLE_PIPPI, () -> List.of(pippi));
+        cache.onWrite("a", pippi, null);
+        get(PIPPI, TITLE_PIPPI, List::of);
+        assertEquals(2, searches.get());
+    }
+
+    @Test
+    void rewritesItemsInPlaceWhenOnlyOtherFieldsChanged() {
+        Book before = book("a", "Pippi", true);
+        Book other = book("b", "Pippi Returns", true);
+        get(PIPPI, TITLE_PIPPI, () -> List.of(before, other));
+        Book after = book("a", "Pippi", false);
+        cache.onWrite("a", before, after);
+
+        List<Book> cached = get(PIPPI, TITLE_PIPPI, List::of);
+        assertEquals(1, searches.get());
+        assertSame(after, cached.get(0));
+        assertSame(other, cached.get(1));
+        assertEquals(1, cache.stats().updateCount());
+    }
+
+    @Test
+    void dropsAResultAnyItemMayEnterOnEveryRelevantWrite() {
+        SearchResultCache.Dependencies available = new SearchResultCache.Dependencies(Set.of("available"), null);
+        SearchResultCache.Key key = key("");
+        get(key, available, List::of);
+        cache.onWrite("a", book("a", "Emil", false), book("a", "Emil", true));
+        get(key, available, List::of);
+        assertEquals(2, searches.get());
+    }
+
+    @Test
+    void doesNotCacheASearchThatOverlapsAWrite() {
+        Book pippi = book("a", "Pippi", true);
+        get(PIPPI, TITLE_PIPPI, () -> {
+            cache.onWrite("z", null, book("z", "Emil", true));
+            return List.of(pippi);
+        });
+        get(PIPPI, TITLE_PIPPI, () -> List.of(pippi));
+        get(PIPPI, TITLE_PIPPI, () -> List.of(pippi));
+        assertEquals(2, searches.get());
+    }
+
+    @Test
+    void invalidateAllDropsEveryResult() {
+        get(PIPPI, TITLE_PIPPI, List::of);
+        get(key("emil"), TITLE_PIPPI, List::of);
+        cache.invalidateAll();
+        get(PIPPI, TITLE_PIPPI, List::of);
+        assertEquals(3, searches.get());
+        assertEquals(2, cache.stats().invalidationCount());
+    }
+}
@@ -0,0 +1,86 @@
+package se.fulkopinglibraryweb.repository;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import se.fulkopinglibraryweb.cache.EntityCacheStats;
+import se.fulkopinglibraryweb.model.Book;
+import se.fulkopinglibraryweb.utils.FirestoreConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Answers.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.when;
+
+class AbstractFirestoreRepositoryCacheTest {
+    private static final int DOCUMENTS = 50;
+    // The default cache holds a total weight of 10 000, so at most ten of these books
+    private static final int BOOK_WEIGHT = 1_000;
+
+    static class HeavyBookRepository extends AbstractFirestoreRepository<Book, String> {
+        HeavyBookRepository() {
+            super("books");
+        }
+
+        @Override
+        protected int weigh(Book book) {
+            return BOOK_WEIGHT;
+        }
+
+        @Override
+        protected Book convertToEntity(DocumentSnapshot document) {
+            Book book = new Book();
+            book.setId(document.getId());
+            return book;
+        }
+
+        @Override
+        public List<String> getSearchableFields() {
+            return List.of("title");
+        }
+    }
+
+    private static Firestore firestoreWithBooks() {
+        List<QueryDocumentSnapshot> documents = new ArrayList<>();
+        for (int i = 0; i < DOCUMENTS; i++) {
+            QueryDocumentSnapshot document = mock(QueryDocumentSnapshot.class);
+            when(document.getId()).thenReturn(String.format("book-%02d", i));
+            documents.add(document);
+        }
+        QuerySnapshot page = mock(QuerySnapshot.class);
+        when(page.getDocuments()).thenReturn(documents);
+        CollectionReference books = mock(CollectionReference.class, RETURNS_SELF);
+        when(books.get()).thenReturn(ApiFutures.immediateFuture(page));
+        Firestore firestore = mock(Firestore.class);
+        when(firestore.collection("books")).thenReturn(books);
+        return firestore;
+    }
+
+    @Test
+    void findAllDoesNotKeepEveryEntityInTheCache() {
+        Firestore firestore = firestoreWithBooks();
+        HeavyBookRepository repository;
+        try (MockedStatic<FirestoreConfig> config = mockStatic(FirestoreConfig.class)) {
+            config.when(FirestoreConfig::getInstance).thenReturn(firestore);
+            repository = new HeavyBookRepository();
+        }
+
+        assertEquals(DOCUMENTS, repository.findAll().size());
+
+        EntityCacheStats stats = repository.getCacheStats();
+        assertTrue(stats.estimatedSize() <= 10, "size " + stats.estimatedSize());
+        assertEquals(DOCUMENTS - stats.estimatedSize(), stats.evictionCount());
+        // Evicted weight comes from the weigh() override, not the default weight of 1
+        assertEquals((long) BOOK_WEIGHT * stats.evictionCount(), stats.evictionWeight());
+    }
+}
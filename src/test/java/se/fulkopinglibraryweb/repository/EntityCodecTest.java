@@ -0,0 +1,46 @@
+package se.fulkopinglibraryweb.repository;
+
+import org.junit.jupiter.api.Test;
+import se.fulkopinglibraryweb.model.Book;
+import se.fulkopinglibraryweb.model.ItemType;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EntityCodecTest {
+
+    private static Book book() {
+        Book book = new Book();
+        book.setId("a");
+        book.setTitle("Pippi Longstocking");
+        book.setAuthor("Astrid Lindgren");
+        book.setYear(1945);
+        book.setReserved(true);
+        book.setType(ItemType.BOOK);
+        return book;
+    }
+
+    @Test
+    void copiesDeclaredAndInheritedFields() {
+        Book copy = EntityCodec.forClass(Book.class).copy(book());
+        assertEquals("a", copy.getId());
+        assertEquals("Pippi Longstocking", copy.getTitle());
+        assertEquals("Astrid Lindgren", copy.getAuthor());
+        assertEquals(1945, copy.getYear());
+        assertTrue(copy.isReserved());
+        // Declared in LibraryItem, not in Book
+        assertEquals(ItemType.BOOK, copy.getType());
+    }
+
+    @Test
+    void copyDoesNotFollowChangesToTheOriginal() {
+        Book original = book();
+        Book copy = EntityCodec.forClass(Book.class).copy(original);
+        assertNotSame(original, copy);
+        original.setTitle("Emil");
+        original.setType(ItemType.MAGAZINE);
+        assertEquals("Pippi Longstocking", copy.getTitle());
+        assertEquals(ItemType.BOOK, copy.getType());
+    }
+}
@@ -0,0 +1,140 @@
+package se.fulkopinglibraryweb.repository;
+
+import com.google.cloud.firestore.Query;
+import org.junit.jupiter.api.Test;
+import se.fulkopinglibraryweb.model.Book;
+import se.fulkopinglibraryweb.service.search.EnhancedSearchCriteria;
+import se.fulkopinglibraryweb.service.search.SearchCriteria;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Answers.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+
+class QueryPlannerTest {
+    private static final double EPSILON = 1e-9;
+
+    private final Query collection = mock(Query.class, RETURNS_SELF);
+
+    /**
+     * Ten books from 1950 to 1959; all but the last are available, and the first five are by Lindgren.
+     */
+    private static FieldStatistics statistics() {
+        List<Map<String, Object>> sample = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Map<String, Object> document = new HashMap<>();
+            document.put("title", "Title " + i);
+            document.put("author", i < 5 ? "Astrid Lindgren" : "Author " + i);
+            document.put("year", 1950 + i);
+            document.put("available", i < 9);
+            sample.add(document);
+        }
+        return FieldStatistics.of(sample);
+    }
+
+    private static QueryPlanner<Book> planner(List<List<String>> compositeIndexes) {
+        return new QueryPlanner<>(EntityCodec.forClass(Book.class), "title", compositeIndexes);
+    }
+
+    private static Book book(String title, String author, int year, boolean available) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setYear(year);
+        book.setAvailable(available);
+        return book;
+    }
+
+    private static List<String> descriptions(QueryPlan<Book> plan) {
+        List<String> descriptions = new ArrayList<>();
+        for (QueryPlan.Filter<Book> filter : plan.getResiduals()) {
+            descriptions.add(filter.description());
+        }
+        return descriptions;
+    }
+
+    @Test
+    void pushesDownEqualityFiltersTogether() {
+        EnhancedSearchCriteria criteria = new EnhancedSearchCriteria();
+        criteria.addEqualityFilter("available", true).addEqualityFilter("author", "Astrid Lindgren");
+        QueryPlan<Book> plan = planner(List.of()).plan(collection, criteria, statistics());
+        assertEquals(List.of("available == true", "author == Astrid Lindgren"), plan.getPushedDown());
+        assertTrue(plan.getResiduals().isEmpty());
+        assertEquals(9.0 / 11 * 5.0 / 11, plan.getEstimatedSelectivity(), EPSILON);
+    }
+
+    @Test
+    void pushesDownTheMoreSelectiveOfEqualitiesAndARange() {
+        EnhancedSearchCriteria criteria = new EnhancedSearchCriteria();
+        criteria.addEqualityFilter("available", true).addRangeFilter("year", 1950, 1951);
+        QueryPlan<Book> plan = planner(List.of()).plan(collection, criteria, statistics());
+        assertEquals(List.of("year in [1950, 1951]"), plan.getPushedDown());
+        assertEquals(List.of("available == true"), descriptions(plan));
+        assertEquals(2.0 / 11, plan.getEstimatedSelectivity(), EPSILON);
+    }
+
+    @Test
+    void pushesDownEqualitiesWithARangeThroughACompositeIndex() {
+        EnhancedSearchCriteria criteria = new EnhancedSearchCriteria();
+        criteria.addEqualityFilter("available", true).addRangeFilter("year", 1950, 1951);
+        QueryPlan<Book> plan = planner(List.of(List.of("available", "year"))).plan(collection, criteria, statistics());
+        assertEquals(List.of("available == true", "year in [1950, 1951]"), plan.getPushedDown());
+        assertTrue(plan.getResiduals().isEmpty());
+    }
+
+    @Test
+    void turnsARangeWithEqualBoundsIntoAnEquality() {
+        EnhancedSearchCriteria criteria = new EnhancedSearchCriteria();
+        criteria.addRangeFilter("year", 1955, 1955);
+        QueryPlan<Book> plan = planner(List.of()).plan(collection, criteria, statistics());
+        assertEquals(List.of("year == 1955"), plan.getPushedDown());
+    }
+
+    @Test
+    void pushesDownTheSearchTermAsATitlePrefix() {
+        SearchCriteria criteria = new SearchCriteria();
+        criteria.setSearchTerm("Tit");
+        QueryPlan<Book> plan = planner(List.of()).plan(collection, criteria, statistics());
+        assertEquals(List.of("title starts with 'Tit'"), plan.getPushedDown());
+        assertEquals(10.0 / 11, plan.getEstimatedSelectivity(), EPSILON);
+    }
+
+    @Test
+    void runsCheapSelectiveFiltersBeforeKeywordFilters() {
+        EnhancedSearchCriteria criteria = new EnhancedSearchCriteria();
+        criteria.addKeywordFilter("Lindgren", "author", "title")
+                .addEqualityFilter("available", true)
+                .addRangeFilter("year", 1950, 1951);
+        QueryPlan<Book> plan = planner(List.of()).plan(collection, criteria, statistics());
+        assertEquals(List.of("year in [1950, 1951]"), plan.getPushedDown());
+        assertEquals(List.of("available == true", "any of [author, title] contains 'lindgren'"), descriptions(plan));
+
+        Book match = book("Pippi", "Astrid Lindgren", 1950, true);
+        Book unavailable = book("Emil", "Astrid Lindgren", 1950, false);
+        Book otherAuthor = book("Saga", "Selma Lagerlof", 1951, true);
+        assertEquals(List.of(match), plan.apply(List.of(unavailable, match, otherAuthor)));
+    }
+
+    @Test
+    void sortsInMemoryOnlyWhenFirestoreCannot() {
+        EnhancedSearchCriteria criteria = new EnhancedSearchCriteria();
+        criteria.addRangeFilter("year", 1950, 1959);
+        criteria.setSortField("year");
+        assertFalse(planner(List.of()).plan(collection, criteria, statistics()).sortsInMemory());
+
+        criteria.setSortField("title");
+        criteria.setSortDirection(SearchCriteria.SortDirection.DESC);
+        QueryPlan<Book> plan = planner(List.of()).plan(collection, criteria, statistics());
+        assertTrue(plan.sortsInMemory());
+        Book a = book("A", "Astrid Lindgren", 1950, true);
+        Book b = book("B", "Astrid Lindgren", 1951, true);
+        Book c = book("C", "Astrid Lindgren", 1952, true);
+        assertEquals(List.of(c, b, a), plan.apply(List.of(b, c, a)));
+    }
+}
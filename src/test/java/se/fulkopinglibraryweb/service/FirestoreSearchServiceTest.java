@@ -0,0 +1,165 @@
+package se.fulkopinglibraryweb.service;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.EventListener;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.MockedStatic;
+import se.fulkopinglibraryweb.model.Book;
+import se.fulkopinglibraryweb.repository.impl.BookFirestoreRepository;
+import se.fulkopinglibraryweb.utils.FirestoreConfig;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Answers.RETURNS_SELF;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.when;
+
+class FirestoreSearchServiceTest {
+    private final List<EventListener<QuerySnapshot>> snapshotListeners = new ArrayList<>();
+    private Firestore firestore;
+    private CollectionReference books;
+    private BookFirestoreRepository repository;
+    private FirestoreSearchService<Book> searchService;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * A search service following a book repository over an empty collection, whose snapshot
+     * listeners are kept so tests can deliver writes made by another instance.
+     */
+    @BeforeEach
+    void followAnEmptyCollection() {
+        books = mock(CollectionReference.class, RETURNS_SELF);
+        when(books.getPath()).thenReturn("books");
+        listing();
+        when(books.addSnapshotListener(any())).thenAnswer(invocation -> {
+            snapshotListeners.add(invocation.getArgument(0));
+            return mock(ListenerRegistration.class);
+        });
+        firestore = mock(Firestore.class);
+        when(firestore.collection("books")).thenReturn(books);
+        when(books.getFirestore()).thenReturn(firestore);
+        try (MockedStatic<FirestoreConfig> config = mockStatic(FirestoreConfig.class)) {
+            config.when(FirestoreConfig::getInstance).thenReturn(firestore);
+            repository = new BookFirestoreRepository(null);
+        }
+        searchService = new FirestoreSearchService<>(books, Book.class);
+        searchService.followWrites(repository);
+    }
+
+    private static QuerySnapshot page(QueryDocumentSnapshot... documents) {
+        QuerySnapshot page = mock(QuerySnapshot.class);
+        when(page.getDocuments()).thenReturn(List.of(documents));
+        return page;
+    }
+
+    /**
+     * Answer every query on the books collection, whatever its filters, with these documents.
+     */
+    private void listing(QueryDocumentSnapshot... documents) {
+        QuerySnapshot page = page(documents);
+        when(books.get()).thenReturn(ApiFutures.immediateFuture(page));
+    }
+
+    /**
+     * Answer every query on the tombstones of the books collection with tombstones of these documents.
+     */
+    private void tombstones(String... ids) {
+        CollectionReference tombstones = mock(CollectionReference.class, RETURNS_SELF);
+        QuerySnapshot page = page(Arrays.stream(ids).map(id -> document(id, null)).toArray(QueryDocumentSnapshot[]::new));
+        when(tombstones.get()).thenReturn(ApiFutures.immediateFuture(page));
+        when(firestore.collection("books_tombstones")).thenReturn(tombstones);
+    }
+
+    private static QueryDocumentSnapshot document(String id, String title) {
+        QueryDocumentSnapshot document = mock(QueryDocumentSnapshot.class);
+        when(document.getId()).thenReturn(id);
+        when(document.getString("id")).thenReturn(id);
+        when(document.getString("title")).thenReturn(title);
+        when(document.getUpdateTime()).thenReturn(Timestamp.now());
+        Book book = new Book();
+        book.setTitle(title);
+        when(document.toObject(Book.class)).thenReturn(book);
+        return document;
+    }
+
+    private void deliver(DocumentChange... changes) {
+        QuerySnapshot snapshot = mock(QuerySnapshot.class);
+        when(snapshot.getDocumentChanges()).thenReturn(List.of(changes));
+        when(snapshot.getReadTime()).thenReturn(Timestamp.now());
+        snapshotListeners.forEach(listener -> listener.onEvent(snapshot, null));
+    }
+
+    private static DocumentChange change(DocumentChange.Type type, String id, String title) {
+        QueryDocumentSnapshot document = document(id, title);
+        DocumentChange change = mock(DocumentChange.class);
+        when(change.getType()).thenReturn(type);
+        when(change.getDocument()).thenReturn(document);
+        return change;
+    }
+
+    private static List<String> titleSearch(FirestoreSearchService<Book> searchService, String query) throws Exception {
+        return searchService.search(query, "title", null).stream().map(Book::getId).sorted().toList();
+    }
+
+    private List<String> titleSearch(String query) throws Exception {
+        return titleSearch(searchService, query);
+    }
+
+    @Test
+    void subscribesToTheCollection() {
+        assertTrue(repository.getSnapshotSyncStats().active());
+        assertEquals(1, snapshotListeners.size());
+    }
+
+    @Test
+    void writesMadeByAnotherInstanceReachTheIndex() throws Exception {
+        assertEquals(List.of(), titleSearch("pippi"));
+        // The first snapshot lists the collection as it was when the listener was registered
+        deliver();
+
+        deliver(change(DocumentChange.Type.ADDED, "a", "Pippi Longstocking"));
+        assertEquals(List.of("a"), titleSearch("pippi"));
+
+        deliver(change(DocumentChange.Type.MODIFIED, "a", "Emil"));
+        assertEquals(List.of(), titleSearch("pippi"));
+        assertEquals(List.of("a"), titleSearch("emil"));
+
+        deliver(change(DocumentChange.Type.REMOVED, "a", null));
+        assertEquals(List.of(), titleSearch("emil"));
+        assertEquals(0, searchService.getIndexSize());
+    }
+
+    @Test
+    void restoredSnapshotCatchesUpWithWritesAndDeletesMadeSinceItWasSaved() throws Exception {
+        Path file = directory.resolve("books.idx");
+        listing(document("a", "Pippi Longstocking"), document("b", "Pippi Goes Aboard"));
+        FirestoreSearchService<Book> saved = new FirestoreSearchService<>(books, Book.class, file);
+        // The first search loads the collection and saves the snapshot
+        assertEquals(List.of("a", "b"), titleSearch(saved, "pippi"));
+
+        // After the snapshot's high-water mark another instance deletes a and writes c
+        tombstones("a");
+        listing(document("c", "Pippi in the South Seas"));
+        FirestoreSearchService<Book> restored = new FirestoreSearchService<>(books, Book.class, file);
+        assertEquals(List.of("b", "c"), titleSearch(restored, "pippi"));
+        assertEquals(2, restored.getIndexSize());
+    }
+}
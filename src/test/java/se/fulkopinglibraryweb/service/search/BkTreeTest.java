@@ -0,0 +1,57 @@
+package se.fulkopinglibraryweb.service.search;
+
+import org.junit.jupiter.api.Test;
+import se.fulkopinglibraryweb.utils.EditDistance;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BkTreeTest {
+    private static final List<String> TERMS = List.of("lindgren", "lindberg", "lundgren", "strindberg",
+            "karlsson", "carlsson", "karlson", "book", "books", "boot", "look", "bok", "pippi", "emil",
+            "lagerlof", "lagerkvist", "moberg", "sjoberg", "schoberg", "nilsson");
+
+    @Test
+    void addRejectsDuplicates() {
+        BkTree tree = new BkTree();
+        assertTrue(tree.add("book"));
+        assertTrue(tree.add("boot"));
+        assertFalse(tree.add("book"));
+        assertEquals(2, tree.size());
+        tree.clear();
+        assertEquals(0, tree.size());
+        assertTrue(tree.add("book"));
+    }
+
+    @Test
+    void searchFindsExactlyTheTermsWithinTheDistance() {
+        BkTree tree = new BkTree();
+        TERMS.forEach(tree::add);
+        for (String query : List.of("lindgrem", "karlsen", "bok", "sj\u00f6berg", "xyz", "")) {
+            for (int maxDistance = 0; maxDistance <= 3; maxDistance++) {
+                Map<String, Integer> expected = new HashMap<>();
+                for (String term : TERMS) {
+                    int distance = EditDistance.distance(term, query);
+                    if (distance <= maxDistance) {
+                        expected.put(term, distance);
+                    }
+                }
+                Map<String, Integer> found = new HashMap<>();
+                tree.search(query, maxDistance, found::put);
+                assertEquals(expected, found, query + " within " + maxDistance);
+            }
+        }
+    }
+
+    @Test
+    void searchOfEmptyTreeVisitsNothing() {
+        new BkTree().search("book", 5, (term, distance) -> {
+            throw new AssertionError("Visited " + term);
+        });
+    }
+}
@@ -0,0 +1,132 @@
+package se.fulkopinglibraryweb.service.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.fulkopinglibraryweb.model.Book;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static se.fulkopinglibraryweb.service.search.InvertedIndexTest.book;
+import static se.fulkopinglibraryweb.service.search.InvertedIndexTest.ids;
+import static se.fulkopinglibraryweb.service.search.InvertedIndexTest.index;
+
+class IndexSnapshotTest {
+    private static final Instant HIGH_WATER_MARK = Instant.parse("2024-03-01T12:30:00.123456789Z");
+
+    @TempDir
+    Path directory;
+
+    static class Note {
+        @SearchableField(name = "title", fullText = true)
+        private final String title;
+
+        Note(String title) {
+            this.title = title;
+        }
+    }
+
+    private static byte[] encode(Book book) {
+        return String.join("\n", book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn())
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Book decode(ByteBuffer buffer) {
+        String[] fields = StandardCharsets.UTF_8.decode(buffer).toString().split("\n", -1);
+        return book(fields[0], fields[1], fields[2], fields[3]);
+    }
+
+    private static InvertedIndex<Book> sample() {
+        return index(
+                book("a", "Pippi Goes Aboard", "Astrid Lindgren", "978-91-29-65746-0"),
+                book("b", "Emil", "Astrid Lindgren", "978-91-29-00000-0"),
+                book("c", "Gosta Berlings Saga", "Selma Lagerl\u00f6f", "978-91-00-00000-0"));
+    }
+
+    @Test
+    void restoresTheIndexAndItsHighWaterMark() throws IOException {
+        Path file = directory.resolve("books.idx");
+        InvertedIndex<Book> original = sample();
+        IndexSnapshot.write(file, original, HIGH_WATER_MARK, IndexSnapshotTest::encode);
+
+        InvertedIndex<Book> restored = new InvertedIndex<>(SearchableSchema.forClass(Book.class));
+        assertEquals(HIGH_WATER_MARK, IndexSnapshot.read(file, restored, IndexSnapshotTest::decode));
+        assertEquals(3, restored.size());
+        assertEquals("Emil", restored.get("b").getTitle());
+        for (String query : List.of("lindgren", "saga", "9789129657460")) {
+            assertEquals(ids(original.ranked(query, null, 10)), ids(restored.ranked(query, null, 10)), query);
+        }
+        assertEquals(List.of("c"), ids(restored.containing("berling", null)));
+        assertEquals(List.of("a"), ids(restored.fuzzy("pipi", 1)));
+        assertEquals(List.of("c"), ids(restored.fuzzy("Lagerlof", 0)));
+    }
+
+    @Test
+    void restoredIndexAcceptsWrites() throws IOException {
+        Path file = directory.resolve("books.idx");
+        IndexSnapshot.write(file, sample(), HIGH_WATER_MARK, IndexSnapshotTest::encode);
+        InvertedIndex<Book> restored = new InvertedIndex<>(SearchableSchema.forClass(Book.class));
+        IndexSnapshot.read(file, restored, IndexSnapshotTest::decode);
+
+        restored.remove("a");
+        restored.put("b", book("b", "Emil and the Pirates", "Astrid Lindgren", null));
+        restored.put("d", book("d", "Pippi Aboard", "Astrid Lindgren", null));
+        assertEquals(List.of("d"), ids(restored.search("pippi", null)));
+        assertEquals(List.of("b"), ids(restored.search("pirates", null)));
+        assertEquals(List.of("d"), ids(restored.containing("aboa", null)));
+        assertEquals(3, restored.size());
+    }
+
+    @Test
+    void ignoresAMissingFile() throws IOException {
+        InvertedIndex<Book> index = new InvertedIndex<>(SearchableSchema.forClass(Book.class));
+        assertNull(IndexSnapshot.read(directory.resolve("missing.idx"), index, IndexSnapshotTest::decode));
+    }
+
+    @Test
+    void ignoresAnotherFormatVersion() throws IOException {
+        Path file = directory.resolve("books.idx");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeInt(0x464C5358);
+            out.writeInt(2);
+            out.writeLong(0);
+        }
+        InvertedIndex<Book> index = sample();
+        assertNull(IndexSnapshot.read(file, index, IndexSnapshotTest::decode));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void ignoresASnapshotOfAnotherItemClass() throws IOException {
+        Path file = directory.resolve("notes.idx");
+        InvertedIndex<Note> notes = new InvertedIndex<>(SearchableSchema.forClass(Note.class));
+        notes.put("n", new Note("Pippi"));
+        IndexSnapshot.write(file, notes, HIGH_WATER_MARK, note -> new byte[0]);
+
+        InvertedIndex<Book> index = new InvertedIndex<>(SearchableSchema.forClass(Book.class));
+        assertNull(IndexSnapshot.read(file, index, IndexSnapshotTest::decode));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void rejectsATruncatedSnapshot() throws IOException {
+        Path file = directory.resolve("books.idx");
+        IndexSnapshot.write(file, sample(), HIGH_WATER_MARK, IndexSnapshotTest::encode);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() / 2);
+        }
+        InvertedIndex<Book> index = new InvertedIndex<>(SearchableSchema.forClass(Book.class));
+        assertThrows(IOException.class, () -> IndexSnapshot.read(file, index, IndexSnapshotTest::decode));
+    }
+}
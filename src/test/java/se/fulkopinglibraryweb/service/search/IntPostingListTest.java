@@ -0,0 +1,63 @@
+package se.fulkopinglibraryweb.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntPostingListTest {
+
+    @Test
+    void addKeepsIdsSortedAndUnique() {
+        IntPostingList list = new IntPostingList();
+        for (int docId : new int[] {5, 1, 9, 3, 3, 5, 7, 2}) {
+            list.add(docId);
+        }
+        assertArrayEquals(new int[] {1, 2, 3, 5, 7, 9}, list.toArray());
+        assertEquals(6, list.size());
+    }
+
+    @Test
+    void addGrowsPastInitialCapacity() {
+        IntPostingList list = IntPostingList.of(new int[0]);
+        for (int docId = 0; docId < 100; docId++) {
+            list.add(docId);
+        }
+        assertEquals(100, list.size());
+        assertEquals(99, list.get(99));
+    }
+
+    @Test
+    void removeDropsOnlyThatId() {
+        IntPostingList list = IntPostingList.of(new int[] {1, 2, 3});
+        list.remove(2);
+        list.remove(7);
+        assertArrayEquals(new int[] {1, 3}, list.toArray());
+        assertFalse(list.contains(2));
+        assertTrue(list.contains(3));
+        list.remove(1);
+        list.remove(3);
+        assertTrue(list.isEmpty());
+    }
+
+    @Test
+    void retainInCompactsTheIntersection() {
+        IntPostingList list = IntPostingList.of(new int[] {2, 4, 6, 8});
+        int[] candidates = {1, 2, 3, 4, 8, 10};
+        int kept = list.retainIn(candidates, candidates.length);
+        assertEquals(3, kept);
+        assertArrayEquals(new int[] {2, 4, 8}, Arrays.copyOf(candidates, kept));
+    }
+
+    @Test
+    void retainInReadsOnlyTheValidCandidates() {
+        IntPostingList list = IntPostingList.of(new int[] {2, 4, 6});
+        int[] candidates = {2, 4, 6};
+        assertEquals(2, list.retainIn(candidates, 2));
+        assertEquals(0, new IntPostingList().retainIn(candidates, 3));
+    }
+}
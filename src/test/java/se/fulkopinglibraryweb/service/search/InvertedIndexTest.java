@@ -0,0 +1,156 @@
+package se.fulkopinglibraryweb.service.search;
+
+import org.junit.jupiter.api.Test;
+import se.fulkopinglibraryweb.model.Book;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InvertedIndexTest {
+
+    static Book book(String id, String title, String author, String isbn) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setIsbn(isbn);
+        return book;
+    }
+
+    static InvertedIndex<Book> index(Book... books) {
+        InvertedIndex<Book> index = new InvertedIndex<>(SearchableSchema.forClass(Book.class));
+        for (Book book : books) {
+            index.put(book.getId(), book);
+        }
+        return index;
+    }
+
+    static List<String> ids(List<Book> books) {
+        return books.stream().map(Book::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    void rankedWeighsEqualMatchesByFieldBoost() {
+        InvertedIndex<Book> index = index(
+                book("author-match", "Emil Goes", "Pippi Lindgren", null),
+                book("no-match", "Ronja Goes", "Astrid Lindgren", null),
+                book("title-match", "Pippi Goes", "Astrid Lindgren", null));
+        assertEquals(List.of("title-match", "author-match"), ids(index.ranked("pippi", null, 10)));
+        assertEquals(List.of("author-match"), ids(index.ranked("pippi", "author", 10)));
+    }
+
+    @Test
+    void rankedRewardsTermFrequencyAndShortFields() {
+        InvertedIndex<Book> index = index(
+                book("long", "Pippi and the Pirates of the South Sea", "Astrid Lindgren", null),
+                book("short", "Pippi", "Astrid Lindgren", null),
+                book("once", "Pippi Goes Aboard", "Astrid Lindgren", null),
+                book("twice", "Pippi Goes Pippi", "Astrid Lindgren", null));
+        assertEquals(List.of("twice", "short", "once", "long"), ids(index.ranked("pippi", "title", 10)));
+        assertEquals(List.of("once"), ids(index.ranked("aboard pippi", null, 10)));
+    }
+
+    @Test
+    void rankedKeepsOnlyTheTopLimit() {
+        InvertedIndex<Book> index = index(
+                book("long", "Pippi and the Pirates of the South Sea", "Astrid Lindgren", null),
+                book("short", "Pippi", "Astrid Lindgren", null));
+        assertEquals(List.of("short"), ids(index.ranked("pippi", null, 1)));
+        assertThrows(IllegalArgumentException.class, () -> index.ranked("pippi", null, 0));
+    }
+
+    @Test
+    void rankedPutsAnExactIdentifierMatchFirst() {
+        InvertedIndex<Book> index = index(
+                book("text", "Pippi 9789129657460", "Astrid Lindgren", "978-91-29-00000-0"),
+                book("isbn", "Emil", "Astrid Lindgren", "978-91-29-65746-0"));
+        assertEquals(List.of("isbn", "text"), ids(index.ranked("9789129657460", null, 10)));
+        assertEquals(List.of("isbn"), ids(index.ranked("978-91-29-65746-0", null, 10)));
+    }
+
+    @Test
+    void containingFindsSubstringsThroughTrigrams() {
+        InvertedIndex<Book> index = index(
+                book("a", "Pippi Goes Aboard", "Astrid Lindgren", "978-91-29-65746-0"),
+                book("b", "Emil", "Selma Lagerl\u00f6f", null),
+                book("c", "Anan", "Karin Boye", null));
+        assertEquals(List.of("a"), ids(index.containing("NDGRE", null)));
+        assertEquals(List.of(), ids(index.containing("ndgre", "title")));
+        assertEquals(List.of("b"), ids(index.containing("agerl\u00f6", "author")));
+        assertEquals(List.of("a"), ids(index.containing("29-657", null)));
+        assertEquals(List.of("a"), ids(index.containing("29657", "isbn")));
+    }
+
+    @Test
+    void containingVerifiesCandidatesThatOnlyShareTrigrams() {
+        // "anana" has the trigrams "ana" and "nan", which "anan" also has
+        InvertedIndex<Book> index = index(book("c", "Anan", "Karin Boye", null));
+        assertEquals(List.of(), ids(index.containing("anana", null)));
+        assertEquals(List.of("c"), ids(index.containing("anan", null)));
+    }
+
+    @Test
+    void containingMatchesNeedlesShorterThanATrigramAtTheStartOfAWord() {
+        InvertedIndex<Book> index = index(
+                book("a", "Pippi Goes Aboard", "Astrid Lindgren", "978-91-29-65746-0"),
+                book("b", "Emil", "Selma Lagerl\u00f6f", null));
+        assertEquals(List.of("a"), ids(index.containing("go", "title")));
+        assertEquals(List.of(), ids(index.containing("oe", "title")));
+        assertEquals(List.of("a", "b"), ids(index.containing("L", "author")));
+        // "Goes" and "Selma" contain an e, but not at the start of a word
+        assertEquals(List.of("b"), ids(index.containing("e", null)));
+        assertEquals(List.of("a"), ids(index.containing("9-", null)));
+        assertEquals(List.of("a"), ids(index.containing("97", "isbn")));
+        assertEquals(List.of(), ids(index.containing("", null)));
+        assertEquals(List.of(), ids(index.containing(" ", "title")));
+    }
+
+    @Test
+    void containingForgetsRemovedAndReplacedItems() {
+        InvertedIndex<Book> index = index(
+                book("a", "Pippi Goes Aboard", "Astrid Lindgren", null),
+                book("b", "Emil", "Selma Lagerl\u00f6f", null));
+        index.remove("a");
+        index.put("b", book("b", "Emil Aboard", "Selma Lagerl\u00f6f", null));
+        assertEquals(List.of("b"), ids(index.containing("aboa", null)));
+        assertEquals(List.of(), ids(index.containing("ndgre", null)));
+    }
+
+    @Test
+    void fuzzyMatchesTyposAndNamesThatSoundAlike() {
+        InvertedIndex<Book> index = index(
+                book("a", "Pippi Goes Aboard", "Astrid Lindgren", null),
+                book("b", "Emil", "Anna Carlsson", null));
+        assertEquals(List.of("a"), ids(index.fuzzy("pipi", 1)));
+        assertEquals(List.of(), ids(index.fuzzy("pipi", 0)));
+        assertEquals(List.of("b"), ids(index.fuzzy("Karlson", 0)));
+    }
+
+    @Test
+    void rebuildsTheFuzzyTermTreeOnceMostOfItIsDeadTerms() {
+        InvertedIndex<Book> index = index(book("a", "Pippi Longstocking", "Astrid Lindgren", null));
+        for (int i = 0; i < 100; i++) {
+            index.put("s" + i, book("s" + i, "Saga" + i, null, null));
+        }
+        assertEquals(104, index.fuzzyTermCount());
+
+        for (int i = 0; i < 52; i++) {
+            index.remove("s" + i);
+        }
+        // 52 of 104 terms are dead, not yet more than half
+        assertEquals(104, index.fuzzyTermCount());
+        index.remove("s52");
+        assertEquals(51, index.fuzzyTermCount());
+        assertEquals(List.of(), ids(index.fuzzy("saga5", 0)));
+
+        // A term removed and then added again is still in the tree
+        index.remove("s60");
+        index.put("s60", book("s60", "Saga60", null, null));
+        assertEquals(51, index.fuzzyTermCount());
+        assertEquals(List.of("s60"), ids(index.fuzzy("sagga60", 1)));
+        assertEquals(List.of("a"), ids(index.fuzzy("pipi", 1)));
+    }
+}
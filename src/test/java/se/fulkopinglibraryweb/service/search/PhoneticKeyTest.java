@@ -0,0 +1,42 @@
+package se.fulkopinglibraryweb.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PhoneticKeyTest {
+
+    @Test
+    void alikeSpellingsShareAKey() {
+        assertEquals(PhoneticKey.ofText("Lindgren"), PhoneticKey.ofText("Lindgr\u00e9n"));
+        assertEquals(PhoneticKey.ofText("Strindberg"), PhoneticKey.ofText("Strindbergh"));
+        assertEquals(PhoneticKey.ofText("Karlson"), PhoneticKey.ofText("Carlsson"));
+        assertEquals(PhoneticKey.ofText("Schoberg"), PhoneticKey.ofText("Sj\u00f6berg"));
+        assertEquals(PhoneticKey.ofText("Kjell"), PhoneticKey.ofText("Tjell"));
+        assertEquals(PhoneticKey.ofText("Jonsson"), PhoneticKey.ofText("Hjonson"));
+    }
+
+    @Test
+    void differentNamesDoNotShareAKey() {
+        assertNotEquals(PhoneticKey.ofText("Lindgren"), PhoneticKey.ofText("Lundberg"));
+        assertNotEquals(PhoneticKey.ofText("Moberg"), PhoneticKey.ofText("Sj\u00f6berg"));
+        assertNotEquals(PhoneticKey.ofText("Karlsson"), PhoneticKey.ofText("Nilsson"));
+    }
+
+    @Test
+    void keysEachWordInOrder() {
+        List<String> keys = PhoneticKey.ofText("Astrid Lindgren");
+        assertEquals(List.of(PhoneticKey.ofTerm("astrid"), PhoneticKey.ofTerm("lindgren")), keys);
+        assertEquals("astrd", keys.get(0));
+    }
+
+    @Test
+    void leavesOutWordsWithoutSounds() {
+        assertTrue(PhoneticKey.ofText("- hh").isEmpty());
+        assertEquals("", PhoneticKey.ofTerm(""));
+    }
+}
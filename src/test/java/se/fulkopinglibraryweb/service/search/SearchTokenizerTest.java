@@ -0,0 +1,34 @@
+package se.fulkopinglibraryweb.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SearchTokenizerTest {
+
+    @Test
+    void removesDiacriticsButKeepsSwedishLetters() {
+        assertEquals("g\u00f6sta berling", SearchTokenizer.normalize("G\u00f6sta  Berl\u00efng"));
+        assertEquals("lagerl\u00f6f \u00e5\u00e4\u00f6", SearchTokenizer.normalize("Lagerl\u00d6f \u00c5\u00c4\u00d6"));
+        assertEquals("cafe creme", SearchTokenizer.normalize("Caf\u00e9 Cr\u00e8me"));
+        assertEquals("\u00e4r\u00f6", SearchTokenizer.normalize("\u00c6r\u00d8"));
+    }
+
+    @Test
+    void foldsDecomposedInputLikeComposedInput() {
+        assertEquals("cafe \u00e5", SearchTokenizer.normalize("Cafe\u0301 a\u030a"));
+    }
+
+    @Test
+    void foldsGreekAndCyrillic() {
+        assertEquals("\u03b1\u03b8\u03b7\u03bd\u03b1 \u043c\u043e\u0441\u043a\u0432\u0430",
+                SearchTokenizer.normalize("\u0391\u03b8\u03ae\u03bd\u03b1 \u041c\u043e\u0441\u043a\u0432\u0430"));
+    }
+
+    @Test
+    void splitsTermsOnPunctuationAndWhitespace() {
+        assertEquals(List.of("pippi", "goes", "aboard"), SearchTokenizer.tokenize(" Pippi-goes\taboard! "));
+    }
+}
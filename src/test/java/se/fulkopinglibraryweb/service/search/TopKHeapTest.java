@@ -0,0 +1,57 @@
+package se.fulkopinglibraryweb.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TopKHeapTest {
+
+    @Test
+    void keepsTheHighestScoresBestFirst() {
+        TopKHeap heap = new TopKHeap(3);
+        double[] scores = {0.5, 2.0, 0.1, 3.5, 1.0, 2.5};
+        for (int docId = 0; docId < scores.length; docId++) {
+            heap.offer(docId, scores[docId]);
+        }
+        assertArrayEquals(new int[] {3, 5, 1}, heap.drainBestFirst());
+    }
+
+    @Test
+    void equalScoresRankTheLowerDocumentIdFirst() {
+        TopKHeap heap = new TopKHeap(2);
+        heap.offer(7, 1.0);
+        heap.offer(3, 1.0);
+        heap.offer(5, 1.0);
+        assertArrayEquals(new int[] {3, 5}, heap.drainBestFirst());
+    }
+
+    @Test
+    void zeroCapacityKeepsNothing() {
+        TopKHeap heap = new TopKHeap(0);
+        heap.offer(1, 1.0);
+        assertEquals(0, heap.drainBestFirst().length);
+    }
+
+    @Test
+    void matchesAFullSort() {
+        Random random = new Random(42);
+        double[] scores = new double[1000];
+        TopKHeap heap = new TopKHeap(10);
+        for (int docId = 0; docId < scores.length; docId++) {
+            // Few distinct scores, so ties are common
+            scores[docId] = random.nextInt(50);
+            heap.offer(docId, scores[docId]);
+        }
+        int[] expected = IntStream.range(0, scores.length).boxed()
+                .sorted(Comparator.<Integer>comparingDouble(docId -> -scores[docId]).thenComparing(docId -> docId))
+                .limit(10)
+                .mapToInt(Integer::intValue)
+                .toArray();
+        assertArrayEquals(expected, heap.drainBestFirst());
+    }
+}
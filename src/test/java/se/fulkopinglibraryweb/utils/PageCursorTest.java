@@ -0,0 +1,33 @@
+package se.fulkopinglibraryweb.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PageCursorTest {
+
+    @Test
+    void carriesTheTotalToTheNextPage() {
+        PageCursor cursor = PageCursor.decode(new PageCursor(List.of("Pippi", 1945L), "a", 120).encode());
+        assertEquals(List.of("Pippi", 1945L), cursor.getSortValues());
+        assertEquals("a", cursor.getDocumentId());
+        assertEquals(120, cursor.getTotal());
+    }
+
+    @Test
+    void decodesCursorsWithoutATotal() {
+        PageCursor cursor = PageCursor.decode(new PageCursor(Arrays.asList(null, true), "b").encode());
+        assertEquals(Arrays.asList(null, true), cursor.getSortValues());
+        assertEquals(-1, cursor.getTotal());
+    }
+
+    @Test
+    void rejectsTrailingBytes() {
+        String token = new PageCursor(List.of(), "a", 7).encode();
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(token + "AA"));
+    }
+}
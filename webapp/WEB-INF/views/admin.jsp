@@ -118,6 +118,36 @@
                     </div>
                 </div>
             </section>
+
+            <section class="admin-section">
+                <h2>Search Sources</h2>
+                <table>
+                    <thead>
+                        <tr>
+                            <th>Source</th>
+                            <th>Completed</th>
+                            <th>Timed Out</th>
+                            <th>Failed</th>
+                            <th>Rejected</th>
+                            <th>Average Latency (ms)</th>
+                            <th>Max Latency (ms)</th>
+                        </tr>
+                    </thead>
+                    <tbody>
+                        <c:forEach var="source" items="${searchSourceStats}">
+                            <tr>
+                                <td>${source.key}</td>
+                                <td>${source.value.completed()}</td>
+                                <td>${source.value.timedOut()}</td>
+                                <td>${source.value.failed()}</td>
+                                <td>${source.value.rejected()}</td>
+                                <td>${source.value.averageLatencyMillis()}</td>
+                                <td>${source.value.maxLatencyMillis()}</td>
+                            </tr>
+                        </c:forEach>
+                    </tbody>
+                </table>
+            </section>
         </main>
     </div>
 </body>
@@ -111,7 +111,7 @@
                 <th scope="col">Title</th>
                 <th scope="col">Author</th>
                 <th scope="col">ISBN</th>
-                <th scope="col">Publisher</th>
+                <th scope="col">Available</th>
                 <th scope="col">Year</th>
             </tr>
             </thead>
@@ -123,7 +123,7 @@
                             <td><c:out value="${book.title}"/></td>
                             <td><c:out value="${book.author}"/></td>
                             <td><c:out value="${book.isbn}"/></td>
-                            <td><c:out value="${book.publisher}"/></td>
+                            <td><c:out value="${book.available ? 'Yes' : 'No'}"/></td>
                             <td><c:out value="${book.year}"/></td>
                         </tr>
                     </c:forEach>
@@ -111,7 +111,7 @@
             <tr>
                 <th scope="col">Title</th>
                 <th scope="col">Type</th>
-                <th scope="col">Publisher</th>
+                <th scope="col">Director</th>
                 <th scope="col">Catalog Number</th>
                 <th scope="col">Year</th>
             </tr>
@@ -123,9 +123,9 @@
                         <tr>
                             <td><c:out value="${media.title}"/></td>
                             <td><c:out value="${media.type}"/></td>
-                            <td><c:out value="${media.publisher}"/></td>
-                            <td><c:out value="${media.catalogNumber}"/></td>
-                            <td><c:out value="${media.year}"/></td>
+                            <td><c:out value="${media.director}"/></td>
+                            <td><c:out value="${media.catalog}"/></td>
+                            <td><c:out value="${media.releaseYear}"/></td>
                         </tr>
                     </c:forEach>
                 </c:when>
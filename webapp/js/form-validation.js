@@ -59,8 +59,57 @@ class FormValidator {
     }
 }
 
+class SearchSuggestions {
+    static DEBOUNCE_MS = 150;
+    static LIMIT = 8;
+
+    // Offer completions from /api/suggest as the user types, through a datalist bound to the input
+    static attach(input) {
+        if (input.dataset.suggestions) {
+            return;
+        }
+        const list = document.createElement('datalist');
+        list.id = `${input.id || input.name}-suggestions`;
+        input.dataset.suggestions = list.id;
+        input.setAttribute('list', list.id);
+        input.setAttribute('autocomplete', 'off');
+        input.after(list);
+
+        let timer;
+        let latest = '';
+        input.addEventListener('input', () => {
+            clearTimeout(timer);
+            const prefix = input.value.trim();
+            latest = prefix;
+            if (prefix.length < 2) {
+                list.replaceChildren();
+                return;
+            }
+            timer = setTimeout(() => {
+                fetch(`api/suggest?q=${encodeURIComponent(prefix)}&limit=${this.LIMIT}`)
+                    .then(response => response.ok ? response.json() : [])
+                    .then(suggestions => {
+                        // A slower answer for an earlier prefix must not replace a newer one
+                        if (prefix !== latest) {
+                            return;
+                        }
+                        list.replaceChildren(...suggestions.map(suggestion => {
+                            const option = document.createElement('option');
+                            option.value = suggestion.text;
+                            option.label = suggestion.field;
+                            return option;
+                        }));
+                    })
+                    .catch(() => list.replaceChildren());
+            }, this.DEBOUNCE_MS);
+        });
+    }
+}
+
 // Initialize form validation for search form
 document.addEventListener('DOMContentLoaded', () => {
+    document.querySelectorAll('input[name="searchQuery"]').forEach(input => SearchSuggestions.attach(input));
+
     const searchForm = document.getElementById('searchForm');
     if (searchForm) {
         searchForm.addEventListener('submit', function(e) {